@@ -0,0 +1,120 @@
+import React, { useState, useEffect } from 'react';
+import { API } from '../Services/api';
+import './css/AdminAnalytics.css';
+
+// landing page of the admin dashboard: counts, revenue per day, orders per status and the best selling foods,
+// every number comes pre-summed from /admin/analytics
+export default function AdminAnalytics() {
+    const [range, setRange] = useState({ from: "", to: "" });
+    const [counts, setCounts] = useState(null);
+    const [revenue, setRevenue] = useState([]);
+    const [statuses, setStatuses] = useState([]);
+    const [topFoods, setTopFoods] = useState([]);
+    const [error, setError] = useState("");
+
+    const token = localStorage.getItem("token");
+
+    useEffect(() => {
+        fetchAnalytics();
+    }, [range]);
+
+    const fetchAnalytics = async () => {
+        setError("");
+        try {
+            const [countsRes, revenueRes, statusesRes, topRes] = await Promise.all([
+                API.getAnalytics(token, "counts"),
+                API.getAnalytics(token, "revenue", range),
+                API.getAnalytics(token, "statuses", range),
+                API.getAnalytics(token, "top-foods", { ...range, limit: 10 })
+            ]);
+            if (!revenueRes.ok) {
+                setError(await revenueRes.text());
+                return;
+            }
+            if (countsRes.ok) setCounts(await countsRes.json());
+            setRevenue(await revenueRes.json());
+            if (statusesRes.ok) setStatuses(await statusesRes.json());
+            if (topRes.ok) setTopFoods(await topRes.json());
+        } catch (err) {
+            console.error("Error loading analytics:", err);
+            setError("Could not load the dashboard numbers");
+        }
+    };
+
+    const totalRevenue = revenue.reduce((sum, point) => sum + point.revenue, 0);
+    const totalOrders = revenue.reduce((sum, point) => sum + point.orders, 0);
+
+    return (
+        <div className="admin-analytics-container">
+            <div className="analytics-header">
+                <h2>Dashboard</h2>
+                <div className="analytics-range">
+                    <label>From <input type="date" value={range.from}
+                        onChange={(e) => setRange({ ...range, from: e.target.value })} /></label>
+                    <label>To <input type="date" value={range.to}
+                        onChange={(e) => setRange({ ...range, to: e.target.value })} /></label>
+                </div>
+            </div>
+
+            {error && <p className="analytics-error">{error}</p>}
+
+            <div className="analytics-cards">
+                <div className="analytics-card"><span>Foods</span><strong>{counts ? counts.foods : "-"}</strong></div>
+                <div className="analytics-card"><span>Customers</span><strong>{counts ? counts.customers : "-"}</strong></div>
+                <div className="analytics-card"><span>Orders</span><strong>{totalOrders}</strong></div>
+                <div className="analytics-card"><span>Revenue</span><strong>₹{totalRevenue.toFixed(2)}</strong></div>
+            </div>
+
+            <div className="analytics-grid">
+                <section className="analytics-panel">
+                    <h3>Revenue per day</h3>
+                    <table className="analytics-table">
+                        <thead><tr><th>Day</th><th>Orders</th><th>Revenue</th></tr></thead>
+                        <tbody>
+                            {revenue.map(point => (
+                                <tr key={point.bucket}>
+                                    <td>{point.bucket.substring(0, 10)}</td>
+                                    <td>{point.orders}</td>
+                                    <td>₹{point.revenue.toFixed(2)}</td>
+                                </tr>
+                            ))}
+                        </tbody>
+                    </table>
+                </section>
+
+                <section className="analytics-panel">
+                    <h3>Orders per status</h3>
+                    <table className="analytics-table">
+                        <thead><tr><th>Status</th><th>Orders</th><th>Worth</th></tr></thead>
+                        <tbody>
+                            {statuses.map(row => (
+                                <tr key={row.status}>
+                                    <td>{row.status.replace(/_/g, " ")}</td>
+                                    <td>{row.orders}</td>
+                                    <td>₹{row.revenue.toFixed(2)}</td>
+                                </tr>
+                            ))}
+                        </tbody>
+                    </table>
+                </section>
+
+                <section className="analytics-panel">
+                    <h3>Top selling foods</h3>
+                    <table className="analytics-table">
+                        <thead><tr><th>Food</th><th>Category</th><th>Sold</th><th>Revenue</th></tr></thead>
+                        <tbody>
+                            {topFoods.map(food => (
+                                <tr key={food.foodId}>
+                                    <td>{food.name || `#${food.foodId}`}</td>
+                                    <td>{food.category}</td>
+                                    <td>{food.quantity}</td>
+                                    <td>₹{food.revenue.toFixed(2)}</td>
+                                </tr>
+                            ))}
+                        </tbody>
+                    </table>
+                </section>
+            </div>
+        </div>
+    );
+}
@@ -8,6 +8,9 @@ export default function AdminOrders() {
     const [orders, setOrders] = useState([]);
     const [loading, setLoading] = useState(true);
     const [activeTab, setActiveTab] = useState("ACTIVE");
+    const [nextCursor, setNextCursor] = useState(null);
+    const [loadingMore, setLoadingMore] = useState(false);
+    const [filters, setFilters] = useState({ from: "", to: "", minAmount: "" });
 
     // Auth Token
     const token = localStorage.getItem("token"); // Assuming you store admin token here
@@ -16,9 +19,16 @@ export default function AdminOrders() {
     // Available Status Options
     const STATUS_OPTIONS = ["PLACED", "COOKING", "OUT_FOR_DELIVERY", "DELIVERED", "CANCELLED"];
 
+    // which statuses each tab asks the server for, the ALL tab doesn't filter
+    const TAB_STATUSES = {
+        ACTIVE: ["PLACED", "COOKING", "OUT_FOR_DELIVERY"],
+        HISTORY: ["DELIVERED", "CANCELLED"],
+        ALL: []
+    };
+
     useEffect(() => {
         fetchOrders();
-    }, []);
+    }, [activeTab, filters]);
 
     const getFilteredOrders = () => {
         if (activeTab === "ALL") return orders;
@@ -39,7 +49,8 @@ export default function AdminOrders() {
 
     const filteredOrders = getFilteredOrders();
 
-    const fetchOrders = async () => {
+    // first page for the current tab and filters, or the next page when after is the last nextCursor
+    const fetchOrders = async (after = null) => {
         const token = localStorage.getItem("token"); // Make sure this matches what you set in AdminSignIn
         console.log("Current Admin Token:", token); // DEBUG: Check console to see if this is null
 
@@ -51,11 +62,11 @@ export default function AdminOrders() {
         }
 
         try {
-            const response = await API.getAllOrders(token);
+            const response = await API.getOrders(token, { ...filters, status: TAB_STATUSES[activeTab] }, after);
             if (response.ok) {
                 const data = await response.json();
-                console.log("Orders fetched:", data); // DEBUG: See if data arrives
-                setOrders(data);
+                setOrders(prev => after ? [...prev, ...data.items] : data.items);
+                setNextCursor(data.nextCursor);
             } else {
                 console.error("Failed response:", response.status);
             }
@@ -63,9 +74,19 @@ export default function AdminOrders() {
             console.error("Failed to fetch orders", err);
         } finally {
             setLoading(false); // This runs no matter what happens
+            setLoadingMore(false);
         }
     };
 
+    const loadMore = () => {
+        setLoadingMore(true);
+        fetchOrders(nextCursor);
+    };
+
+    const handleFilterChange = (e) => {
+        setFilters(prev => ({ ...prev, [e.target.name]: e.target.value }));
+    };
+
     const handleStatusChange = async (orderId, newStatus) => {
         try {
             // Optimistic UI Update: Update the UI immediately before API finishes
@@ -125,6 +146,21 @@ export default function AdminOrders() {
             </button>
         </div>
 
+            <div className="order-filters">
+                <label>
+                    From
+                    <input type="date" name="from" value={filters.from} onChange={handleFilterChange} />
+                </label>
+                <label>
+                    To
+                    <input type="date" name="to" value={filters.to} onChange={handleFilterChange} />
+                </label>
+                <label>
+                    Min. total ₹
+                    <input type="number" name="minAmount" min="0" value={filters.minAmount} onChange={handleFilterChange} />
+                </label>
+            </div>
+
             <div className="table-responsive">
                 <table className="orders-table">
                     <thead>
@@ -191,6 +227,14 @@ export default function AdminOrders() {
                     </tbody>
                 </table>
             </div>
+
+            {nextCursor && (
+                <div className="load-more-container">
+                    <button className="tab-btn" onClick={loadMore} disabled={loadingMore}>
+                        {loadingMore ? "Loading..." : "Load more orders"}
+                    </button>
+                </div>
+            )}
         </div>
     );
 }
\ No newline at end of file
@@ -68,6 +68,20 @@ export default function FoodItems() {
         }
     };
 
+    // Sold out / back in stock, only the flag is sent
+    const handleToggleAvailable = async (item) => {
+        const available = !item.available;
+        setFoodItems(prev => prev.map(f => f.id === item.id ? { ...f, available } : f));
+
+        try {
+            const res = await API.setAvailability(token, [item.id], available);
+            if (!res.ok) throw new Error("Could not update availability");
+        } catch (err) {
+            setFoodItems(prev => prev.map(f => f.id === item.id ? { ...f, available: item.available } : f));
+            alert(err.message);
+        }
+    };
+
     // EDIT CLICK → open EditFoodForm
     const handleEditClick = (item) => {
         setEditingItem(item);
@@ -151,6 +165,7 @@ export default function FoodItems() {
                                 item={item}
                                 onEdit={handleEditClick}
                                 onDelete={handleDeleteFood}
+                                onToggleAvailable={handleToggleAvailable}
                             />
                         ))
                     ) : (
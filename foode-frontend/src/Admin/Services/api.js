@@ -1,4 +1,4 @@
-const BASE_URL = "http://localhost:8080";
+export const BASE_URL = "http://localhost:8080";
 
 export const API = {
     // --- Auth ---
@@ -85,8 +85,40 @@ export const API = {
         });
     },
 
-    getAllOrders: async (token) => {
-        return fetch("http://localhost:8080/admin/orders", {
+    // JSON patch of single fields, no image upload involved
+    patchFood: async (token, id, changes) => {
+        return fetch(`${BASE_URL}/admin/food/${id}`, {
+            method: "PATCH",
+            headers: {
+                "Content-Type": "application/json",
+                "Authorization": `Bearer ${token}`
+            },
+            body: JSON.stringify(changes)
+        });
+    },
+
+    setAvailability: async (token, ids, available) => {
+        return fetch(`${BASE_URL}/admin/foods/availability`, {
+            method: "PATCH",
+            headers: {
+                "Content-Type": "application/json",
+                "Authorization": `Bearer ${token}`
+            },
+            body: JSON.stringify({ ids, available })
+        });
+    },
+
+    // one page of orders, newest first. filters: { status: [..], from, to, customerId, minAmount },
+    // after is the nextCursor of the previous page
+    getOrders: async (token, filters = {}, after = null, limit = 20) => {
+        const params = new URLSearchParams({ limit });
+        (filters.status || []).forEach(status => params.append("status", status));
+        ["from", "to", "customerId", "minAmount"].forEach(key => {
+            if (filters[key]) params.append(key, filters[key]);
+        });
+        if (after) params.append("after", after);
+
+        return fetch(`${BASE_URL}/admin/orders?${params}`, {
             method: "GET",
             headers: {
                 "Content-Type": "application/json",
@@ -95,6 +127,17 @@ export const API = {
         });
     },
 
+    // --- Dashboard analytics (pre-summed on the server), from/to are "YYYY-MM-DD" days ---
+    getAnalytics: async (token, report, params = {}) => {
+        const query = new URLSearchParams();
+        Object.entries(params).forEach(([key, value]) => {
+            if (value) query.append(key, value);
+        });
+        return fetch(`${BASE_URL}/admin/analytics/${report}?${query}`, {
+            headers: { "Authorization": `Bearer ${token}` }
+        });
+    },
+
     // 2. Update Order Status
     updateOrderStatus: async (orderId, status, token) => {
         // We send status as a Query Param (?status=COOKING) based on your Controller
@@ -10,11 +10,14 @@ import Box from '@mui/material/Box';
 import AccessTimeIcon from '@mui/icons-material/AccessTime';
 import LocalFireDepartmentIcon from '@mui/icons-material/LocalFireDepartment'; // For Spiciness
 import Chip from '@mui/material/Chip';
+import Switch from '@mui/material/Switch';
+import Tooltip from '@mui/material/Tooltip';
+import { BASE_URL } from '../Services/api';
 
-export default function FoodCard({ item, onEdit, onDelete }) {
+export default function FoodCard({ item, onEdit, onDelete, onToggleAvailable }) {
     
-    const imgSrc = item.imageData 
-      ? `data:${item.imageType};base64,${item.imageData}`
+    const imgSrc = item.imageUrl
+      ? `${BASE_URL}${item.imageUrl}?size=card`
       : "https://placehold.co/300x200?text=No+Image";
       
     const priceDisplay = `₹${item.price ? item.price.toFixed(2) : '0.00'}`;
@@ -121,7 +124,17 @@ export default function FoodCard({ item, onEdit, onDelete }) {
                       {priceDisplay}
                   </Typography>
 
-                  <Box>
+                  <Box sx={{ display: 'flex', alignItems: 'center' }}>
+                      {onToggleAvailable && (
+                        <Tooltip title={item.available ? "In stock" : "Sold out"}>
+                          <Switch
+                            size="small"
+                            checked={!!item.available}
+                            onChange={() => onToggleAvailable(item)}
+                            inputProps={{ 'aria-label': 'available' }}
+                          />
+                        </Tooltip>
+                      )}
                       <IconButton 
                         aria-label="edit" 
                         size="small" 
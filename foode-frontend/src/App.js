@@ -16,7 +16,9 @@ import UserProfile from "./Customer/Pages/UserProfile";
 import AboutUs from "./Customer/Pages/AboutUs";
 import MyOrders from "./Customer/Pages/MyOrders";
 import AdminOrders from "./Admin/Pages/AdminOrders";
+import AdminAnalytics from "./Admin/Pages/AdminAnalytics";
 import FoodDetails from "./Customer/Pages/FoodDetails"; 
+import GuestCart from "./Customer/Pages/GuestCart";
 
 // Import the new security component
 import ProtectedRoute from "./ProtectedRoute";
@@ -37,6 +39,9 @@ export default function App() {
                             <Route path="/login" element={<CustomerSignIn />} />
                             <Route path="/signup" element={<CustomerSignUp />} />
                             <Route path="/admin" element={<AdminSignIn />} />
+                            {/* visitors who haven't signed in: the menu and a cart kept in a cookie */}
+                            <Route path="/menu" element={<CustomerDashboard />} />
+                            <Route path="/guest-cart" element={<GuestCart />} />
 
                             <Route element={<ProtectedRoute allowedRole="CUSTOMER" />}>
                                 <Route path="/customerDashboard" element={<CustomerDashboard />} />
@@ -50,7 +55,7 @@ export default function App() {
 
                             <Route element={<ProtectedRoute allowedRole="ADMIN" />}>
                                 <Route path="/dashboard" element={<Dashboard />}>
-                                    <Route index element={<h2>Welcome to the Dashboard!</h2>} />
+                                    <Route index element={<AdminAnalytics />} />
                                     <Route path="customers" element={<CustomerList />} />
                                     <Route path="foods" element={<FoodItems />} />
                                     <Route path="orders" element={<AdminOrders />} />
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { CustomerAPI } from '../Services/CustomerAPI';
 import './CSS/CheckoutModal.css'; // Make sure this path matches your folder structure
 
@@ -20,9 +20,13 @@ export default function CheckoutModal({ isOpen, onClose, onOrderPlaced }) {
         addressType: 'Home'
     });
 
+    // one key per checkout: double clicks and retries of this checkout can't order twice
+    const idempotencyKey = useRef(null);
+
     // 1. Fetch Addresses when modal opens
     useEffect(() => {
         if (isOpen) {
+            idempotencyKey.current = crypto.randomUUID();
             fetchAddresses();
         }
     }, [isOpen]);
@@ -88,7 +92,7 @@ export default function CheckoutModal({ isOpen, onClose, onOrderPlaced }) {
             }
 
             // 3. Place the Order
-            const orderResponse = await CustomerAPI.placeOrder(id, finalAddressString, token);
+            const orderResponse = await CustomerAPI.placeOrder(id, finalAddressString, token, idempotencyKey.current);
             
             if (orderResponse.ok) {
                 const orderData = await orderResponse.json();
@@ -1,6 +1,6 @@
 import React, { useState, useEffect } from 'react';
 import { Link } from 'react-router-dom';
-import { CustomerAPI } from '../Services/CustomerAPI';
+import { CustomerAPI, BASE_URL } from '../Services/CustomerAPI';
 import Card from '@mui/material/Card';
 import CardMedia from '@mui/material/CardMedia';
 import CardContent from '@mui/material/CardContent';
@@ -19,8 +19,8 @@ export default function FoodCard({ food, onAddToCart }) {
     const [isWishlisted, setIsWishlisted] = useState(false);
     const [loadingCart, setLoadingCart] = useState(false);
 
-    const imageSrc = food.imageData
-        ? `data:${food.imageType};base64,${food.imageData}`
+    const imageSrc = food.imageUrl
+        ? `${BASE_URL}${food.imageUrl}?size=card`
         : "https://placehold.co/300x200?text=No+Image";
 
     const priceDisplay = `₹${food.price ? food.price.toFixed(2) : '0.00'}`;
@@ -27,11 +27,22 @@ export default function Navbar({ onSearch }) {
         navigate("/login");
     };
 
+    const isGuest = !(token || localStorage.getItem("customer_token"));
+
     useEffect(() => {
         const fetchNavbarData = async () => {
             const id = localStorage.getItem("customerId");
             const activeToken = token || localStorage.getItem("customer_token");
-            if (!id || !activeToken) return;
+            if (!id || !activeToken) {
+                // a visitor who hasn't signed in, count what is in the guest cart cookie
+                try {
+                    const guestRes = await CustomerAPI.getGuestCart();
+                    if (guestRes.ok) setCartCount((await guestRes.json())?.quantity || 0);
+                } catch (error) {
+                    console.error("Guest cart error:", error);
+                }
+                return;
+            }
             try {
                 const customerRes = await CustomerAPI.getCustomerById(id, activeToken);
                 if (customerRes.status === 401 || customerRes.status === 403) {
@@ -51,11 +62,7 @@ export default function Navbar({ onSearch }) {
                     if (cartRes.ok) {
                         const cData = await cartRes.json();
                         const cartObj = cData.data || cData;
-                        if (cartObj?.cartItems) {
-                            setCartCount(cartObj.cartItems.reduce((sum, item) => sum + item.quantity, 0));
-                        } else {
-                            setCartCount(0);
-                        }
+                        setCartCount(cartObj?.quantity || 0);
                     }
                 }
             } catch (error) {
@@ -82,7 +89,7 @@ export default function Navbar({ onSearch }) {
         <>
             <nav className="navbar">
                 <div className="navbar-logo">
-                    <Link to="/customerDashboard"><img src={logoImage} alt="Logo" className="logo-img" /></Link>
+                    <Link to={isGuest ? "/menu" : "/customerDashboard"}><img src={logoImage} alt="Logo" className="logo-img" /></Link>
                 </div>
                 <div className="mobile-toggle" onClick={() => setIsMenuOpen(!isMenuOpen)}>
                     {isMenuOpen ? <X size={28} /> : <Menu size={28} />}
@@ -92,20 +99,26 @@ export default function Navbar({ onSearch }) {
                         <Search size={18} className="search-icon" />
                         <input type="text" className="search-input" placeholder="Search food..." value={searchTerm} onChange={(e) => setSearchTerm(e.target.value)} onKeyDown={handleKeyDown} />
                     </div>
-                    <Link to="/cart" className="nav-item">
+                    <Link to={isGuest ? "/guest-cart" : "/cart"} className="nav-item">
                         <div className="cart-wrapper"><ShoppingCart size={22} /><span className="cart-badge">{cartCount}</span></div>
                         <span className="nav-text">Cart</span>
                     </Link>
-                    <Link to="/wishlist" className="nav-item">
-                        <div className="cart-wrapper"><Heart size={22} /><span className="cart-badge">{wishlistCount}</span></div>
-                        <span className="nav-text">Wishlist</span>
-                    </Link>
-                    <Link to="/orders" className="nav-item"><User size={22} /><span className="nav-text">My Orders</span></Link>
-                    <Link to="/profile" className="nav-item"><User size={22} /><span className="nav-text">{customerName}</span></Link>
-                    <button className="nav-item" onClick={() => setShowLogoutModal(true)}>
-                        <LogOut size={22} />
-                        <span className="nav-text">Logout</span>
-                    </button>
+                    {isGuest ? (
+                        <Link to="/login" className="nav-item"><User size={22} /><span className="nav-text">Sign In</span></Link>
+                    ) : (
+                        <>
+                            <Link to="/wishlist" className="nav-item">
+                                <div className="cart-wrapper"><Heart size={22} /><span className="cart-badge">{wishlistCount}</span></div>
+                                <span className="nav-text">Wishlist</span>
+                            </Link>
+                            <Link to="/orders" className="nav-item"><User size={22} /><span className="nav-text">My Orders</span></Link>
+                            <Link to="/profile" className="nav-item"><User size={22} /><span className="nav-text">{customerName}</span></Link>
+                            <button className="nav-item" onClick={() => setShowLogoutModal(true)}>
+                                <LogOut size={22} />
+                                <span className="nav-text">Logout</span>
+                            </button>
+                        </>
+                    )}
                 </div>
             </nav>
 
@@ -1,6 +1,6 @@
-import React, { useState, useEffect } from "react";
+import React, { useState, useEffect, useRef } from "react";
 import Navbar from '../Component/Navbar';
-import { CustomerAPI } from '../Services/CustomerAPI';
+import { CustomerAPI, BASE_URL } from '../Services/CustomerAPI';
 import { useNavigate, Link } from "react-router-dom"; // <--- 1. IMPORT LINK HERE
 import { Trash2, Plus, Minus, ShoppingCart } from 'lucide-react';
 import './css/Cart.css'; 
@@ -9,12 +9,17 @@ import CheckoutModal from '../Component/CheckoutModal';
 const Cart = () => {
   const [cartItems, setCartItems] = useState([]);
   const [totalPrice, setTotalPrice] = useState(0);
+  const [priceChanged, setPriceChanged] = useState(false);
   const [loading, setLoading] = useState(true);
   const [customerName, setCustomerName] = useState("");
   const [isCheckoutOpen, setIsCheckoutOpen] = useState(false);
 
   const navigate = useNavigate();
 
+  // quantity clicks are collected here and sent as one batch once the user stops clicking
+  const pendingQuantities = useRef({});
+  const flushTimer = useRef(null);
+
   const fetchCartData = async () => {
     const id = localStorage.getItem("customerId");
     const token = localStorage.getItem("customer_token");
@@ -29,8 +34,9 @@ const Cart = () => {
         
         console.log("Verified Cart Data:", data);
 
-        if (data && data.cartItems && Array.isArray(data.cartItems)) {
-            setCartItems(data.cartItems);
+        if (data && Array.isArray(data.items)) {
+            setCartItems(data.items);
+            setPriceChanged(data.priceChanged);
         } else {
             setCartItems([]);
         }
@@ -47,7 +53,7 @@ const Cart = () => {
 
   useEffect(() => {
     const total = cartItems.reduce(
-      (acc, item) => acc + (item.food.price * item.quantity),
+      (acc, item) => acc + (item.unitPrice * item.quantity),
       0
     );
     setTotalPrice(total);
@@ -60,17 +66,30 @@ const Cart = () => {
     }
     if (newQuantity < 0) return; 
 
+    setCartItems(prev => prev.map(cartItem =>
+        cartItem.cartItemId === item.cartItemId
+        ? { ...cartItem, quantity: newQuantity }
+        : cartItem
+    ));
+    pendingQuantities.current[item.cartItemId] = newQuantity;
+
+    clearTimeout(flushTimer.current);
+    flushTimer.current = setTimeout(flushQuantities, 400);
+  };
+
+  const flushQuantities = async () => {
     const id = localStorage.getItem("customerId");
     const token = localStorage.getItem("customer_token");
 
+    const operations = Object.entries(pendingQuantities.current).map(([cartItemId, quantity]) => (
+        { op: "set", cartItemId: Number(cartItemId), quantity }
+    ));
+    pendingQuantities.current = {};
+    if (operations.length === 0) return;
+
     try {
-        const updatedItems = cartItems.map(cartItem => 
-            cartItem.cartItemId === item.cartItemId 
-            ? { ...cartItem, quantity: newQuantity } 
-            : cartItem
-        );
-        setCartItems(updatedItems);
-        await CustomerAPI.updateCartQuantity(id, item.cartItemId, newQuantity, token);
+        const response = await CustomerAPI.batchCart(id, operations, token);
+        if (!response.ok) throw new Error(await response.text());
         window.dispatchEvent(new Event("cartUpdated"));
     } catch (error) {
         console.error("Failed to update qty", error);
@@ -78,6 +97,14 @@ const Cart = () => {
     }
   };
 
+  useEffect(() => {
+    // leaving the page sends what is still waiting
+    return () => {
+        clearTimeout(flushTimer.current);
+        flushQuantities();
+    };
+  }, []);
+
   const handleRemoveFromCart = async (cartItemId) => {
     const id = localStorage.getItem("customerId");
     const token = localStorage.getItem("customer_token");
@@ -85,7 +112,14 @@ const Cart = () => {
     if(!window.confirm("Are you sure you want to remove this item?")) return;
 
     try {
-        await CustomerAPI.removeFromCart(id, cartItemId, token);
+        const item = cartItems.find(cartItem => cartItem.cartItemId === cartItemId);
+        const response = await CustomerAPI.removeFromCart(id, cartItemId, token, item?.version);
+        if (response.status === 409) {
+            // changed in another tab in the meantime, show what the cart looks like now
+            alert("This item was changed elsewhere, the cart has been refreshed.");
+            fetchCartData();
+            return;
+        }
         setCartItems(prev => prev.filter(item => item.cartItemId !== cartItemId));
         window.dispatchEvent(new Event("cartUpdated"));
     } catch (error) {
@@ -98,9 +132,9 @@ const Cart = () => {
       window.dispatchEvent(new Event("cartUpdated"));
   };
 
-  const getImageSrc = (food) => {
-      if (food.imageData) {
-          return `data:${food.imageType};base64,${food.imageData}`;
+  const getImageSrc = (item) => {
+      if (item.imageUrl) {
+          return `${BASE_URL}${item.imageUrl}`;
       }
       return "https://placehold.co/100x100?text=No+Image";
   };
@@ -150,24 +184,24 @@ const Cart = () => {
                               <td>
                                 <div className="product-cell">
                                   {/* 2. Wrap Image in Link */}
-                                  <Link to={`/food/${item.food.id}`}>
+                                  <Link to={`/food/${item.foodId}`}>
                                       <img
-                                        src={getImageSrc(item.food)}
-                                        alt={item.food.name}
+                                        src={getImageSrc(item)}
+                                        alt={item.name}
                                         className="cart-product-img"
                                       />
                                   </Link>
                                   
                                   <div className="product-info">
                                     {/* 3. Wrap Name in Link with no styles */}
-                                    <Link to={`/food/${item.food.id}`} style={{ textDecoration: 'none', color: 'inherit' }}>
-                                        <h6 style={{ cursor: 'pointer' }}>{item.food.name}</h6>
+                                    <Link to={`/food/${item.foodId}`} style={{ textDecoration: 'none', color: 'inherit' }}>
+                                        <h6 style={{ cursor: 'pointer' }}>{item.name}</h6>
                                     </Link>
-                                    <small>{item.food.category}</small>
+                                    <small>{item.category}</small>
                                   </div>
                                 </div>
                               </td>
-                              <td style={{fontWeight: '500'}}>₹ {item.food.price}</td>
+                              <td style={{fontWeight: '500'}}>₹ {item.unitPrice}</td>
                               <td>
                                 <div className="quantity-control">
                                   <button
@@ -193,7 +227,7 @@ const Cart = () => {
                                 </div>
                               </td>
                               <td style={{fontWeight: '700', color: '#333'}}>
-                                ₹ {(item.food.price * item.quantity).toFixed(2)}
+                                ₹ {(item.unitPrice * item.quantity).toFixed(2)}
                               </td>
                               <td>
                                 <button
@@ -209,6 +243,11 @@ const Cart = () => {
                     </table>
 
                     <div className="checkout-section">
+                        {priceChanged && (
+                          <p style={{color: '#b45309', marginBottom: '12px'}}>
+                            Some prices have changed since you added these items, the total uses today's prices.
+                          </p>
+                        )}
                         <div style={{display: 'flex', justifyContent: 'space-between', alignItems: 'center', marginBottom: '20px'}}>
                           <span className="total-label">Grand Total:</span>
                           <span className="total-amount">₹ {totalPrice.toFixed(2)}</span>
@@ -217,7 +256,12 @@ const Cart = () => {
                         <div style={{textAlign: 'right'}}>
                             <button
                                 className="btn-checkout"
-                                onClick={() => setIsCheckoutOpen(true)}
+                                onClick={async () => {
+                                    // the order is built from the cart on the server, send pending changes first
+                                    clearTimeout(flushTimer.current);
+                                    await flushQuantities();
+                                    setIsCheckoutOpen(true);
+                                }}
                             >
                                 Proceed to Checkout
                             </button>
@@ -10,18 +10,14 @@ export default function CustomerDashboard() {
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
 
+    // without a token this is the public menu (/menu) and the cart is the guest cart cookie
+    const token = localStorage.getItem("customer_token");
+    const isGuest = !token;
+
     useEffect(() => {
         const fetchFoodItems = async () => {
-            const token = localStorage.getItem("customer_token");
-
-            if (!token) {
-                setError("No token found. Please login.");
-                setLoading(false);
-                return;
-            }
-
             try {
-                const response = await CustomerAPI.getAllFoods(token);
+                const response = isGuest ? await CustomerAPI.getPublicFoods() : await CustomerAPI.getAllFoods(token);
                 if (response.ok) {
                     const data = await response.json();
                     if (Array.isArray(data)) {
@@ -72,16 +68,13 @@ export default function CustomerDashboard() {
     };
 
     const handleSearch = async (keyword) => {
-        const token = localStorage.getItem("customer_token");
-        if (!token) return;
-
         setLoading(true);
         try {
             let response;
             if (!keyword || keyword.trim() === "") {
-                response = await CustomerAPI.getAllFoods(token);
+                response = isGuest ? await CustomerAPI.getPublicFoods() : await CustomerAPI.getAllFoods(token);
             } else {
-                response = await CustomerAPI.searchFood(keyword, token);
+                response = isGuest ? await CustomerAPI.searchPublicFood(keyword) : await CustomerAPI.searchFood(keyword, token);
             }
 
             if (response.ok) {
@@ -124,15 +117,18 @@ export default function CustomerDashboard() {
         }
 
         const customerId = localStorage.getItem("customerId");
-        const token = localStorage.getItem("customer_token");
-
-        if (!token) {
-            alert("Please login first.");
-            return;
-        }
 
         try {
-            await CustomerAPI.addFoodToCart(customerId, food.id, 1, token);
+            if (isGuest) {
+                // kept in the guest cart cookie, merged into the customer's cart at sign in
+                const response = await CustomerAPI.updateGuestCart([{ op: "add", foodId: food.id, quantity: 1 }]);
+                if (!response.ok) {
+                    alert(await response.text());
+                    return;
+                }
+            } else {
+                await CustomerAPI.addFoodToCart(customerId, food.id, 1, token);
+            }
             console.log("Added to cart successfully");
             window.dispatchEvent(new Event("cartUpdated"));
             alert(`${food.name} added to cart!`); // Added user feedback
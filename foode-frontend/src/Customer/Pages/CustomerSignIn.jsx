@@ -127,6 +127,9 @@ export default function CustomerSignIn() {
                     <p className="signup-link">
                         Don't have an account? <Link to="/signup">Sign Up here</Link>
                     </p>
+                    <p className="signup-link">
+                        Just looking? <Link to="/menu">Browse the menu</Link>
+                    </p>
                 </form>
             </div>
 
@@ -1,7 +1,7 @@
 import React, { useState, useEffect } from 'react';
 import { useParams, useNavigate } from 'react-router-dom';
 import Navbar from '../Component/Navbar';
-import { CustomerAPI } from '../Services/CustomerAPI';
+import { CustomerAPI, BASE_URL } from '../Services/CustomerAPI';
 import { Heart, ShoppingCart, Clock, ArrowLeft, Minus, Plus, ChefHat } from 'lucide-react';
 import { toast } from 'react-toastify';
 import './css/FoodDetails.css'; // We will create this CSS next
@@ -39,8 +39,8 @@ export default function FoodDetails() {
 
     // Helper to render image
     const getImageSrc = (item) => {
-        if (item && item.imageData) {
-            return `data:${item.imageType};base64,${item.imageData}`;
+        if (item && item.imageUrl) {
+            return `${BASE_URL}${item.imageUrl}`;
         }
         return "https://placehold.co/400x400?text=No+Image";
     };
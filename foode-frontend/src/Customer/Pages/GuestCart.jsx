@@ -0,0 +1,179 @@
+import React, { useState, useEffect } from "react";
+import Navbar from '../Component/Navbar';
+import { CustomerAPI, BASE_URL } from '../Services/CustomerAPI';
+import { useNavigate } from "react-router-dom";
+import { Trash2, Plus, Minus, ShoppingCart } from 'lucide-react';
+import './css/Cart.css';
+
+// cart of a visitor who hasn't signed in. It lives in a cookie the server signs, signing in moves it into the
+// customer's own cart
+const GuestCart = () => {
+  const [cart, setCart] = useState({ items: [], subtotal: 0 });
+  const [loading, setLoading] = useState(true);
+
+  const navigate = useNavigate();
+
+  const fetchCart = async () => {
+    try {
+        setLoading(true);
+        const response = await CustomerAPI.getGuestCart();
+        if (response.ok) setCart(await response.json());
+    } catch (error) {
+        console.error("Error fetching guest cart:", error);
+    } finally {
+        setLoading(false);
+    }
+  };
+
+  useEffect(() => {
+    fetchCart();
+  }, []);
+
+  // every change answers with the whole cart, no need to read it again
+  const update = async (operation) => {
+    try {
+        const response = await CustomerAPI.updateGuestCart([operation]);
+        if (!response.ok) {
+            alert(await response.text());
+            return;
+        }
+        setCart(await response.json());
+        window.dispatchEvent(new Event("cartUpdated"));
+    } catch (error) {
+        console.error("Failed to update the guest cart", error);
+    }
+  };
+
+  const handleQuantityChange = (item, quantity) => {
+    if (quantity <= 0) {
+        update({ op: "remove", foodId: item.foodId });
+    } else {
+        update({ op: "set", foodId: item.foodId, quantity });
+    }
+  };
+
+  const getImageSrc = (item) => {
+      if (item.imageUrl) {
+          return `${BASE_URL}${item.imageUrl}`;
+      }
+      return "https://placehold.co/100x100?text=No+Image";
+  };
+
+  return (
+    <div className="cart-page-container">
+      <div style={{ marginBottom: '80px' }}>
+         <Navbar />
+      </div>
+
+      <div className="container" style={{maxWidth: '1000px', margin: '0 auto'}}>
+        <div className="cart-card">
+            <div className="cart-header">
+                <h4>Shopping Cart</h4>
+            </div>
+
+            <div style={{ padding: '20px' }}>
+                {loading ? (
+                    <div style={{textAlign: 'center', padding: '50px'}}>Loading cart...</div>
+                ) : cart.items.length === 0 ? (
+                  <div style={{textAlign: 'center', padding: '50px'}}>
+                    <ShoppingCart size={64} style={{color: '#ccc', marginBottom: '20px'}} />
+                    <h5>Your cart is empty</h5>
+                    <button
+                        onClick={() => navigate("/menu")}
+                        className="btn-checkout"
+                        style={{maxWidth: '200px', marginTop: '20px'}}
+                    >
+                        Browse Menu
+                    </button>
+                  </div>
+                ) : (
+                  <>
+                    <table className="cart-table">
+                        <thead>
+                          <tr>
+                            <th>Product</th>
+                            <th>Price</th>
+                            <th>Quantity</th>
+                            <th>Total</th>
+                            <th>Action</th>
+                          </tr>
+                        </thead>
+                        <tbody>
+                          {cart.items.map((item) => (
+                            <tr key={item.foodId}>
+                              <td>
+                                <div className="product-cell">
+                                  <img
+                                    src={getImageSrc(item)}
+                                    alt={item.name}
+                                    className="cart-product-img"
+                                  />
+                                  <div className="product-info">
+                                    <h6>{item.name}</h6>
+                                    <small>{item.category}</small>
+                                  </div>
+                                </div>
+                              </td>
+                              <td style={{fontWeight: '500'}}>₹ {item.unitPrice}</td>
+                              <td>
+                                <div className="quantity-control">
+                                  <button
+                                    className="qty-btn"
+                                    type="button"
+                                    onClick={() => handleQuantityChange(item, item.quantity - 1)}
+                                  >
+                                    <Minus size={14}/>
+                                  </button>
+                                  <input
+                                    type="text"
+                                    className="qty-input"
+                                    value={item.quantity}
+                                    readOnly
+                                  />
+                                  <button
+                                    className="qty-btn"
+                                    type="button"
+                                    onClick={() => handleQuantityChange(item, item.quantity + 1)}
+                                  >
+                                    <Plus size={14} />
+                                  </button>
+                                </div>
+                              </td>
+                              <td style={{fontWeight: '700', color: '#333'}}>
+                                ₹ {Number(item.lineTotal || 0).toFixed(2)}
+                              </td>
+                              <td>
+                                <button
+                                  className="btn-trash"
+                                  onClick={() => update({ op: "remove", foodId: item.foodId })}
+                                >
+                                  <Trash2 size={18} />
+                                </button>
+                              </td>
+                            </tr>
+                          ))}
+                        </tbody>
+                    </table>
+
+                    <div className="checkout-section">
+                        <div style={{display: 'flex', justifyContent: 'space-between', alignItems: 'center', marginBottom: '20px'}}>
+                          <span className="total-label">Grand Total:</span>
+                          <span className="total-amount">₹ {Number(cart.subtotal || 0).toFixed(2)}</span>
+                        </div>
+
+                        <div style={{textAlign: 'right'}}>
+                            <button className="btn-checkout" onClick={() => navigate("/login")}>
+                                Sign in to Checkout
+                            </button>
+                        </div>
+                    </div>
+                  </>
+                )}
+            </div>
+        </div>
+      </div>
+    </div>
+  );
+};
+
+export default GuestCart;
@@ -45,6 +45,43 @@ export default function MyOrders() {
         fetchOrders();
     }, [navigate]);
 
+    // status changes come in over the order stream instead of reloading the whole history,
+    // a dropped stream is opened again after a few seconds
+    useEffect(() => {
+        const id = localStorage.getItem("customerId");
+        const token = localStorage.getItem("customer_token");
+        if (!id || !token) return;
+
+        const controller = new AbortController();
+        let retryTimer = null;
+
+        const applyStatuses = (updates) => {
+            setOrders(prev => prev.map(order => {
+                const update = updates.find(u => u.orderId === order.orderId);
+                return update ? { ...order, status: update.status } : order;
+            }));
+        };
+
+        const connect = () => {
+            CustomerAPI.streamOrders(id, token, (name, data) => {
+                if (name === "snapshot") applyStatuses(data);
+                if (name === "status") applyStatuses([data]);
+            }, controller.signal)
+                .catch(err => {
+                    if (!controller.signal.aborted) console.error("Order stream dropped", err);
+                })
+                .finally(() => {
+                    if (!controller.signal.aborted) retryTimer = setTimeout(connect, 3000);
+                });
+        };
+
+        connect();
+        return () => {
+            controller.abort();
+            clearTimeout(retryTimer);
+        };
+    }, []);
+
     const toggleDetails = (orderId) => {
         if (expandedOrder === orderId) {
             setExpandedOrder(null);
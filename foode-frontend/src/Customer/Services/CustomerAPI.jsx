@@ -1,4 +1,4 @@
-const BASE_URL = "http://localhost:8080";
+export const BASE_URL = "http://localhost:8080";
 
 export const CustomerAPI = {
     customerSignUp: async (formData) => {
@@ -8,9 +8,11 @@ export const CustomerAPI = {
         });
     },
 
+    // credentials: the guest cart cookie goes along and is merged into the customer's cart
     customerSignIn: async (email, password) => {
         return fetch(`${BASE_URL}/customer/signin`, {
             method: "POST",
+            credentials: "include",
             headers: { "Content-Type": "application/json" },
             body: JSON.stringify({ email, password }),
         });
@@ -115,6 +117,46 @@ export const CustomerAPI = {
         });
     },
 
+    // the menu for visitors who haven't signed in, no token needed
+    getPublicFoods: async () => {
+        return fetch(`${BASE_URL}/public/foods`, {
+            method: "GET",
+            headers: { "Content-Type": "application/json" }
+        });
+    },
+
+    searchPublicFood: async (keyword) => {
+        return fetch(`${BASE_URL}/public/foods/search?keyword=${encodeURIComponent(keyword)}`, {
+            method: "GET",
+            headers: { "Content-Type": "application/json" }
+        });
+    },
+
+    // cart of a visitor who hasn't signed in, it only lives in a cookie
+    getGuestCart: async () => {
+        return fetch(`${BASE_URL}/public/guest-cart`, {
+            method: "GET",
+            credentials: "include"
+        });
+    },
+
+    // operations: [{ op: "add" | "set" | "remove", foodId, quantity? }]
+    updateGuestCart: async (operations) => {
+        return fetch(`${BASE_URL}/public/guest-cart/batch`, {
+            method: "POST",
+            credentials: "include",
+            headers: { "Content-Type": "application/json" },
+            body: JSON.stringify(operations)
+        });
+    },
+
+    clearGuestCart: async () => {
+        return fetch(`${BASE_URL}/public/guest-cart`, {
+            method: "DELETE",
+            credentials: "include"
+        });
+    },
+
     getCart: async (customerId, token) => {
         return fetch(`${BASE_URL}/cart/${customerId}`, {
             method: "GET",
@@ -130,30 +172,46 @@ export const CustomerAPI = {
         });
     },
 
-    updateCartQuantity: async (customerId, cartItemId, quantity, token) => {
+    updateCartQuantity: async (customerId, cartItemId, quantity, token, version) => {
         return fetch(`${BASE_URL}/cart/update/${customerId}/${cartItemId}`, {
             method: "PUT",
             headers: {
                 "Authorization": `Bearer ${token}`,
                 "Content-Type": "application/json"
             },
-            body: JSON.stringify({ quantity: quantity })
+            body: JSON.stringify({ quantity: quantity, version: version })
+        });
+    },
+
+    // operations: [{ op: "add" | "set" | "remove", foodId?, cartItemId?, quantity? }], answers with the cart totals
+    batchCart: async (customerId, operations, token) => {
+        return fetch(`${BASE_URL}/cart/${customerId}/batch`, {
+            method: "POST",
+            headers: {
+                "Authorization": `Bearer ${token}`,
+                "Content-Type": "application/json"
+            },
+            body: JSON.stringify(operations)
         });
     },
 
-    removeFromCart: async (customerId, cartItemId, token) => {
-        return fetch(`${BASE_URL}/cart/remove/${customerId}/${cartItemId}`, {
+    // version: the item version from the cart view, a stale one gets 409 with the current cart
+    removeFromCart: async (customerId, cartItemId, token, version) => {
+        const query = version != null ? `?version=${version}` : "";
+        return fetch(`${BASE_URL}/cart/remove/${customerId}/${cartItemId}${query}`, {
             method: "DELETE",
             headers: { "Authorization": `Bearer ${token}` }
         });
     },
 
-    placeOrder: async (customerId, address, token) => {
+    // idempotencyKey stays the same for every retry of one checkout, the server places the order only once
+    placeOrder: async (customerId, address, token, idempotencyKey) => {
         return fetch(`${BASE_URL}/${customerId}/order/place`, {
             method: 'POST',
             headers: {
                 'Content-Type': 'application/json',
-                'Authorization': `Bearer ${token}`
+                'Authorization': `Bearer ${token}`,
+                'Idempotency-Key': idempotencyKey
             },
             body: JSON.stringify({ address: address })
         });
@@ -169,6 +227,42 @@ export const CustomerAPI = {
         });
     },
 
+    // live order status (server-sent events). EventSource can't send the Authorization header, so the stream is
+    // read with fetch: onEvent(name, data) is called for every event, the promise settles when the stream ends
+    streamOrders: async (customerId, token, onEvent, signal) => {
+        const response = await fetch(`${BASE_URL}/customer/${customerId}/orders/stream`, {
+            headers: {
+                "Accept": "text/event-stream",
+                "Authorization": `Bearer ${token}`
+            },
+            signal
+        });
+        if (!response.ok) throw new Error(`Order stream refused: ${response.status}`);
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = "";
+        while (true) {
+            const { done, value } = await reader.read();
+            if (done) return;
+            buffer += decoder.decode(value, { stream: true });
+
+            // events are separated by a blank line, comment lines (":ping") are only there to keep it open
+            let end;
+            while ((end = buffer.indexOf("\n\n")) >= 0) {
+                const block = buffer.slice(0, end);
+                buffer = buffer.slice(end + 2);
+                let name = "message";
+                let data = "";
+                block.split("\n").forEach(line => {
+                    if (line.startsWith("event:")) name = line.slice(6).trim();
+                    else if (line.startsWith("data:")) data += line.slice(5);
+                });
+                if (data) onEvent(name, JSON.parse(data));
+            }
+        }
+    },
+
     getAddresses: async (customerId, token) => {
         return fetch(`${BASE_URL}/customer/${customerId}/address`, {
             method: "GET",
@@ -2,6 +2,7 @@ package com.yum.foodyy.Config;
 
 import com.yum.foodyy.Service.AdminDetailsService;
 import com.yum.foodyy.Service.CustomerDetailsService;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -61,6 +62,9 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // the async dispatch that ends a stream (SseEmitter) carries no token, the request that
+                        // opened the stream was already checked
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/admin/signin",
                                 "/customer/signin",
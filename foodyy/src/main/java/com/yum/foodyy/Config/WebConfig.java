@@ -1,6 +1,8 @@
 package com.yum.foodyy.Config;
 
+import com.yum.foodyy.Entity.ImageSize;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -12,8 +14,14 @@ public class WebConfig implements WebMvcConfigurer {
         // This allows your React frontend to talk to your Spring Boot API
         registry.addMapping("/**")
                 .allowedOrigins("http://localhost:3000")
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        // lets the image urls use ?size=card instead of ?size=CARD
+        registry.addConverter(String.class, ImageSize.class, value -> ImageSize.valueOf(value.trim().toUpperCase()));
+    }
 }
\ No newline at end of file
@@ -1,9 +1,17 @@
 package com.yum.foodyy.Controller;
 
 import com.yum.foodyy.Entity.DTO.AdminLoginReq;
+import com.yum.foodyy.Entity.DTO.CartConcurrencyStats;
+import com.yum.foodyy.Entity.DTO.CatalogCacheStats;
+import com.yum.foodyy.Entity.DTO.OrderStreamStats;
+import com.yum.foodyy.Entity.DTO.OutboxStats;
 import com.yum.foodyy.Service.AdminService;
+import com.yum.foodyy.Service.CatalogCacheService;
 import com.yum.foodyy.Service.CustomerService;
 import com.yum.foodyy.Service.FoodService;
+import com.yum.foodyy.Service.OptimisticRetry;
+import com.yum.foodyy.Service.OrderEventHub;
+import com.yum.foodyy.Service.OutboxWorker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -20,6 +28,18 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+
+    @Autowired
+    private OrderEventHub orderEventHub;
+
+    @Autowired
+    private OutboxWorker outboxWorker;
+
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     @PostMapping("/signin")
@@ -33,4 +53,30 @@ public class AdminController {
         return adminService.logout(authHeader);
     }
 
+    @GetMapping("/metrics/catalog")
+    public ResponseEntity<CatalogCacheStats> catalogCacheStats() {
+        return ResponseEntity.ok(catalogCacheService.stats());
+    }
+
+    @GetMapping("/metrics/cart")
+    public ResponseEntity<CartConcurrencyStats> cartConcurrencyStats() {
+        return ResponseEntity.ok(optimisticRetry.stats());
+    }
+
+    @GetMapping("/metrics/order-stream")
+    public ResponseEntity<OrderStreamStats> orderStreamStats() {
+        return ResponseEntity.ok(orderEventHub.stats());
+    }
+
+    @GetMapping("/metrics/outbox")
+    public ResponseEntity<OutboxStats> outboxStats() {
+        return ResponseEntity.ok(outboxWorker.stats());
+    }
+
+    // puts the dead lettered order side effects back in the queue, once whatever made them fail is fixed
+    @PostMapping("/outbox/retry-dead")
+    public ResponseEntity<?> retryDeadOutbox() {
+        return ResponseEntity.ok("Requeued " + outboxWorker.retryDead() + " outbox events");
+    }
+
 }
@@ -0,0 +1,114 @@
+package com.yum.foodyy.Controller;
+
+import com.yum.foodyy.Entity.DTO.DashboardCounts;
+import com.yum.foodyy.Service.CustomerService;
+import com.yum.foodyy.Service.DashboardCounters;
+import com.yum.foodyy.Service.FoodService;
+import com.yum.foodyy.Service.SalesRollupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+// Admin dashboard numbers, all read from the sales rollups (SalesRollupService) and maintained counters, never from
+// the orders themselves. from/to are days (both included) and default to the last 30 days
+@RestController
+@RequestMapping("/admin/analytics")
+@CrossOrigin(origins = "http://localhost:3000")
+public class AnalyticsController {
+
+    private static final int DEFAULT_DAYS = 30;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    @Autowired
+    private FoodService foodService;
+
+    @Autowired
+    private CustomerService customerService;
+
+    // granularity is "day" or "hour" (at most 31 days of hours)
+    @GetMapping("/revenue")
+    public ResponseEntity<?> revenue(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity){
+        try {
+            if (!granularity.equalsIgnoreCase("day") && !granularity.equalsIgnoreCase("hour")) {
+                throw new IllegalArgumentException("granularity must be day or hour");
+            }
+            LocalDate end = to == null ? LocalDate.now() : to;
+            return ResponseEntity.ok(salesRollupService.revenue(start(from, end), end, granularity.equalsIgnoreCase("hour")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/statuses")
+    public ResponseEntity<?> statuses(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        try {
+            LocalDate end = to == null ? LocalDate.now() : to;
+            return ResponseEntity.ok(salesRollupService.statuses(start(from, end), end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    // by is "revenue" or "quantity"
+    @GetMapping("/top-foods")
+    public ResponseEntity<?> topFoods(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "revenue") String by,
+            @RequestParam(defaultValue = "10") int limit){
+        try {
+            if (!by.equalsIgnoreCase("revenue") && !by.equalsIgnoreCase("quantity")) {
+                throw new IllegalArgumentException("by must be revenue or quantity");
+            }
+            LocalDate end = to == null ? LocalDate.now() : to;
+            return ResponseEntity.ok(salesRollupService.topFoods(start(from, end), end, category,
+                    by.equalsIgnoreCase("quantity"), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/categories")
+    public ResponseEntity<?> categories(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to){
+        try {
+            LocalDate end = to == null ? LocalDate.now() : to;
+            return ResponseEntity.ok(salesRollupService.categories(start(from, end), end));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/counts")
+    public ResponseEntity<DashboardCounts> counts() {
+        return ResponseEntity.ok(new DashboardCounts(foodService.count(), customerService.count()));
+    }
+
+    // rebuilds the rollups from all orders and recounts the counters, for the first start or after repairs made
+    // straight in the database
+    @PostMapping("/backfill")
+    public ResponseEntity<?> backfill() {
+        dashboardCounters.recount();
+        return ResponseEntity.ok(salesRollupService.backfill());
+    }
+
+    private static LocalDate start(LocalDate from, LocalDate end) {
+        return from == null ? end.minusDays(DEFAULT_DAYS - 1) : from;
+    }
+}
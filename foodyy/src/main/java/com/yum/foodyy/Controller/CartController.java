@@ -1,17 +1,13 @@
 package com.yum.foodyy.Controller;
 
-import com.yum.foodyy.Entity.Cart;
-import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Service.CartConflictException;
 import com.yum.foodyy.Service.CartService;
-import com.yum.foodyy.Service.CustomerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -22,32 +18,21 @@ public class CartController {
 
     @Autowired
     private CartService cartService;
-    @Autowired private CustomerService customerService;
 
     @GetMapping("/{custId}")
     public ResponseEntity<?> getCart(@PathVariable Integer custId){
-        Cart cart = cartService.getCartByCustomer(custId);
-
-        if(cart == null){
-            Cart emptyCart = new Cart();
-            CustomerInfo customerInfo = customerService.getCustById(custId)
-                    .orElseThrow(() -> new UsernameNotFoundException("No such user exist"));
-
-            emptyCart.setCartItems(new ArrayList<>());
-            emptyCart.setCreatedAt(LocalDateTime.now());
-            emptyCart.setCustomerInfo(customerInfo);
-            return ResponseEntity.ok(emptyCart);
+        try{
+            return ResponseEntity.ok(cartService.getCartView(custId));
+        }catch (IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }
-
-        return ResponseEntity.ok(cart);
     }
 
     @PostMapping("/{custId}/add")
     public ResponseEntity<?> addToCart(@PathVariable Integer custId, @RequestParam Integer foodId, @RequestParam(defaultValue = "1") Integer quantity){
 
         try{
-            Cart updatedCart = cartService.addItemToCart(custId, foodId, quantity);
-            return ResponseEntity.ok(updatedCart);
+            return ResponseEntity.ok(cartService.addItemToCart(custId, foodId, quantity));
         }catch (IllegalArgumentException e){
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         }catch (Exception e){
@@ -55,6 +40,19 @@ public class CartController {
         }
     }
 
+    // several adds / quantity changes / removals in one round trip, answers with the new cart totals
+    @PostMapping("/{custId}/batch")
+    public ResponseEntity<?> batchUpdate(@PathVariable Integer custId, @RequestBody List<CartOperation> operations){
+
+        try{
+            return ResponseEntity.ok(cartService.applyBatch(custId, operations));
+        }catch (IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }catch (Exception e){
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error updating the cart");
+        }
+    }
+
     @PutMapping("/update/{custId}/{cartItemId}")
     public ResponseEntity<?> updateCart(
             @PathVariable Integer custId,
@@ -68,7 +66,12 @@ public class CartController {
             return new ResponseEntity<>("Quantity must be greater than 0", HttpStatus.BAD_REQUEST);
         }
 
-        boolean update = cartService.updateCartItemQuantity(custId,cartItemId,quantity);
+        boolean update;
+        try{
+            update = cartService.updateCartItemQuantity(custId,cartItemId,quantity,body.get("version"));
+        }catch (CartConflictException e){
+            return conflict(custId);
+        }
 
         if(!update){
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -81,9 +84,15 @@ public class CartController {
     @DeleteMapping("/remove/{custId}/{cartItemId}")
     public ResponseEntity<?> deleteCartItem(
             @PathVariable Integer custId,
-            @PathVariable Integer cartItemId
+            @PathVariable Integer cartItemId,
+            @RequestParam(required = false) Integer version
     ){
-        boolean deleted = cartService.deleteCartItem(custId, cartItemId);
+        boolean deleted;
+        try{
+            deleted = cartService.deleteCartItem(custId, cartItemId, version);
+        }catch (CartConflictException e){
+            return conflict(custId);
+        }
 
         if (!deleted) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -92,4 +101,9 @@ public class CartController {
 
         return ResponseEntity.ok("Item removed from the cart");
     }
+
+    // 409 with the cart as it is now, so the client can show it and let the user redo the change
+    private ResponseEntity<?> conflict(Integer custId){
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(cartService.getCartView(custId));
+    }
 }
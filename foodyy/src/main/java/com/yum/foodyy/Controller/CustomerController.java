@@ -4,6 +4,7 @@ import com.yum.foodyy.Entity.CustomerInfo;
 import com.yum.foodyy.Entity.DTO.LoginRequest;
 import com.yum.foodyy.Entity.DTO.PasswordChangeReq;
 import com.yum.foodyy.Service.CustomerService;
+import com.yum.foodyy.Service.GuestCartService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -46,8 +47,10 @@ public class CustomerController {
 
 
     @PostMapping("/customer/signin")
-    public ResponseEntity<?> customerSignIn(@RequestBody LoginRequest loginRequest) {
-        return customerService.signIn(loginRequest);
+    public ResponseEntity<?> customerSignIn(
+            @RequestBody LoginRequest loginRequest,
+            @CookieValue(name = GuestCartService.COOKIE, required = false) String guestCart) {
+        return customerService.signIn(loginRequest, guestCart);
     }
 
     @PostMapping("/customer/signout")
@@ -1,7 +1,24 @@
 package com.yum.foodyy.Controller;
 
+import com.yum.foodyy.Entity.DTO.AvailabilityUpdate;
+import com.yum.foodyy.Entity.DTO.FoodImportReport;
+import com.yum.foodyy.Entity.DTO.FoodPatch;
+import com.yum.foodyy.Entity.DTO.FoodPage;
+import com.yum.foodyy.Entity.DTO.FoodSearchResult;
+import com.yum.foodyy.Entity.DTO.FoodSuggestion;
 import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.ImageSize;
+import com.yum.foodyy.Service.FoodFacetIndex;
+import com.yum.foodyy.Service.FoodImportService;
+import com.yum.foodyy.Service.FoodManifestReader;
 import com.yum.foodyy.Service.FoodService;
+import com.yum.foodyy.Service.ImageRenditionService;
+import com.yum.foodyy.Service.MediaDeliveryService;
+import com.yum.foodyy.Service.MediaStoreService;
+import com.yum.foodyy.Service.MenuSnapshotService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -9,24 +26,91 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipException;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:5173")
 public class FoodController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+
     @Autowired
     private FoodService foodService;
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+    @Autowired
+    private MediaDeliveryService mediaDeliveryService;
+    @Autowired
+    private FoodImportService foodImportService;
+    @Autowired
+    private MenuSnapshotService menuSnapshotService;
 
-    @GetMapping({"/admin/foods" , "/customer/foods"})
-    public ResponseEntity<List<Food>> getFoods(){
-        List<Food> foods = foodService.getAllFoods();
-        return ResponseEntity.ok(foods);
+    // the whole menu, served from bytes that are serialized and gzipped once per catalog change. The read only menu
+    // endpoints are also under /public for visitors who haven't signed in (guest cart)
+    @GetMapping({"/admin/foods" , "/customer/foods", "/public/foods"})
+    public void getFoods(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        menuSnapshotService.serve(request, response);
+    }
+
+    @GetMapping({"/admin/foods/page", "/customer/foods/page", "/public/foods/page"})
+    public ResponseEntity<FoodPage> getFoodPage(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) FoodCategory category){
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(foodService.getFoodPage(after, pageSize, category));
+    }
+
+    @GetMapping({"/admin/foods/suggest", "/customer/foods/suggest", "/public/foods/suggest"})
+    public ResponseEntity<List<FoodSuggestion>> suggestFoods(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "8") int limit){
+
+        int count = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        return ResponseEntity.ok(foodService.suggestFoods(prefix, count));
     }
 
-    @GetMapping({"/admin/food/{foodId}", "/customer/food/{foodId}"})
+    // repeat a parameter to pick several values of one filter: ?category=SNACK&category=DESSERT&price=100-200
+    @GetMapping({"/admin/foods/filter", "/customer/foods/filter", "/public/foods/filter"})
+    public ResponseEntity<?> filterFoods(
+            @RequestParam(required = false) Set<String> veg,
+            @RequestParam(required = false) Set<String> category,
+            @RequestParam(required = false) Set<String> spiciness,
+            @RequestParam(required = false) Set<String> available,
+            @RequestParam(required = false) Set<String> price,
+            @RequestParam(required = false) Set<String> calories,
+            @RequestParam(required = false) Set<String> prepTime,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size){
+
+        Map<String, Set<String>> selected = new HashMap<>();
+        selected.put(FoodFacetIndex.VEG, veg);
+        selected.put(FoodFacetIndex.CATEGORY, category);
+        selected.put(FoodFacetIndex.SPICINESS, spiciness);
+        selected.put(FoodFacetIndex.AVAILABLE, available);
+        selected.put(FoodFacetIndex.PRICE, price);
+        selected.put(FoodFacetIndex.CALORIES, calories);
+        selected.put(FoodFacetIndex.PREP_TIME, prepTime);
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        try {
+            return ResponseEntity.ok(foodService.filterFoods(selected, Math.max(0, page), pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @GetMapping({"/admin/food/{foodId}", "/customer/food/{foodId}", "/public/food/{foodId}"})
     public ResponseEntity<?> getFood(@PathVariable int foodId){
         Optional<Food> food = foodService.getFoodById(foodId);
 
@@ -37,18 +121,68 @@ public class FoodController {
         }
     }
 
-    @GetMapping({"/admin/food/{foodId}/image", "/customer/food/{foodId}/image"})
-    public ResponseEntity<byte[]> getImageByFoodId(@PathVariable int foodId){
-        Optional<Food> food = foodService.getFoodById(foodId);
-        return ResponseEntity.ok(food.get().getImageData());
+    // the food -> image mapping comes from the catalog cache and the bytes from the media store, no database involved.
+    // The image of a food can change, so unlike /images/{key} this url has to be revalidated (cheap 304s).
+    @GetMapping({"/customer/food/{foodId}/image", "/public/food/{foodId}/image"})
+    public void getImageByFoodId(@PathVariable int foodId,
+                                 @RequestParam(defaultValue = "DETAIL") ImageSize size,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+//        customers only get the resized versions
+        serveFoodImage(foodId, size == ImageSize.ORIGINAL ? ImageSize.DETAIL : size, request, response);
+    }
+
+    @GetMapping("/admin/food/{foodId}/image")
+    public void getAdminImageByFoodId(@PathVariable int foodId,
+                                      @RequestParam(defaultValue = "ORIGINAL") ImageSize size,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+        serveFoodImage(foodId, size, request, response);
     }
 
-    @GetMapping({"admin/foods/search" , "customer/foods/search"})
+    private void serveFoodImage(int foodId, ImageSize size,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        Optional<ImageRenditionService.Rendition> rendition = foodService.getFoodById(foodId)
+                .map(Food::getImageKey)
+                .flatMap(key -> imageRenditionService.resolve(key, size));
+
+        if (rendition.isEmpty() || rendition.get().status() == ImageRenditionService.Status.FAILED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (rendition.get().status() == ImageRenditionService.Status.PENDING) {
+            mediaDeliveryService.sendPending(response);
+            return;
+        }
+
+        ImageRenditionService.Rendition found = rendition.get();
+        mediaDeliveryService.serve(
+                found.file(),
+                found.etag(),
+                MediaDeliveryService.CACHE_REVALIDATE,
+                MediaStoreService.mediaTypeOf(found.file().getFileName().toString()),
+                request,
+                response
+        );
+    }
+
+    @GetMapping({"admin/foods/search" , "customer/foods/search", "public/foods/search"})
     public ResponseEntity<List<Food>> searchFood(@RequestParam String keyword){
         List<Food> foods = foodService.searchFood(keyword);
         return ResponseEntity.ok(foods);
     }
 
+    @GetMapping({"/admin/foods/search/page", "/customer/foods/search/page", "/public/foods/search/page"})
+    public ResponseEntity<FoodSearchResult> searchFoodPage(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size){
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return ResponseEntity.ok(foodService.searchFood(q, Math.max(0, page), pageSize));
+    }
+
     @PostMapping("admin/food")
     public ResponseEntity<?> addFood(@RequestPart Food food, @RequestPart MultipartFile imageFile){
 
@@ -62,11 +196,41 @@ public class FoodController {
         }
     }
 
+    // manifest is a CSV or NDJSON file with one dish per row, images an optional zip with the files the rows
+    // name in their "image" column. seedImages=true also takes images from the server's food-images directory.
+    @PostMapping("admin/foods/import")
+    public ResponseEntity<?> importFoods(
+            @RequestPart MultipartFile manifest,
+            @RequestPart(required = false) MultipartFile images,
+            @RequestParam(defaultValue = "false") boolean seedImages) throws IOException {
+
+        if (manifest.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Manifest is empty");
+        }
+
+        Path archive = null;
+        try {
+            if (images != null && !images.isEmpty()) {
+                archive = Files.createTempFile("food-import-", ".zip");
+                images.transferTo(archive);
+            }
+            try (InputStream in = manifest.getInputStream()) {
+                FoodImportReport report = foodImportService.importFoods(
+                        in, FoodManifestReader.formatOf(manifest.getOriginalFilename()), archive, seedImages);
+                return ResponseEntity.ok(report);
+            }
+        } catch (ZipException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Images must be a zip file");
+        } finally {
+            if (archive != null) Files.deleteIfExists(archive);
+        }
+    }
+
     @PutMapping("admin/food/{foodId}")
     public ResponseEntity<?> updateFood(
             @PathVariable int foodId,
             @RequestPart Food food,
-            @RequestPart MultipartFile imageFile) throws IOException {
+            @RequestPart(required = false) MultipartFile imageFile) throws IOException {
 
         Optional<Food> existing = foodService.getFoodById(foodId);
 
@@ -78,6 +242,27 @@ public class FoodController {
         return ResponseEntity.ok(updatedFood);
     }
 
+    @PatchMapping("admin/food/{foodId}")
+    public ResponseEntity<?> patchFood(@PathVariable int foodId, @RequestBody FoodPatch patch){
+        try {
+            if (!foodService.patchFood(foodId, patch)) {
+                return new ResponseEntity<>("Food not found", HttpStatus.NOT_FOUND);
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        return ResponseEntity.of(foodService.getFoodById(foodId));
+    }
+
+    @PatchMapping("admin/foods/availability")
+    public ResponseEntity<?> setAvailability(@RequestBody AvailabilityUpdate update){
+        if (update.ids() == null || update.ids().isEmpty() || update.available() == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("ids and available are required");
+        }
+        int updated = foodService.setAvailability(update.ids(), update.available());
+        return ResponseEntity.ok(Map.of("updated", updated));
+    }
+
     @DeleteMapping("admin/food/{foodId}")
     public ResponseEntity<?> deleteFood(@PathVariable int foodId){
         return foodService.deleteFood(foodId);
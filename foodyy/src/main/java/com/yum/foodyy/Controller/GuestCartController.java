@@ -0,0 +1,50 @@
+package com.yum.foodyy.Controller;
+
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Service.GuestCartService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+// cart of a visitor who isn't signed in, kept in a signed cookie (see GuestCartService)
+@RestController
+@RequestMapping("/public/guest-cart")
+@CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
+public class GuestCartController {
+
+    @Autowired
+    private GuestCartService guestCartService;
+
+    @GetMapping
+    public ResponseEntity<?> getGuestCart(@CookieValue(name = GuestCartService.COOKIE, required = false) String cookie){
+        return ResponseEntity.ok(guestCartService.view(guestCartService.read(cookie)));
+    }
+
+    // same operations as /cart/{custId}/batch, addressed by foodId
+    @PostMapping("/batch")
+    public ResponseEntity<?> updateGuestCart(
+            @CookieValue(name = GuestCartService.COOKIE, required = false) String cookie,
+            @RequestBody List<CartOperation> operations
+    ){
+        try{
+            Map<Integer, Integer> lines = guestCartService.apply(guestCartService.read(cookie), operations);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, guestCartService.cookie(lines).toString())
+                    .body(guestCartService.view(lines));
+        }catch (IllegalArgumentException e){
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> clearGuestCart(){
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, guestCartService.cookie(Map.of()).toString())
+                .body(guestCartService.view(Map.of()));
+    }
+}
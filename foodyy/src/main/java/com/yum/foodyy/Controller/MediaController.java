@@ -0,0 +1,53 @@
+package com.yum.foodyy.Controller;
+
+import com.yum.foodyy.Entity.ImageSize;
+import com.yum.foodyy.Service.ImageRenditionService;
+import com.yum.foodyy.Service.MediaDeliveryService;
+import com.yum.foodyy.Service.MediaStoreService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Optional;
+
+// public, content addressed image urls (/images/<sha256>.<ext>?size=card), the key is the hash so a finished
+// rendition never changes. Only the resized versions are public, the original is served to admins only, so while
+// a rendition is being generated the answer is 503 + Retry-After and an image that couldn't be resized is a 404.
+@RestController
+@CrossOrigin(origins = "http://localhost:5173")
+public class MediaController {
+
+    @Autowired private ImageRenditionService imageRenditionService;
+    @Autowired private MediaDeliveryService mediaDeliveryService;
+
+    @RequestMapping(value = "/images/{key:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getImage(@PathVariable String key,
+                         @RequestParam(defaultValue = "DETAIL") ImageSize size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+
+        ImageSize publicSize = size == ImageSize.ORIGINAL ? ImageSize.DETAIL : size;
+
+        Optional<ImageRenditionService.Rendition> rendition = imageRenditionService.resolve(key, publicSize);
+        if (rendition.isEmpty() || rendition.get().status() == ImageRenditionService.Status.FAILED) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (rendition.get().status() == ImageRenditionService.Status.PENDING) {
+            mediaDeliveryService.sendPending(response);
+            return;
+        }
+
+        ImageRenditionService.Rendition found = rendition.get();
+        mediaDeliveryService.serve(
+                found.file(),
+                found.etag(),
+                MediaDeliveryService.CACHE_IMMUTABLE,
+                MediaStoreService.mediaTypeOf(found.file().getFileName().toString()),
+                request,
+                response
+        );
+    }
+}
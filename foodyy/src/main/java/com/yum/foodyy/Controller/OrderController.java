@@ -1,27 +1,61 @@
 package com.yum.foodyy.Controller;
 
+import com.yum.foodyy.Entity.DTO.OrderFilter;
 import com.yum.foodyy.Entity.DTO.OrderRequest;
 import com.yum.foodyy.Entity.DTO.OrderResponse;
+import com.yum.foodyy.Service.OrderArchiveService;
+import com.yum.foodyy.Service.OrderEventHub;
+import com.yum.foodyy.Service.OrderIdempotencyService;
+import com.yum.foodyy.Service.OrderInProgressException;
+import com.yum.foodyy.Service.OrderPartitionService;
 import com.yum.foodyy.Service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
 @CrossOrigin(origins = "http://localhost:3000")
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderIdempotencyService orderIdempotencyService;
+
+    @Autowired
+    private OrderEventHub orderEventHub;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private OrderPartitionService orderPartitionService;
+
+    // with an Idempotency-Key header a retried request returns the order placed by the first one instead of
+    // ordering again
     @PostMapping("{custId}/order/place")
-    public ResponseEntity<?> placeOrder(@PathVariable int custId, @RequestBody OrderRequest orderRequest){
+    public ResponseEntity<?> placeOrder(
+            @PathVariable int custId,
+            @RequestBody OrderRequest orderRequest,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey){
         try {
-            OrderResponse orderResponse = orderService.addOrder(custId, orderRequest);
+            OrderResponse orderResponse = idempotencyKey == null
+                    ? orderService.addOrder(custId, orderRequest, null)
+                    : orderIdempotencyService.place(custId, idempotencyKey, orderRequest);
             return new ResponseEntity<>(orderResponse, HttpStatus.CREATED);
+        } catch (OrderInProgressException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -37,9 +71,46 @@ public class OrderController {
         }
     }
 
+    // orders from months that were moved to the order archive, one month per page, newest first. Pass the nextCursor
+    // of a page as "after" to get the month before
+    @GetMapping("/customer/{custId}/orders/archived")
+    public ResponseEntity<?> getArchivedOrders(@PathVariable int custId, @RequestParam(required = false) String after){
+        try {
+            return ResponseEntity.ok(orderArchiveService.readCustomerOrders(custId, after));
+        } catch (UncheckedIOException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    // live status of the customer's orders as server-sent events: a "snapshot" event with the orders that are still
+    // open, then a "status" event for every change. Cheaper than polling the whole order history
+    @GetMapping(value = "/customer/{custId}/orders/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamOrders(@PathVariable int custId){
+        try {
+            return ResponseEntity.ok(orderEventHub.subscribe(custId, orderService.openOrderStatuses(custId)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+
+    // newest orders first, one page at a time. Pass the nextCursor of a page as "after" to get the next one
     @GetMapping("/admin/orders")
-    public ResponseEntity<List<OrderResponse>> getAllOrders(){
-        return new ResponseEntity<>(orderService.allOrders(), HttpStatus.OK);
+    public ResponseEntity<?> getOrders(
+            @RequestParam(required = false) List<String> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Integer customerId,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit){
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        try {
+            OrderFilter filter = new OrderFilter(status, from, to, customerId, minAmount);
+            return ResponseEntity.ok(orderService.orderPage(filter, after, pageSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
     }
 
     @PutMapping("admin/orders/order/{orderId}/status")
@@ -50,4 +121,20 @@ public class OrderController {
         OrderResponse updateOrder = orderService.updateOrderStatus(orderId,status);
         return ResponseEntity.ok(updateOrder);
     }
+
+    // runs the nightly archiving now, answers with the segments that were written
+    @PostMapping("admin/orders/archive")
+    public ResponseEntity<List<String>> archiveOrders() {
+        return ResponseEntity.ok(orderArchiveService.archiveOldMonths());
+    }
+
+    // the one time move of the order tables into monthly partitions. Orders can't be read or placed while it runs
+    @PostMapping("admin/orders/partition")
+    public ResponseEntity<String> partitionOrders() {
+        try {
+            return ResponseEntity.ok(orderPartitionService.convertToPartitioned());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
@@ -30,6 +30,11 @@ public class Cart {
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
+    // optimistic lock on the cart row itself (see OptimisticRetry)
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private Integer version = 0;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
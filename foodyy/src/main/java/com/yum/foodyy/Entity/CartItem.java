@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "cart_item")
+// one row per (cart, food), adding the same food again raises the quantity of that row (see CartItemRepo.addQuantity)
+@Table(name = "cart_item", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cart_item_cart_food", columnNames = {"cart_id", "food_item_id"}))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,6 +41,11 @@ public class CartItem {
     @Column(name = "price_at_time_of_addition", precision = 10, scale = 2)
     private BigDecimal priceAtTimeOfAddition = BigDecimal.ZERO;
 
+    // the version a client sends back with a quantity change (CartLine.version), the upserts bump it too
+    @Version
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    private Integer version = 0;
+
     @PrePersist
     protected void onCreate() {
         this.addedAt = LocalDateTime.now();
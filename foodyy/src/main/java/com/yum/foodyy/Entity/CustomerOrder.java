@@ -11,15 +11,21 @@ import java.util.List;
 
 @Data
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(
+        name = "uk_customer_order_order_id", columnNames = {"order_id", "order_date"}))
 @NoArgsConstructor
 @AllArgsConstructor
 public class CustomerOrder {
 
+    // pooled sequence (50 ids per nextval) instead of IDENTITY, so hibernate knows the id before the INSERT and can
+    // batch the inserts of an order and its items
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_order_seq")
+    @SequenceGenerator(name = "customer_order_seq", sequenceName = "customer_order_seq", allocationSize = 50)
     private Long id;
 
-    @Column(unique = true)
+    // unique by construction (OrderIdGenerator). The key is (order_id, order_date) because the table is partitioned
+    // by orderDate (OrderPartitionService) and a unique key there has to include it, same for the primary key
     private String orderId;
 
     private String email;
@@ -30,6 +36,11 @@ public class CustomerOrder {
 
     private BigDecimal totalAmount;
 
+    // "<customerId>:<Idempotency-Key header>" of the request that placed the order, null when it had none. Kept
+    // unique by the order_idempotency table, not by this column (see orderId)
+    @Column(length = 120)
+    private String idempotencyKey;
+
     @ManyToOne
     @JoinColumn(name = "customer_id")
     private CustomerInfo customerInfo;
@@ -4,18 +4,26 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@ToString(exclude = {"order"})
+@EqualsAndHashCode(exclude = {"order"}) // the order leads back to its items and the customer's cart, hashing it never ends
 public class CustomerOrderItems {
 
+    // pooled sequence (50 ids per nextval) instead of IDENTITY, so hibernate knows the id before the INSERT and can
+    // batch the inserts of an order and its items
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_order_items_seq")
+    @SequenceGenerator(name = "customer_order_items_seq", sequenceName = "customer_order_items_seq", allocationSize = 50)
     private int id;
 
     private int quantity;
@@ -24,7 +32,12 @@ public class CustomerOrderItems {
     @ManyToOne
     private Food food;
 
+    // on the partitioned tables the foreign key is (order_id, order_date), made under this name by
+    // OrderPartitionService so the schema update takes it for this one
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id")
+    @JoinColumn(name = "order_id", foreignKey = @ForeignKey(name = "fk_customer_order_items_order"))
     private CustomerOrder order;
+
+    // copy of the order's date, the items are partitioned by it the same way as the orders
+    private LocalDateTime orderDate;
 }
\ No newline at end of file
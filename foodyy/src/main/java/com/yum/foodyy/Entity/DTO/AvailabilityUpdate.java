@@ -0,0 +1,10 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+
+// body of PATCH /admin/foods/availability, marks all the listed foods in or out of stock
+public record AvailabilityUpdate(
+        List<Integer> ids,
+        Boolean available
+) {
+}
@@ -0,0 +1,13 @@
+package com.yum.foodyy.Entity.DTO;
+
+// counters of OptimisticRetry since startup. conflictRate is conflicts per write, retryRate retries per write
+public record CartConcurrencyStats(
+        long writes,
+        long conflicts,
+        long retries,
+        long exhausted,
+        long staleVersions,
+        double conflictRate,
+        double retryRate
+) {
+}
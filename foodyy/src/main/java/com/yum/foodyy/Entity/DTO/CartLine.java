@@ -0,0 +1,33 @@
+package com.yum.foodyy.Entity.DTO;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+
+import java.math.BigDecimal;
+
+// one row of the cart page. unitPrice is today's menu price, priceAtTimeOfAddition what it was when the item was
+// put in the cart, priceChanged says the two differ. version goes back with PUT / DELETE so an edit made on a stale
+// copy of the line is refused (409) instead of overwriting a newer change
+public record CartLine(
+        Integer cartItemId,
+        Integer foodId,
+        String name,
+        FoodCategory category,
+        BigDecimal unitPrice,
+        BigDecimal priceAtTimeOfAddition,
+        int quantity,
+        BigDecimal lineTotal,
+        boolean priceChanged,
+        Integer version,
+        String imageUrl
+) {
+
+    // a line built from the catalog copy of the food, for carts that aren't read from the database
+    public static CartLine of(Integer cartItemId, Food food, BigDecimal priceAtTimeOfAddition, int quantity, Integer version) {
+        BigDecimal price = food.getPrice();
+        return new CartLine(cartItemId, food.getId(), food.getName(), food.getCategory(), price, priceAtTimeOfAddition,
+                quantity, price == null ? null : price.multiply(BigDecimal.valueOf(quantity)),
+                price != null && priceAtTimeOfAddition != null && price.compareTo(priceAtTimeOfAddition) != 0,
+                version, food.getImageUrl() == null ? null : food.getImageUrl() + "?size=thumb");
+    }
+}
@@ -0,0 +1,14 @@
+package com.yum.foodyy.Entity.DTO;
+
+// one entry of POST /cart/{custId}/batch
+//   {"op": "add",    "foodId": 7, "quantity": 2}       adds to what is already in the cart
+//   {"op": "set",    "cartItemId": 31, "quantity": 4}  sets the quantity, 0 removes the item
+//   {"op": "remove", "foodId": 7}
+// set and remove take either the cartItemId or the foodId
+public record CartOperation(
+        String op,
+        Integer foodId,
+        Integer cartItemId,
+        Integer quantity
+) {
+}
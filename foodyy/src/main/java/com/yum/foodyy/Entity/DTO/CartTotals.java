@@ -0,0 +1,12 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+
+// what the cart adds up to after a batch, priced at today's menu prices like the cart page and the order
+public record CartTotals(
+        Integer cartId,
+        int items,
+        int quantity,
+        BigDecimal total
+) {
+}
@@ -0,0 +1,16 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// GET /cart/{custId}, the cart without the entity graph. Totals are at today's menu prices, which is what the
+// order will charge, priceChanged is set when any line's price moved since it was added
+public record CartView(
+        Integer cartId,
+        List<CartLine> items,
+        int itemCount,
+        int quantity,
+        BigDecimal subtotal,
+        boolean priceChanged
+) {
+}
@@ -0,0 +1,15 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.time.LocalDateTime;
+
+public record CatalogCacheStats(
+        String nodeId,
+        long version,
+        int size,
+        long hits,
+        long misses,
+        long rebuilds,
+        long remoteInvalidations,
+        LocalDateTime builtAt
+) {
+}
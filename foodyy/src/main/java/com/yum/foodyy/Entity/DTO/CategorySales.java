@@ -0,0 +1,12 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+
+// sales of one category in the range, lines is the number of order lines (an order with two pizzas counts twice)
+public record CategorySales(
+        String category,
+        long lines,
+        long quantity,
+        BigDecimal revenue
+) {
+}
@@ -0,0 +1,7 @@
+package com.yum.foodyy.Entity.DTO;
+
+public record DashboardCounts(
+        long foods,
+        long customers
+) {
+}
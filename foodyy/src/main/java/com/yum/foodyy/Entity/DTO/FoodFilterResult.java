@@ -0,0 +1,15 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+import java.util.Map;
+
+// one page of the filtered menu. facets holds the count of every value of every filter ("category" -> "SNACK" -> 4),
+// each counted with the other filters applied, total is the number of matches over all pages
+public record FoodFilterResult(
+        List<FoodSummary> items,
+        int page,
+        int size,
+        int total,
+        Map<String, Map<String, Integer>> facets
+) {
+}
@@ -0,0 +1,9 @@
+package com.yum.foodyy.Entity.DTO;
+
+// a manifest row that was not imported, line is the line of the row in the manifest
+public record FoodImportError(
+        long line,
+        String name,
+        String message
+) {
+}
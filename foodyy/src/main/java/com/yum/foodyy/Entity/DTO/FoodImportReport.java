@@ -0,0 +1,14 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+
+// outcome of a bulk import. Only the first errors are listed, errorsTruncated tells if there were more
+public record FoodImportReport(
+        int rows,
+        int inserted,
+        int updated,
+        int failed,
+        List<FoodImportError> errors,
+        boolean errorsTruncated
+) {
+}
@@ -0,0 +1,11 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+
+// one page of the menu, nextCursor is the id to pass as "after" to get the next page
+public record FoodPage(
+        List<FoodSummary> items,
+        Integer nextCursor,
+        boolean hasMore
+) {
+}
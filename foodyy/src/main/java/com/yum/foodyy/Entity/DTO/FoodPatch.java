@@ -0,0 +1,22 @@
+package com.yum.foodyy.Entity.DTO;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+
+import java.math.BigDecimal;
+
+// body of PATCH /admin/food/{id}, only the fields that are present (not null) are changed
+public record FoodPatch(
+        String name,
+        String description,
+        BigDecimal price,
+        @JsonProperty("isVeg") Boolean isVeg,
+        String ingredients,
+        Double calories,
+        Integer preparationTime,
+        Spiceiness spiciness,
+        Boolean available,
+        FoodCategory category
+) {
+}
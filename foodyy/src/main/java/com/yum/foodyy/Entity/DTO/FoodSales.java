@@ -0,0 +1,14 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+
+// sales of one food in the range, orders is the number of orders it was in
+public record FoodSales(
+        Integer foodId,
+        String name,
+        String category,
+        long orders,
+        long quantity,
+        BigDecimal revenue
+) {
+}
@@ -0,0 +1,13 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+
+// one page of ranked search results, best match first. total is the number of matches over all pages
+public record FoodSearchResult(
+        String query,
+        List<FoodSummary> items,
+        int page,
+        int size,
+        int total
+) {
+}
@@ -0,0 +1,10 @@
+package com.yum.foodyy.Entity.DTO;
+
+// one entry of the search box dropdown. type is FOOD, INGREDIENT or CATEGORY, foodId is only set for FOOD
+public record FoodSuggestion(
+        String text,
+        String type,
+        Integer foodId,
+        double score
+) {
+}
@@ -0,0 +1,29 @@
+package com.yum.foodyy.Entity.DTO;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+
+import java.math.BigDecimal;
+
+// lean view of a Food for menu listings, it never carries the image bytes, only a url to the card sized image
+public record FoodSummary(
+        Integer id,
+        String name,
+        String description,
+        BigDecimal price,
+        Boolean isVeg,
+        FoodCategory category,
+        Spiceiness spiciness,
+        Boolean available,
+        Double calories,
+        Integer preparationTime,
+        String imageUrl
+) {
+
+    public static FoodSummary of(Food food) {
+        return new FoodSummary(food.getId(), food.getName(), food.getDescription(), food.getPrice(), food.isVeg(),
+                food.getCategory(), food.getSpiciness(), food.isAvailable(), food.getCalories(), food.getPreparationTime(),
+                food.getImageUrl() == null ? null : food.getImageUrl() + "?size=card");
+    }
+}
@@ -0,0 +1,10 @@
+package com.yum.foodyy.Entity.DTO;
+
+// body of an order_outbox row. previousStatus is only set for status changes, order is the order as it was right
+// after the change
+public record OrderEventPayload(
+        Integer customerId,
+        String previousStatus,
+        OrderResponse order
+) {
+}
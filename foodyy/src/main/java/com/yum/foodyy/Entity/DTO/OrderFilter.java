@@ -0,0 +1,16 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// filters of the admin order feed, every null (or empty) field matches all orders.
+// from and to are whole days, both included
+public record OrderFilter(
+        List<String> statuses,
+        LocalDate from,
+        LocalDate to,
+        Integer customerId,
+        BigDecimal minAmount
+) {
+}
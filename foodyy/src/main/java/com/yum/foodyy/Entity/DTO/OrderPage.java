@@ -0,0 +1,11 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.util.List;
+
+// one page of the admin order feed, newest first. nextCursor is passed back as "after" to get the next page
+public record OrderPage(
+        List<OrderResponse> items,
+        String nextCursor,
+        boolean hasMore
+) {
+}
@@ -0,0 +1,8 @@
+package com.yum.foodyy.Entity.DTO;
+
+// what the order stream (GET /customer/{custId}/orders/stream) sends for an order: its id and current status
+public record OrderStatusEvent(
+        String orderId,
+        String status
+) {
+}
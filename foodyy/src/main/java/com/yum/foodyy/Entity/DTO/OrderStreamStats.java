@@ -0,0 +1,13 @@
+package com.yum.foodyy.Entity.DTO;
+
+// counters of OrderEventHub since startup. subscribers is the number of streams open right now, evicted counts the
+// streams closed because their client stopped reading, rejected the ones refused because of the subscriber limits
+public record OrderStreamStats(
+        int subscribers,
+        long published,
+        long delivered,
+        long heartbeats,
+        long evicted,
+        long rejected
+) {
+}
@@ -0,0 +1,15 @@
+package com.yum.foodyy.Entity.DTO;
+
+// state of the order outbox. pending, dead and oldestPendingMs are read from the table, the rest are counters of
+// this node's workers since startup. lag is the time from the order's commit to a worker picking the row up
+public record OutboxStats(
+        long pending,
+        long dead,
+        long oldestPendingMs,
+        long processed,
+        long retried,
+        long deadLettered,
+        long lastLagMs,
+        long maxLagMs
+) {
+}
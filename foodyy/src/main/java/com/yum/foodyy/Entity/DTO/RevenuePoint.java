@@ -0,0 +1,12 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// orders placed in one hour or day (start of it in bucket) and what they were worth, cancelled orders left out
+public record RevenuePoint(
+        LocalDateTime bucket,
+        long orders,
+        BigDecimal revenue
+) {
+}
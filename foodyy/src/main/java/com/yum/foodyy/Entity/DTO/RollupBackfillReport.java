@@ -0,0 +1,11 @@
+package com.yum.foodyy.Entity.DTO;
+
+// what a rebuild of the sales rollups went through and how long it took
+public record RollupBackfillReport(
+        long orders,
+        long hourlyRows,
+        long dailyRows,
+        long statusRows,
+        long millis
+) {
+}
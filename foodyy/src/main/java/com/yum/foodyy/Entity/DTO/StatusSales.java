@@ -0,0 +1,11 @@
+package com.yum.foodyy.Entity.DTO;
+
+import java.math.BigDecimal;
+
+// orders placed in the range that are in this status now
+public record StatusSales(
+        String status,
+        long orders,
+        BigDecimal revenue
+) {
+}
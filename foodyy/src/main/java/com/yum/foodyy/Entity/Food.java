@@ -1,5 +1,6 @@
 package com.yum.foodyy.Entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.*;
@@ -50,8 +51,17 @@ public class Food {
     private String imageName;
     private String imageType;
 
+    // "<sha256>.<ext>" of the file in the media store, the bytes themselves are not kept in the database anymore
+    private String imageKey;
+
+    // legacy column, only read once by MediaMigrationService to move old images into the media store
     @Lob
     @Column(columnDefinition = "BYTEA")
     @JdbcTypeCode(SqlTypes.BINARY)
+    @JsonIgnore
     private byte[] imageData;
+
+    public String getImageUrl() {
+        return imageKey == null ? null : "/images/" + imageKey;
+    }
 }
@@ -0,0 +1,23 @@
+package com.yum.foodyy.Entity;
+
+// fixed renditions generated for every food image, the width is the longest edge in pixels
+public enum ImageSize {
+    THUMB(160),
+    CARD(480),
+    DETAIL(1024),
+    ORIGINAL(0);
+
+    private final int maxEdge;
+
+    ImageSize(int maxEdge) {
+        this.maxEdge = maxEdge;
+    }
+
+    public int getMaxEdge() {
+        return maxEdge;
+    }
+
+    public String suffix() {
+        return name().toLowerCase();
+    }
+}
@@ -2,8 +2,13 @@ package com.yum.foodyy.Repo;
 
 import com.yum.foodyy.Entity.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -11,4 +16,52 @@ public interface CartItemRepo extends JpaRepository<CartItem,Integer> {
     void deleteByFoodId(int foodId);
 
     List<CartItem> findByCart_CustomerInfo_CustomerId(int customerId);
+
+    interface ItemFood {
+        Integer getCartItemId();
+        Integer getFoodId();
+    }
+
+    // only finds the items that are in this cart, ids of other customers' items just don't come back
+    @Query("select ci.cartItemId as cartItemId, ci.food.id as foodId from CartItem ci " +
+            "where ci.cart.cartId = :cartId and ci.cartItemId in :ids")
+    List<ItemFood> findFoodIds(@Param("cartId") int cartId, @Param("ids") Collection<Integer> ids);
+
+    // what placing an order needs from the cart, without loading the CartItem, Cart and Food entities
+    interface OrderableItem {
+        Integer getCartItemId();
+        Integer getCartId();
+        Integer getFoodId();
+        Integer getQuantity();
+    }
+
+    // locks the rows it returns (in cart_item_id order, so two orders of the same cart can't deadlock) until the
+    // order's transaction ends. A change to one of them, like the "+1" upsert in addQuantity, waits for the order
+    // and then finds the row gone instead of being deleted with it
+    @Query(value = "SELECT ci.cart_item_id AS \"cartItemId\", ci.cart_id AS \"cartId\", " +
+            "ci.food_item_id AS \"foodId\", ci.quantity AS \"quantity\" " +
+            "FROM cart_item ci JOIN cart c ON c.cart_id = ci.cart_id WHERE c.customer_id = :customerId " +
+            "ORDER BY ci.cart_item_id FOR UPDATE OF ci", nativeQuery = true)
+    List<OrderableItem> findOrderableItems(@Param("customerId") int customerId);
+
+    // empties the cart after an order in one statement. Only the rows that went into the order (and were locked by
+    // findOrderableItems): a food that wasn't in the cart yet and is added meanwhile stays there, more of a food
+    // that was waits for the order and then goes in as a new row
+    @Modifying
+    @Query(value = "DELETE FROM cart_item WHERE cart_id = :cartId AND cart_item_id IN (:ids)", nativeQuery = true)
+    int deleteOrdered(@Param("cartId") int cartId, @Param("ids") Collection<Integer> ids);
+
+    // adds the food to the customer's cart or raises the quantity of the row that is already there, in one
+    // statement. The unique (cart_id, food_item_id) index makes two concurrent adds end up in the same row.
+    // Returns 0 when the customer has no cart yet.
+    @Modifying
+    @Query(value = "INSERT INTO cart_item (cart_id, food_item_id, quantity, price_at_time_of_addition, added_at) " +
+            "SELECT c.cart_id, :foodId, :quantity, :price, now() FROM cart c WHERE c.customer_id = :customerId " +
+            "ON CONFLICT (cart_id, food_item_id) " +
+            "DO UPDATE SET quantity = cart_item.quantity + EXCLUDED.quantity, version = cart_item.version + 1",
+            nativeQuery = true)
+    int addQuantity(@Param("customerId") int customerId,
+                    @Param("foodId") int foodId,
+                    @Param("quantity") int quantity,
+                    @Param("price") BigDecimal price);
 }
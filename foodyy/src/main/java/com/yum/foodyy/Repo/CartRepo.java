@@ -4,6 +4,9 @@ import com.yum.foodyy.Entity.Cart;
 import com.yum.foodyy.Entity.CartItem;
 import com.yum.foodyy.Entity.CustomerInfo;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +19,13 @@ public interface CartRepo extends JpaRepository<Cart,Integer> {
 
     List<CartItem> findByCustomerInfo_CustomerId(int customerId);
 
+    // customer_id is unique, two requests creating the same cart at once both end up with the one row
+    @Modifying
+    @Query(value = "INSERT INTO cart (customer_id, created_at) VALUES (:customerId, now()) " +
+            "ON CONFLICT (customer_id) DO NOTHING", nativeQuery = true)
+    int createIfMissing(@Param("customerId") int customerId);
+
+    @Query("select c.cartId from Cart c where c.customerInfo.customerId = :customerId")
+    Optional<Integer> findCartIdByCustomerId(@Param("customerId") int customerId);
+
 }
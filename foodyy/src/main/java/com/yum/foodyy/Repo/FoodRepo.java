@@ -2,19 +2,42 @@ package com.yum.foodyy.Repo;
 
 import com.yum.foodyy.Entity.Food;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 @Repository
-public interface FoodRepo extends JpaRepository<Food,Integer> {
-
-    @Query("SELECT f FROM Food f WHERE " +
-            "LOWER(f.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(f.description) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "LOWER(f.category) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-            "CAST(f.price AS string) LIKE CONCAT('%', :keyword, '%')")
-    List<Food> searchFood(@Param("keyword") String keyword);
+public interface FoodRepo extends JpaRepository<Food,Integer>, FoodRepoCustom {
+
+    // used by the one time move of images from the BYTEA column into the media store
+    interface LegacyImage {
+        String getName();
+        String getImageName();
+        String getImageType();
+        byte[] getImageData();
+    }
+
+    @Query("SELECT f.id FROM Food f WHERE f.imageKey IS NULL ORDER BY f.id")
+    List<Integer> findIdsWithoutImageKey();
+
+    @Query("SELECT f.name AS name, f.imageName AS imageName, f.imageType AS imageType, f.imageData AS imageData " +
+            "FROM Food f WHERE f.id = :id")
+    LegacyImage findLegacyImage(@Param("id") int id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Food f SET f.imageKey = :imageKey, f.imageType = :imageType, f.imageName = :imageName, " +
+            "f.imageData = null WHERE f.id = :id")
+    int attachImage(@Param("id") int id,
+                    @Param("imageKey") String imageKey,
+                    @Param("imageType") String imageType,
+                    @Param("imageName") String imageName);
+
+    @Modifying
+    @Query("UPDATE Food f SET f.available = :available WHERE f.id IN :ids")
+    int updateAvailability(@Param("ids") List<Integer> ids, @Param("available") boolean available);
 }
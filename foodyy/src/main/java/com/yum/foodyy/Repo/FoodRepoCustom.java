@@ -0,0 +1,16 @@
+package com.yum.foodyy.Repo;
+
+import com.yum.foodyy.Entity.DTO.FoodPatch;
+import com.yum.foodyy.Entity.Food;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface FoodRepoCustom {
+
+    // one UPDATE of the columns set in the patch, returns the number of rows changed (0 when the food doesn't exist)
+    int patch(int foodId, FoodPatch patch);
+
+    // detached foods without the legacy imageData bytes (never selected), all of them when ids is null
+    List<Food> findCatalog(Collection<Integer> ids);
+}
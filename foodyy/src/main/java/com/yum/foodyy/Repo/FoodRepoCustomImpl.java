@@ -0,0 +1,101 @@
+package com.yum.foodyy.Repo;
+
+import com.yum.foodyy.Entity.DTO.FoodPatch;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.Spiceiness;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+// the UPDATE only names the columns in the patch, so toggling "available" never reads or writes the rest of the row
+public class FoodRepoCustomImpl implements FoodRepoCustom {
+
+    // every column of food except image_data
+    private static final List<String> CATALOG_ATTRIBUTES = List.of("id", "name", "description", "price", "isVeg",
+            "ingredients", "calories", "preparationTime", "spiciness", "available", "category", "imageName",
+            "imageType", "imageKey");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int patch(int foodId, FoodPatch patch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Food> update = cb.createCriteriaUpdate(Food.class);
+        Root<Food> food = update.from(Food.class);
+
+        boolean changed = set(update, food, "name", patch.name() == null ? null : patch.name().trim());
+        changed |= set(update, food, "description", patch.description());
+        changed |= set(update, food, "price", patch.price());
+        changed |= set(update, food, "isVeg", patch.isVeg());
+        changed |= set(update, food, "ingredients", patch.ingredients());
+        changed |= set(update, food, "calories", patch.calories());
+        changed |= set(update, food, "preparationTime", patch.preparationTime());
+        changed |= set(update, food, "spiciness", patch.spiciness());
+        changed |= set(update, food, "available", patch.available());
+        changed |= set(update, food, "category", patch.category());
+
+        if (!changed) {
+//            nothing to change, still tell the caller whether the food exists
+            Long count = entityManager.createQuery("SELECT COUNT(f) FROM Food f WHERE f.id = :id", Long.class)
+                    .setParameter("id", foodId)
+                    .getSingleResult();
+            return count.intValue();
+        }
+
+        update.where(cb.equal(food.get("id"), foodId));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<Food> findCatalog(Collection<Integer> ids) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Food> food = query.from(Food.class);
+
+        List<Selection<?>> columns = CATALOG_ATTRIBUTES.stream()
+                .<Selection<?>>map(attribute -> food.get(attribute).alias(attribute))
+                .toList();
+        query.multiselect(columns);
+        if (ids != null) query.where(food.get("id").in(ids));
+
+        return entityManager.createQuery(query).getResultList().stream()
+                .map(FoodRepoCustomImpl::toFood)
+                .toList();
+    }
+
+    private static Food toFood(Tuple row) {
+        Food food = new Food();
+        food.setId(row.get("id", Integer.class));
+        food.setName(row.get("name", String.class));
+        food.setDescription(row.get("description", String.class));
+        food.setPrice(row.get("price", BigDecimal.class));
+        food.setVeg(row.get("isVeg", Boolean.class));
+        food.setIngredients(row.get("ingredients", String.class));
+        food.setCalories(row.get("calories", Double.class));
+        food.setPreparationTime(row.get("preparationTime", Integer.class));
+        food.setSpiciness(row.get("spiciness", Spiceiness.class));
+        food.setAvailable(row.get("available", Boolean.class));
+        food.setCategory(row.get("category", FoodCategory.class));
+        food.setImageName(row.get("imageName", String.class));
+        food.setImageType(row.get("imageType", String.class));
+        food.setImageKey(row.get("imageKey", String.class));
+        return food;
+    }
+
+    private static boolean set(CriteriaUpdate<Food> update, Root<Food> food, String attribute, Object value) {
+        if (value == null) return false;
+        update.set(food.get(attribute), value);
+        return true;
+    }
+}
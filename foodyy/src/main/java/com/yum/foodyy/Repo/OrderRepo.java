@@ -1,9 +1,14 @@
 package com.yum.foodyy.Repo;
 
 import com.yum.foodyy.Entity.CustomerOrder;
+import com.yum.foodyy.Entity.DTO.OrderStatusEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -11,4 +16,74 @@ public interface OrderRepo extends JpaRepository<CustomerOrder, Long> {
     List<CustomerOrder> findByCustomerInfo_CustomerIdOrderByOrderDateDesc(int custId);
 
     CustomerOrder findByOrderId(String orderId);
+
+    // how many of each food were ordered so far, ranks the search suggestions
+    interface FoodPopularity {
+        Integer getFoodId();
+        Long getQuantity();
+    }
+
+    @Query("SELECT i.food.id AS foodId, SUM(i.quantity) AS quantity FROM CustomerOrderItems i GROUP BY i.food.id")
+    List<FoodPopularity> findFoodPopularity();
+
+    // Read side of the order pages. An order list is two queries whatever its size: the orders (with the customer
+    // name joined in) and all of their lines (with just the food name, never the Food row). OrderService puts the
+    // two together.
+    interface OrderHeader {
+        Long getId();
+        String getOrderId();
+        Integer getCustomerId();
+        String getCustomerName();
+        String getEmail();
+        String getAddress();
+        String getStatus();
+        LocalDateTime getOrderDate();
+        BigDecimal getTotalAmount();
+    }
+
+    interface OrderLine {
+        Long getOrderKey();
+        String getFoodName();
+        Integer getQuantity();
+        BigDecimal getTotalPrice();
+    }
+
+    String HEADER = "SELECT o.id AS id, o.orderId AS orderId, c.customerId AS customerId, c.name AS customerName, " +
+            "o.email AS email, " +
+            "o.address AS address, o.status AS status, o.orderDate AS orderDate, o.totalAmount AS totalAmount " +
+            "FROM CustomerOrder o LEFT JOIN o.customerInfo c ";
+
+    String LINE = "SELECT i.order.id AS orderKey, f.name AS foodName, i.quantity AS quantity, " +
+            "i.totalPrice AS totalPrice FROM CustomerOrderItems i JOIN i.food f ";
+
+    @Query(HEADER + "WHERE c.customerId = :customerId ORDER BY o.orderDate DESC")
+    List<OrderHeader> findHeadersByCustomer(@Param("customerId") int customerId);
+
+    @Query(LINE + "WHERE i.order.customerInfo.customerId = :customerId ORDER BY i.id")
+    List<OrderLine> findLinesByCustomer(@Param("customerId") int customerId);
+
+    // one page of the admin order feed, the ids come from OrderFeedQuery
+    @Query(HEADER + "WHERE o.id IN :ids ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderHeader> findHeadersByIds(@Param("ids") List<Long> ids);
+
+    @Query(LINE + "WHERE i.order.id IN :ids ORDER BY i.id")
+    List<OrderLine> findLinesByOrderIds(@Param("ids") List<Long> ids);
+
+    @Query(HEADER + "WHERE o.orderId = :orderId")
+    List<OrderHeader> findHeadersByOrderId(@Param("orderId") String orderId);
+
+    @Query(LINE + "WHERE i.order.orderId = :orderId ORDER BY i.id")
+    List<OrderLine> findLinesByOrderId(@Param("orderId") String orderId);
+
+    @Query(HEADER + "WHERE o.idempotencyKey = :key")
+    List<OrderHeader> findHeadersByIdempotencyKey(@Param("key") String key);
+
+    @Query(LINE + "WHERE i.order.idempotencyKey = :key ORDER BY i.id")
+    List<OrderLine> findLinesByIdempotencyKey(@Param("key") String key);
+
+    // what the order stream sends first: the customer's orders that are not delivered or cancelled yet
+    @Query("SELECT new com.yum.foodyy.Entity.DTO.OrderStatusEvent(o.orderId, o.status) FROM CustomerOrder o " +
+            "WHERE o.customerInfo.customerId = :customerId AND o.status NOT IN ('DELIVERED', 'CANCELLED') " +
+            "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderStatusEvent> findOpenOrderStatuses(@Param("customerId") int customerId);
 }
@@ -0,0 +1,88 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Folds the operations of one batch into the single change each food ends up with, so a client that sends
+// "+1, +1, +1, -1" for the same dish costs one row write. Operations are applied in order:
+//   add after add     -> one add of the sum
+//   add after set     -> set to the sum
+//   add after remove  -> set to the added quantity
+//   set / remove      -> replace whatever came before
+final class CartBatch {
+
+    enum Kind {ADD, SET, REMOVE}
+
+    record Change(Kind kind, int quantity) {
+    }
+
+    private CartBatch() {
+    }
+
+    // foodOfItem maps the cart item ids of the customer's cart to their food, an id that isn't there belongs to
+    // someone else (or doesn't exist) and fails the whole batch
+    static Map<Integer, Change> coalesce(List<CartOperation> operations, Map<Integer, Integer> foodOfItem) {
+        Map<Integer, Change> changes = new LinkedHashMap<>();
+
+        for (CartOperation operation : operations) {
+            if (operation == null) {
+                throw new IllegalArgumentException("Empty cart operation");
+            }
+            Kind kind = kindOf(operation.op());
+            int foodId = foodOf(operation, kind, foodOfItem);
+            Integer quantity = operation.quantity();
+
+            if (kind != Kind.REMOVE) {
+                if (quantity == null || quantity < 0 || (kind == Kind.ADD && quantity == 0)) {
+                    throw new IllegalArgumentException("Quantity must be greater than 0");
+                }
+                if (kind == Kind.SET && quantity == 0) kind = Kind.REMOVE;
+            }
+
+            Change previous = changes.get(foodId);
+            Change next = switch (kind) {
+                case REMOVE -> new Change(Kind.REMOVE, 0);
+                case SET -> new Change(Kind.SET, quantity);
+                case ADD -> previous == null ? new Change(Kind.ADD, quantity)
+                        : switch (previous.kind()) {
+                            case ADD -> new Change(Kind.ADD, Math.addExact(previous.quantity(), quantity));
+                            case SET -> new Change(Kind.SET, Math.addExact(previous.quantity(), quantity));
+                            case REMOVE -> new Change(Kind.SET, quantity);
+                        };
+            };
+            changes.put(foodId, next);
+        }
+        return changes;
+    }
+
+    private static Kind kindOf(String op) {
+        if (op == null) {
+            throw new IllegalArgumentException("Cart operation needs an op (add, set or remove)");
+        }
+        try {
+            return Kind.valueOf(op.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown cart operation: " + op);
+        }
+    }
+
+    private static int foodOf(CartOperation operation, Kind kind, Map<Integer, Integer> foodOfItem) {
+        if (operation.cartItemId() != null && kind != Kind.ADD) {
+            Integer foodId = foodOfItem.get(operation.cartItemId());
+            if (foodId == null) {
+                throw new IllegalArgumentException("Cart item " + operation.cartItemId()
+                        + " not found or does not belong to this customer");
+            }
+            return foodId;
+        }
+        if (operation.foodId() == null) {
+            throw new IllegalArgumentException(kind == Kind.ADD
+                    ? "add needs a foodId" : kind.name().toLowerCase(Locale.ROOT) + " needs a cartItemId or a foodId");
+        }
+        return operation.foodId();
+    }
+}
@@ -0,0 +1,14 @@
+package com.yum.foodyy.Service;
+
+// a cart write that kept losing to concurrent edits, or was made against a version of the item the client no
+// longer has. The controllers answer it with 409 and the current cart.
+public class CartConflictException extends RuntimeException {
+
+    public CartConflictException(String message) {
+        super(message);
+    }
+
+    public CartConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,140 @@
+package com.yum.foodyy.Service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Append-only log of the cart changes WriteBehindCartStore holds in memory but hasn't written to Postgres yet.
+// Every line is the new absolute state of one cart line, so replaying a line twice does no harm:
+//   S <customerId> <foodId> <quantity> <price>   quantity 0 means the line was removed
+//   F <customerId>                               everything before this for the customer is in the database
+// The log is split in numbered segments (cart-journal-<n>.log). A periodic flush rolls to a new segment first,
+// once the changes are written the older segments are deleted. After a crash the remaining segments are read
+// back in order and written to the database before anything else runs.
+final class CartJournal implements Closeable {
+
+    record Entry(int customerId, int foodId, int quantity, BigDecimal price) {
+    }
+
+    private static final String PREFIX = "cart-journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final boolean fsync;
+
+    private FileChannel channel;
+    private long segment;
+
+    CartJournal(Path dir, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        Files.createDirectories(dir);
+        List<Long> existing = segments(dir);
+        open(existing.isEmpty() ? 1 : existing.get(existing.size() - 1) + 1);
+    }
+
+    synchronized void append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) return;
+        StringBuilder lines = new StringBuilder(entries.size() * 24);
+        for (Entry entry : entries) {
+            lines.append("S ").append(entry.customerId()).append(' ').append(entry.foodId()).append(' ')
+                    .append(entry.quantity()).append(' ').append(entry.price().toPlainString()).append('\n');
+        }
+        write(lines.toString());
+    }
+
+    synchronized void flushed(int customerId) throws IOException {
+        write("F " + customerId + "\n");
+    }
+
+    // closes the current segment and starts the next one, returns the new segment's number. Everything appended
+    // before the call is in the segments below it.
+    synchronized long roll() throws IOException {
+        channel.force(false);
+        channel.close();
+        open(segment + 1);
+        return segment;
+    }
+
+    void deleteBefore(long segment) throws IOException {
+        for (long old : segments(dir)) {
+            if (old < segment) Files.deleteIfExists(dir.resolve(PREFIX + old + SUFFIX));
+        }
+    }
+
+    // the last state of every line left in the log, by customer and food
+    static Map<Integer, Map<Integer, Entry>> replay(Path dir) throws IOException {
+        Map<Integer, Map<Integer, Entry>> carts = new LinkedHashMap<>();
+        if (!Files.isDirectory(dir)) return carts;
+
+        for (long segment : segments(dir)) {
+            String text = Files.readString(dir.resolve(PREFIX + segment + SUFFIX));
+            // a last line without its newline was cut short by the crash, it was never acknowledged
+            int end = text.lastIndexOf('\n') + 1;
+            for (String line : text.substring(0, end).split("\n")) {
+                String[] parts = line.trim().split(" ");
+                try {
+                    if (parts[0].equals("S") && parts.length == 5) {
+                        Entry entry = new Entry(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                                Integer.parseInt(parts[3]), new BigDecimal(parts[4]));
+                        carts.computeIfAbsent(entry.customerId(), id -> new LinkedHashMap<>())
+                                .put(entry.foodId(), entry);
+                    } else if (parts[0].equals("F") && parts.length == 2) {
+                        carts.remove(Integer.parseInt(parts[1]));
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("Cart journal: skipping unreadable line in segment " + segment + ": " + line);
+                }
+            }
+        }
+        return carts;
+    }
+
+    private static List<Long> segments(Path dir) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith(PREFIX) && name.endsWith(SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            segments.add(Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                        } catch (NumberFormatException e) {
+                            // not one of ours
+                        }
+                    });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private void open(long segment) throws IOException {
+        this.segment = segment;
+        this.channel = FileChannel.open(dir.resolve(PREFIX + segment + SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // one write per call, once it returns the lines survive the process dying (fsync also a power cut)
+    private void write(String lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
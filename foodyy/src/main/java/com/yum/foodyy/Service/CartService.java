@@ -3,27 +3,86 @@ package com.yum.foodyy.Service;
 import com.yum.foodyy.Entity.Cart;
 import com.yum.foodyy.Entity.CartItem;
 import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.CartLine;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Entity.DTO.CartTotals;
+import com.yum.foodyy.Entity.DTO.CartView;
+import com.yum.foodyy.Entity.FoodCategory;
 import com.yum.foodyy.Entity.Food;
 import com.yum.foodyy.Repo.CartItemRepo;
 import com.yum.foodyy.Repo.CartRepo;
 import com.yum.foodyy.Repo.CustomerRepo;
-import com.yum.foodyy.Repo.FoodRepo;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class CartService {
 
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
+    private static final String ADD_SQL = """
+            INSERT INTO cart_item (cart_id, food_item_id, quantity, price_at_time_of_addition, added_at)
+            VALUES (?, ?, ?, ?, now())
+            ON CONFLICT (cart_id, food_item_id)
+                DO UPDATE SET quantity = cart_item.quantity + EXCLUDED.quantity, version = cart_item.version + 1
+            """;
+
+    private static final String SET_SQL = """
+            INSERT INTO cart_item (cart_id, food_item_id, quantity, price_at_time_of_addition, added_at)
+            VALUES (?, ?, ?, ?, now())
+            ON CONFLICT (cart_id, food_item_id)
+                DO UPDATE SET quantity = EXCLUDED.quantity, version = cart_item.version + 1
+            """;
+
+    private static final String REMOVE_SQL = "DELETE FROM cart_item WHERE cart_id = ? AND food_item_id = ?";
+
+    private static final String TOTALS_SQL = """
+            SELECT count(*), coalesce(sum(ci.quantity), 0), coalesce(sum(ci.quantity * f.price), 0)
+            FROM cart_item ci JOIN food f ON f.id = ci.food_item_id
+            WHERE ci.cart_id = ?
+            """;
+
+    // the lines and, through window functions over the same rows, the totals. An empty cart still gives one row
+    // (cart columns only) so "no cart" and "empty cart" can be told apart.
+    private static final String VIEW_SQL = """
+            SELECT c.cart_id, ci.cart_item_id, f.id, f.name, f.category, f.price, ci.price_at_time_of_addition,
+                   ci.quantity, ci.version, f.image_key,
+                   count(ci.cart_item_id) OVER () AS item_count,
+                   coalesce(sum(ci.quantity) OVER (), 0) AS total_quantity,
+                   coalesce(sum(ci.quantity * f.price) OVER (), 0) AS subtotal,
+                   coalesce(bool_or(ci.price_at_time_of_addition <> f.price) OVER (), false) AS price_changed
+            FROM cart c
+            LEFT JOIN cart_item ci ON ci.cart_id = c.cart_id
+            LEFT JOIN food f ON f.id = ci.food_item_id
+            WHERE c.customer_id = ?
+            ORDER BY ci.added_at, ci.cart_item_id
+            """;
+
     @Autowired
     private CartRepo cartRepo;
     @Autowired
     private CustomerRepo customerRepo;
     @Autowired
-    private FoodRepo foodRepo;
-    @Autowired
     private CartItemRepo cartItemRepo;
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private OptimisticRetry optimisticRetry;
+    @Autowired
+    private WriteBehindCartStore writeBehindCartStore;
 
 
     public Cart getCartByCustomer(Integer customerId) {
@@ -33,77 +92,211 @@ public class CartService {
                 .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
     }
 
-    public Cart addItemToCart(Integer customerId, Integer foodId, Integer quantity) {
-        CustomerInfo customerInfo = customerRepo
-                .findById(customerId)
-                .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+    public CartView getCartView(Integer customerId) {
+//        with the write-behind store on, this customer's buffered changes go to the database first
+        writeBehindCartStore.flush(customerId);
+        return loadView(customerId);
+    }
+
+    private CartView loadView(Integer customerId) {
+        List<CartLine> lines = new ArrayList<>();
+        CartView[] view = new CartView[1];
+
+        jdbcTemplate.query(VIEW_SQL, rs -> {
+            if (view[0] == null) {
+                view[0] = new CartView(rs.getInt("cart_id"), lines, rs.getInt("item_count"),
+                        rs.getInt("total_quantity"), rs.getBigDecimal("subtotal"), rs.getBoolean("price_changed"));
+            }
+            if (rs.getObject("cart_item_id") == null) return;
+
+            BigDecimal price = rs.getBigDecimal("price");
+            BigDecimal added = rs.getBigDecimal("price_at_time_of_addition");
+            int quantity = rs.getInt("quantity");
+            String category = rs.getString("category");
+            String imageKey = rs.getString("image_key");
+            lines.add(new CartLine(
+                    rs.getInt("cart_item_id"),
+                    rs.getInt("id"),
+                    rs.getString("name"),
+                    category == null ? null : FoodCategory.valueOf(category),
+                    price,
+                    added,
+                    quantity,
+                    price == null ? null : price.multiply(BigDecimal.valueOf(quantity)),
+                    price != null && added != null && price.compareTo(added) != 0,
+                    rs.getInt("version"),
+                    imageKey == null ? null : "/images/" + imageKey + "?size=thumb"));
+        }, customerId);
+
+        if (view[0] != null) return view[0];
+
+//        carts are created on the first add, a customer without one just has an empty cart
+        if (!customerRepo.existsById(customerId)) {
+            throw new IllegalArgumentException("Customer not found");
+        }
+        return new CartView(null, List.of(), 0, 0, BigDecimal.ZERO, false);
+    }
+
+    @Transactional
+    public CartView addItemToCart(Integer customerId, Integer foodId, Integer quantity) {
+        if (quantity == null || quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0");
+        }
+
+        if (writeBehindCartStore.isEnabled()) {
+            writeBehindCartStore.apply(customerId, List.of(new CartOperation("add", foodId, null, quantity)));
+            return writeBehindCartStore.view(customerId);
+        }
 
-        Food food = foodRepo
+//        existence and price come from the catalog cache, the food row is never read
+        Food food = catalogCacheService
                 .findById(foodId)
                 .orElseThrow(() -> new IllegalArgumentException("Food not found"));
 
-        Cart cart = cartRepo.findByCustomerInfo(customerInfo)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart();
-                    newCart.setCustomerInfo(customerInfo);
-                    return cartRepo.save(newCart);
-                });
-        Optional<CartItem> existingItem = cart
-                                            .getCartItems()
-                                            .stream()
-                                            .filter(item -> item.getFood().getId().equals(foodId))
-                                            .findFirst();
-
-        if (existingItem.isPresent()) {
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-        } else {
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setFood(food);
-            newItem.setQuantity(quantity);
-            newItem.setPriceAtTimeOfAddition(food.getPrice());
-            cart.getCartItems().add(newItem);
+//        a single INSERT .. ON CONFLICT, double clicks and parallel tabs can't lose an increment or add a second row
+        if (cartItemRepo.addQuantity(customerId, foodId, quantity, food.getPrice()) == 0) {
+            if (!customerRepo.existsById(customerId)) {
+                throw new IllegalArgumentException("Customer not found");
+            }
+            cartRepo.createIfMissing(customerId);
+            cartItemRepo.addQuantity(customerId, foodId, quantity, food.getPrice());
         }
 
-        return cartRepo.save(cart);
+        return loadView(customerId);
     }
 
-    public boolean updateCartItemQuantity(Integer customerId , Integer cartItemId, int quantity) {
-        Optional<CartItem> cartItem = cartItemRepo.findById(cartItemId);
+    // Several cart edits in one transaction: the cart is looked up once by its owner, item ids are only resolved
+    // inside that cart, the edits are folded to one change per food (CartBatch) and written with one JDBC batch per
+    // kind of change. Any bad operation rolls the whole batch back.
+    @Transactional
+    public CartTotals applyBatch(Integer customerId, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations");
+        }
+        if (operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_OPERATIONS + " operations per batch");
+        }
+        if (writeBehindCartStore.isEnabled()) {
+            return writeBehindCartStore.apply(customerId, operations);
+        }
 
-        if(cartItem.isEmpty()) return false;
+        int cartId = cartIdOf(customerId);
 
-        CartItem item = cartItem.get();
+        Set<Integer> itemIds = operations.stream()
+                .filter(Objects::nonNull)
+                .map(CartOperation::cartItemId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Integer, Integer> foodOfItem = itemIds.isEmpty() ? Map.of()
+                : cartItemRepo.findFoodIds(cartId, itemIds).stream()
+                        .collect(Collectors.toMap(CartItemRepo.ItemFood::getCartItemId, CartItemRepo.ItemFood::getFoodId));
 
-        //we are verifying if this cartItem belongs to the customer or not
-        if(!item.getCart().getCustomerInfo().getCustomerId().equals(customerId)){
-            return false;
+        List<Object[]> adds = new ArrayList<>();
+        List<Object[]> sets = new ArrayList<>();
+        List<Object[]> removes = new ArrayList<>();
+
+        CartBatch.coalesce(operations, foodOfItem).forEach((foodId, change) -> {
+            if (change.kind() == CartBatch.Kind.REMOVE) {
+                removes.add(new Object[]{cartId, foodId});
+                return;
+            }
+            Food food = catalogCacheService
+                    .findById(foodId)
+                    .orElseThrow(() -> new IllegalArgumentException("Food not found: " + foodId));
+            Object[] row = {cartId, foodId, change.quantity(), food.getPrice()};
+            (change.kind() == CartBatch.Kind.ADD ? adds : sets).add(row);
+        });
+
+        if (!removes.isEmpty()) jdbcTemplate.batchUpdate(REMOVE_SQL, removes);
+        if (!sets.isEmpty()) jdbcTemplate.batchUpdate(SET_SQL, sets);
+        if (!adds.isEmpty()) jdbcTemplate.batchUpdate(ADD_SQL, adds);
+
+        return jdbcTemplate.queryForObject(TOTALS_SQL,
+                (rs, rowNum) -> new CartTotals(cartId, rs.getInt(1), rs.getInt(2), rs.getBigDecimal(3)),
+                cartId);
+    }
+
+    private int cartIdOf(Integer customerId) {
+        Optional<Integer> cartId = cartRepo.findCartIdByCustomerId(customerId);
+        if (cartId.isPresent()) return cartId.get();
+
+        if (!customerRepo.existsById(customerId)) {
+            throw new IllegalArgumentException("Customer not found");
         }
-        item.setQuantity(quantity);
-        cartItemRepo.save(item);
-        return true;
+        cartRepo.createIfMissing(customerId);
+        return cartRepo.findCartIdByCustomerId(customerId)
+                .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
     }
 
+    // expectedVersion is the version of the item the client last saw (CartLine.version), null skips that check
+    public boolean updateCartItemQuantity(Integer customerId, Integer cartItemId, int quantity, Integer expectedVersion) {
+        if (writeBehindCartStore.isEnabled()) {
+            return applyToStore(customerId, new CartOperation("set", null, cartItemId, quantity));
+        }
+        return optimisticRetry.inTransaction(() -> {
+            Optional<CartItem> cartItem = cartItemRepo.findById(cartItemId);
+
+            if(cartItem.isEmpty()) return false;
 
-    public boolean deleteCartItem(Integer customerId, Integer cartItemId) {
-        Optional<CartItem> cartItemOpt = cartItemRepo.findById(cartItemId);
+            CartItem item = cartItem.get();
 
-        if (cartItemOpt.isEmpty()) {
-            return false;
+            //we are verifying if this cartItem belongs to the customer or not
+            if(!item.getCart().getCustomerInfo().getCustomerId().equals(customerId)){
+                return false;
+            }
+            checkVersion(item, expectedVersion);
+
+            item.setQuantity(quantity);
+//            flushed here so a lost @Version race surfaces inside the retry
+            cartItemRepo.saveAndFlush(item);
+            return true;
+        });
+    }
+
+
+    public boolean deleteCartItem(Integer customerId, Integer cartItemId, Integer expectedVersion) {
+        if (writeBehindCartStore.isEnabled()) {
+            return applyToStore(customerId, new CartOperation("remove", null, cartItemId, null));
         }
+        return optimisticRetry.inTransaction(() -> {
+            Optional<CartItem> cartItemOpt = cartItemRepo.findById(cartItemId);
 
-        CartItem cartItem = cartItemOpt.get();
+            if (cartItemOpt.isEmpty()) {
+                return false;
+            }
 
-        if (!cartItem.getCart().getCustomerInfo().getCustomerId().equals(customerId)) {
+            CartItem cartItem = cartItemOpt.get();
+
+            if (!cartItem.getCart().getCustomerInfo().getCustomerId().equals(customerId)) {
+                return false;
+            }
+            checkVersion(cartItem, expectedVersion);
+
+            cartItemRepo.delete(cartItem);
+            cartItemRepo.flush();
+            return true;
+        });
+    }
+
+    // the cached cart carries no versions, in write-behind mode the last change wins
+    private boolean applyToStore(Integer customerId, CartOperation operation) {
+        try {
+            writeBehindCartStore.apply(customerId, List.of(operation));
+            return true;
+        } catch (IllegalArgumentException e) {
             return false;
         }
+    }
 
-        cartItemRepo.delete(cartItem);
-        return true;
+    private static void checkVersion(CartItem item, Integer expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(item.getVersion())) {
+            throw new CartConflictException("Cart item " + item.getCartItemId() + " was changed in the meantime");
+        }
     }
 
     public void deleteCart(Integer cartId) {
+        cartRepo.findById(cartId).ifPresent(cart ->
+                writeBehindCartStore.discard(cart.getCustomerInfo().getCustomerId()));
         cartRepo.deleteById(cartId);
         return;
     }
@@ -0,0 +1,213 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CatalogCacheStats;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Repo.FoodRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Read-mostly copy of the whole menu. Readers always see one immutable snapshot, admin writes build a
+// brand new snapshot and swap it in, so reads never take a lock and never see a half updated menu.
+// The Food objects inside a snapshot are shared between threads, treat them as read only.
+@Service
+public class CatalogCacheService {
+
+    public record Snapshot(long version, List<Food> foods, Map<Integer, Food> byId, LocalDateTime builtAt) {
+
+        public Optional<Food> find(int foodId) {
+            return Optional.ofNullable(byId.get(foodId));
+        }
+    }
+
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+
+    @Value("${foodyy.catalog.notify.channel:catalog_changed}")
+    private String channel;
+
+    // lets the listener ignore the notifications this node sent itself
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder remoteInvalidations = new LongAdder();
+
+    public Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            hits.increment();
+            return snapshot;
+        }
+        misses.increment();
+        return loadIfMissing();
+    }
+
+    // several requests can miss a cold cache at once, only the first one reads the menu and the rest wait for it
+    private synchronized Snapshot loadIfMissing() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) return snapshot;
+        return rebuild();
+    }
+
+    public List<Food> getAll() {
+        return snapshot().foods();
+    }
+
+    public Optional<Food> findById(int foodId) {
+        return snapshot().find(foodId);
+    }
+
+    // called by every admin write. Inside a transaction nothing happens until the write commits, then this node
+    // rebuilds its own snapshot and tells the others.
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                    notifyOtherNodes();
+                }
+            });
+        } else {
+            rebuild();
+            notifyOtherNodes();
+        }
+    }
+
+    // same as invalidate() for writes that only touched a few foods, this node then reloads just those rows
+    // instead of the whole menu. Other nodes still do a full reload.
+    public void invalidate(Collection<Integer> foodIds) {
+        Set<Integer> ids = Set.copyOf(foodIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(ids);
+                    notifyOtherNodes();
+                }
+            });
+        } else {
+            refresh(ids);
+            notifyOtherNodes();
+        }
+    }
+
+    // another replica changed the menu
+    public void onRemoteChange() {
+        remoteInvalidations.increment();
+        rebuild();
+    }
+
+    public synchronized Snapshot rebuild() {
+//        a fresh read only transaction, this also runs from afterCommit where the old one is still bound to the thread
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tx.setReadOnly(true);
+
+//        never the image bytes, foods that weren't moved to the media store yet still have them in the table
+        List<Food> foods = tx.execute(status -> foodRepo.findCatalog(null).stream()
+                .sorted(Comparator.comparing(Food::getId))
+                .toList());
+
+        Map<Integer, Food> byId = new LinkedHashMap<>();
+        foods.forEach(food -> byId.put(food.getId(), food));
+
+        return publish(foods, byId);
+    }
+
+    private Snapshot publish(List<Food> foods, Map<Integer, Food> byId) {
+        Snapshot snapshot = new Snapshot(versions.incrementAndGet(), foods, Map.copyOf(byId), LocalDateTime.now());
+        current.set(snapshot);
+        rebuilds.increment();
+        eventPublisher.publishEvent(new CatalogRefreshedEvent(snapshot));
+        return snapshot;
+    }
+
+    // new snapshot with only the given foods read again, foods that no longer exist are dropped
+    public synchronized Snapshot refresh(Set<Integer> foodIds) {
+        Snapshot old = current.get();
+        if (old == null) return rebuild();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        tx.setReadOnly(true);
+
+        List<Food> reloaded = tx.execute(status -> foodRepo.findCatalog(foodIds));
+
+        Map<Integer, Food> byId = new HashMap<>(old.byId());
+        foodIds.forEach(byId::remove);
+        reloaded.forEach(food -> byId.put(food.getId(), food));
+
+        List<Food> foods = byId.values().stream()
+                .sorted(Comparator.comparing(Food::getId))
+                .toList();
+        return publish(foods, byId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public CatalogCacheStats stats() {
+        Snapshot snapshot = current.get();
+        return new CatalogCacheStats(
+                nodeId,
+                snapshot == null ? 0 : snapshot.version(),
+                snapshot == null ? 0 : snapshot.foods().size(),
+                hits.sum(),
+                misses.sum(),
+                rebuilds.sum(),
+                remoteInvalidations.sum(),
+                snapshot == null ? null : snapshot.builtAt()
+        );
+    }
+
+    // in a transaction of its own: the admin's write has committed already (or there was none), so a failed
+    // NOTIFY can't take it down with it. The other nodes catch up on their next reconnect
+    private void notifyOtherNodes() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            tx.executeWithoutResult(status -> jdbcTemplate.execute("SELECT pg_notify(?, ?)", (PreparedStatementCallback<Boolean>) ps -> {
+                ps.setString(1, channel);
+                ps.setString(2, nodeId);
+                return ps.execute();
+            }));
+        } catch (Exception e) {
+            System.out.println("CatalogCache: could not notify other nodes: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.yum.foodyy.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+// Keeps one connection in LISTEN mode so this replica hears about menu changes made on the other replicas.
+// Each reconnect also reloads the catalog because notifications sent while we were disconnected are lost.
+// The connection is opened outside the Hikari pool, a LISTEN connection is held forever and would take a pool slot.
+@Component
+public class CatalogChangeListener {
+
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    @Value("${foodyy.catalog.notify.enabled:true}")
+    private boolean enabled;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        running = true;
+        worker = new Thread(this::listenLoop, "catalog-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+    }
+
+    private void listenLoop() {
+        boolean firstConnect = true;
+
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + catalogCacheService.getChannel());
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                if (!firstConnect) {
+                    catalogCacheService.onRemoteChange();
+                }
+                firstConnect = false;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) continue;
+
+                    boolean changedElsewhere = false;
+                    for (PGNotification notification : notifications) {
+                        if (!catalogCacheService.getNodeId().equals(notification.getParameter())) {
+                            changedElsewhere = true;
+                        }
+                    }
+                    // several notifications in one poll only need one reload
+                    if (changedElsewhere) {
+                        catalogCacheService.onRemoteChange();
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) return;
+                System.out.println("CatalogChangeListener: connection lost, retrying: " + e.getMessage());
+                firstConnect = false;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
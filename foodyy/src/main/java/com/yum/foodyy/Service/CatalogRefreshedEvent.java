@@ -0,0 +1,5 @@
+package com.yum.foodyy.Service;
+
+// published every time CatalogCacheService swaps in a new snapshot, the in-memory indexes rebuild from it
+public record CatalogRefreshedEvent(CatalogCacheService.Snapshot snapshot) {
+}
@@ -2,14 +2,15 @@ package com.yum.foodyy.Service;
 
 import com.yum.foodyy.Entity.Cart;
 import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.CartOperation;
 import com.yum.foodyy.Entity.DTO.LoginRequest;
 import com.yum.foodyy.Entity.DTO.LoginResponse;
-import com.yum.foodyy.Repo.CartRepo;
 import com.yum.foodyy.Repo.CustomerRepo;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -23,19 +24,19 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.time.LocalDateTime;
 import java.util.*;
 
 @Service
 public class CustomerService {
 
     @Autowired private CustomerRepo customerRepo;
-    @Autowired private CartRepo cartRepo;
     @Autowired private CartService cartService;
     @Autowired private PasswordEncoder passwordEncoder;
     @Autowired private JwtService jwtService;
     @Autowired private AuthenticationManager authenticationManager;
     @Autowired private  TokenBlacklistService tokenBlacklistService;
+    @Autowired private GuestCartService guestCartService;
+    @Autowired private DashboardCounters dashboardCounters;
 
     public ResponseEntity<?> signUp(CustomerInfo customerInfo, MultipartFile imageFile) throws IOException {
 
@@ -57,11 +58,8 @@ public class CustomerService {
             customerInfo.setImageName(imageFile.getOriginalFilename());
         }
 
+//        no cart row yet, it is created with the first item (most sign ups never fill one)
         CustomerInfo saved = customerRepo.save(customerInfo);
-        Cart cart = new Cart();
-        cart.setCustomerInfo(saved);
-        cart.setCreatedAt(LocalDateTime.now());
-        cartRepo.save(cart);
 
         // Return DTO (clean & safe)
         Map<String, Object> body = new HashMap<>();
@@ -74,7 +72,8 @@ public class CustomerService {
         return ResponseEntity.status(HttpStatus.CREATED).body(body);
     }
 
-    public ResponseEntity<?> signIn(LoginRequest loginRequest) {
+    // guestCart is the guest cart cookie, if the visitor filled one before signing in it is merged into their cart
+    public ResponseEntity<?> signIn(LoginRequest loginRequest, String guestCart) {
         try {
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -96,7 +95,11 @@ public class CustomerService {
             );
 
             System.out.println(token);
-            return ResponseEntity.ok(loginResponse);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (guestCart != null && mergeGuestCart(customerInfo.getCustomerId(), guestCart)) {
+                response.header(HttpHeaders.SET_COOKIE, guestCartService.cookie(Map.of()).toString());
+            }
+            return response.body(loginResponse);
 
         }catch (BadCredentialsException ex) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
@@ -107,8 +110,26 @@ public class CustomerService {
         }
     }
 
+    // one batched upsert for the whole guest cart, a failure keeps the cookie so the next sign in tries again
+    private boolean mergeGuestCart(Integer customerId, String guestCart) {
+        Map<Integer, Integer> lines = guestCartService.read(guestCart);
+        if (lines.isEmpty()) return true;
+        try {
+            Map<Integer, Integer> inCart = new HashMap<>();
+            cartService.getCartView(customerId).items().forEach(line -> inCart.put(line.foodId(), line.quantity()));
+            List<CartOperation> operations = guestCartService.toOperations(lines, inCart);
+            if (operations.isEmpty()) return true;
+            cartService.applyBatch(customerId, operations);
+            return true;
+        } catch (RuntimeException e) {
+            System.out.println("Could not merge the guest cart of customer " + customerId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // maintained counter, count(*) only before the counter exists
     public long count() {
-        return customerRepo.count();
+        return dashboardCounters.get(DashboardCounters.CUSTOMERS).orElseGet(customerRepo::count);
     }
 
     public List<CustomerInfo> getAllCustomers() {
@@ -0,0 +1,50 @@
+package com.yum.foodyy.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// Row counts for the admin dashboard. They live in dashboard_counter_slot and are kept right by statement triggers
+// on the counted tables (see schema-postgres.sql), whoever inserts or deletes the rows, so reading one sums a few
+// primary key rows instead of a count(*) over the table. A count is split over slots so writers don't contend on one row.
+@Service
+public class DashboardCounters {
+
+    public static final String FOODS = "foods";
+    public static final String CUSTOMERS = "customers";
+
+    // sum() gives one null row when the counter has no slots
+    private static final String READ_SQL = "SELECT sum(value)::bigint FROM dashboard_counter_slot WHERE name = ?";
+
+    private static final String CLEAR_SQL = "DELETE FROM dashboard_counter_slot WHERE name = ?";
+
+    private static final String RECOUNT_SQL =
+            "INSERT INTO dashboard_counter_slot (name, slot, value) SELECT ?, 0, count(*) FROM %s";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    // empty when the counter doesn't exist (yet)
+    public Optional<Long> get(String name) {
+        List<Long> values = jdbcTemplate.queryForList(READ_SQL, Long.class, name);
+        return values.stream().filter(Objects::nonNull).findFirst();
+    }
+
+    // counts the tables again and resets the counters to a single slot. The tables are locked against writes while they are counted,
+    // so no insert slips in between the count and the reset
+    public void recount() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE food, customer_info IN SHARE MODE");
+            jdbcTemplate.update(CLEAR_SQL, FOODS);
+            jdbcTemplate.update(String.format(RECOUNT_SQL, "food"), FOODS);
+            jdbcTemplate.update(CLEAR_SQL, CUSTOMERS);
+            jdbcTemplate.update(String.format(RECOUNT_SQL, "customer_info"), CUSTOMERS);
+        });
+    }
+}
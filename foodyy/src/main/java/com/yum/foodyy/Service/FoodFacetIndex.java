@@ -0,0 +1,184 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Immutable bitmap index over the menu for the filter screen, rebuilt from every catalog snapshot by
+// FoodFacetService. Doc n is the n-th food of the snapshot (sorted by id). Every facet value has a BitSet of the
+// docs that have it, numeric fields are put into fixed bands ("100-200" means 100 <= price < 200).
+//
+// Several values of one facet are OR-ed, the facets are AND-ed. The counts of a facet are computed with the
+// filters of all the other facets applied but not its own, so picking "SNACK" still shows how many desserts
+// there are instead of dropping every other category to 0.
+public final class FoodFacetIndex {
+
+    public static final String VEG = "veg";
+    public static final String CATEGORY = "category";
+    public static final String SPICINESS = "spiciness";
+    public static final String AVAILABLE = "available";
+    public static final String PRICE = "price";
+    public static final String CALORIES = "calories";
+    public static final String PREP_TIME = "prepTime";
+
+    public record Band(String label, double from, double to) {
+
+        boolean contains(double value) {
+            return value >= from && value < to;
+        }
+    }
+
+    static final List<Band> PRICE_BANDS = List.of(
+            new Band("0-100", 0, 100),
+            new Band("100-200", 100, 200),
+            new Band("200-300", 200, 300),
+            new Band("300-500", 300, 500),
+            new Band("500+", 500, Double.MAX_VALUE));
+
+    static final List<Band> CALORIE_BANDS = List.of(
+            new Band("0-200", 0, 200),
+            new Band("200-400", 200, 400),
+            new Band("400-600", 400, 600),
+            new Band("600+", 600, Double.MAX_VALUE));
+
+    static final List<Band> PREP_TIME_BANDS = List.of(
+            new Band("0-10", 0, 10),
+            new Band("10-20", 10, 20),
+            new Band("20-30", 20, 30),
+            new Band("30+", 30, Double.MAX_VALUE));
+
+    public record Result(List<Food> foods, Map<String, Map<String, Integer>> facets) {
+    }
+
+    private final List<Food> foods;
+    // facet -> value -> docs, both in display order
+    private final Map<String, Map<String, BitSet>> facets = new LinkedHashMap<>();
+
+    public FoodFacetIndex(List<Food> foods) {
+        this.foods = List.copyOf(foods);
+
+        facets.put(VEG, valuesOf(List.of("true", "false"), food -> String.valueOf(food.isVeg())));
+        facets.put(CATEGORY, valuesOf(names(FoodCategory.values()),
+                food -> food.getCategory() == null ? null : food.getCategory().name()));
+        facets.put(SPICINESS, valuesOf(names(Spiceiness.values()),
+                food -> food.getSpiciness() == null ? null : food.getSpiciness().name()));
+        facets.put(AVAILABLE, valuesOf(List.of("true", "false"), food -> String.valueOf(food.isAvailable())));
+        facets.put(PRICE, bandsOf(PRICE_BANDS,
+                food -> food.getPrice() == null ? null : food.getPrice().doubleValue()));
+        facets.put(CALORIES, bandsOf(CALORIE_BANDS, Food::getCalories));
+        facets.put(PREP_TIME, bandsOf(PREP_TIME_BANDS,
+                food -> food.getPreparationTime() == null ? null : food.getPreparationTime().doubleValue()));
+    }
+
+    public int size() {
+        return foods.size();
+    }
+
+    // selected: facet -> the values picked for it, facets that aren't in the map (or have no values) don't filter
+    public Result filter(Map<String, Set<String>> selected) {
+        Map<String, BitSet> masks = new LinkedHashMap<>();
+        selected.forEach((facet, values) -> {
+            if (values == null || values.isEmpty()) return;
+            masks.put(facet, maskOf(facet, values));
+        });
+
+        BitSet matching = allDocs();
+        masks.values().forEach(matching::and);
+
+        Map<String, Map<String, Integer>> counts = new LinkedHashMap<>();
+        facets.forEach((facet, values) -> {
+            BitSet others = allDocs();
+            masks.forEach((maskedFacet, mask) -> {
+                if (!maskedFacet.equals(facet)) others.and(mask);
+            });
+
+            Map<String, Integer> valueCounts = new LinkedHashMap<>();
+            values.forEach((value, docs) -> {
+                BitSet count = (BitSet) others.clone();
+                count.and(docs);
+                valueCounts.put(value, count.cardinality());
+            });
+            counts.put(facet, valueCounts);
+        });
+
+        List<Food> result = new ArrayList<>(matching.cardinality());
+        for (int doc = matching.nextSetBit(0); doc >= 0; doc = matching.nextSetBit(doc + 1)) {
+            result.add(foods.get(doc));
+        }
+        return new Result(result, counts);
+    }
+
+    private BitSet maskOf(String facet, Set<String> values) {
+        Map<String, BitSet> facetValues = facets.get(facet);
+        if (facetValues == null) {
+            throw new IllegalArgumentException("Unknown filter: " + facet);
+        }
+
+        BitSet mask = new BitSet(foods.size());
+        for (String value : values) {
+            BitSet docs = facetValues.get(normalize(facet, value));
+            if (docs == null) {
+                throw new IllegalArgumentException("Unknown " + facet + " value: " + value
+                        + ", expected one of " + facetValues.keySet());
+            }
+            mask.or(docs);
+        }
+        return mask;
+    }
+
+    private BitSet allDocs() {
+        BitSet all = new BitSet(foods.size());
+        all.set(0, foods.size());
+        return all;
+    }
+
+    private Map<String, BitSet> valuesOf(List<String> values, Function<Food, String> valueOf) {
+        Map<String, BitSet> docs = new LinkedHashMap<>();
+        values.forEach(value -> docs.put(value, new BitSet(foods.size())));
+
+        for (int doc = 0; doc < foods.size(); doc++) {
+            BitSet bits = docs.get(valueOf.apply(foods.get(doc)));
+            if (bits != null) bits.set(doc);
+        }
+        return docs;
+    }
+
+    private Map<String, BitSet> bandsOf(List<Band> bands, Function<Food, Double> valueOf) {
+        Map<String, BitSet> docs = new LinkedHashMap<>();
+        bands.forEach(band -> docs.put(band.label(), new BitSet(foods.size())));
+
+        for (int doc = 0; doc < foods.size(); doc++) {
+            Double value = valueOf.apply(foods.get(doc));
+            if (value == null) continue;
+            for (Band band : bands) {
+                if (band.contains(value)) {
+                    docs.get(band.label()).set(doc);
+                    break;
+                }
+            }
+        }
+        return docs;
+    }
+
+    // enum values are matched case-insensitively, the rest (booleans, band labels) are lower case already
+    private static String normalize(String facet, String value) {
+        String trimmed = value.trim();
+        return facet.equals(CATEGORY) || facet.equals(SPICINESS)
+                ? trimmed.toUpperCase(Locale.ROOT)
+                : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> names(Enum<?>[] values) {
+        return Arrays.stream(values).map(Enum::name).toList();
+    }
+}
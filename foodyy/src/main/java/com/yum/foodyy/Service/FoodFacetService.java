@@ -0,0 +1,54 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodFilterResult;
+import com.yum.foodyy.Entity.DTO.FoodSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Keeps a FoodFacetIndex in step with the catalog snapshot, the same way FoodSearchService does for search.
+@Service
+public class FoodFacetService {
+
+    private record Indexed(long version, FoodFacetIndex index) {
+    }
+
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    private final AtomicReference<Indexed> current = new AtomicReference<>();
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        index(event.snapshot());
+    }
+
+    public FoodFilterResult filter(Map<String, Set<String>> selected, int page, int size) {
+        FoodFacetIndex.Result result = index().filter(selected);
+
+        int from = (int) Math.min((long) page * size, result.foods().size());
+        int to = Math.min(from + size, result.foods().size());
+        List<FoodSummary> items = result.foods().subList(from, to).stream()
+                .map(FoodSummary::of)
+                .toList();
+
+        return new FoodFilterResult(items, page, size, result.foods().size(), result.facets());
+    }
+
+    private FoodFacetIndex index() {
+        Indexed indexed = current.get();
+        if (indexed != null) return indexed.index();
+        return index(catalogCacheService.snapshot());
+    }
+
+    private FoodFacetIndex index(CatalogCacheService.Snapshot snapshot) {
+        Indexed built = new Indexed(snapshot.version(), new FoodFacetIndex(snapshot.foods()));
+        Indexed winner = current.accumulateAndGet(built,
+                (old, candidate) -> old == null || old.version() < candidate.version() ? candidate : old);
+        return winner.index();
+    }
+}
@@ -0,0 +1,356 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodImportError;
+import com.yum.foodyy.Entity.DTO.FoodImportReport;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Bulk menu import. The manifest is read row by row (FoodManifestReader), images are streamed from the uploaded zip
+// or the server's seed directory into the media store, and every chunk of rows is written with one JDBC batch of
+// MERGE statements in its own transaction. A dish is matched on its name without case, so importing the same
+// manifest twice updates the dishes instead of adding them again.
+// Bad rows are reported with their line and skipped, they never stop the rest of the file.
+@Service
+public class FoodImportService {
+
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String MERGE_SQL = """
+            MERGE INTO food f
+            USING (SELECT CAST(? AS varchar) AS name, CAST(? AS varchar) AS description, CAST(? AS numeric) AS price,
+                          CAST(? AS boolean) AS is_veg, CAST(? AS text) AS ingredients, CAST(? AS float8) AS calories,
+                          CAST(? AS integer) AS preparation_time, CAST(? AS varchar) AS spiciness,
+                          CAST(? AS boolean) AS available, CAST(? AS varchar) AS category,
+                          CAST(? AS varchar) AS image_key, CAST(? AS varchar) AS image_name,
+                          CAST(? AS varchar) AS image_type) s
+            ON lower(f.name) = lower(s.name)
+            WHEN MATCHED THEN UPDATE SET
+                name = s.name, description = s.description, price = s.price, is_veg = s.is_veg,
+                ingredients = s.ingredients, calories = s.calories, preparation_time = s.preparation_time,
+                spiciness = s.spiciness, available = s.available, category = s.category,
+                image_key = COALESCE(s.image_key, f.image_key),
+                image_name = COALESCE(s.image_name, f.image_name),
+                image_type = COALESCE(s.image_type, f.image_type),
+                image_data = CASE WHEN s.image_key IS NULL THEN f.image_data END
+            WHEN NOT MATCHED THEN INSERT
+                (name, description, price, is_veg, ingredients, calories, preparation_time, spiciness, available,
+                 category, image_key, image_name, image_type)
+            VALUES (s.name, s.description, s.price, s.is_veg, s.ingredients, s.calories, s.preparation_time,
+                    s.spiciness, s.available, s.category, s.image_key, s.image_name, s.image_type)
+            """;
+
+    private static final int[] TYPES = {
+            Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.BOOLEAN, Types.VARCHAR, Types.DOUBLE,
+            Types.INTEGER, Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR
+    };
+
+    private record ImportedFood(long line, String name, String description, BigDecimal price, boolean veg,
+                                String ingredients, Double calories, Integer preparationTime, String spiciness,
+                                boolean available, String category, String imageKey, String imageName,
+                                String imageType) {
+    }
+
+    // everything one import run keeps track of
+    private static class Run {
+        final ZipFile archive;
+        final Map<String, String> archiveEntries;
+        final boolean seedImages;
+
+        int rows;
+        int inserted;
+        int updated;
+        int failed;
+        final List<FoodImportError> errors = new ArrayList<>();
+        final Set<String> imageKeys = new HashSet<>();
+
+        Run(ZipFile archive, boolean seedImages) {
+            this.archive = archive;
+            this.archiveEntries = archive == null ? Map.of() : indexArchive(archive);
+            this.seedImages = seedImages;
+        }
+
+        void fail(long line, String name, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new FoodImportError(line, name, message));
+            }
+        }
+    }
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private MediaStoreService mediaStoreService;
+    @Autowired private MediaMigrationService mediaMigrationService;
+    @Autowired private ImageRenditionService imageRenditionService;
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    @Value("${foodyy.import.chunk-size:500}")
+    private int chunkSize;
+
+    // imageArchive is a zip on disk or null, seedImages also looks for images in the server's food-images directory
+    public FoodImportReport importFoods(InputStream manifest, FoodManifestReader.Format format,
+                                        Path imageArchive, boolean seedImages) throws IOException {
+
+        try (ZipFile archive = imageArchive == null ? null : new ZipFile(imageArchive.toFile());
+             FoodManifestReader reader = new FoodManifestReader(
+                     new InputStreamReader(manifest, StandardCharsets.UTF_8), format)) {
+
+            Run run = new Run(archive, seedImages);
+            List<ImportedFood> chunk = new ArrayList<>(chunkSize);
+
+            for (FoodManifestReader.Row row = reader.next(); row != null; row = reader.next()) {
+                run.rows++;
+                ImportedFood food = parse(row, run);
+                if (food == null) continue;
+
+                chunk.add(food);
+                if (chunk.size() == chunkSize) {
+                    write(chunk, run);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) write(chunk, run);
+
+            if (run.inserted + run.updated > 0) {
+                catalogCacheService.invalidate();
+            }
+            run.imageKeys.forEach(imageRenditionService::schedule);
+
+            System.out.println("FoodImport: " + run.rows + " rows, " + run.inserted + " added, "
+                    + run.updated + " updated, " + run.failed + " failed");
+            return new FoodImportReport(run.rows, run.inserted, run.updated, run.failed,
+                    List.copyOf(run.errors), run.failed > run.errors.size());
+        }
+    }
+
+    // validates one row and stores its image, null (and an error in the report) when the row can't be imported
+    private ImportedFood parse(FoodManifestReader.Row row, Run run) {
+        Map<String, String> values = row.values();
+        String name = values.get("name");
+
+        if (row.error() != null) {
+            run.fail(row.line(), name, row.error());
+            return null;
+        }
+
+        try {
+            if (name == null || name.isBlank()) throw new IllegalArgumentException("name is required");
+            if (name.length() > 255) throw new IllegalArgumentException("name is longer than 255 characters");
+
+            String description = values.get("description");
+            if (description != null && description.length() > 1000) {
+                throw new IllegalArgumentException("description is longer than 1000 characters");
+            }
+
+            BigDecimal price = decimal(values.get("price"), "price");
+            if (price == null || price.signum() < 0) throw new IllegalArgumentException("price must be 0 or more");
+
+            String veg = values.containsKey("isveg") ? values.get("isveg") : values.get("veg");
+            BigDecimal calories = decimal(values.get("calories"), "calories");
+            BigDecimal preparationTime = decimal(values.get("preparationtime"), "preparationTime");
+
+            String[] image = storeImage(name.trim(), values.get("image"), run);
+
+            return new ImportedFood(
+                    row.line(),
+                    name.trim(),
+                    description,
+                    price,
+                    bool(veg, false, "isVeg"),
+                    values.get("ingredients"),
+                    calories == null ? null : calories.doubleValue(),
+                    wholeNumber(preparationTime, "preparationTime"),
+                    enumName(values.get("spiciness"), Spiceiness.class),
+                    bool(values.get("available"), true, "available"),
+                    enumName(values.get("category"), FoodCategory.class),
+                    image[0], image[1], image[2]);
+        } catch (IllegalArgumentException e) {
+            run.fail(row.line(), name, e.getMessage());
+        } catch (IOException e) {
+            run.fail(row.line(), name, "could not store image: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // {imageKey, imageName, imageType} or all null when the row has no image
+    private String[] storeImage(String foodName, String image, Run run) throws IOException {
+        if (image != null && !image.isBlank()) {
+            String fileName = image.trim();
+            String entry = run.archiveEntries.get(fileName.toLowerCase(Locale.ROOT));
+            if (entry == null) {
+                entry = run.archiveEntries.get(baseName(fileName).toLowerCase(Locale.ROOT));
+            }
+
+            if (entry != null) {
+                try (InputStream in = run.archive.getInputStream(run.archive.getEntry(entry))) {
+                    String key = mediaStoreService.store(in, contentTypeOf(fileName), baseName(fileName));
+                    return stored(key, baseName(fileName), run);
+                }
+            }
+            if (run.seedImages) {
+                Optional<Path> seed = mediaMigrationService.findSeedFile(fileName);
+                if (seed.isPresent()) return storeFile(seed.get(), run);
+            }
+            throw new IllegalArgumentException("image " + fileName + " not found");
+        }
+
+        if (run.seedImages) {
+            Optional<Path> seed = mediaMigrationService.findSeedImage(foodName);
+            if (seed.isPresent()) return storeFile(seed.get(), run);
+        }
+        return new String[3];
+    }
+
+    private String[] storeFile(Path file, Run run) throws IOException {
+        String fileName = file.getFileName().toString();
+        try (InputStream in = Files.newInputStream(file)) {
+            return stored(mediaStoreService.store(in, contentTypeOf(fileName), fileName), fileName, run);
+        }
+    }
+
+    private static String[] stored(String key, String fileName, Run run) {
+        run.imageKeys.add(key);
+        return new String[]{key, fileName, MediaStoreService.mediaTypeOf(key).toString()};
+    }
+
+    private void write(List<ImportedFood> chunk, Run run) {
+        // the same dish twice in a chunk, the last row wins like it would with one request per row
+        Map<String, ImportedFood> byName = new LinkedHashMap<>();
+        chunk.forEach(food -> byName.put(food.name().toLowerCase(Locale.ROOT), food));
+
+        try {
+            int inserted = new TransactionTemplate(transactionManager).execute(status -> {
+                Set<String> existing = existingNames(byName.keySet());
+                List<Object[]> batch = byName.values().stream().map(FoodImportService::parameters).toList();
+                jdbcTemplate.batchUpdate(MERGE_SQL, batch, TYPES);
+                return (int) byName.keySet().stream().filter(name -> !existing.contains(name)).count();
+            });
+            run.inserted += inserted;
+            run.updated += chunk.size() - inserted;
+        } catch (RuntimeException e) {
+            // one bad row fails the whole batch, go through the chunk row by row to report only the bad ones
+            for (ImportedFood food : byName.values()) {
+                writeOne(food, run);
+            }
+        }
+    }
+
+    private void writeOne(ImportedFood food, Run run) {
+        try {
+            boolean inserted = new TransactionTemplate(transactionManager).execute(status -> {
+                boolean exists = !existingNames(Set.of(food.name().toLowerCase(Locale.ROOT))).isEmpty();
+                jdbcTemplate.update(MERGE_SQL, parameters(food), TYPES);
+                return !exists;
+            });
+            if (inserted) run.inserted++; else run.updated++;
+        } catch (RuntimeException e) {
+            run.fail(food.line(), food.name(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    private Set<String> existingNames(Set<String> lowerNames) {
+        return new HashSet<>(jdbcTemplate.query(
+                con -> {
+                    var ps = con.prepareStatement("SELECT lower(name) FROM food WHERE lower(name) = ANY(?)");
+                    ps.setArray(1, con.createArrayOf("varchar", lowerNames.toArray()));
+                    return ps;
+                },
+                (rs, rowNum) -> rs.getString(1)));
+    }
+
+    private static Object[] parameters(ImportedFood food) {
+        return new Object[]{
+                food.name(), food.description(), food.price(), food.veg(), food.ingredients(), food.calories(),
+                food.preparationTime(), food.spiciness(), food.available(), food.category(),
+                food.imageKey(), food.imageName(), food.imageType()
+        };
+    }
+
+    private static BigDecimal decimal(String value, String field) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number: " + value);
+        }
+    }
+
+    private static Integer wholeNumber(BigDecimal value, String field) {
+        if (value == null) return null;
+        try {
+            return value.intValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(field + " must be a whole number: " + value);
+        }
+    }
+
+    private static boolean bool(String value, boolean defaultValue, String field) {
+        if (value == null || value.isBlank()) return defaultValue;
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1" -> true;
+            case "false", "no", "n", "0" -> false;
+            default -> throw new IllegalArgumentException(field + " must be true or false: " + value);
+        };
+    }
+
+    private static <E extends Enum<E>> String enumName(String value, Class<E> type) {
+        if (value == null || value.isBlank()) return null;
+        String name = value.trim().toUpperCase(Locale.ROOT).replace(' ', '_').replace('-', '_');
+        try {
+            return Enum.valueOf(type, name).name();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(type.getSimpleName() + " must be one of "
+                    + Arrays.toString(type.getEnumConstants()) + ": " + value);
+        }
+    }
+
+    private static String contentTypeOf(String fileName) {
+        return MediaStoreService.mediaTypeOf(fileName).toString();
+    }
+
+    private static String baseName(String path) {
+        String name = path.replace('\\', '/');
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    // lower case file name (with and without the folders inside the zip) -> entry name
+    private static Map<String, String> indexArchive(ZipFile archive) {
+        Map<String, String> entries = new HashMap<>();
+        archive.stream()
+                .filter(entry -> !entry.isDirectory())
+                .map(ZipEntry::getName)
+                .forEach(name -> {
+                    entries.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+                    entries.putIfAbsent(baseName(name).toLowerCase(Locale.ROOT), name);
+                });
+        return entries;
+    }
+}
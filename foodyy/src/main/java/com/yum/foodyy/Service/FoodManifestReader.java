@@ -0,0 +1,162 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads a menu manifest one row at a time, so an import never has more than the current row of the file in memory.
+// Two formats:
+//   CSV    - the first line is the header, fields may be quoted ("Paneer, spicy") with "" for a quote inside,
+//            quoted fields may span lines
+//   NDJSON - one JSON object per line
+// Keys are matched without case, "_" and "-" (Preparation_Time == preparationTime). A row that can't be parsed
+// comes back with an error instead of stopping the whole file.
+public class FoodManifestReader implements Closeable {
+
+    public enum Format {CSV, NDJSON}
+
+    public record Row(long line, Map<String, String> values, String error) {
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final BufferedReader reader;
+    private final Format format;
+
+    private List<String> header;
+    private long line;
+
+    public FoodManifestReader(Reader reader, Format format) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.format = format;
+    }
+
+    // picks the format from the file name, NDJSON for .ndjson / .jsonl / .json, CSV for everything else
+    public static Format formatOf(String fileName) {
+        String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json") ? Format.NDJSON : Format.CSV;
+    }
+
+    // next row, null at the end of the file
+    public Row next() throws IOException {
+        return format == Format.CSV ? nextCsv() : nextJson();
+    }
+
+    private Row nextJson() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) return null;
+            line++;
+        } while (text.isBlank());
+
+        try {
+            JsonNode node = JSON.readTree(text);
+            if (node == null || !node.isObject()) {
+                return new Row(line, Map.of(), "expected a JSON object");
+            }
+
+            Map<String, String> values = new HashMap<>();
+            for (Map.Entry<String, JsonNode> field : node.properties()) {
+                if (!field.getValue().isNull()) {
+                    values.put(key(field.getKey()), field.getValue().asText());
+                }
+            }
+            return new Row(line, values, null);
+        } catch (JsonProcessingException e) {
+            return new Row(line, Map.of(), "invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Row nextCsv() throws IOException {
+        if (header == null) {
+            List<String> names = readRecord();
+            if (names == null) return null;
+            header = names.stream().map(FoodManifestReader::key).toList();
+        }
+
+        long start;
+        List<String> fields;
+        do {
+            start = line + 1;
+            fields = readRecord();
+            if (fields == null) return null;
+        } while (fields.size() == 1 && fields.get(0).isBlank());
+
+        if (fields.size() > header.size()) {
+            return new Row(start, Map.of(), "expected " + header.size() + " columns, found " + fields.size());
+        }
+
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (!fields.get(i).isEmpty()) values.put(header.get(i), fields.get(i));
+        }
+        return new Row(start, values, null);
+    }
+
+    // one CSV record, which can be several lines when a quoted field contains line breaks
+    private List<String> readRecord() throws IOException {
+        String text = reader.readLine();
+        if (text == null) return null;
+        line++;
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+
+        while (true) {
+            if (i == text.length()) {
+                if (!quoted) break;
+                // the quoted field goes on on the next line
+                String more = reader.readLine();
+                if (more == null) break;
+                line++;
+                field.append('\n');
+                text = more;
+                i = 0;
+                continue;
+            }
+
+            char c = text.charAt(i++);
+            if (quoted) {
+                if (c == '"' && i < text.length() && text.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static String key(String name) {
+        return name.replace("\uFEFF", "").replace("_", "").replace("-", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
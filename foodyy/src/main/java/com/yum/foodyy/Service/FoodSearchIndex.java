@@ -0,0 +1,200 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Immutable inverted index over the menu, rebuilt from every catalog snapshot by FoodSearchService.
+//
+// Every distinct word of name / category / ingredients / description goes into a vocabulary, and every word is
+// split into trigrams the way pg_trgm does it ("  b", " bu", "bur", "urg", "rge", "ger", "er "). A query word is
+// compared against the vocabulary through the trigram postings, so "biriyani" still finds "biryani", and a
+// word the query is a prefix of ("panee" -> "paneer") counts as a near exact match for the search-as-you-type box.
+// Docs score the best similarity per query word times the weight of the field it was found in, and every query
+// word has to match something.
+public final class FoodSearchIndex {
+
+    public record Hit(Food food, double score) {
+    }
+
+    static final double MIN_SIMILARITY = 0.3;
+    private static final double PREFIX_SIMILARITY = 0.9;
+
+    private static final String[] FIELDS = {"name", "category", "ingredients", "description"};
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.5, 1.0};
+
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final List<Food> foods;
+    private final List<String> vocabulary = new ArrayList<>();
+    private final Map<String, Integer> wordIds = new HashMap<>();
+
+    // trigram -> ids of the vocabulary words containing it
+    private final Map<String, int[]> trigramPostings;
+    // vocabulary word id -> trigram count, needed for the similarity
+    private final int[] trigramCounts;
+    // vocabulary word id -> (doc, field) pairs packed as doc * FIELDS.length + field
+    private final int[][] wordPostings;
+
+    public FoodSearchIndex(List<Food> foods) {
+        this.foods = List.copyOf(foods);
+
+        Map<Integer, Set<Integer>> postings = new HashMap<>();
+        for (int doc = 0; doc < this.foods.size(); doc++) {
+            String[] fields = fieldsOf(this.foods.get(doc));
+            for (int field = 0; field < fields.length; field++) {
+                for (String word : words(fields[field])) {
+                    int id = wordIds.computeIfAbsent(word, w -> {
+                        vocabulary.add(w);
+                        return vocabulary.size() - 1;
+                    });
+                    postings.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(doc * FIELDS.length + field);
+                }
+            }
+        }
+
+        wordPostings = new int[vocabulary.size()][];
+        trigramCounts = new int[vocabulary.size()];
+        Map<String, List<Integer>> trigrams = new HashMap<>();
+
+        for (int id = 0; id < vocabulary.size(); id++) {
+            wordPostings[id] = postings.get(id).stream().mapToInt(Integer::intValue).toArray();
+            Set<String> grams = trigrams(vocabulary.get(id));
+            trigramCounts[id] = grams.size();
+            for (String gram : grams) {
+                trigrams.computeIfAbsent(gram, g -> new ArrayList<>()).add(id);
+            }
+        }
+
+        trigramPostings = new HashMap<>(trigrams.size() * 2);
+        trigrams.forEach((gram, ids) -> trigramPostings.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public int size() {
+        return foods.size();
+    }
+
+    public List<Hit> search(String query) {
+        List<String> queryWords = words(query);
+        if (queryWords.isEmpty()) return List.of();
+
+        double[] scores = new double[foods.size()];
+        int[] matchedWords = new int[foods.size()];
+        // best weighted score of the current query word per doc, only the docs in touched are non zero
+        double[] wordScores = new double[foods.size()];
+        int[] touched = new int[foods.size()];
+
+        for (String queryWord : queryWords) {
+            int touchedCount = 0;
+
+            for (Map.Entry<Integer, Double> similar : similarWords(queryWord).entrySet()) {
+                double similarity = similar.getValue();
+                for (int posting : wordPostings[similar.getKey()]) {
+                    int doc = posting / FIELDS.length;
+                    double score = similarity * FIELD_WEIGHTS[posting % FIELDS.length];
+                    if (wordScores[doc] == 0) touched[touchedCount++] = doc;
+                    wordScores[doc] = Math.max(wordScores[doc], score);
+                }
+            }
+
+            // the old LIKE query also matched prices, "199" still finds the dishes costing 199
+            if (queryWord.chars().allMatch(Character::isDigit)) {
+                for (int doc = 0; doc < foods.size(); doc++) {
+                    if (wordScores[doc] == 0 && priceMatches(foods.get(doc), queryWord)) {
+                        touched[touchedCount++] = doc;
+                        wordScores[doc] = 1.0;
+                    }
+                }
+            }
+
+            for (int i = 0; i < touchedCount; i++) {
+                int doc = touched[i];
+                scores[doc] += wordScores[doc];
+                matchedWords[doc]++;
+                wordScores[doc] = 0;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int doc = 0; doc < foods.size(); doc++) {
+            if (matchedWords[doc] == queryWords.size()) {
+                hits.add(new Hit(foods.get(doc), scores[doc]));
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(hit -> hit.food().getName(), Comparator.nullsLast(String::compareToIgnoreCase)));
+        return hits;
+    }
+
+    // vocabulary words close enough to the query word, with their similarity
+    private Map<Integer, Double> similarWords(String queryWord) {
+        Map<Integer, Double> result = new HashMap<>();
+
+        Integer exact = wordIds.get(queryWord);
+        if (exact != null) result.put(exact, 1.0);
+
+        Set<String> grams = trigrams(queryWord);
+        int[] shared = new int[vocabulary.size()];
+        for (String gram : grams) {
+            int[] ids = trigramPostings.get(gram);
+            if (ids == null) continue;
+            for (int id : ids) shared[id]++;
+        }
+
+        for (int id = 0; id < shared.length; id++) {
+            if (shared[id] == 0) continue;
+
+            double similarity = (double) shared[id] / (grams.size() + trigramCounts[id] - shared[id]);
+            if (queryWord.length() >= 2 && vocabulary.get(id).startsWith(queryWord)) {
+                similarity = Math.max(similarity, PREFIX_SIMILARITY);
+            }
+            if (similarity >= MIN_SIMILARITY) {
+                result.merge(id, similarity, Math::max);
+            }
+        }
+        return result;
+    }
+
+    private static boolean priceMatches(Food food, String digits) {
+        return food.getPrice() != null && food.getPrice().toPlainString().startsWith(digits);
+    }
+
+    private static String[] fieldsOf(Food food) {
+        return new String[]{
+                food.getName(),
+                food.getCategory() == null ? null : food.getCategory().name(),
+                food.getIngredients(),
+                food.getDescription()
+        };
+    }
+
+    static List<String> words(String text) {
+        if (text == null || text.isBlank()) return List.of();
+
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        normalized = NON_ALPHANUMERIC.matcher(normalized.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+        if (normalized.isEmpty()) return List.of();
+
+        return Arrays.stream(normalized.split(" ")).distinct().toList();
+    }
+
+    static Set<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,63 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodSearchResult;
+import com.yum.foodyy.Entity.DTO.FoodSummary;
+import com.yum.foodyy.Entity.Food;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Keeps a FoodSearchIndex in step with the catalog snapshot. Every rebuild of the snapshot (add, update, delete,
+// a change on another node) publishes a CatalogRefreshedEvent and the index is rebuilt from it and swapped in,
+// searches running at that moment finish on the old one.
+@Service
+public class FoodSearchService {
+
+    private record Indexed(long version, FoodSearchIndex index) {
+    }
+
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    private final AtomicReference<Indexed> current = new AtomicReference<>();
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        index(event.snapshot());
+    }
+
+    public List<Food> search(String query) {
+        return index().search(query).stream()
+                .map(FoodSearchIndex.Hit::food)
+                .toList();
+    }
+
+    public FoodSearchResult search(String query, int page, int size) {
+        List<FoodSearchIndex.Hit> hits = index().search(query);
+
+        int from = (int) Math.min((long) page * size, hits.size());
+        int to = Math.min(from + size, hits.size());
+        List<FoodSummary> items = hits.subList(from, to).stream()
+                .map(hit -> FoodSummary.of(hit.food()))
+                .toList();
+
+        return new FoodSearchResult(query, items, page, size, hits.size());
+    }
+
+    // the first search can come before any snapshot was built, in that case it builds both
+    private FoodSearchIndex index() {
+        Indexed indexed = current.get();
+        if (indexed != null) return indexed.index();
+        return index(catalogCacheService.snapshot());
+    }
+
+    private FoodSearchIndex index(CatalogCacheService.Snapshot snapshot) {
+        Indexed built = new Indexed(snapshot.version(), new FoodSearchIndex(snapshot.foods()));
+//        two rebuilds racing each other, the newer snapshot wins
+        Indexed winner = current.accumulateAndGet(built,
+                (old, candidate) -> old == null || old.version() < candidate.version() ? candidate : old);
+        return winner.index();
+    }
+}
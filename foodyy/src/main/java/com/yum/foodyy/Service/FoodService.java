@@ -1,6 +1,13 @@
 package com.yum.foodyy.Service;
 
+import com.yum.foodyy.Entity.DTO.FoodFilterResult;
+import com.yum.foodyy.Entity.DTO.FoodPatch;
+import com.yum.foodyy.Entity.DTO.FoodPage;
+import com.yum.foodyy.Entity.DTO.FoodSearchResult;
+import com.yum.foodyy.Entity.DTO.FoodSuggestion;
+import com.yum.foodyy.Entity.DTO.FoodSummary;
 import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
 import com.yum.foodyy.Repo.CartItemRepo;
 import com.yum.foodyy.Repo.FoodRepo;
 import com.yum.foodyy.Repo.WishlistRepo;
@@ -12,9 +19,13 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class FoodService {
@@ -24,52 +35,140 @@ public class FoodService {
     private CartItemRepo cartItemRepo;
     @Autowired
     private WishlistRepo wishlistRepo;
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+    @Autowired
+    private MediaStoreService mediaStoreService;
+    @Autowired
+    private ImageRenditionService imageRenditionService;
+    @Autowired
+    private FoodSearchService foodSearchService;
+    @Autowired
+    private FoodFacetService foodFacetService;
+    @Autowired
+    private FoodSuggestService foodSuggestService;
+    @Autowired
+    private DashboardCounters dashboardCounters;
 
+    // maintained counter, count(*) only before the counter exists
     public long count() {
-       return  foodRepo.count();
+       return dashboardCounters.get(DashboardCounters.FOODS).orElseGet(foodRepo::count);
     }
 
     public List<Food> getAllFoods() {
-        return foodRepo.findAll();
+        return catalogCacheService.getAll();
     }
 
+    public FoodPage getFoodPage(Integer afterId, int limit, FoodCategory category) {
+        int after = afterId == null ? 0 : afterId;
+        List<Food> foods = catalogCacheService.getAll();
 
-    public Food addOrUpdateFood(Food food, MultipartFile imageFile) throws IOException {
+//        the snapshot is sorted by id, so the page starts right after the cursor
+        int start = firstIndexAfter(foods, after);
+        List<FoodSummary> items = new ArrayList<>(limit);
+        boolean hasMore = false;
 
+        for (int i = start; i < foods.size(); i++) {
+            Food food = foods.get(i);
+            if (category != null && food.getCategory() != category) continue;
 
-        boolean isUpdate = Objects.nonNull(food.getId()) && food.getId() > 0;
+            if (items.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            items.add(FoodSummary.of(food));
+        }
+
+        Integer nextCursor = hasMore ? items.get(items.size() - 1).id() : null;
+        return new FoodPage(List.copyOf(items), nextCursor, hasMore);
+    }
 
-        if (isUpdate) {
-            if (imageFile != null && imageFile.isEmpty()) {
+    private int firstIndexAfter(List<Food> foods, int afterId) {
+        int low = 0;
+        int high = foods.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (foods.get(mid).getId() <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
 
-                Optional<Food> existingFoodOptional = foodRepo.findById(food.getId());
 
-                if (existingFoodOptional.isPresent()) {
-                    Food existingFood = existingFoodOptional.get();
-                    food.setImageData(existingFood.getImageData());
-                    food.setImageType(existingFood.getImageType());
-                    food.setImageName(existingFood.getImageName());
-                }
+    @Transactional
+    public Food addOrUpdateFood(Food food, MultipartFile imageFile) throws IOException {
 
-            } else {
-                food.setImageName(imageFile.getOriginalFilename());
-                food.setImageType(imageFile.getContentType());
-                food.setImageData(imageFile.getBytes());
+        boolean isUpdate = Objects.nonNull(food.getId()) && food.getId() > 0;
+
+        if (imageFile != null && !imageFile.isEmpty()) {
+//            the image goes to the media store, the row only keeps the key of the file
+            try (InputStream in = imageFile.getInputStream()) {
+                food.setImageKey(mediaStoreService.store(in, imageFile.getContentType(), imageFile.getOriginalFilename()));
             }
-        } else {
             food.setImageName(imageFile.getOriginalFilename());
             food.setImageType(imageFile.getContentType());
-            food.setImageData(imageFile.getBytes());
+            imageRenditionService.schedule(food.getImageKey());
+        } else if (isUpdate) {
+//            no new image, keep the one the food already has
+            catalogCacheService.findById(food.getId()).ifPresent(existingFood -> {
+                food.setImageKey(existingFood.getImageKey());
+                food.setImageType(existingFood.getImageType());
+                food.setImageName(existingFood.getImageName());
+            });
+        }
+        food.setImageData(null);
+
+        Food saved = foodRepo.save(food);
+        catalogCacheService.invalidate();
+        return saved;
+    }
+
+    // targeted UPDATE of the fields in the patch, false when the food doesn't exist
+    @Transactional
+    public boolean patchFood(int foodId, FoodPatch patch) {
+        if (patch.name() != null && patch.name().isBlank()) {
+            throw new IllegalArgumentException("Name can't be empty");
+        }
+        if (patch.price() != null && patch.price().signum() < 0) {
+            throw new IllegalArgumentException("Price can't be negative");
         }
 
-        return foodRepo.save(food);
+        if (foodRepo.patch(foodId, patch) == 0) return false;
+        catalogCacheService.invalidate(List.of(foodId));
+        return true;
     }
+
+    // one UPDATE for the whole list, returns how many foods were changed
+    @Transactional
+    public int setAvailability(List<Integer> foodIds, boolean available) {
+        int updated = foodRepo.updateAvailability(foodIds, available);
+        if (updated > 0) {
+            catalogCacheService.invalidate(foodIds);
+        }
+        return updated;
+    }
+
     public Optional<Food> getFoodById(int foodId) {
-        return foodRepo.findById(foodId);
+        return catalogCacheService.findById(foodId);
     }
 
     public List<Food> searchFood(String keyword) {
-        return foodRepo.searchFood(keyword);
+        return foodSearchService.search(keyword);
+    }
+
+    public FoodSearchResult searchFood(String query, int page, int size) {
+        return foodSearchService.search(query, page, size);
+    }
+
+    public List<FoodSuggestion> suggestFoods(String prefix, int limit) {
+        return foodSuggestService.suggest(prefix, limit);
+    }
+
+    public FoodFilterResult filterFoods(Map<String, Set<String>> selected, int page, int size) {
+        return foodFacetService.filter(selected, page, size);
     }
 
     @Transactional
@@ -79,6 +178,7 @@ public class FoodService {
             cartItemRepo.deleteByFoodId(foodId);
             wishlistRepo.deleteByFood_Id(foodId);
             foodRepo.deleteById(foodId);
+            catalogCacheService.invalidate();
             return new ResponseEntity<>("Deleted successfully", HttpStatus.OK);
         }
         return new ResponseEntity<>("Food not found", HttpStatus.NOT_FOUND);
@@ -0,0 +1,173 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodSuggestion;
+import com.yum.foodyy.Entity.Food;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.IntToLongFunction;
+
+// Immutable prefix index for the search box suggestions. Every food adds a few terms: its name, the name starting
+// at each later word ("chicken" for "Butter Chicken"), its ingredients the same way and its category. The terms
+// sit in one array sorted by key, a prefix is a binary search to the first key >= prefix and a scan while the keys
+// still start with it.
+//
+// Matches are ranked by how often the food was ordered, the counts come from FoodSuggestService at query time so
+// a new order moves a dish up right away without touching the index.
+public final class FoodSuggestIndex {
+
+    public static final String FOOD = "FOOD";
+    public static final String INGREDIENT = "INGREDIENT";
+    public static final String CATEGORY = "CATEGORY";
+
+    record Term(String key, String text, String type, int foodId) {
+    }
+
+    private static final Comparator<Term> ORDER = Comparator.comparing(Term::key)
+            .thenComparing(Term::type)
+            .thenComparingInt(Term::foodId)
+            .thenComparing(Term::text);
+
+    private static final Map<String, Double> TYPE_WEIGHTS = Map.of(FOOD, 3.0, CATEGORY, 2.0, INGREDIENT, 1.0);
+
+    private final Term[] terms;
+    // foodId -> name / ingredients / category the terms were built from, to find what changed on the next rebuild
+    private final Map<Integer, String> sources;
+
+    private FoodSuggestIndex(Term[] terms, Map<Integer, String> sources) {
+        this.terms = terms;
+        this.sources = sources;
+    }
+
+    public static FoodSuggestIndex build(List<Food> foods) {
+        return new FoodSuggestIndex(new Term[0], Map.of()).update(foods);
+    }
+
+    // new index for the next snapshot. Only the foods whose name, ingredients or category changed are tokenized
+    // again, the terms of everything else are kept and the two sorted runs are merged.
+    public FoodSuggestIndex update(List<Food> foods) {
+        Map<Integer, String> newSources = new HashMap<>();
+        Set<Integer> stale = new HashSet<>(sources.keySet());
+        List<Term> added = new ArrayList<>();
+
+        for (Food food : foods) {
+            String source = sourceOf(food);
+            newSources.put(food.getId(), source);
+            if (source.equals(sources.get(food.getId()))) {
+                stale.remove(food.getId());
+            } else {
+                termsOf(food, added);
+            }
+        }
+
+        if (stale.isEmpty() && added.isEmpty()) {
+            return new FoodSuggestIndex(terms, Map.copyOf(newSources));
+        }
+
+        added.sort(ORDER);
+        Term[] merged = new Term[terms.length + added.size()];
+        int size = 0;
+        int next = 0;
+        for (Term term : terms) {
+            if (stale.contains(term.foodId())) continue;
+            while (next < added.size() && ORDER.compare(added.get(next), term) < 0) {
+                merged[size++] = added.get(next++);
+            }
+            merged[size++] = term;
+        }
+        while (next < added.size()) {
+            merged[size++] = added.get(next++);
+        }
+
+        return new FoodSuggestIndex(Arrays.copyOf(merged, size), Map.copyOf(newSources));
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public List<FoodSuggestion> suggest(String prefix, int limit, IntToLongFunction popularity) {
+        String key = String.join(" ", FoodSearchIndex.words(prefix));
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        // one suggestion per dish / ingredient / category, ingredients and categories add up the orders of all
+        // the dishes they appear in
+        Map<String, FoodSuggestion> suggestions = new LinkedHashMap<>();
+        Map<String, Long> orders = new HashMap<>();
+        Map<String, Set<Integer>> counted = new HashMap<>();
+
+        for (int i = firstAtOrAfter(key); i < terms.length && terms[i].key().startsWith(key); i++) {
+            Term term = terms[i];
+            String id = term.type().equals(FOOD) ? FOOD + ":" + term.foodId() : term.type() + ":" + term.text();
+
+            suggestions.putIfAbsent(id, new FoodSuggestion(term.text(), term.type(),
+                    term.type().equals(FOOD) ? term.foodId() : null, 0));
+            if (counted.computeIfAbsent(id, k -> new HashSet<>()).add(term.foodId())) {
+                orders.merge(id, popularity.applyAsLong(term.foodId()), Long::sum);
+            }
+        }
+
+        return suggestions.entrySet().stream()
+                .map(entry -> {
+                    FoodSuggestion suggestion = entry.getValue();
+                    long ordered = orders.get(entry.getKey());
+                    double score = TYPE_WEIGHTS.get(suggestion.type()) * (1 + Math.log1p(ordered));
+                    return new FoodSuggestion(suggestion.text(), suggestion.type(), suggestion.foodId(), score);
+                })
+                .sorted(Comparator.comparingDouble(FoodSuggestion::score).reversed()
+                        .thenComparing(FoodSuggestion::text, String.CASE_INSENSITIVE_ORDER))
+                .limit(limit)
+                .toList();
+    }
+
+    private int firstAtOrAfter(String key) {
+        int low = 0;
+        int high = terms.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms[mid].key().compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void termsOf(Food food, List<Term> out) {
+        if (food.getName() != null) {
+            addPhrase(food.getName().trim(), FOOD, food.getId(), out);
+        }
+        if (food.getIngredients() != null) {
+            for (String ingredient : food.getIngredients().split(",")) {
+                addPhrase(ingredient.trim().toLowerCase(Locale.ROOT), INGREDIENT, food.getId(), out);
+            }
+        }
+        if (food.getCategory() != null) {
+            addPhrase(food.getCategory().name(), CATEGORY, food.getId(), out);
+        }
+    }
+
+    // "Butter Chicken" -> keys "butter chicken" and "chicken", both suggesting "Butter Chicken"
+    private static void addPhrase(String text, String type, int foodId, List<Term> out) {
+        List<String> words = FoodSearchIndex.words(text);
+        for (int i = 0; i < words.size(); i++) {
+            out.add(new Term(String.join(" ", words.subList(i, words.size())), text, type, foodId));
+        }
+    }
+
+    private static String sourceOf(Food food) {
+        return Objects.toString(food.getName(), "") + "\u0000"
+                + Objects.toString(food.getIngredients(), "") + "\u0000"
+                + Objects.toString(food.getCategory(), "");
+    }
+}
@@ -0,0 +1,97 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodSuggestion;
+import com.yum.foodyy.Repo.OrderRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Serves the search box suggestions from a FoodSuggestIndex. The index follows the catalog snapshot and is
+// updated incrementally on every CatalogRefreshedEvent, the order counts used for ranking are loaded once on
+// startup and after that every placed order adds its quantities. Nothing here touches Postgres per request.
+@Service
+public class FoodSuggestService {
+
+    private record Indexed(long version, FoodSuggestIndex index) {
+    }
+
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private OrderRepo orderRepo;
+
+    private final AtomicReference<Indexed> current = new AtomicReference<>();
+    private final Map<Integer, LongAdder> popularity = new ConcurrentHashMap<>();
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        index(event.snapshot());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPopularity() {
+        try {
+            for (OrderRepo.FoodPopularity row : orderRepo.findFoodPopularity()) {
+                if (row.getFoodId() == null || row.getQuantity() == null) continue;
+                popularity.computeIfAbsent(row.getFoodId(), id -> new LongAdder()).add(row.getQuantity());
+            }
+        } catch (Exception e) {
+//            suggestions still work without it, just ranked by type and name
+            System.out.println("FoodSuggest: could not load order counts: " + e.getMessage());
+        }
+    }
+
+    // called for every placed order, counted once the order is committed
+    public void recordOrder(Map<Integer, Integer> quantities) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addOrdered(quantities);
+                }
+            });
+        } else {
+            addOrdered(quantities);
+        }
+    }
+
+    public List<FoodSuggestion> suggest(String prefix, int limit) {
+        return index().suggest(prefix, limit, this::ordered);
+    }
+
+    private void addOrdered(Map<Integer, Integer> quantities) {
+        quantities.forEach((foodId, quantity) ->
+                popularity.computeIfAbsent(foodId, id -> new LongAdder()).add(quantity));
+    }
+
+    private long ordered(int foodId) {
+        LongAdder count = popularity.get(foodId);
+        return count == null ? 0 : count.sum();
+    }
+
+    private FoodSuggestIndex index() {
+        Indexed indexed = current.get();
+        if (indexed != null) return indexed.index();
+        return index(catalogCacheService.snapshot());
+    }
+
+    // synchronized so every update starts from the newest index, otherwise two rebuilds could both start from
+    // the same old one and the incremental diff would miss changes
+    private synchronized FoodSuggestIndex index(CatalogCacheService.Snapshot snapshot) {
+        Indexed old = current.get();
+        if (old != null && old.version() >= snapshot.version()) return old.index();
+
+        FoodSuggestIndex index = old == null
+                ? FoodSuggestIndex.build(snapshot.foods())
+                : old.index().update(snapshot.foods());
+        current.set(new Indexed(snapshot.version(), index));
+        return index;
+    }
+}
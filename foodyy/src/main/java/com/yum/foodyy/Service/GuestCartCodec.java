@@ -0,0 +1,110 @@
+package com.yum.foodyy.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Packs a guest cart (foodId -> quantity) into a cookie value and back. The value is base64url of
+//   version (1 byte) | issued at, epoch seconds (varint) | line count (varint) | foodId, quantity (varints) ...
+// followed by the first 16 bytes of an HMAC-SHA256 over all of that. A cart of ten dishes is about 60 characters.
+// Anything that doesn't verify, is too old or doesn't parse reads as "no guest cart".
+final class GuestCartCodec {
+
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 16;
+    private static final int MAX_LINES = 100;
+
+    private final SecretKeySpec key;
+    private final long maxAgeSeconds;
+
+    GuestCartCodec(byte[] secret, long maxAgeSeconds) {
+        this.key = new SecretKeySpec(secret, "HmacSHA256");
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    String encode(Map<Integer, Integer> lines, long nowSeconds) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + lines.size() * 4);
+        out.write(VERSION);
+        writeVarint(out, nowSeconds);
+        writeVarint(out, lines.size());
+        lines.forEach((foodId, quantity) -> {
+            writeVarint(out, foodId);
+            writeVarint(out, quantity);
+        });
+        byte[] payload = out.toByteArray();
+
+        byte[] value = Arrays.copyOf(payload, payload.length + MAC_LENGTH);
+        System.arraycopy(mac(payload), 0, value, payload.length, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+
+    Optional<Map<Integer, Integer>> decode(String cookie, long nowSeconds) {
+        if (cookie == null || cookie.isBlank()) return Optional.empty();
+
+        byte[] value;
+        try {
+            value = Base64.getUrlDecoder().decode(cookie);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (value.length <= MAC_LENGTH) return Optional.empty();
+
+        byte[] payload = Arrays.copyOf(value, value.length - MAC_LENGTH);
+        byte[] signature = Arrays.copyOfRange(value, payload.length, value.length);
+        if (!MessageDigest.isEqual(signature, Arrays.copyOf(mac(payload), MAC_LENGTH))) return Optional.empty();
+
+        try {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            if (in.get() != VERSION) return Optional.empty();
+            long issuedAt = readVarint(in);
+            if (issuedAt > nowSeconds + 60 || nowSeconds - issuedAt > maxAgeSeconds) return Optional.empty();
+
+            long count = readVarint(in);
+            if (count > MAX_LINES) return Optional.empty();
+            Map<Integer, Integer> lines = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                lines.put(Math.toIntExact(readVarint(in)), Math.toIntExact(readVarint(in)));
+            }
+            return in.hasRemaining() ? Optional.empty() : Optional.of(lines);
+        } catch (RuntimeException e) {
+            // cut short or numbers out of range, can only be a cookie we didn't write
+            return Optional.empty();
+        }
+    }
+
+    private byte[] mac(byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+}
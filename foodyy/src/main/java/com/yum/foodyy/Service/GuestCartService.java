@@ -0,0 +1,146 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartLine;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Entity.DTO.CartView;
+import com.yum.foodyy.Entity.Food;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Carts of visitors who haven't signed in. The whole cart lives in a signed cookie (GuestCartCodec), the server
+// keeps nothing, so browsing and filling a guest cart never writes to the database. At sign in the cookie is
+// merged into the customer's cart with one batched upsert (CartService.applyBatch) and cleared.
+// The merge keeps the larger quantity of each dish, so it can run twice for the same cookie.
+@Service
+public class GuestCartService {
+
+    public static final String COOKIE = "guest_cart";
+
+    private static final int MAX_LINES = 50;
+    private static final int MAX_QUANTITY = 99;
+
+    // has to be set (and the same on every node), only the dev profile runs without one on a random key per start
+    @Value("${foodyy.guest-cart.secret:}")
+    private String secret;
+
+    @Value("${foodyy.guest-cart.max-age-days:30}")
+    private int maxAgeDays;
+
+    @Value("${foodyy.guest-cart.secure-cookie:false}")
+    private boolean secureCookie;
+
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private Environment environment;
+
+    private GuestCartCodec codec;
+
+    @PostConstruct
+    void init() {
+        byte[] key;
+        if (secret == null || secret.isBlank()) {
+            if (!environment.acceptsProfiles(Profiles.of("dev"))) {
+                throw new IllegalStateException("foodyy.guest-cart.secret is not set. Without it every guest cart "
+                        + "is lost on restart and on every other node, set it or run with the dev profile");
+            }
+            System.out.println("Guest carts: no foodyy.guest-cart.secret, using a random key (dev profile)");
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        codec = new GuestCartCodec(key, Duration.ofDays(maxAgeDays).toSeconds());
+    }
+
+    // foodId -> quantity, empty when there is no cookie or it isn't one of ours
+    public Map<Integer, Integer> read(String cookie) {
+        return codec.decode(cookie, now()).orElseGet(LinkedHashMap::new);
+    }
+
+    // add / set / remove by foodId, the same folding as the customer cart
+    public Map<Integer, Integer> apply(Map<Integer, Integer> lines, List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("No cart operations");
+        }
+
+        Map<Integer, Integer> updated = new LinkedHashMap<>(lines);
+        CartBatch.coalesce(operations, Map.of()).forEach((foodId, change) -> {
+            int quantity = switch (change.kind()) {
+                case ADD -> Math.addExact(updated.getOrDefault(foodId, 0), change.quantity());
+                case SET -> change.quantity();
+                case REMOVE -> 0;
+            };
+            if (quantity == 0) {
+                updated.remove(foodId);
+                return;
+            }
+            if (catalogCacheService.findById(foodId).isEmpty()) {
+                throw new IllegalArgumentException("Food not found: " + foodId);
+            }
+            updated.put(foodId, Math.min(quantity, MAX_QUANTITY));
+        });
+
+        if (updated.size() > MAX_LINES) {
+            throw new IllegalArgumentException("A guest cart holds at most " + MAX_LINES + " dishes, sign in for more");
+        }
+        return updated;
+    }
+
+    public CartView view(Map<Integer, Integer> lines) {
+        List<CartLine> items = new ArrayList<>();
+        int quantity = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            Food food = catalogCacheService.findById(line.getKey()).orElse(null);
+            if (food == null) continue;
+
+            CartLine item = CartLine.of(null, food, food.getPrice(), line.getValue(), null);
+            items.add(item);
+            quantity += item.quantity();
+            if (item.lineTotal() != null) subtotal = subtotal.add(item.lineTotal());
+        }
+        return new CartView(null, items, items.size(), quantity, subtotal, false);
+    }
+
+    // the cart as operations merging it into a customer's cart that already holds inCart (foodId -> quantity).
+    // A dish ends up with the larger of the two quantities instead of their sum, so merging the same cookie twice
+    // (a retried sign in, a cookie that wasn't cleared) changes nothing the second time. Dishes that were taken off
+    // the menu since are left out
+    public List<CartOperation> toOperations(Map<Integer, Integer> lines, Map<Integer, Integer> inCart) {
+        List<CartOperation> operations = new ArrayList<>();
+        lines.forEach((foodId, quantity) -> {
+            if (quantity > inCart.getOrDefault(foodId, 0) && catalogCacheService.findById(foodId).isPresent()) {
+                operations.add(new CartOperation("set", foodId, null, quantity));
+            }
+        });
+        return operations;
+    }
+
+    // Set-Cookie for these lines, an empty cart deletes the cookie
+    public ResponseCookie cookie(Map<Integer, Integer> lines) {
+        return ResponseCookie.from(COOKIE, lines.isEmpty() ? "" : codec.encode(lines, now()))
+                .httpOnly(true)
+                .secure(secureCookie)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(lines.isEmpty() ? Duration.ZERO : Duration.ofDays(maxAgeDays))
+                .build();
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
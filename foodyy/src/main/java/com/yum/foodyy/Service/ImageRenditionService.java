@@ -0,0 +1,268 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.ImageSize;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Generates the THUMB / CARD / DETAIL versions of every uploaded image with plain ImageIO + Java2D on a small,
+// bounded pool so uploads never wait for it. Renditions sit next to the originals in the media store:
+//     <root>/renditions/<aa>/<sha256>-<size>.<jpg|png|original ext>
+// A rendition file existing means it is final. Images that are already small enough, or that ImageIO can't
+// decode (webp), get a plain copy of the original so every size always ends up with a file.
+// The original itself is never handed out in place of a missing rendition: until the file exists the size reads as
+// PENDING, and an image whose generation threw reads as FAILED and isn't tried again until it is uploaded again.
+@Service
+public class ImageRenditionService {
+
+    public static final List<ImageSize> GENERATED = List.of(ImageSize.THUMB, ImageSize.CARD, ImageSize.DETAIL);
+
+    public enum Status {READY, PENDING, FAILED}
+
+    // file and etag are only set when the status is READY
+    public record Rendition(Status status, Path file, String etag) {
+
+        static Rendition ready(Path file, String etag) {
+            return new Rendition(Status.READY, file, etag);
+        }
+    }
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    @Autowired private MediaStoreService mediaStoreService;
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    @Value("${foodyy.media.rendition.threads:2}")
+    private int threads;
+
+    @Value("${foodyy.media.rendition.queue:100}")
+    private int queueSize;
+
+    private ThreadPoolExecutor executor;
+
+    // keys with a generation queued or running, so the same image is never processed twice at once
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    // keys whose generation threw, requests for them don't schedule (and decode) it again
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // called right after an upload. When the queue is full we drop the job, the first request for a missing
+    // rendition schedules it again. An upload gives a key that failed before another try.
+    public void schedule(String key) {
+        if (key == null) return;
+        failed.remove(key);
+        submit(key);
+    }
+
+    private void submit(String key) {
+        if (!inFlight.add(key)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(key);
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            System.out.println("ImageRendition: queue full, skipped " + key);
+        }
+    }
+
+    // images stored before this existed (or while the queue was full) get their renditions in the background
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Thread thread = new Thread(() -> catalogCacheService.getAll().stream()
+                .map(Food::getImageKey)
+                .filter(Objects::nonNull)
+                .distinct()
+                .filter(key -> GENERATED.stream().anyMatch(size -> findRendition(key, size).isEmpty()))
+                .forEach(key -> {
+                    if (!inFlight.add(key)) return;
+                    try {
+                        generate(key);
+                    } finally {
+                        inFlight.remove(key);
+                    }
+                }), "image-rendition-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // what to send for a given size, empty for an unknown key. A missing rendition is scheduled and reads as
+    // PENDING, unless its generation already failed.
+    public Optional<Rendition> resolve(String key, ImageSize size) {
+        Optional<Path> original = mediaStoreService.resolve(key);
+        if (original.isEmpty()) return Optional.empty();
+
+        String hash = MediaStoreService.hashOf(key);
+        if (size == ImageSize.ORIGINAL) {
+            return Optional.of(Rendition.ready(original.get(), MediaDeliveryService.strongEtag(hash)));
+        }
+
+        Optional<Path> rendition = findRendition(key, size);
+        if (rendition.isPresent()) {
+            return Optional.of(Rendition.ready(rendition.get(),
+                    MediaDeliveryService.strongEtag(hash + "-" + size.suffix())));
+        }
+
+        if (failed.contains(key)) return Optional.of(new Rendition(Status.FAILED, null, null));
+        submit(key);
+        return Optional.of(new Rendition(Status.PENDING, null, null));
+    }
+
+    void generate(String key) {
+        Optional<Path> original = mediaStoreService.resolve(key);
+        if (original.isEmpty()) return;
+
+        try {
+            BufferedImage source = ImageIO.read(original.get().toFile());
+
+            for (ImageSize size : GENERATED) {
+                if (findRendition(key, size).isPresent()) continue;
+
+                if (source == null || Math.max(source.getWidth(), source.getHeight()) <= size.getMaxEdge()) {
+                    String ext = key.substring(key.indexOf('.') + 1);
+                    copyOriginal(original.get(), renditionPath(key, size, ext));
+                } else {
+                    boolean alpha = source.getColorModel().hasAlpha();
+                    BufferedImage scaled = scale(source, size.getMaxEdge(), alpha);
+                    write(scaled, renditionPath(key, size, alpha ? "png" : "jpg"), alpha);
+                }
+            }
+        } catch (Exception e) {
+            failed.add(key);
+            System.out.println("ImageRendition: failed for " + key + ": " + e.getMessage());
+        }
+    }
+
+    private Optional<Path> findRendition(String key, ImageSize size) {
+        String originalExt = key.substring(key.indexOf('.') + 1);
+        for (String ext : List.of("jpg", "png", originalExt)) {
+            Path path = renditionPath(key, size, ext);
+            if (Files.isRegularFile(path)) return Optional.of(path);
+        }
+        return Optional.empty();
+    }
+
+    private Path renditionPath(String key, ImageSize size, String ext) {
+        String hash = MediaStoreService.hashOf(key);
+        return mediaStoreService.getRoot()
+                .resolve("renditions")
+                .resolve(hash.substring(0, 2))
+                .resolve(hash + "-" + size.suffix() + "." + ext);
+    }
+
+    // halves the image until it is close to the target and then does the last step, plain bilinear
+    // straight to a much smaller size looks jagged
+    private static BufferedImage scale(BufferedImage source, int maxEdge, boolean alpha) {
+        double ratio = (double) maxEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(current, 0, 0, width, height, null);
+            graphics.dispose();
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static void write(BufferedImage image, Path target, boolean png) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "rendition-", ".tmp");
+
+        try {
+            if (png) {
+                ImageIO.write(image, "png", temp.toFile());
+            } else {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void copyOriginal(Path original, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "rendition-", ".tmp");
+        try {
+            Files.copy(original, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.yum.foodyy.Service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Writes a file from the media store to the response: conditional GET (ETag / 304), single byte ranges (206)
+// and the body itself through sendfile when tomcat offers it, FileChannel.transferTo otherwise.
+// The bytes never pass through a byte[] on the heap.
+@Service
+public class MediaDeliveryService {
+
+    public static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    public static final String CACHE_REVALIDATE = "public, no-cache";
+
+    // how long a client should wait before asking again for a rendition that is still being generated
+    private static final int PENDING_RETRY_SECONDS = 5;
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // 503 with Retry-After for an image whose rendition isn't there yet, nothing may cache it
+    public void sendPending(HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(PENDING_RETRY_SECONDS));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+    public void serve(Path file, String etag, String cacheControl, MediaType mediaType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        long length = file.toFile().length();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesIfNoneMatch(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+//        a Range only applies to the version the client already has, if If-Range doesn't match we send everything
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+
+            // multipart/byteranges is not worth it for images, more than one range gets the whole file
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                if (start >= length) {
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = length == 0 ? 0 : end - start + 1;
+        response.setContentType(mediaType.toString());
+        response.setContentLengthLong(count);
+
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // tomcat sends the file with sendfile(2) once this request returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) break;
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    public static String strongEtag(String value) {
+        return "\"" + value + "\"";
+    }
+
+    private static boolean matchesIfNoneMatch(String header, String etag) {
+        if (header == null) return false;
+
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) return true;
+            // If-None-Match uses the weak comparison
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals(etag)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,104 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Repo.FoodRepo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// Moves food images into the media store on startup. Foods that still have bytes in the old imageData column get
+// those bytes stored and the column cleared, foods without any image are matched by name against the seed
+// directory (the food-images/ folder of the repo, "Butter Chicken.jpg" -> food "Butter Chicken").
+// Only rows without an imageKey are looked at, so after the first run this is a single cheap query.
+@Service
+public class MediaMigrationService {
+
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private MediaStoreService mediaStoreService;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private ImageRenditionService imageRenditionService;
+
+    @Value("${foodyy.media.seed-dir:../food-images}")
+    private String seedDir;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        List<Integer> ids = foodRepo.findIdsWithoutImageKey();
+        if (ids.isEmpty()) return;
+
+        int migrated = 0;
+        for (Integer id : ids) {
+            try {
+                if (migrateOne(id)) migrated++;
+            } catch (Exception e) {
+                System.out.println("MediaMigration: could not migrate image of food " + id + ": " + e.getMessage());
+            }
+        }
+
+        System.out.println("MediaMigration: moved " + migrated + " of " + ids.size() + " food images to the media store");
+        if (migrated > 0) {
+            catalogCacheService.invalidate();
+        }
+    }
+
+    // one row at a time so only a single image is ever on the heap
+    private boolean migrateOne(int id) throws IOException {
+        FoodRepo.LegacyImage legacy = foodRepo.findLegacyImage(id);
+        if (legacy == null) return false;
+
+        if (legacy.getImageData() != null && legacy.getImageData().length > 0) {
+            String key = mediaStoreService.store(legacy.getImageData(), legacy.getImageType(), legacy.getImageName());
+            imageRenditionService.schedule(key);
+            return foodRepo.attachImage(id, key, legacy.getImageType(), legacy.getImageName()) > 0;
+        }
+
+        Optional<Path> seed = findSeedImage(legacy.getName());
+        if (seed.isEmpty()) return false;
+
+        Path file = seed.get();
+        String fileName = file.getFileName().toString();
+        String contentType = Files.probeContentType(file);
+        String key;
+        try (var in = Files.newInputStream(file)) {
+            key = mediaStoreService.store(in, contentType, fileName);
+        }
+        imageRenditionService.schedule(key);
+        return foodRepo.attachImage(id, key, MediaStoreService.mediaTypeOf(key).toString(), fileName) > 0;
+    }
+
+    // also used by the bulk import for rows that don't name an image
+    public Optional<Path> findSeedImage(String foodName) throws IOException {
+        Path dir = Path.of(seedDir);
+        if (foodName == null || !Files.isDirectory(dir)) return Optional.empty();
+
+        String wanted = foodName.trim().toLowerCase(Locale.ROOT);
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> baseName(file).equals(wanted))
+                    .findFirst();
+        }
+    }
+
+    // a file of the seed directory by its exact name, nothing outside of it
+    public Optional<Path> findSeedFile(String fileName) {
+        Path dir = Path.of(seedDir).toAbsolutePath().normalize();
+        Path file = dir.resolve(fileName).normalize();
+        return file.startsWith(dir) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    private static String baseName(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name).trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,132 @@
+package com.yum.foodyy.Service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Content addressed file store for food images. A file is named after the SHA-256 of its bytes, so the same
+// photo is only stored once and a stored file never changes, which is what lets us cache it forever.
+// Layout: <root>/<first two hex chars>/<sha256>.<ext>
+@Service
+public class MediaStoreService {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[0-9a-f]{64}\\.[a-z0-9]{1,5}$");
+
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", "jpg",
+            "image/jpg", "jpg",
+            "image/png", "png",
+            "image/webp", "webp",
+            "image/gif", "gif"
+    );
+
+    @Value("${foodyy.media.dir:media}")
+    private String mediaDir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(mediaDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    public String store(byte[] bytes, String contentType, String fileName) throws IOException {
+        return store(new ByteArrayInputStream(bytes), contentType, fileName);
+    }
+
+    // streams the upload to a temp file while hashing it, then moves it in place under its hash
+    public String store(InputStream in, String contentType, String fileName) throws IOException {
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+
+        try {
+            try (DigestInputStream hashing = new DigestInputStream(in, digest);
+                 OutputStream out = Files.newOutputStream(temp)) {
+                hashing.transferTo(out);
+            }
+
+            String key = HexFormat.of().formatHex(digest.digest()) + "." + extensionFor(contentType, fileName);
+            Path target = pathFor(key);
+
+            if (Files.notExists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // somebody stored the same bytes at the same moment, theirs is identical
+                }
+            }
+            return key;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<Path> resolve(String key) {
+        if (!isValidKey(key)) return Optional.empty();
+
+        Path path = pathFor(key);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public static boolean isValidKey(String key) {
+        return key != null && KEY_PATTERN.matcher(key).matches();
+    }
+
+    public static String hashOf(String key) {
+        return key.substring(0, key.indexOf('.'));
+    }
+
+    public static MediaType mediaTypeOf(String key) {
+        return MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    private Path pathFor(String key) {
+        return root.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private static String extensionFor(String contentType, String fileName) {
+        if (contentType != null) {
+            String ext = EXTENSIONS.get(contentType.toLowerCase(Locale.ROOT));
+            if (ext != null) return ext;
+        }
+        if (fileName != null && fileName.lastIndexOf('.') > 0) {
+            String ext = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+            if (ext.equals("jpeg")) return "jpg";
+            if (ext.matches("[a-z0-9]{1,5}")) return ext;
+        }
+        return "bin";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
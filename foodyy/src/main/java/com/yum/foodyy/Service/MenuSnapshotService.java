@@ -0,0 +1,134 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+// GET /customer/foods as ready made bytes. Every catalog snapshot is serialized once (with the same ObjectMapper
+// the controllers use) and gzipped once, a request then only compares the ETag and copies the cached bytes.
+// The ETag is a hash of the JSON, so every node hands out the same one for the same menu.
+@Service
+public class MenuSnapshotService {
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    record Menu(long version, String etag, byte[] json, byte[] gzip) {
+
+        // the gzip body is another representation of the same menu, it gets its own tag
+        String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gz\"";
+        }
+    }
+
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    private final AtomicReference<Menu> current = new AtomicReference<>();
+
+    @EventListener
+    public void onCatalogRefreshed(CatalogRefreshedEvent event) {
+        build(event.snapshot());
+    }
+
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Menu menu = menu();
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? menu.gzipEtag() : menu.etag();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.trim().equals("*")
+                || ifNoneMatch.contains(menu.etag()) || ifNoneMatch.contains(menu.gzipEtag()))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = gzip ? menu.gzip() : menu.json();
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        if (gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setContentLength(body.length);
+
+        if (!"HEAD".equals(request.getMethod())) {
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private Menu menu() {
+        Menu menu = current.get();
+        if (menu != null) return menu;
+        return build(catalogCacheService.snapshot());
+    }
+
+    private Menu build(CatalogCacheService.Snapshot snapshot) {
+        Menu built;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(snapshot.foods());
+            built = new Menu(snapshot.version(), "\"" + hash(json) + "\"", json, gzip(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return current.accumulateAndGet(built,
+                (old, candidate) -> old == null || old.version() < candidate.version() ? candidate : old);
+    }
+
+    // gzip unless the client turned it off with q=0, "*" counts when gzip isn't named
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+
+        Double gzip = null;
+        Double any = null;
+        for (String part : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] coding = part.trim().split(";");
+            double q = 1;
+            for (int i = 1; i < coding.length; i++) {
+                String param = coding[i].trim();
+                if (!param.startsWith("q=")) continue;
+                try {
+                    q = Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    q = 0;
+                }
+            }
+            String name = coding[0].trim();
+            if (name.equals("gzip") || name.equals("x-gzip")) gzip = q;
+            if (name.equals("*")) any = q;
+        }
+        return gzip != null ? gzip > 0 : any != null && any > 0;
+    }
+
+    private static byte[] gzip(byte[] json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
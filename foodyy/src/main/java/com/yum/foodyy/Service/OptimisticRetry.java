@@ -0,0 +1,88 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartConcurrencyStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Runs a cart write in its own transaction and runs it again, from the read on, when a @Version check fails
+// because someone else changed the same row in between. Nothing is locked, a conflict only costs the retry.
+// The pause before each retry is random (up to base-delay * 2^(attempt - 1)) so the writers that collided don't
+// collide again in lockstep. When the attempts run out the write fails with CartConflictException.
+// The @Version columns of Cart and CartItem are bumped on every update, a write based on an older read fails
+// instead of overwriting. Their "integer default 0" fills the column for rows from before it and for native inserts.
+@Service
+public class OptimisticRetry {
+
+    @Value("${foodyy.cart.retry.max-attempts:4}")
+    private int maxAttempts = 4;
+
+    @Value("${foodyy.cart.retry.base-delay-ms:10}")
+    private long baseDelayMs = 10;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder staleVersions = new LongAdder();
+
+    public <T> T inTransaction(Supplier<T> write) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        return retry(() -> transaction.execute(status -> write.get()));
+    }
+
+    <T> T retry(Supplier<T> attempt) {
+        writes.increment();
+        for (int i = 1; ; i++) {
+            try {
+                return attempt.get();
+            } catch (CartConflictException e) {
+                // the client's copy is out of date, trying again won't change that
+                staleVersions.increment();
+                throw e;
+            } catch (OptimisticLockingFailureException e) {
+                conflicts.increment();
+                if (i >= maxAttempts) {
+                    exhausted.increment();
+                    throw new CartConflictException("The cart was changed by another request, try again", e);
+                }
+                retries.increment();
+                pause(i);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        long bound = baseDelayMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CartConflictException("Interrupted while retrying a cart write", e);
+        }
+    }
+
+    public CartConcurrencyStats stats() {
+        long writeCount = writes.sum();
+        long conflictCount = conflicts.sum();
+        long retryCount = retries.sum();
+        return new CartConcurrencyStats(
+                writeCount,
+                conflictCount,
+                retryCount,
+                exhausted.sum(),
+                staleVersions.sum(),
+                writeCount == 0 ? 0 : (double) conflictCount / writeCount,
+                writeCount == 0 ? 0 : (double) retryCount / writeCount
+        );
+    }
+}
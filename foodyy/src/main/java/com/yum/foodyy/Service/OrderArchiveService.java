@@ -0,0 +1,427 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.DTO.OrderItemResponse;
+import com.yum.foodyy.Entity.DTO.OrderPage;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Cold storage for old months of orders. Every night the month partitions older than after-months whose orders are
+// all delivered or cancelled are written to a segment file in dir (orders-2024-03.ndjson.gz: one JSON line per order
+// with its items, sorted by customer) and detached from customer_order / customer_order_items.
+// A segment is a series of gzip members (blocks of about block-bytes) that only start at a customer boundary, and
+// order_archive_customer remembers where each customer's run starts, so reading one customer's archived orders
+// decompresses a block or two of the segment instead of all of it, streaming it line by line. Archived orders are only
+// read on request, a month per page (GET /customer/{custId}/orders/archived), never with the regular order history.
+// The detached partitions are kept as plain tables unless drop-detached is set, the segment files are then the only
+// copy of those months, so only turn it on once dir is on storage that survives the node.
+@Service
+public class OrderArchiveService {
+
+    private static final long ARCHIVE_LOCK = 0x4f52444552L; // pg advisory lock, one archiving node at a time
+
+    private static final String OPEN_ORDERS_SQL =
+            "SELECT count(*) FROM %s WHERE status IS NULL OR status NOT IN ('DELIVERED', 'CANCELLED')";
+
+    // items of an order are in the same month as the order, so the two partitions are joined directly
+    private static final String EXPORT_SQL =
+            "SELECT o.id, o.order_id, o.customer_id, c.name AS customer_name, o.email, o.address, o.status, " +
+            "       o.order_date, o.total_amount, o.idempotency_key, " +
+            "       i.food_id, f.name AS food_name, i.quantity, i.total_price " +
+            "FROM %s o LEFT JOIN %s i ON i.order_id = o.id " +
+            "LEFT JOIN customer_info c ON c.customer_id = o.customer_id " +
+            "LEFT JOIN food f ON f.id = i.food_id " +
+            "ORDER BY o.customer_id NULLS LAST, o.order_date DESC, o.id DESC, i.id";
+
+    // a detached items partition keeps a copy of the foreign key to customer_order
+    private static final String ORDER_FOREIGN_KEYS_SQL =
+            "SELECT quote_ident(conname) FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'f' " +
+            "AND confrelid = to_regclass('" + OrderPartitionService.ORDERS + "')";
+
+    private static final String SEGMENT_SQL =
+            "INSERT INTO order_archive_segment (name, month_start, month_end, orders, items, bytes) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (name) DO UPDATE SET orders = EXCLUDED.orders, " +
+            "items = EXCLUDED.items, bytes = EXCLUDED.bytes, archived_at = now()";
+
+    private static final String CUSTOMER_INDEX_SQL =
+            "INSERT INTO order_archive_customer (customer_id, segment, block_offset, orders) VALUES (?, ?, ?, ?)";
+
+    // the customer's next two archived months after the cursor: the one of the page and whether there is another
+    private static final String FIND_CUSTOMER_SQL =
+            "SELECT segment, block_offset FROM order_archive_customer WHERE customer_id = ? AND segment < ? " +
+            "ORDER BY segment DESC LIMIT 2";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private DataSource dataSource;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private OrderPartitionService orderPartitionService;
+
+    @Value("${foodyy.order.archive.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${foodyy.order.archive.dir:order-archive}")
+    private String dir = "order-archive";
+
+    @Value("${foodyy.order.archive.after-months:12}")
+    private int afterMonths = 12;
+
+    @Value("${foodyy.order.archive.block-bytes:65536}")
+    private int blockBytes = 65_536;
+
+    @Value("${foodyy.order.archive.drop-detached:false}")
+    private boolean dropDetached = false;
+
+    // the export reads the month through a cursor instead of loading it whole
+    private JdbcTemplate exportJdbc;
+
+    record ArchivedItem(Integer foodId, String foodName, int quantity, BigDecimal totalPrice) {
+    }
+
+    record ArchivedOrder(String orderId, Integer customerId, String customerName, String email, String address,
+                         String status, LocalDateTime orderDate, BigDecimal totalAmount, String idempotencyKey,
+                         List<ArchivedItem> items) {
+
+        OrderResponse toResponse() {
+            return new OrderResponse(orderId, customerName, email, address, status, orderDate, totalAmount,
+                    items.stream().map(item -> new OrderItemResponse(item.foodName(), item.quantity(), item.totalPrice())).toList());
+        }
+    }
+
+    // where the orders of one customer start in a segment
+    record BlockStart(int customerId, long offset, int orders) {
+    }
+
+    private record Location(String segment, long offset) {
+    }
+
+    @PostConstruct
+    void checkSettings() {
+        // the month before this one is still getting status changes and is created again by OrderPartitionService
+        if (afterMonths < 2) {
+            throw new IllegalStateException("foodyy.order.archive.after-months must be 2 or more, got " + afterMonths);
+        }
+        exportJdbc = new JdbcTemplate(dataSource);
+        exportJdbc.setFetchSize(1000);
+        if (enabled) {
+            System.out.println("OrderArchive: segments go to " + Paths.get(dir).toAbsolutePath()
+                    + (dropDetached ? ", archived months are dropped from the database" : ", detached months are kept"));
+        }
+    }
+
+    @Scheduled(cron = "${foodyy.order.archive.cron:0 0 3 * * *}")
+    public void archiveOnSchedule() {
+        if (enabled) archiveOldMonths();
+    }
+
+    // archives every month that is old enough, oldest first, returns the names of the segments written
+    public synchronized List<String> archiveOldMonths() {
+        YearMonth horizon = YearMonth.now().minusMonths(afterMonths);
+        List<String> archived = new ArrayList<>();
+        for (YearMonth month : orderPartitionService.partitionMonths()) {
+            if (!month.isBefore(horizon)) break;
+            try {
+                if (archiveMonth(month)) archived.add(segmentName(month));
+            } catch (RuntimeException e) {
+                System.out.println("OrderArchive: could not archive " + month + ": " + e.getMessage());
+                break;
+            }
+        }
+        return archived;
+    }
+
+    // one archived month of the customer's orders per page, newest month first, read from its segment file only when
+    // asked for. nextCursor (the segment of this page) is passed back as "after" for the month before. A segment that
+    // can't be read fails the page (UncheckedIOException) instead of leaving its orders out
+    public OrderPage readCustomerOrders(int customerId, String after) {
+        String cursor = after == null || after.isBlank() ? "\uffff" : after;
+        List<Location> locations = jdbcTemplate.query(FIND_CUSTOMER_SQL,
+                (rs, row) -> new Location(rs.getString("segment"), rs.getLong("block_offset")), customerId, cursor);
+        if (locations.isEmpty()) return new OrderPage(List.of(), null, false);
+
+        Location location = locations.get(0);
+        Path segment = Paths.get(dir).resolve(location.segment());
+        List<OrderResponse> orders = new ArrayList<>();
+        try {
+            readCustomer(segment, location.offset(), customerId, objectMapper, order -> orders.add(order.toResponse()));
+        } catch (IOException e) {
+            System.out.println("OrderArchive: could not read " + segment + ": " + e.getMessage());
+            throw new UncheckedIOException("Could not read the archived orders of " + location.segment(), e);
+        }
+        boolean hasMore = locations.size() > 1;
+        return new OrderPage(orders, hasMore ? location.segment() : null, hasMore);
+    }
+
+    static String segmentName(YearMonth month) {
+        return String.format("orders-%04d-%02d.ndjson.gz", month.getYear(), month.getMonthValue());
+    }
+
+    // false when the month was left alone: another node is archiving, or orders of it are still open
+    private boolean archiveMonth(YearMonth month) {
+        String orders = OrderPartitionService.partitionName(OrderPartitionService.ORDERS, month);
+        String items = OrderPartitionService.partitionName(OrderPartitionService.ITEMS, month);
+        String name = segmentName(month);
+
+        Boolean done = new TransactionTemplate(transactionManager).execute(status -> {
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ARCHIVE_LOCK))) {
+                return false;
+            }
+            // reads go on, writes wait until the month is gone
+            jdbcTemplate.execute("LOCK TABLE " + orders + ", " + items + " IN SHARE MODE");
+            Long open = jdbcTemplate.queryForObject(String.format(OPEN_ORDERS_SQL, orders), Long.class);
+            if (open != null && open > 0) {
+                System.out.println("OrderArchive: kept " + month + ", " + open + " of its orders are still open");
+                return false;
+            }
+
+            SegmentWriter writer = writeSegment(name, orders, items);
+            jdbcTemplate.update("DELETE FROM order_archive_customer WHERE segment = ?", name);
+            jdbcTemplate.update(SEGMENT_SQL, name, month.atDay(1), month.plusMonths(1).atDay(1),
+                    writer.orders(), writer.items(), writer.bytes());
+            jdbcTemplate.batchUpdate(CUSTOMER_INDEX_SQL, writer.index().stream()
+                    .map(block -> new Object[]{block.customerId(), name, block.offset(), block.orders()}).toList());
+
+            // items first, and without their foreign key: the orders partition can't leave while items point at it
+            jdbcTemplate.execute("ALTER TABLE " + OrderPartitionService.ITEMS + " DETACH PARTITION " + items);
+            for (String key : jdbcTemplate.queryForList(ORDER_FOREIGN_KEYS_SQL, String.class, items)) {
+                jdbcTemplate.execute("ALTER TABLE " + items + " DROP CONSTRAINT " + key);
+            }
+            jdbcTemplate.execute("ALTER TABLE " + OrderPartitionService.ORDERS + " DETACH PARTITION " + orders);
+            if (dropDetached) jdbcTemplate.execute("DROP TABLE " + items + ", " + orders);
+
+            System.out.println("OrderArchive: moved " + writer.orders() + " orders of " + month + " to " + name
+                    + " (" + writer.bytes() + " bytes)");
+            return true;
+        });
+        return Boolean.TRUE.equals(done);
+    }
+
+    // writes the month to a temporary file and moves it in place once it's on disk. A failure after that leaves a
+    // segment nobody points to, the next run writes it again
+    private SegmentWriter writeSegment(String name, String orders, String items) {
+        try {
+            Path directory = Paths.get(dir);
+            Files.createDirectories(directory);
+            Path tmp = directory.resolve(name + ".tmp");
+
+            SegmentWriter writer;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writer = new SegmentWriter(new BufferedOutputStream(Channels.newOutputStream(channel)), objectMapper, blockBytes);
+                ExportRows rows = new ExportRows(writer);
+                exportJdbc.query(String.format(EXPORT_SQL, orders, items), rows);
+                rows.flush();
+                writer.close();
+                channel.force(true);
+            }
+            Files.move(tmp, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return writer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // the export comes one row per item, ordered by order, rows of the same order become one ArchivedOrder
+    private static final class ExportRows implements org.springframework.jdbc.core.RowCallbackHandler {
+        private final SegmentWriter writer;
+        private long currentId = -1;
+        private ArchivedOrder current;
+
+        ExportRows(SegmentWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow(java.sql.ResultSet rs) throws java.sql.SQLException {
+            long id = rs.getLong("id");
+            if (id != currentId) {
+                flush();
+                currentId = id;
+                Timestamp orderDate = rs.getTimestamp("order_date");
+                current = new ArchivedOrder(
+                        rs.getString("order_id"),
+                        (Integer) rs.getObject("customer_id"),
+                        rs.getString("customer_name"),
+                        rs.getString("email"),
+                        rs.getString("address"),
+                        rs.getString("status"),
+                        orderDate == null ? null : orderDate.toLocalDateTime(),
+                        rs.getBigDecimal("total_amount"),
+                        rs.getString("idempotency_key"),
+                        new ArrayList<>());
+            }
+            if (rs.getObject("food_id") != null || rs.getObject("quantity") != null) {
+                current.items().add(new ArchivedItem((Integer) rs.getObject("food_id"), rs.getString("food_name"),
+                        rs.getInt("quantity"), rs.getBigDecimal("total_price")));
+            }
+        }
+
+        // the last order has no next row to end it
+        void flush() {
+            if (current == null) return;
+            try {
+                writer.write(current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+
+    // Writes orders sorted by customer as NDJSON into a chain of gzip members. A member is only closed where the
+    // customer changes and once it holds blockBytes of JSON, so every customer's run starts in a known member.
+    // Orders without a customer are written (they have to be somewhere) but not indexed
+    static final class SegmentWriter implements Closeable {
+        private final CountingOutputStream out;
+        private final ObjectMapper mapper;
+        private final int blockBytes;
+        private final List<BlockStart> index = new ArrayList<>();
+
+        private GZIPOutputStream member;
+        private long memberStart;
+        private long memberBytes;
+        private Integer customerId;
+        private int customerOrders;
+        private long orders;
+        private long items;
+
+        SegmentWriter(OutputStream out, ObjectMapper mapper, int blockBytes) {
+            this.out = new CountingOutputStream(out);
+            this.mapper = mapper;
+            this.blockBytes = blockBytes;
+        }
+
+        void write(ArchivedOrder order) throws IOException {
+            boolean newCustomer = orders == 0 || !java.util.Objects.equals(order.customerId(), customerId);
+            if (newCustomer) {
+                endCustomer();
+                if (member != null && memberBytes >= blockBytes) {
+                    member.finish();
+                    member = null;
+                }
+                if (member == null) {
+                    memberStart = out.count;
+                    memberBytes = 0;
+                    member = new GZIPOutputStream(out, 8192);
+                }
+                customerId = order.customerId();
+            }
+
+            byte[] line = mapper.writeValueAsBytes(order);
+            member.write(line);
+            member.write('\n');
+            memberBytes += line.length + 1;
+            customerOrders++;
+            orders++;
+            items += order.items().size();
+        }
+
+        private void endCustomer() {
+            if (customerId != null && customerOrders > 0) index.add(new BlockStart(customerId, memberStart, customerOrders));
+            customerOrders = 0;
+        }
+
+        List<BlockStart> index() {
+            return index;
+        }
+
+        long orders() {
+            return orders;
+        }
+
+        long items() {
+            return items;
+        }
+
+        long bytes() {
+            return out.count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            endCustomer();
+            customerId = null;
+            if (member != null) member.finish();
+            member = null;
+            out.flush();
+        }
+    }
+
+    // reads the orders of one customer from the member at offset on, stopping at the first order of the next customer
+    static void readCustomer(Path segment, long offset, int customerId, ObjectMapper mapper,
+                             Consumer<ArchivedOrder> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            channel.position(offset);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new BufferedInputStream(Channels.newInputStream(channel)), 8192),
+                    StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                ArchivedOrder order = mapper.readValue(line, ArchivedOrder.class);
+                if (order.customerId() == null || order.customerId() > customerId) return;
+                if (order.customerId() == customerId) sink.accept(order);
+            }
+        }
+    }
+
+    // keeps track of where in the file the next gzip member starts, without closing the file when a member ends
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
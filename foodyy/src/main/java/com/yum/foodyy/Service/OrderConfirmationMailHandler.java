@@ -0,0 +1,48 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.MailBody;
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import com.yum.foodyy.Entity.DTO.OrderItemResponse;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// mails the customer a summary of the order they just placed
+@Component
+public class OrderConfirmationMailHandler implements OutboxHandler {
+
+    @Autowired private EmailService emailService;
+
+    @Override
+    public String name() {
+        return "confirmation-mail";
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return OrderOutbox.ORDER_PLACED.equals(eventType);
+    }
+
+    @Override
+    public void handle(long eventId, String eventType, OrderEventPayload payload) {
+        OrderResponse order = payload.order();
+        if (order.email() == null || order.email().isBlank()) return;
+
+        StringBuilder text = new StringBuilder()
+                .append("Hi ").append(order.customerName()).append(",\n\n")
+                .append("we got your order ").append(order.orderId()).append(":\n\n");
+        for (OrderItemResponse item : order.items()) {
+            text.append(item.quantity()).append(" x ").append(item.foodName())
+                    .append("  ").append(item.totalPrice()).append("\n");
+        }
+        text.append("\nTotal: ").append(order.totalAmount())
+                .append("\nDelivering to: ").append(order.address())
+                .append("\n\nThanks for ordering with Foodyy!");
+
+        emailService.sendSimpleMessage(MailBody.builder()
+                .to(order.email())
+                .subject("Your Foodyy order " + order.orderId())
+                .text(text.toString())
+                .build());
+    }
+}
@@ -0,0 +1,195 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderStatusEvent;
+import com.yum.foodyy.Entity.DTO.OrderStreamStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// In-process pub/sub behind the customer order stream. OrderService publishes every status change, the hub hands it
+// to the open streams of that customer.
+// An open stream costs no thread while it's idle: the request is in async mode (SseEmitter) and nothing runs for it
+// until there is something to send. Each stream has its own bounded queue and sends from a virtual thread of its
+// own, so a client that reads slowly only ever blocks itself. A stream whose queue is full when the next event or
+// heartbeat comes is closed (the client reconnects and gets a fresh snapshot) instead of holding on to events.
+// Events only reach the streams connected to this node.
+@Service
+public class OrderEventHub {
+
+    @Value("${foodyy.order.stream.buffer-size:32}")
+    private int bufferSize = 32;
+
+    @Value("${foodyy.order.stream.max-subscribers:50000}")
+    private int maxSubscribers = 50_000;
+
+    @Value("${foodyy.order.stream.max-per-customer:5}")
+    private int maxPerCustomer = 5;
+
+    @Value("${foodyy.order.stream.timeout-minutes:30}")
+    private long timeoutMinutes = 30;
+
+    private final Map<Integer, Set<Subscriber>> byCustomer = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder heartbeats = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    // one open stream: the events waiting to be written and whether a sender is writing them right now
+    final class Subscriber {
+        final int customerId;
+        final SseEmitter emitter;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscriber(int customerId, SseEmitter emitter) {
+            this.customerId = customerId;
+            this.emitter = emitter;
+        }
+
+        // false when the client is so far behind that the queue is full
+        private boolean offer(SseEmitter.SseEventBuilder event) {
+            if (closed) return true;
+            if (!queue.offer(event)) return false;
+            if (sending.compareAndSet(false, true)) senders.execute(this::drain);
+            return true;
+        }
+
+        private void drain() {
+            do {
+                SseEmitter.SseEventBuilder event;
+                while (!closed && (event = queue.poll()) != null) {
+                    try {
+                        emitter.send(event);
+                        delivered.increment();
+                    } catch (IOException | IllegalStateException e) {
+                        // the client went away
+                        remove(this);
+                        return;
+                    }
+                }
+                sending.set(false);
+                // an event offered after the last poll but before the flag was cleared is sent by this loop
+            } while (!closed && !queue.isEmpty() && sending.compareAndSet(false, true));
+        }
+    }
+
+    // opens a stream for the customer. snapshot is sent first (the orders that are still open), after it every
+    // status change of the customer's orders. IllegalStateException when the subscriber limits are reached
+    public SseEmitter subscribe(int customerId, List<OrderStatusEvent> snapshot) {
+        return subscribe(customerId, snapshot, new SseEmitter(TimeUnit.MINUTES.toMillis(timeoutMinutes)));
+    }
+
+    SseEmitter subscribe(int customerId, List<OrderStatusEvent> snapshot, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(customerId, emitter);
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            rejected.increment();
+            throw new IllegalStateException("Too many open order streams, try again later");
+        }
+        Set<Subscriber> streams = byCustomer.compute(customerId, (id, existing) -> {
+            Set<Subscriber> set = existing == null ? ConcurrentHashMap.newKeySet() : existing;
+            if (set.size() < maxPerCustomer) set.add(subscriber);
+            return set;
+        });
+        if (!streams.contains(subscriber)) {
+            subscribers.decrementAndGet();
+            rejected.increment();
+            throw new IllegalStateException("Too many open order streams for this customer");
+        }
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        subscriber.offer(SseEmitter.event().name("snapshot").data(snapshot));
+        return emitter;
+    }
+
+    // sends the change once the surrounding transaction committed (right away outside of one), a rolled back
+    // status change never reaches a client
+    public void publishAfterCommit(int customerId, OrderStatusEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(customerId, event);
+                }
+            });
+        } else {
+            publish(customerId, event);
+        }
+    }
+
+    void publish(int customerId, OrderStatusEvent event) {
+        published.increment();
+        Set<Subscriber> streams = byCustomer.get(customerId);
+        if (streams == null) return;
+        for (Subscriber subscriber : streams) {
+            if (!subscriber.offer(SseEmitter.event().name("status").id(event.orderId()).data(event))) evict(subscriber);
+        }
+    }
+
+    // a comment line on every stream keeps proxies from closing idle connections, finds the clients that are gone
+    // (the write fails) and the ones that stopped reading (their queue is full)
+    @Scheduled(fixedDelayString = "${foodyy.order.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Set<Subscriber> streams : byCustomer.values()) {
+            for (Subscriber subscriber : streams) {
+                heartbeats.increment();
+                if (!subscriber.offer(SseEmitter.event().comment("ping"))) evict(subscriber);
+            }
+        }
+    }
+
+    public OrderStreamStats stats() {
+        return new OrderStreamStats(subscribers.get(), published.sum(), delivered.sum(), heartbeats.sum(),
+                evicted.sum(), rejected.sum());
+    }
+
+    @PreDestroy
+    void close() {
+        byCustomer.values().forEach(streams -> streams.forEach(this::remove));
+        senders.shutdown();
+    }
+
+    private void evict(Subscriber subscriber) {
+        if (remove(subscriber)) {
+            evicted.increment();
+            System.out.println("Order stream: closed a stream of customer " + subscriber.customerId
+                    + " that fell " + bufferSize + " events behind");
+        }
+    }
+
+    // true when this call closed the stream
+    private boolean remove(Subscriber subscriber) {
+        Set<Subscriber> streams = byCustomer.get(subscriber.customerId);
+        if (streams == null || !streams.remove(subscriber)) return false;
+        byCustomer.computeIfPresent(subscriber.customerId, (id, set) -> set.isEmpty() ? null : set);
+        subscribers.decrementAndGet();
+        subscriber.closed = true;
+        subscriber.emitter.complete();
+        return true;
+    }
+}
@@ -0,0 +1,123 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// The id query behind one page of the admin order feed. Orders come newest first by (order_date, id) and a page
+// starts right after the cursor, so the database seeks into an index instead of counting past the earlier pages:
+//   WHERE (order_date, id) < (cursor date, cursor id) ORDER BY order_date DESC, id DESC LIMIT n
+// Every filter has an index that starts with it and ends in (order_date DESC, id DESC), see schema-postgres.sql.
+// A filter on several statuses becomes one branch per status, each reads at most n rows of its own index and
+// the branches are merged, so "the active orders" costs the same on the first day and after a million orders.
+final class OrderFeedQuery {
+
+    static final int MAX_STATUSES = 10;
+
+    // position of the last order of a page, travels to the client as an opaque string
+    record Cursor(LocalDateTime orderDate, long id) {
+
+        String encode() {
+            String raw = orderDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int bar = raw.indexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+            } catch (DateTimeParseException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+
+    private final String sql;
+    private final List<Object> args;
+
+    private OrderFeedQuery(String sql, List<Object> args) {
+        this.sql = sql;
+        this.args = args;
+    }
+
+    String sql() {
+        return sql;
+    }
+
+    Object[] args() {
+        return args.toArray();
+    }
+
+    // selects the ids of up to limit orders matching the filter, after the cursor (null for the first page)
+    static OrderFeedQuery of(OrderFilter filter, Cursor after, int limit) {
+        Set<String> statuses = new LinkedHashSet<>();
+        if (filter.statuses() != null) {
+            for (String status : filter.statuses()) {
+                if (status != null && !status.isBlank()) statuses.add(status.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        if (statuses.size() > MAX_STATUSES) {
+            throw new IllegalArgumentException("At most " + MAX_STATUSES + " statuses can be filtered on");
+        }
+        if (filter.from() != null && filter.to() != null && filter.from().isAfter(filter.to())) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+
+        List<Object> args = new ArrayList<>();
+        if (statuses.size() <= 1) {
+            String status = statuses.isEmpty() ? null : statuses.iterator().next();
+            return new OrderFeedQuery(branch(status, filter, after, limit, args), args);
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT id FROM (");
+        String separator = "";
+        for (String status : statuses) {
+            sql.append(separator).append('(').append(branch(status, filter, after, limit, args)).append(')');
+            separator = " UNION ALL ";
+        }
+        sql.append(") page ORDER BY order_date DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return new OrderFeedQuery(sql.toString(), args);
+    }
+
+    private static String branch(String status, OrderFilter filter, Cursor after, int limit, List<Object> args) {
+        StringBuilder sql = new StringBuilder("SELECT o.id, o.order_date FROM customer_order o WHERE o.order_date IS NOT NULL");
+        if (status != null) {
+            sql.append(" AND o.status = ?");
+            args.add(status);
+        }
+        if (filter.customerId() != null) {
+            sql.append(" AND o.customer_id = ?");
+            args.add(filter.customerId());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND o.order_date >= ?");
+            args.add(filter.from().atStartOfDay());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND o.order_date < ?");
+            args.add(filter.to().plusDays(1).atStartOfDay());
+        }
+        if (filter.minAmount() != null) {
+            sql.append(" AND o.total_amount >= ?");
+            args.add(filter.minAmount());
+        }
+        if (after != null) {
+            sql.append(" AND (o.order_date, o.id) < (?, ?)");
+            args.add(after.orderDate());
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY o.order_date DESC, o.id DESC LIMIT ?");
+        args.add(limit);
+        return sql.toString();
+    }
+}
@@ -0,0 +1,229 @@
+package com.yum.foodyy.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Order ids like ORD-0SKZ4E7Q03G01: a 63 bit number written as 13 Crockford base32 characters (no I, L, O or U, so
+// nothing to misread over the phone). The number is laid out Snowflake style
+//   41 bits milliseconds since 2025-01-01 | 10 bits node id | 12 bits sequence within the millisecond
+// so the ids of one node only go up, sort by time (as numbers and as strings, the width is fixed) and land at the
+// right end of the orderId index instead of all over it. Two nodes with different node ids never collide.
+// Taking an id is one compare-and-set on (millisecond, sequence), no lock. When a millisecond runs out of its 4096
+// sequence numbers, or the clock steps back, the generator keeps counting from where it was: the embedded time runs
+// a little ahead of the clock instead of an id repeating or a thread waiting for the next millisecond.
+//
+// Each node claims its node id at startup with a Postgres session advisory lock, held on a connection of its own
+// (outside the pool) for as long as the node runs. foodyy.order.node-id picks the id, startup fails when another
+// live node holds it; left at -1 the node takes the lowest free one. The claim is checked every check-ms: when the
+// connection or the lock is gone the generator refuses to hand out ids until it has the lock again.
+@Service
+public class OrderIdGenerator {
+
+    static final String PREFIX = "ORD-";
+    static final long EPOCH_MS = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // first key of the advisory locks, the second one is the node id
+    private static final int LOCK_NAMESPACE = 0x0D0E1D;
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?, ?)";
+
+    private static final String HOLDS_LOCK_SQL =
+            "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND classid = ? AND objid = ? AND objsubid = 2 " +
+            "AND pid = pg_backend_pid() AND granted";
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int LENGTH = 13;
+
+    // -1 until claimed when foodyy.order.node-id is left at -1
+    @Value("${foodyy.order.node-id:-1}")
+    private int nodeId;
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    @Value("${spring.datasource.username}")
+    private String username;
+
+    @Value("${spring.datasource.password}")
+    private String password;
+
+    private boolean configured;
+    private Connection lockConnection;
+    // set while the claim on nodeId is not (or no longer) held
+    private volatile boolean lost;
+
+    // (milliseconds since EPOCH_MS << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    @PostConstruct
+    synchronized void claimNodeId() throws SQLException {
+        checkNodeId();
+        configured = nodeId >= 0;
+        if (!claim()) {
+            throw new IllegalStateException(configured
+                    ? "Order node id " + nodeId + " is held by another running node, give every node its own "
+                            + "foodyy.order.node-id or leave it at -1"
+                    : "All " + (MAX_NODE_ID + 1) + " order node ids are held by running nodes");
+        }
+        System.out.println("OrderIdGenerator: claimed node id " + nodeId);
+    }
+
+    void checkNodeId() {
+        if (nodeId < -1 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("foodyy.order.node-id must be -1 or between 0 and " + MAX_NODE_ID);
+        }
+    }
+
+    // the lock goes with the session, a connection that broke (or was killed) let another node take the id
+    @Scheduled(fixedDelayString = "${foodyy.order.node-id-check-ms:10000}")
+    public synchronized void checkClaim() {
+        // never claimed, not started by Spring
+        if (lockConnection == null && !lost) return;
+        if (!lost && holdsLock()) return;
+
+        lost = true;
+        try {
+            if (claim()) {
+                lost = false;
+                System.out.println("OrderIdGenerator: claimed node id " + nodeId + " again");
+            }
+        } catch (SQLException e) {
+            System.out.println("OrderIdGenerator: could not claim a node id, no order ids until then: " + e.getMessage());
+        }
+    }
+
+    private boolean holdsLock() {
+        try (PreparedStatement statement = lockConnection.prepareStatement(HOLDS_LOCK_SQL)) {
+            statement.setInt(1, LOCK_NAMESPACE);
+            statement.setInt(2, nodeId);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next() && rs.getLong(1) == 1) return true;
+            }
+            System.out.println("OrderIdGenerator: the lock on node id " + nodeId + " is gone");
+        } catch (SQLException e) {
+            System.out.println("OrderIdGenerator: lost the connection holding node id " + nodeId + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    @PreDestroy
+    synchronized void release() {
+        closeLockConnection();
+    }
+
+    // on a fresh connection: the configured id, or the one this node had (if any) and else the lowest free one
+    private boolean claim() throws SQLException {
+        closeLockConnection();
+        Connection connection = DriverManager.getConnection(url, username, password);
+        try (PreparedStatement statement = connection.prepareStatement(TRY_LOCK_SQL)) {
+            List<Integer> candidates = new ArrayList<>();
+            if (nodeId >= 0) candidates.add(nodeId);
+            if (!configured) {
+                for (int id = 0; id <= MAX_NODE_ID; id++) candidates.add(id);
+            }
+            for (int id : candidates) {
+                statement.setInt(1, LOCK_NAMESPACE);
+                statement.setInt(2, id);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        nodeId = id;
+                        lockConnection = connection;
+                        return true;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        connection.close();
+        return false;
+    }
+
+    private void closeLockConnection() {
+        if (lockConnection == null) return;
+        try {
+            lockConnection.close();
+        } catch (SQLException e) {
+            // it's gone either way
+        }
+        lockConnection = null;
+    }
+
+    public String nextId() {
+        return PREFIX + encode(nextNumber());
+    }
+
+    long nextNumber() {
+        if (lost) {
+            throw new IllegalStateException("This node lost the claim on its order node id, no orders until it has it back");
+        }
+        long now = (currentMillis() - EPOCH_MS) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            // a new millisecond starts its sequence at 0, otherwise take the one after the last (carrying into the
+            // millisecond bits when the sequence is used up)
+            next = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, next));
+
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | ((long) nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    long currentMillis() {
+        return System.currentTimeMillis();
+    }
+
+    // when the order with this id was created (give or take the borrowed milliseconds above)
+    static Instant createdAt(String orderId) {
+        return Instant.ofEpochMilli(EPOCH_MS + (decode(orderId) >>> (NODE_BITS + SEQUENCE_BITS)));
+    }
+
+    static String encode(long number) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD[(int) (number & 31)];
+            number >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String orderId) {
+        if (!orderId.startsWith(PREFIX) || orderId.length() != PREFIX.length() + LENGTH) {
+            throw new IllegalArgumentException("Not a generated order id: " + orderId);
+        }
+        long number = 0;
+        for (int i = PREFIX.length(); i < orderId.length(); i++) {
+            int digit = indexOf(orderId.charAt(i));
+            if (digit < 0) throw new IllegalArgumentException("Not a generated order id: " + orderId);
+            number = (number << 5) | digit;
+        }
+        return number;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < CROCKFORD.length; i++) {
+            if (CROCKFORD[i] == c) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,163 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderRequest;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Places an order at most once per Idempotency-Key, so a retried or double tapped "place order" doesn't order twice.
+// The first request with a key runs the order transaction, requests with the same key that arrive while it runs
+// wait for its outcome, and the ones after it get the same OrderResponse back without touching the cart.
+// Keys are kept in memory (at most max-keys, for ttl-minutes). A key that was evicted, or placed before a restart
+// or on another node, is still found through the idempotency_key column of the order, and the order_idempotency
+// table (one row per key, for ttl-minutes) stops a second placement that gets past both.
+// Keys belong to a customer: the same key sent by two customers places two orders.
+@Service
+public class OrderIdempotencyService {
+
+    static final int MAX_KEY_LENGTH = 100;
+
+    @Value("${foodyy.order.idempotency.max-keys:10000}")
+    private int maxKeys = 10_000;
+
+    @Value("${foodyy.order.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes = 1440;
+
+    @Value("${foodyy.order.idempotency.wait-seconds:30}")
+    private long waitSeconds = 30;
+
+    @Autowired private OrderService orderService;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    private record Placement(CompletableFuture<OrderResponse> result, long expiresAt) {
+    }
+
+    // insertion order is expiry order, the eldest entry goes first when the map is full
+    private final LinkedHashMap<String, Placement> placements = new LinkedHashMap<>();
+
+    public OrderResponse place(int customerId, String idempotencyKey, OrderRequest request) {
+        String key = customerId + ":" + checkKey(idempotencyKey);
+        return run(key, request, () -> orderService.findByIdempotencyKey(key).orElseGet(() -> {
+            try {
+                return orderService.addOrder(customerId, request, key);
+            } catch (DataIntegrityViolationException e) {
+                // the same key was placed by another node in the meantime, order_idempotency stopped the second one
+                return orderService.findByIdempotencyKey(key).orElseThrow(() -> e);
+            }
+        }));
+    }
+
+    OrderResponse run(String key, OrderRequest request, Supplier<OrderResponse> placeOrder) {
+        Placement placement;
+        boolean first = false;
+        synchronized (placements) {
+            long now = now();
+            removeExpired(now);
+            placement = placements.get(key);
+            if (placement == null) {
+                placement = new Placement(new CompletableFuture<>(), now + TimeUnit.MINUTES.toMillis(ttlMinutes));
+                placements.put(key, placement);
+                first = true;
+                if (placements.size() > maxKeys) {
+                    Iterator<Placement> eldest = placements.values().iterator();
+                    eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+
+        OrderResponse response = first ? execute(key, placement, placeOrder) : await(placement);
+        if (!Objects.equals(response.address(), request.address())) {
+            throw new IllegalArgumentException("This Idempotency-Key was already used for a different order");
+        }
+        return response;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void removeExpired() {
+        synchronized (placements) {
+            removeExpired(now());
+        }
+    }
+
+    // keys older than the ttl are only needed to find their order, the idempotency_key column of the order does that
+    @Scheduled(fixedDelay = 3_600_000)
+    public void removeExpiredKeys() {
+        jdbcTemplate.update("DELETE FROM order_idempotency WHERE created_at < now() - make_interval(mins => ?)",
+                (int) ttlMinutes);
+    }
+
+    int size() {
+        synchronized (placements) {
+            return placements.size();
+        }
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    private OrderResponse execute(String key, Placement placement, Supplier<OrderResponse> placeOrder) {
+        try {
+            OrderResponse response = placeOrder.get();
+            placement.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            // nothing was ordered, the waiting duplicates get the same error and the key can be tried again
+            synchronized (placements) {
+                placements.remove(key, placement);
+            }
+            placement.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private OrderResponse await(Placement placement) {
+        try {
+            return placement.result().get(waitSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new OrderInProgressException("An order with this Idempotency-Key is still being placed, try again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderInProgressException("Interrupted while waiting for the order with this Idempotency-Key");
+        }
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Placement> oldest = placements.values().iterator();
+        while (oldest.hasNext()) {
+            Placement placement = oldest.next();
+            if (placement.expiresAt() > now) break;
+            oldest.remove();
+        }
+    }
+
+    private static String checkKey(String idempotencyKey) {
+        String key = idempotencyKey.trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x21 || c > 0x7e) throw new IllegalArgumentException("Idempotency-Key must be printable ASCII");
+        }
+        return key;
+    }
+}
@@ -0,0 +1,10 @@
+package com.yum.foodyy.Service;
+
+// a duplicate of an order request (same Idempotency-Key) that gave up waiting for the first one to finish.
+// The controller answers it with 409, the client can retry with the same key.
+public class OrderInProgressException extends RuntimeException {
+
+    public OrderInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,61 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Writing side of the order outbox. An order event is stored as rows of order_outbox in the transaction that changed
+// the order, so the side effects (mail, analytics, ...) happen if and only if the order committed, and the request
+// that placed the order doesn't wait for any of them. OutboxWorker picks the rows up.
+@Service
+public class OrderOutbox {
+
+    public static final String ORDER_PLACED = "ORDER_PLACED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO order_outbox (event_type, handler, order_id, payload) VALUES (?, ?, ?, ?)";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private List<OutboxHandler> handlers;
+    @Autowired private OutboxWorker outboxWorker;
+
+    // one row per handler that wants the event, written with the caller's transaction (one batch for all of them).
+    // The workers are woken up once it committed instead of waiting for their next poll
+    public void record(String eventType, Integer customerId, String previousStatus, OrderResponse order) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(new OrderEventPayload(customerId, previousStatus, order));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize " + eventType + " of order " + order.orderId(), e);
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (OutboxHandler handler : handlers) {
+            if (handler.handles(eventType)) rows.add(new Object[]{eventType, handler.name(), order.orderId(), payload});
+        }
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    outboxWorker.wakeUp();
+                }
+            });
+        } else {
+            outboxWorker.wakeUp();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.yum.foodyy.Service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// customer_order and customer_order_items are range partitioned by order_date, one partition per month
+// (customer_order_y2025m03 ...) and a default partition for dates no month partition covers. Queries that filter on
+// the date only touch the months they ask for, every other one still only pays for the months that are in the table:
+// old months are moved out to the order archive (OrderArchiveService).
+// The partitions for the coming months-ahead months are created ahead of time, at startup and every night.
+// Hibernate creates the tables as plain tables. Turning them into partitioned ones is a migration an admin runs once
+// (POST /admin/orders/partition, see convertToPartitioned), not something a starting node does on its own.
+@Service
+public class OrderPartitionService {
+
+    static final String ORDERS = "customer_order";
+    static final String ITEMS = "customer_order_items";
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("_y(\\d{4})m(\\d{2})$");
+
+    // 'p' is a partitioned table, 'r' a plain one
+    private static final String RELKIND_SQL =
+            "SELECT c.relkind FROM pg_class c WHERE c.oid = to_regclass(?)";
+
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname";
+
+    private static final String CREATE_PARTITION_SQL =
+            "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')";
+
+    private static final String CREATE_DEFAULT_PARTITION_SQL =
+            "CREATE TABLE IF NOT EXISTS %s_default PARTITION OF %s DEFAULT";
+
+    // the indexes of a table that aren't there for a constraint (the keys are made again by convertToPartitioned)
+    private static final String INDEXES_SQL =
+            "SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i WHERE i.indrelid = to_regclass(?) " +
+            "AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid)";
+
+    // the foreign keys of a table, except the one from the items to the orders
+    private static final String FOREIGN_KEYS_SQL =
+            "SELECT 'ALTER TABLE %s ADD CONSTRAINT ' || quote_ident(conname) || ' ' || pg_get_constraintdef(oid) " +
+            "FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'f' " +
+            "AND confrelid <> to_regclass('" + ORDERS + "')";
+
+    // a partitioned table only enforces keys that contain the partition key, so order_date goes into all of them.
+    // uk_ and fk_ are the names in the entities (CustomerOrder, CustomerOrderItems), so a schema update finds them
+    // and leaves them alone
+    private static final List<String> KEYS = List.of(
+            "ALTER TABLE " + ORDERS + " ADD CONSTRAINT " + ORDERS + "_pkey PRIMARY KEY (id, order_date)",
+            "ALTER TABLE " + ORDERS + " ADD CONSTRAINT uk_customer_order_order_id UNIQUE (order_id, order_date)",
+            "ALTER TABLE " + ITEMS + " ADD CONSTRAINT " + ITEMS + "_pkey PRIMARY KEY (id, order_date)",
+            "ALTER TABLE " + ITEMS + " ADD CONSTRAINT fk_customer_order_items_order " +
+                    "FOREIGN KEY (order_id, order_date) REFERENCES " + ORDERS + " (id, order_date)");
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${foodyy.order.partitions.months-ahead:3}")
+    private int monthsAhead = 3;
+
+    // after spring.sql.init and everything else the tables need has run
+    @EventListener(ApplicationReadyEvent.class)
+    void prepare() {
+        createUpcomingPartitions();
+    }
+
+    @Scheduled(cron = "${foodyy.order.partitions.cron:0 30 2 * * *}")
+    public void createUpcomingPartitions() {
+        if (!"p".equals(relkind(ORDERS))) {
+            System.out.println("OrderPartitions: " + ORDERS + " is not partitioned yet, run POST /admin/orders/partition");
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        for (YearMonth month = current.minusMonths(1); !month.isAfter(current.plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            try {
+                createPartitions(month);
+            } catch (RuntimeException e) {
+                // most likely another node created it at the same moment, the next run sees it
+                System.out.println("OrderPartitions: could not create the partitions for " + month + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // the month partitions of customer_order that are attached right now, oldest first
+    public List<YearMonth> partitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, ORDERS)) {
+            YearMonth month = monthOf(name);
+            if (month != null) months.add(month);
+        }
+        return months;
+    }
+
+    static String partitionName(String table, YearMonth month) {
+        return String.format("%s_y%04dm%02d", table, month.getYear(), month.getMonthValue());
+    }
+
+    // null for a name that isn't a month partition (the default one)
+    static YearMonth monthOf(String partitionName) {
+        Matcher matcher = PARTITION_NAME.matcher(partitionName);
+        if (!matcher.find()) return null;
+        return YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+    }
+
+    private void createPartitions(YearMonth month) {
+        String from = month.atDay(1).toString();
+        String to = month.plusMonths(1).atDay(1).toString();
+        for (String table : List.of(ORDERS, ITEMS)) {
+            jdbcTemplate.execute(String.format(CREATE_PARTITION_SQL, partitionName(table, month), table, from, to));
+        }
+    }
+
+    // The one time migration from plain tables: the rows are copied into new partitioned tables in one transaction,
+    // with both tables locked (ACCESS EXCLUSIVE, nothing reads or writes orders) while that runs, so it belongs in a
+    // quiet moment. The indexes and foreign keys of the old tables are made again on the new ones, the primary and
+    // unique keys get order_date added (KEYS). Every order needs an order_date for that, the migration refuses to run
+    // (IllegalStateException) while one doesn't have it. Returns what it did, running it again does nothing.
+    public String convertToPartitioned() {
+        if (!"r".equals(relkind(ORDERS))) return ORDERS + " is already partitioned";
+
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.execute("LOCK TABLE " + ORDERS + ", " + ITEMS + " IN ACCESS EXCLUSIVE MODE");
+            // another node may have done it while this one waited for the lock
+            if (!"r".equals(relkind(ORDERS))) return ORDERS + " is already partitioned";
+
+            // items from before they had their own copy of the order date
+            jdbcTemplate.update("UPDATE " + ITEMS + " i SET order_date = o.order_date FROM " + ORDERS + " o " +
+                    "WHERE o.id = i.order_id AND i.order_date IS DISTINCT FROM o.order_date");
+            Long orders = jdbcTemplate.queryForObject("SELECT count(*) FROM " + ORDERS + " WHERE order_date IS NULL", Long.class);
+            Long items = jdbcTemplate.queryForObject("SELECT count(*) FROM " + ITEMS + " WHERE order_date IS NULL", Long.class);
+            if (orders + items > 0) {
+                throw new IllegalStateException(orders + " orders and " + items + " order items (of no order or of "
+                        + "one of those) have no order_date, give them one before partitioning");
+            }
+
+            List<String> indexes = new ArrayList<>();
+            List<String> foreignKeys = new ArrayList<>();
+            for (String table : List.of(ORDERS, ITEMS)) {
+                indexes.addAll(jdbcTemplate.queryForList(INDEXES_SQL, String.class, table));
+                foreignKeys.addAll(jdbcTemplate.queryForList(String.format(FOREIGN_KEYS_SQL, table), String.class, table));
+            }
+
+            jdbcTemplate.execute("ALTER TABLE " + ORDERS + " RENAME TO " + ORDERS + "_unpartitioned");
+            jdbcTemplate.execute("ALTER TABLE " + ITEMS + " RENAME TO " + ITEMS + "_unpartitioned");
+            jdbcTemplate.execute("CREATE TABLE " + ORDERS + " (LIKE " + ORDERS + "_unpartitioned INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (order_date)");
+            jdbcTemplate.execute("CREATE TABLE " + ITEMS + " (LIKE " + ITEMS + "_unpartitioned INCLUDING DEFAULTS) " +
+                    "PARTITION BY RANGE (order_date)");
+
+            LocalDate oldest = jdbcTemplate.queryForObject(
+                    "SELECT min(order_date)::date FROM " + ORDERS + "_unpartitioned", LocalDate.class);
+            YearMonth first = oldest == null ? YearMonth.now() : YearMonth.from(oldest);
+            for (YearMonth month = first; !month.isAfter(YearMonth.now().plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+                createPartitions(month);
+            }
+            jdbcTemplate.execute(String.format(CREATE_DEFAULT_PARTITION_SQL, ORDERS, ORDERS));
+            jdbcTemplate.execute(String.format(CREATE_DEFAULT_PARTITION_SQL, ITEMS, ITEMS));
+
+            int movedOrders = jdbcTemplate.update("INSERT INTO " + ORDERS + " SELECT * FROM " + ORDERS + "_unpartitioned");
+            int movedItems = jdbcTemplate.update("INSERT INTO " + ITEMS + " SELECT * FROM " + ITEMS + "_unpartitioned");
+            // takes the indexes (and their names) with them
+            jdbcTemplate.execute("DROP TABLE " + ITEMS + "_unpartitioned, " + ORDERS + "_unpartitioned");
+
+            KEYS.forEach(jdbcTemplate::execute);
+            foreignKeys.forEach(jdbcTemplate::execute);
+            indexes.forEach(jdbcTemplate::execute);
+
+            String done = "moved " + movedOrders + " orders and " + movedItems + " order items into monthly partitions";
+            System.out.println("OrderPartitions: " + done);
+            return done;
+        });
+    }
+
+    private String relkind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList(RELKIND_SQL, String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+}
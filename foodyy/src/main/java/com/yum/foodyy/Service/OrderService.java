@@ -1,23 +1,31 @@
 package com.yum.foodyy.Service;
 
 import com.yum.foodyy.Entity.*;
+import com.yum.foodyy.Entity.DTO.OrderFilter;
 import com.yum.foodyy.Entity.DTO.OrderItemResponse;
+import com.yum.foodyy.Entity.DTO.OrderPage;
 import com.yum.foodyy.Entity.DTO.OrderRequest;
 import com.yum.foodyy.Entity.DTO.OrderResponse;
+import com.yum.foodyy.Entity.DTO.OrderStatusEvent;
 import com.yum.foodyy.Repo.CartItemRepo;
 import com.yum.foodyy.Repo.CartRepo;
 import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
 import com.yum.foodyy.Repo.OrderRepo;
 import jakarta.transaction.Transactional; // Important for data integrity
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class OrderService {
@@ -26,23 +34,64 @@ public class OrderService {
     @Autowired private CustomerRepo customerRepo;
     @Autowired private CartRepo cartRepo;
     @Autowired private CartItemRepo cartItemRepo;
+    @Autowired private FoodSuggestService foodSuggestService;
+    @Autowired private WriteBehindCartStore writeBehindCartStore;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private OrderIdGenerator orderIdGenerator;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private OrderEventHub orderEventHub;
+    @Autowired private OrderOutbox orderOutbox;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+//    sets the status and hands back the one it had before, the row stays locked until the transaction ends so two
+//    admins changing the same order see each other's status as the old one
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE customer_order o SET status = ? " +
+            "FROM (SELECT id, status FROM customer_order WHERE order_id = ? FOR UPDATE) old " +
+            "WHERE o.id = old.id RETURNING old.status";
+
+//    an order id that is already taken (a node id claimed twice, ids borrowed ahead of the clock before a restart)
+//    claims nothing, the order then takes the next id
+    private static final String CLAIM_ORDER_ID_SQL =
+            "INSERT INTO order_id_claim (order_id) VALUES (?) ON CONFLICT (order_id) DO NOTHING";
+
+//    the primary key of order_idempotency is what keeps a key from being placed twice, also across nodes
+    private static final String CLAIM_IDEMPOTENCY_KEY_SQL =
+            "INSERT INTO order_idempotency (idempotency_key, order_id) VALUES (?, ?)";
+
+//    idempotencyKey is stored on the order (and claimed in order_idempotency) and null when the request had none,
+//    OrderIdempotencyService makes sure a key is only placed once
+    public OrderResponse addOrder(int customerId, OrderRequest orderRequest, String idempotencyKey) {
+
+//        buffered cart changes (write-behind cart store) have to be in the database before the cart is read. The
+//        flush writes in a transaction of its own, so it runs before the order transaction takes a connection
+        writeBehindCartStore.flush(customerId);
+
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> placeOrder(customerId, orderRequest, idempotencyKey));
+    }
 
-    @Transactional
-    public OrderResponse addOrder(int customerId, OrderRequest orderRequest) {
+    private OrderResponse placeOrder(int customerId, OrderRequest orderRequest, String idempotencyKey) {
 
         //getting customer
         CustomerInfo customerInfo = customerRepo.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
 
-//        getting items from cart of the customer using his ID
-        List<CartItem> cartItems = cartItemRepo.findByCart_CustomerInfo_CustomerId(customerId);
+//        getting items from cart of the customer using his ID, just the ids and quantities (no CartItem, Cart or
+//        Food rows), names and prices come from the catalog snapshot. The rows stay locked until the order is
+//        committed, so a quantity change made meanwhile can't be deleted with them
+        List<CartItemRepo.OrderableItem> cartItems = cartItemRepo.findOrderableItems(customerId);
         if (cartItems.isEmpty()) {
             throw new RuntimeException("Cart is empty. Cannot place order.");
         }
 
 //        so here we are setting the order
         CustomerOrder order = new CustomerOrder();
-        String orderId = "ORD-" + UUID.randomUUID().toString().substring(0,8).toUpperCase();
+        String orderId = claimOrderId(); // time ordered, unique across nodes (OrderIdGenerator, order_id_claim)
+
+//        a second order with the same key fails right here (DataIntegrityViolationException) before doing any work
+        if (idempotencyKey != null) jdbcTemplate.update(CLAIM_IDEMPOTENCY_KEY_SQL, idempotencyKey, orderId);
 
         order.setOrderId(orderId);
         order.setCustomerInfo(customerInfo);
@@ -50,26 +99,33 @@ public class OrderService {
         order.setAddress(orderRequest.address());
         order.setStatus("PLACED");
         order.setOrderDate(LocalDateTime.now());
+        order.setIdempotencyKey(idempotencyKey);
 
 //        to set orderItems in order we have to first set cart items in orderItems then the list will be added to order
         List<CustomerOrderItems> orderItems = new ArrayList<>();
+        List<OrderItemResponse> itemResponses = new ArrayList<>();
+        Map<Integer, Integer> quantities = new HashMap<>();
         BigDecimal grandTotal = BigDecimal.ZERO;
 
-        for(CartItem cartItem : cartItems){
-            Food food = cartItem.getFood();
+        for(CartItemRepo.OrderableItem cartItem : cartItems){
+            Food food = catalogCacheService.findById(cartItem.getFoodId())
+                    .orElseThrow(() -> new RuntimeException("Food not found"));
             int qty = cartItem.getQuantity();
 
             BigDecimal lineTotal = food.getPrice().multiply(BigDecimal.valueOf(qty));
 
-//            creating CustomerOrderItems and adding it into list
+//            creating CustomerOrderItems and adding it into list, the food is only a reference (its id), not a select
             CustomerOrderItems orderItem = CustomerOrderItems.builder()
-                    .food(food)
+                    .food(foodRepo.getReferenceById(food.getId()))
                     .quantity(qty)
                     .totalPrice(lineTotal)
                     .order(order)
+                    .orderDate(order.getOrderDate()) // the items land in the same month partition as the order
                     .build();
 
             orderItems.add(orderItem);
+            itemResponses.add(new OrderItemResponse(food.getName(), qty, lineTotal));
+            quantities.merge(food.getId(), qty, Integer::sum);
 
             grandTotal = grandTotal.add(lineTotal);
         }
@@ -77,22 +133,23 @@ public class OrderService {
         order.setOrderItems(orderItems); // orderItems added in Order
         order.setTotalAmount(grandTotal);
 
-//        so till now we just stored the data locally but now we are going to save it in database use repo class
+//        so till now we just stored the data locally but now we are going to save it in database use repo class.
+//        The ids come from pooled sequences, so the order and all its items go out as JDBC batches when the
+//        transaction flushes instead of one INSERT round trip each
         CustomerOrder savedOrder = orderRepo.save(order);
 
-        cartItemRepo.deleteAll(cartItems); // clearing the cart after placing order
+//        clearing the cart after placing order, one DELETE for all of the ordered items
+        cartItemRepo.deleteOrdered(cartItems.get(0).getCartId(),
+                cartItems.stream().map(CartItemRepo.OrderableItem::getCartItemId).toList());
 
-//        this is list of OrderItemResponse we will send to OrderResponse which we will return
-        List<OrderItemResponse> itemResponses = savedOrder.getOrderItems()
-                .stream()
-                .map(item -> new OrderItemResponse(
-                        item.getFood().getName(),
-                        item.getQuantity(),
-                        item.getTotalPrice()))
-                .toList();
+//        ordered dishes rank higher in the search suggestions
+        foodSuggestService.recordOrder(quantities);
+
+//        open order streams of the customer see the new order once it's committed
+        orderEventHub.publishAfterCommit(customerId, new OrderStatusEvent(orderId, order.getStatus()));
 
 //        this is the OrderResponse we will send for the OrderRequest we got
-        return new OrderResponse(
+        OrderResponse response = new OrderResponse(
                 savedOrder.getOrderId(),
                 savedOrder.getCustomerInfo().getName(),
                 savedOrder.getEmail(),
@@ -102,69 +159,97 @@ public class OrderService {
                 savedOrder.getTotalAmount(),
                 itemResponses
         );
+
+//        confirmation mail, analytics and the rest run on the outbox workers after the commit, not in this request
+        orderOutbox.record(OrderOutbox.ORDER_PLACED, customerId, null, response);
+        return response;
+    }
+
+//    a fresh id that no order had before, checked against order_id_claim in the order transaction. A taken id should
+//    never happen, a few in a row means something is badly wrong with the node ids
+    private String claimOrderId() {
+        for (int attempt = 0; attempt < 5; attempt++) {
+            String orderId = orderIdGenerator.nextId();
+            if (jdbcTemplate.update(CLAIM_ORDER_ID_SQL, orderId) == 1) return orderId;
+            System.out.println("OrderService: order id " + orderId + " was already taken, trying the next one");
+        }
+        throw new IllegalStateException("Could not get an unused order id");
     }
 
     public List<OrderResponse> getOrdersByCustomer(int custId) {
-        //we are asking for orders with customer id (cust id) from our og table and order them by descending order
-        List<CustomerOrder> customerOrders = orderRepo.findByCustomerInfo_CustomerIdOrderByOrderDateDesc(custId);
-
-//        basically we are using customerOrders to iterate over all the orders of this customer and for
-//        each order we are creating resopnse of their orderItems so that we can add that into our OrderResponse and return it
-        return  customerOrders.stream().map( order -> {
-            List<OrderItemResponse> itemResponses = order.getOrderItems().stream()
-                    .map(item -> new OrderItemResponse(
-                            item.getFood().getName(),
-                            item.getQuantity(),
-                            item.getTotalPrice()
-                    )).toList();
-
-            return new OrderResponse(
-                    order.getOrderId(),
-                    order.getCustomerInfo().getName(),
-                    order.getEmail(),
-                    order.getAddress(),
-                    order.getStatus(),
-                    order.getOrderDate(),
-                    order.getTotalAmount(),
-                    itemResponses
-            );
-        }).toList();
+        //we are asking for orders with customer id (cust id) from our og table and order them by descending order,
+        //the lines of all of them come with one more query. Months moved to the order archive are not in here, they
+        //have their own pages (OrderArchiveService.readCustomerOrders)
+        return toResponses(orderRepo.findHeadersByCustomer(custId), orderRepo.findLinesByCustomer(custId));
     }
 
-    public List<OrderResponse> allOrders() {
-        List<CustomerOrder> orders = orderRepo.findAll(Sort.by(Sort.Direction.DESC, "orderDate"));
-        return orders.stream().map(this::mapToDTO).toList();
+//    one page of the admin order feed: the ids of the page (seeking the index after the cursor), then the
+//    orders and their lines. Three queries however many orders came before the page
+    public OrderPage orderPage(OrderFilter filter, String after, int limit) {
+        OrderFeedQuery.Cursor cursor = after == null || after.isBlank() ? null : OrderFeedQuery.Cursor.decode(after);
+        OrderFeedQuery query = OrderFeedQuery.of(filter, cursor, limit + 1);
+
+        List<Long> ids = jdbcTemplate.query(query.sql(), (rs, row) -> rs.getLong("id"), query.args());
+        boolean hasMore = ids.size() > limit;
+        if (hasMore) ids = ids.subList(0, limit);
+        if (ids.isEmpty()) return new OrderPage(List.of(), null, false);
+
+        List<OrderRepo.OrderHeader> headers = orderRepo.findHeadersByIds(ids);
+        OrderRepo.OrderHeader last = headers.get(headers.size() - 1);
+        String nextCursor = hasMore ? new OrderFeedQuery.Cursor(last.getOrderDate(), last.getId()).encode() : null;
+
+        return new OrderPage(toResponses(headers, orderRepo.findLinesByOrderIds(ids)), nextCursor, hasMore);
     }
 
 
+//    the order placed earlier with this idempotency key, as it was returned then
+    public Optional<OrderResponse> findByIdempotencyKey(String idempotencyKey) {
+        return toResponses(orderRepo.findHeadersByIdempotencyKey(idempotencyKey),
+                orderRepo.findLinesByIdempotencyKey(idempotencyKey)).stream().findFirst();
+    }
+
+    @Transactional
     public OrderResponse updateOrderStatus(String orderId, String status) {
-        CustomerOrder order = orderRepo.findByOrderId(orderId);
+        List<String> previous = jdbcTemplate.queryForList(UPDATE_STATUS_SQL, String.class, status.toUpperCase(), orderId);
+        if (previous.isEmpty()) throw new RuntimeException("Order not found");
 
-        if(order == null) throw new RuntimeException("Order not found");
+        List<OrderRepo.OrderHeader> headers = orderRepo.findHeadersByOrderId(orderId);
+        OrderResponse updated = toResponses(headers, orderRepo.findLinesByOrderId(orderId)).get(0);
 
-        order.setStatus(status.toUpperCase());
-        orderRepo.save(order);
+//        the customer's open order streams get the new status instead of polling the whole history for it
+        Integer customerId = headers.get(0).getCustomerId();
+        if (customerId != null) {
+            orderEventHub.publishAfterCommit(customerId, new OrderStatusEvent(orderId, updated.status()));
+        }
+        if (!updated.status().equals(previous.get(0))) {
+            orderOutbox.record(OrderOutbox.ORDER_STATUS_CHANGED, customerId, previous.get(0), updated);
+        }
+        return updated;
+    }
 
-        return mapToDTO(order);
+//    the first event of the order stream
+    public List<OrderStatusEvent> openOrderStatuses(int customerId) {
+        return orderRepo.findOpenOrderStatuses(customerId);
     }
 
-    private OrderResponse mapToDTO(CustomerOrder customerOrder) {
-        List<OrderItemResponse> orderItemResponses = customerOrder.getOrderItems().stream()
-                .map(item -> new OrderItemResponse(
-                        item.getFood().getName(),
-                        item.getQuantity(),
-                        item.getTotalPrice()
-                )).toList();
+//    puts every line under its order, the orders keep the order they came in
+    private static List<OrderResponse> toResponses(List<OrderRepo.OrderHeader> headers, List<OrderRepo.OrderLine> lines) {
+        Map<Long, List<OrderItemResponse>> itemsByOrder = new HashMap<>();
+        for (OrderRepo.OrderLine line : lines) {
+            itemsByOrder.computeIfAbsent(line.getOrderKey(), key -> new ArrayList<>())
+                    .add(new OrderItemResponse(line.getFoodName(), line.getQuantity(), line.getTotalPrice()));
+        }
 
-        return  new OrderResponse(
-                customerOrder.getOrderId(),
-                customerOrder.getCustomerInfo().getName(),
-                customerOrder.getEmail(),
-                customerOrder.getAddress(),
-                customerOrder.getStatus(),
-                customerOrder.getOrderDate(),
-                customerOrder.getTotalAmount(),
-                orderItemResponses
-        );
+        return headers.stream()
+                .map(order -> new OrderResponse(
+                        order.getOrderId(),
+                        order.getCustomerName(),
+                        order.getEmail(),
+                        order.getAddress(),
+                        order.getStatus(),
+                        order.getOrderDate(),
+                        order.getTotalAmount(),
+                        itemsByOrder.getOrDefault(order.getId(), List.of())
+                )).toList();
     }
-}
\ No newline at end of file
+}
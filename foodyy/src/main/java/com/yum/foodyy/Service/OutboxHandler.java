@@ -0,0 +1,19 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+
+// one side effect of an order event (mail, analytics ...). Every handler that wants an event gets its own
+// order_outbox row, so each one is retried and dead-lettered on its own.
+// Runs on an outbox worker some time after the order committed, and may run more than once for the same event
+// (a worker can die after handling it but before marking it done), so it has to tolerate repeats. eventId is the
+// order_outbox row and the same on every repeat, for handlers that have to notice them.
+public interface OutboxHandler {
+
+    // stored in the handler column, don't rename one while it still has pending rows
+    String name();
+
+    boolean handles(String eventType);
+
+    // any exception means "try again later"
+    void handle(long eventId, String eventType, OrderEventPayload payload) throws Exception;
+}
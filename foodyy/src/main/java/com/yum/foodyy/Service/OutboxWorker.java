@@ -0,0 +1,326 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import com.yum.foodyy.Entity.DTO.OutboxStats;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool of threads that work off order_outbox (see OrderOutbox). A worker claims a batch of due rows in one
+// statement: the rows are locked with FOR UPDATE SKIP LOCKED, so workers on this and other nodes never wait for each
+// other or get the same row, and moved lease-seconds into the future, so the rows of a worker that dies half way come
+// back on their own. The claim commits right away, the handlers run outside of any transaction.
+// Rows are handled one after the other and each one is marked as soon as its handler returns. Once half the lease
+// has passed the rows still waiting in the batch get a fresh lease, so a batch of slow mails never runs past it and
+// has its rows claimed (and sent) a second time. A row is only renewed while its attempts still match our claim;
+// if another worker got it in the meantime we leave it to them.
+// A failed row is tried again after an exponential backoff with jitter, after max-attempts it's marked DEAD and stays
+// until an admin retries it (POST /admin/outbox/retry-dead).
+@Service
+public class OutboxWorker {
+
+    private static final String CLAIM_SQL =
+            "UPDATE order_outbox o SET attempts = o.attempts + 1, available_at = now() + make_interval(secs => ?) " +
+            "FROM (SELECT id FROM order_outbox WHERE status = 'PENDING' AND available_at <= now() " +
+            "      ORDER BY available_at, id LIMIT ? FOR UPDATE SKIP LOCKED) claimed " +
+            "WHERE o.id = claimed.id " +
+            "RETURNING o.id, o.event_type, o.handler, o.payload, o.attempts, " +
+            "          (extract(epoch FROM now() - o.created_at) * 1000)::bigint AS lag_ms";
+
+    private static final String DONE_SQL =
+            "UPDATE order_outbox SET status = 'DONE', processed_at = now(), last_error = NULL WHERE id = ?";
+
+    private static final String RENEW_SQL =
+            "UPDATE order_outbox SET available_at = now() + make_interval(secs => ?) " +
+            "WHERE id = ? AND attempts = ? AND status = 'PENDING'";
+
+    private static final String RETRY_SQL =
+            "UPDATE order_outbox SET available_at = now() + make_interval(secs => ?), last_error = ? WHERE id = ?";
+
+    private static final String DEAD_SQL =
+            "UPDATE order_outbox SET status = 'DEAD', processed_at = now(), last_error = ? WHERE id = ?";
+
+    private static final String RETRY_DEAD_SQL =
+            "UPDATE order_outbox SET status = 'PENDING', attempts = 0, available_at = now(), processed_at = NULL " +
+            "WHERE status = 'DEAD'";
+
+    private static final String CLEANUP_SQL =
+            "DELETE FROM order_outbox WHERE status = 'DONE' AND processed_at < now() - make_interval(days => ?)";
+
+    private static final String STATS_SQL =
+            "SELECT count(*) FILTER (WHERE status = 'PENDING') AS pending, " +
+            "       count(*) FILTER (WHERE status = 'DEAD') AS dead, " +
+            "       coalesce((extract(epoch FROM now() - min(created_at) FILTER (WHERE status = 'PENDING')) * 1000)::bigint, 0) AS oldest_ms " +
+            "FROM order_outbox WHERE status <> 'DONE'";
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private List<OutboxHandler> handlers;
+
+    @Value("${foodyy.outbox.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${foodyy.outbox.workers:2}")
+    private int workers = 2;
+
+    @Value("${foodyy.outbox.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${foodyy.outbox.poll-interval-ms:2000}")
+    private long pollIntervalMs = 2000;
+
+    @Value("${foodyy.outbox.max-attempts:8}")
+    private int maxAttempts = 8;
+
+    @Value("${foodyy.outbox.base-backoff-ms:1000}")
+    private long baseBackoffMs = 1000;
+
+    @Value("${foodyy.outbox.max-backoff-ms:600000}")
+    private long maxBackoffMs = 600_000;
+
+    @Value("${foodyy.outbox.lease-seconds:120}")
+    private long leaseSeconds = 120;
+
+    @Value("${foodyy.outbox.retention-days:7}")
+    private int retentionDays = 7;
+
+    // commits that wrote outbox rows release a permit, an idle worker takes it instead of sleeping out its poll
+    private final Semaphore wakeups = new Semaphore(0);
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final AtomicLong lastLagMs = new AtomicLong();
+    private final AtomicLong maxLagMs = new AtomicLong();
+
+    // a claimed row. attempts already counts this attempt, lagMs is how long ago the event was written
+    record Claimed(long id, String eventType, String handler, String payload, int attempts, long lagMs) {
+    }
+
+    enum Result {DONE, RETRY, DEAD}
+
+    // what became of a row, delayMs only matters for RETRY and error is null when it's DONE
+    record Settled(long id, Result result, long delayMs, String error) {
+
+        static Settled done(long id) {
+            return new Settled(id, Result.DONE, 0, null);
+        }
+
+        static Settled retry(long id, long delayMs, String error) {
+            return new Settled(id, Result.RETRY, delayMs, error);
+        }
+
+        static Settled dead(long id, String error) {
+            return new Settled(id, Result.DEAD, 0, error);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::workLoop, "outbox-worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        threads.forEach(Thread::interrupt);
+    }
+
+    public void wakeUp() {
+        if (wakeups.availablePermits() == 0) wakeups.release();
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                List<Claimed> batch = claim();
+                if (batch.isEmpty()) {
+                    wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                process(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) return;
+                // most likely the database is away, the claimed rows come back when their lease runs out
+                System.out.println("OutboxWorker: " + e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<Claimed> claim() {
+        return jdbcTemplate.query(CLAIM_SQL, (rs, row) -> new Claimed(
+                rs.getLong("id"),
+                rs.getString("event_type"),
+                rs.getString("handler"),
+                rs.getString("payload"),
+                rs.getInt("attempts"),
+                rs.getLong("lag_ms")
+        ), (double) leaseSeconds, batchSize);
+    }
+
+    // handles the batch row by row, writing each result right away and renewing the lease of the rows still
+    // waiting once half of it is gone
+    void process(List<Claimed> batch) {
+        Map<String, OutboxHandler> byName = handlersByName();
+        long halfLeaseNanos = TimeUnit.SECONDS.toNanos(leaseSeconds) / 2;
+        long leasedAt = System.nanoTime();
+        Set<Long> lost = new HashSet<>();
+
+        for (int i = 0; i < batch.size(); i++) {
+            if (System.nanoTime() - leasedAt >= halfLeaseNanos) {
+                lost.addAll(renewLease(batch.subList(i, batch.size())));
+                leasedAt = System.nanoTime();
+            }
+            Claimed row = batch.get(i);
+            if (lost.contains(row.id())) continue;
+            write(settle(row, byName));
+        }
+    }
+
+    // moves the lease of these rows lease-seconds ahead, returns the ids that are no longer ours
+    private List<Long> renewLease(List<Claimed> rows) {
+        int[] renewed = jdbcTemplate.batchUpdate(RENEW_SQL, rows.stream()
+                .map(row -> new Object[]{(double) leaseSeconds, row.id(), row.attempts()}).toList());
+        List<Long> lost = new ArrayList<>();
+        for (int i = 0; i < renewed.length; i++) {
+            if (renewed[i] == 0) lost.add(rows.get(i).id());
+        }
+        return lost;
+    }
+
+    Map<String, OutboxHandler> handlersByName() {
+        Map<String, OutboxHandler> byName = new HashMap<>();
+        for (OutboxHandler handler : handlers) byName.put(handler.name(), handler);
+        return byName;
+    }
+
+    // runs one row through its handler. A row whose handler is gone (renamed or removed) or whose payload can't be
+    // read will never work, those are dead on the first try
+    Settled settle(Claimed row, Map<String, OutboxHandler> byName) {
+        if (row.attempts() == 1) recordLag(row.lagMs());
+
+        OutboxHandler handler = byName.get(row.handler());
+        if (handler == null) {
+            return Settled.dead(row.id(), "No handler named " + row.handler());
+        }
+        OrderEventPayload payload;
+        try {
+            payload = objectMapper.readValue(row.payload(), OrderEventPayload.class);
+        } catch (Exception e) {
+            return Settled.dead(row.id(), "Unreadable payload: " + e.getMessage());
+        }
+
+        try {
+            handler.handle(row.id(), row.eventType(), payload);
+            return Settled.done(row.id());
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (row.attempts() >= maxAttempts) {
+                System.out.println("OutboxWorker: " + row.handler() + " gave up on " + row.eventType()
+                        + " (row " + row.id() + ") after " + row.attempts() + " attempts: " + error);
+                return Settled.dead(row.id(), error);
+            }
+            return Settled.retry(row.id(), backoffMs(row.attempts()), error);
+        }
+    }
+
+    // a random pause of up to base-backoff-ms * 2^(attempts - 1), capped at max-backoff-ms, so rows that failed
+    // together (a mail server outage) don't all come back at the same moment
+    long backoffMs(int attempts) {
+        long ceiling = baseBackoffMs << Math.min(attempts - 1, 30);
+        if (ceiling <= 0 || ceiling > maxBackoffMs) ceiling = maxBackoffMs;
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void write(Settled settled) {
+        switch (settled.result()) {
+            case DONE -> {
+                jdbcTemplate.update(DONE_SQL, settled.id());
+                processed.increment();
+            }
+            case RETRY -> {
+                jdbcTemplate.update(RETRY_SQL, settled.delayMs() / 1000.0, truncate(settled.error()), settled.id());
+                retried.increment();
+            }
+            case DEAD -> {
+                jdbcTemplate.update(DEAD_SQL, truncate(settled.error()), settled.id());
+                deadLettered.increment();
+            }
+        }
+    }
+
+    // puts every dead row back in the queue with its attempts reset, returns how many
+    public int retryDead() {
+        int count = jdbcTemplate.update(RETRY_DEAD_SQL);
+        if (count > 0) wakeUp();
+        return count;
+    }
+
+    // done rows are only kept for a while to look into what happened
+    @Scheduled(fixedDelayString = "${foodyy.outbox.cleanup-interval-ms:3600000}")
+    public void removeProcessed() {
+        if (!enabled) return;
+        int removed = jdbcTemplate.update(CLEANUP_SQL, retentionDays);
+        if (removed > 0) System.out.println("OutboxWorker: removed " + removed + " processed outbox rows");
+    }
+
+    public OutboxStats stats() {
+        return jdbcTemplate.queryForObject(STATS_SQL, (rs, row) -> new OutboxStats(
+                rs.getLong("pending"),
+                rs.getLong("dead"),
+                rs.getLong("oldest_ms"),
+                processed.sum(),
+                retried.sum(),
+                deadLettered.sum(),
+                lastLagMs.get(),
+                maxLagMs.get()
+        ));
+    }
+
+    private void recordLag(long lagMs) {
+        lastLagMs.set(lagMs);
+        maxLagMs.accumulateAndGet(lagMs, Math::max);
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) return error;
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+}
@@ -0,0 +1,27 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// feeds every order event into the sales rollups of the admin dashboard
+@Component
+public class SalesAnalyticsHandler implements OutboxHandler {
+
+    @Autowired private SalesRollupService salesRollupService;
+
+    @Override
+    public String name() {
+        return SalesRollupService.ANALYTICS_HANDLER;
+    }
+
+    @Override
+    public boolean handles(String eventType) {
+        return OrderOutbox.ORDER_PLACED.equals(eventType) || OrderOutbox.ORDER_STATUS_CHANGED.equals(eventType);
+    }
+
+    @Override
+    public void handle(long eventId, String eventType, OrderEventPayload payload) {
+        salesRollupService.apply(eventId, eventType, payload);
+    }
+}
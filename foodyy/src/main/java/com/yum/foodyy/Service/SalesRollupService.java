@@ -0,0 +1,311 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CategorySales;
+import com.yum.foodyy.Entity.DTO.FoodSales;
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import com.yum.foodyy.Entity.DTO.RevenuePoint;
+import com.yum.foodyy.Entity.DTO.RollupBackfillReport;
+import com.yum.foodyy.Entity.DTO.StatusSales;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Sales rollups behind the admin dashboard: orders, quantity and revenue per hour and per day x food (sales_hourly,
+// sales_daily, the food's category rides along) and per hour x order status (order_status_hourly). A dashboard
+// question reads a few hundred pre-summed rows, however many orders there are.
+// The rollups are kept up to date one order event at a time by SalesAnalyticsHandler on the outbox workers, shortly
+// after the order committed. Each event is applied in one transaction with a marker row (sales_rollup_applied), so an
+// outbox event that runs twice is only counted once. Cancelled orders don't count as sales.
+// backfill() rebuilds all of it from customer_order, for the orders from before the rollups existed. Months that were
+// moved to the order archive (OrderArchiveService) are not in customer_order anymore, their rollups are kept as they are.
+@Service
+public class SalesRollupService {
+
+    static final String ANALYTICS_HANDLER = "analytics";
+
+    private static final int MAX_HOURLY_DAYS = 31;
+    private static final int MAX_DAILY_DAYS = 3660;
+    private static final int MAX_TOP_FOODS = 100;
+
+    private static final String MARK_APPLIED_SQL =
+            "INSERT INTO sales_rollup_applied (event_id) VALUES (?) ON CONFLICT (event_id) DO NOTHING";
+
+    // only events the outbox could still run again need their marker
+    private static final String CLEANUP_APPLIED_SQL =
+            "DELETE FROM sales_rollup_applied a WHERE NOT EXISTS " +
+            "(SELECT 1 FROM order_outbox o WHERE o.id = a.event_id AND o.status <> 'DONE')";
+
+    private static final String ORDER_LINES_SQL =
+            "SELECT i.food_id, coalesce(f.category, 'UNKNOWN') AS category, i.quantity, " +
+            "       coalesce(i.total_price, 0) AS total_price " +
+            "FROM customer_order_items i JOIN customer_order o ON o.id = i.order_id " +
+            "LEFT JOIN food f ON f.id = i.food_id " +
+            "WHERE o.order_id = ? AND i.food_id IS NOT NULL";
+
+    private static final String HOURLY_UPSERT_SQL =
+            "INSERT INTO sales_hourly (bucket, food_id, category, orders, quantity, revenue) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (bucket, food_id) DO UPDATE SET category = EXCLUDED.category, " +
+            "orders = sales_hourly.orders + EXCLUDED.orders, quantity = sales_hourly.quantity + EXCLUDED.quantity, " +
+            "revenue = sales_hourly.revenue + EXCLUDED.revenue";
+
+    private static final String DAILY_UPSERT_SQL =
+            "INSERT INTO sales_daily (day, food_id, category, orders, quantity, revenue) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (day, food_id) DO UPDATE SET category = EXCLUDED.category, " +
+            "orders = sales_daily.orders + EXCLUDED.orders, quantity = sales_daily.quantity + EXCLUDED.quantity, " +
+            "revenue = sales_daily.revenue + EXCLUDED.revenue";
+
+    private static final String STATUS_UPSERT_SQL =
+            "INSERT INTO order_status_hourly (bucket, status, orders, revenue) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (bucket, status) DO UPDATE SET orders = order_status_hourly.orders + EXCLUDED.orders, " +
+            "revenue = order_status_hourly.revenue + EXCLUDED.revenue";
+
+    // the first statement of the rebuild: waits for the events being applied right now and keeps new ones out until
+    // the rebuild committed (they mark themselves applied first thing), so the snapshot taken after it sees a
+    // consistent set of orders and applied events
+    private static final String BACKFILL_LOCK_SQL = "LOCK TABLE sales_rollup_applied IN EXCLUSIVE MODE";
+
+    private static final String BACKFILL_HOURLY_SQL =
+            "INSERT INTO sales_hourly (bucket, food_id, category, orders, quantity, revenue) " +
+            "SELECT date_trunc('hour', o.order_date), i.food_id, coalesce(max(f.category), 'UNKNOWN'), " +
+            "       count(DISTINCT o.id), sum(i.quantity), coalesce(sum(i.total_price), 0) " +
+            "FROM customer_order o JOIN customer_order_items i ON i.order_id = o.id " +
+            "LEFT JOIN food f ON f.id = i.food_id " +
+            "WHERE o.order_date >= coalesce(CAST(? AS timestamp), '-infinity') " +
+            "  AND o.status IS DISTINCT FROM 'CANCELLED' AND i.food_id IS NOT NULL " +
+            "GROUP BY 1, 2";
+
+    private static final String BACKFILL_DAILY_SQL =
+            "INSERT INTO sales_daily (day, food_id, category, orders, quantity, revenue) " +
+            "SELECT bucket::date, food_id, max(category), sum(orders), sum(quantity), sum(revenue) " +
+            "FROM sales_hourly WHERE bucket >= coalesce(CAST(? AS timestamp), '-infinity') GROUP BY 1, 2";
+
+    private static final String BACKFILL_STATUS_SQL =
+            "INSERT INTO order_status_hourly (bucket, status, orders, revenue) " +
+            "SELECT date_trunc('hour', order_date), coalesce(status, 'UNKNOWN'), count(*), coalesce(sum(total_amount), 0) " +
+            "FROM customer_order WHERE order_date >= coalesce(CAST(? AS timestamp), '-infinity') GROUP BY 1, 2";
+
+    // everything before it is archived, null while nothing is
+    private static final String ARCHIVE_HORIZON_SQL = "SELECT max(month_end) FROM order_archive_segment";
+
+    // the events that are still queued are already part of the rebuilt rollups
+    private static final String BACKFILL_MARK_QUEUED_SQL =
+            "INSERT INTO sales_rollup_applied (event_id) " +
+            "SELECT id FROM order_outbox WHERE handler = ? AND status <> 'DONE' " +
+            "ON CONFLICT (event_id) DO NOTHING";
+
+    private static final String NEEDS_BACKFILL_SQL =
+            "SELECT NOT EXISTS (SELECT 1 FROM order_status_hourly) AND EXISTS (SELECT 1 FROM customer_order)";
+
+    private static final String REVENUE_SQL =
+            "SELECT date_trunc('%s', bucket) AS bucket, sum(orders) AS orders, sum(revenue) AS revenue " +
+            "FROM order_status_hourly WHERE bucket >= ? AND bucket < ? AND status <> 'CANCELLED' " +
+            "GROUP BY 1 ORDER BY 1";
+
+    private static final String STATUSES_SQL =
+            "SELECT status, sum(orders) AS orders, sum(revenue) AS revenue " +
+            "FROM order_status_hourly WHERE bucket >= ? AND bucket < ? " +
+            "GROUP BY status HAVING sum(orders) > 0 ORDER BY orders DESC, status";
+
+    private static final String TOP_FOODS_SQL =
+            "SELECT s.food_id, f.name, max(s.category) AS category, sum(s.orders) AS orders, " +
+            "       sum(s.quantity) AS quantity, sum(s.revenue) AS revenue " +
+            "FROM sales_daily s LEFT JOIN food f ON f.id = s.food_id " +
+            "WHERE s.day BETWEEN ? AND ? AND (CAST(? AS VARCHAR) IS NULL OR s.category = ?) " +
+            "GROUP BY s.food_id, f.name HAVING sum(s.orders) > 0 " +
+            "ORDER BY %s DESC, s.food_id LIMIT ?";
+
+    private static final String CATEGORIES_SQL =
+            "SELECT category, sum(orders) AS lines, sum(quantity) AS quantity, sum(revenue) AS revenue " +
+            "FROM sales_daily WHERE day BETWEEN ? AND ? " +
+            "GROUP BY category HAVING sum(orders) > 0 ORDER BY revenue DESC, category";
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Value("${foodyy.analytics.backfill-on-start:true}")
+    private boolean backfillOnStart = true;
+
+    // one line of an order, as the rollups need it
+    private record Line(int foodId, String category, int quantity, BigDecimal totalPrice) {
+    }
+
+    // +1 when the event makes the order count as a sale, -1 when it stops counting (cancelled), 0 otherwise
+    static int salesSign(String eventType, String previousStatus, String status) {
+        boolean counts = !"CANCELLED".equals(status);
+        if (OrderOutbox.ORDER_PLACED.equals(eventType)) return counts ? 1 : 0;
+        boolean counted = !"CANCELLED".equals(previousStatus);
+        return (counts ? 1 : 0) - (counted ? 1 : 0);
+    }
+
+    public void apply(long eventId, String eventType, OrderEventPayload payload) {
+        OrderResponse order = payload.order();
+        if (order == null || order.orderDateTime() == null) return;
+
+        LocalDateTime hour = order.orderDateTime().truncatedTo(ChronoUnit.HOURS);
+        BigDecimal total = order.totalAmount() == null ? BigDecimal.ZERO : order.totalAmount();
+        int sign = salesSign(eventType, payload.previousStatus(), order.status());
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            if (jdbcTemplate.update(MARK_APPLIED_SQL, eventId) == 0) return; // applied before
+
+            // the order moves from its old status to the new one. Rows are always locked in the same order (status,
+            // food id) so two workers touching the same rows wait for each other instead of deadlocking
+            List<Object[]> statusRows = new ArrayList<>();
+            statusRows.add(new Object[]{Timestamp.valueOf(hour), order.status(), 1, total});
+            if (OrderOutbox.ORDER_STATUS_CHANGED.equals(eventType) && payload.previousStatus() != null) {
+                statusRows.add(new Object[]{Timestamp.valueOf(hour), payload.previousStatus(), -1, total.negate()});
+            }
+            statusRows.sort(Comparator.comparing(row -> (String) row[1]));
+            jdbcTemplate.batchUpdate(STATUS_UPSERT_SQL, statusRows);
+
+            if (sign == 0) return;
+            List<Line> lines = jdbcTemplate.query(ORDER_LINES_SQL, (rs, row) -> new Line(
+                    rs.getInt("food_id"),
+                    rs.getString("category"),
+                    rs.getInt("quantity"),
+                    rs.getBigDecimal("total_price")
+            ), order.orderId());
+            lines.sort(Comparator.comparingInt(Line::foodId));
+
+            List<Object[]> hourly = new ArrayList<>();
+            List<Object[]> daily = new ArrayList<>();
+            for (Line line : lines) {
+                BigDecimal revenue = sign > 0 ? line.totalPrice() : line.totalPrice().negate();
+                hourly.add(new Object[]{Timestamp.valueOf(hour), line.foodId(), line.category(), sign,
+                        sign * line.quantity(), revenue});
+                daily.add(new Object[]{hour.toLocalDate(), line.foodId(), line.category(), sign,
+                        sign * line.quantity(), revenue});
+            }
+            jdbcTemplate.batchUpdate(HOURLY_UPSERT_SQL, hourly);
+            jdbcTemplate.batchUpdate(DAILY_UPSERT_SQL, daily);
+        });
+    }
+
+    // throws the rollups away and sums them up again from every order there is, in one transaction (readers keep
+    // seeing the old rollups until it commits). Events applied meanwhile wait for it and are not counted twice.
+    // Hours before the archive horizon have no orders left to sum up and stay as they are
+    public synchronized RollupBackfillReport backfill() {
+        long start = System.nanoTime();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        RollupBackfillReport report = tx.execute(status -> {
+            jdbcTemplate.execute(BACKFILL_LOCK_SQL);
+            Date horizon = jdbcTemplate.queryForObject(ARCHIVE_HORIZON_SQL, Date.class);
+            Timestamp from = horizon == null ? null : Timestamp.valueOf(horizon.toLocalDate().atStartOfDay());
+            jdbcTemplate.update("DELETE FROM sales_hourly WHERE bucket >= coalesce(CAST(? AS timestamp), '-infinity')", from);
+            jdbcTemplate.update("DELETE FROM sales_daily WHERE day >= coalesce(CAST(? AS date), '-infinity')", horizon);
+            jdbcTemplate.update("DELETE FROM order_status_hourly WHERE bucket >= coalesce(CAST(? AS timestamp), '-infinity')", from);
+
+            long hourly = jdbcTemplate.update(BACKFILL_HOURLY_SQL, from);
+            long daily = jdbcTemplate.update(BACKFILL_DAILY_SQL, from);
+            long statuses = jdbcTemplate.update(BACKFILL_STATUS_SQL, from);
+            jdbcTemplate.update(BACKFILL_MARK_QUEUED_SQL, ANALYTICS_HANDLER);
+
+            Long orders = jdbcTemplate.queryForObject("SELECT coalesce(sum(orders), 0) FROM order_status_hourly", Long.class);
+            return new RollupBackfillReport(orders == null ? 0 : orders, hourly, daily, statuses, 0);
+        });
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("SalesRollup: rebuilt from " + report.orders() + " orders in " + millis + " ms");
+        return new RollupBackfillReport(report.orders(), report.hourlyRows(), report.dailyRows(), report.statusRows(), millis);
+    }
+
+    // the first start after the rollups were added fills them from the existing orders, in the background
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStart) return;
+
+        Thread thread = new Thread(() -> {
+            try {
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(NEEDS_BACKFILL_SQL, Boolean.class))) backfill();
+            } catch (Exception e) {
+                System.out.println("SalesRollup: backfill failed, run it again with POST /admin/analytics/backfill: "
+                        + e.getMessage());
+            }
+        }, "sales-rollup-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Scheduled(fixedDelayString = "${foodyy.outbox.cleanup-interval-ms:3600000}")
+    public void removeAppliedMarkers() {
+        jdbcTemplate.update(CLEANUP_APPLIED_SQL);
+    }
+
+    // hourly = true gives one point per hour, otherwise per day
+    public List<RevenuePoint> revenue(LocalDate from, LocalDate to, boolean hourly) {
+        checkRange(from, to, hourly ? MAX_HOURLY_DAYS : MAX_DAILY_DAYS);
+        String sql = String.format(REVENUE_SQL, hourly ? "hour" : "day");
+        return jdbcTemplate.query(sql, (rs, row) -> new RevenuePoint(
+                rs.getTimestamp("bucket").toLocalDateTime(),
+                rs.getLong("orders"),
+                rs.getBigDecimal("revenue")
+        ), startOf(from), startOf(to.plusDays(1)));
+    }
+
+    public List<StatusSales> statuses(LocalDate from, LocalDate to) {
+        checkRange(from, to, MAX_DAILY_DAYS);
+        return jdbcTemplate.query(STATUSES_SQL, (rs, row) -> new StatusSales(
+                rs.getString("status"),
+                rs.getLong("orders"),
+                rs.getBigDecimal("revenue")
+        ), startOf(from), startOf(to.plusDays(1)));
+    }
+
+    // byQuantity ranks by units sold instead of revenue, category null means all of them
+    public List<FoodSales> topFoods(LocalDate from, LocalDate to, String category, boolean byQuantity, int limit) {
+        checkRange(from, to, MAX_DAILY_DAYS);
+        String sql = String.format(TOP_FOODS_SQL, byQuantity ? "quantity" : "revenue");
+        String categoryName = category == null || category.isBlank() ? null : category.toUpperCase();
+        return jdbcTemplate.query(sql, (rs, row) -> new FoodSales(
+                rs.getInt("food_id"),
+                rs.getString("name"),
+                rs.getString("category"),
+                rs.getLong("orders"),
+                rs.getLong("quantity"),
+                rs.getBigDecimal("revenue")
+        ), from, to, categoryName, categoryName, Math.max(1, Math.min(limit, MAX_TOP_FOODS)));
+    }
+
+    public List<CategorySales> categories(LocalDate from, LocalDate to) {
+        checkRange(from, to, MAX_DAILY_DAYS);
+        return jdbcTemplate.query(CATEGORIES_SQL, (rs, row) -> new CategorySales(
+                rs.getString("category"),
+                rs.getLong("lines"),
+                rs.getLong("quantity"),
+                rs.getBigDecimal("revenue")
+        ), from, to);
+    }
+
+    static void checkRange(LocalDate from, LocalDate to, int maxDays) {
+        if (from == null || to == null) throw new IllegalArgumentException("from and to are required");
+        if (from.isAfter(to)) throw new IllegalArgumentException("from must not be after to");
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new IllegalArgumentException("Range can't be longer than " + maxDays + " days");
+        }
+    }
+
+    private static Timestamp startOf(LocalDate day) {
+        return Timestamp.valueOf(day.atStartOfDay());
+    }
+}
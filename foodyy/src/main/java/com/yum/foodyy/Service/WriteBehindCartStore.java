@@ -0,0 +1,457 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartLine;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Entity.DTO.CartTotals;
+import com.yum.foodyy.Entity.DTO.CartView;
+import com.yum.foodyy.Entity.Food;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Optional cart storage (foodyy.cart.store=write-behind). The carts customers are editing live in memory, every
+// change goes to the CartJournal first and to Postgres later: a scheduled flush writes whatever changed since the
+// last one in one transaction, so twenty +/- clicks on a dish end up as one UPDATE.
+//
+// A customer's cart is loaded on its first change and dropped again after it has been idle for a while. Changes
+// to one customer are serialized on one of STRIPES locks, different customers don't wait for each other.
+// Anything that reads the cart from the database (the cart page, placing an order) calls flush(customerId) first,
+// which writes that customer's changes synchronously and drops the cached copy. It must not be called while the
+// caller holds a database connection, the write takes a second one. A customer's stripe is held from draining
+// their dirty lines until the write has committed, by flush(customerId) and by the periodic batch alike, so an older
+// batch can never land after a newer flush of the same cart while other customers carry on.
+//
+// The cache is per process, run it on a single node or with customers pinned to a node.
+@Service
+public class WriteBehindCartStore {
+
+    private static final int STRIPES = 64;
+
+    private static final String LOAD_SQL = """
+            SELECT c.cart_id, ci.cart_item_id, ci.food_item_id, ci.quantity, ci.price_at_time_of_addition
+            FROM customer_info cu
+            LEFT JOIN cart c ON c.customer_id = cu.customer_id
+            LEFT JOIN cart_item ci ON ci.cart_id = c.cart_id
+            WHERE cu.customer_id = ?
+            """;
+
+    private static final String CREATE_CART_SQL = """
+            INSERT INTO cart (customer_id, created_at) SELECT customer_id, now() FROM customer_info WHERE customer_id = ?
+            ON CONFLICT (customer_id) DO NOTHING
+            """;
+
+    // the join on food skips dishes that were deleted since they were put in the cart
+    private static final String SET_SQL = """
+            INSERT INTO cart_item (cart_id, food_item_id, quantity, price_at_time_of_addition, added_at)
+            SELECT c.cart_id, f.id, ?, ?, now() FROM cart c JOIN food f ON f.id = ? WHERE c.customer_id = ?
+            ON CONFLICT (cart_id, food_item_id)
+                DO UPDATE SET quantity = EXCLUDED.quantity, version = cart_item.version + 1
+            """;
+
+    private static final String REMOVE_SQL =
+            "DELETE FROM cart_item ci USING cart c WHERE ci.cart_id = c.cart_id AND c.customer_id = ? AND ci.food_item_id = ?";
+
+    static final class Line {
+        Integer cartItemId;
+        int quantity;
+        BigDecimal price;
+    }
+
+    static final class CachedCart {
+        Integer cartId;
+        final Map<Integer, Line> lines = new LinkedHashMap<>();
+        final Set<Integer> dirty = new HashSet<>();
+        long touchedAt;
+    }
+
+    @Value("${foodyy.cart.store:database}")
+    private String mode;
+
+    @Value("${foodyy.cart.write-behind.journal-dir:cart-journal}")
+    private String journalDir;
+
+    @Value("${foodyy.cart.write-behind.fsync:false}")
+    private boolean fsync;
+
+    @Value("${foodyy.cart.write-behind.idle-ms:600000}")
+    private long idleMs;
+
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private CatalogCacheService catalogCacheService;
+
+    private final Map<Integer, CachedCart> carts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // changes hold the read lock, the periodic flush takes the write lock just long enough to roll the journal
+    // and collect the dirty lines
+    private final ReadWriteLock rolling = new ReentrantReadWriteLock();
+    // one periodic batch at a time (the scheduler and the flush on shutdown). Taken before rolling
+    private final ReentrantLock batching = new ReentrantLock();
+
+    private CartJournal journal;
+    private boolean enabled;
+
+    public WriteBehindCartStore() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        enabled = "write-behind".equalsIgnoreCase(mode);
+        if (!enabled) return;
+
+        Path dir = Path.of(journalDir);
+        // whatever the last run had not written yet goes to the database before the first new change
+        Map<Integer, Map<Integer, CartJournal.Entry>> pending = CartJournal.replay(dir);
+        journal = new CartJournal(dir, fsync);
+        if (!pending.isEmpty()) {
+            Map<Integer, List<CartJournal.Entry>> batch = new HashMap<>();
+            pending.forEach((customerId, lines) -> batch.put(customerId, new ArrayList<>(lines.values())));
+            transaction().executeWithoutResult(status -> write(batch));
+            System.out.println("Cart journal: replayed the changes of " + pending.size() + " carts");
+        }
+        journal.deleteBefore(journal.roll());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // the batch endpoint: the same folding as CartService.applyBatch, applied to the cached cart
+    public CartTotals apply(int customerId, List<CartOperation> operations) {
+        rolling.readLock().lock();
+        stripe(customerId).lock();
+        try {
+            CachedCart cart = cart(customerId);
+
+            Map<Integer, Integer> foodOfItem = new HashMap<>();
+            cart.lines.forEach((foodId, line) -> {
+                if (line.cartItemId != null && line.quantity > 0) foodOfItem.put(line.cartItemId, foodId);
+            });
+
+            List<CartJournal.Entry> entries = new ArrayList<>();
+            CartBatch.coalesce(operations, foodOfItem).forEach((foodId, change) -> {
+                Line line = cart.lines.get(foodId);
+                int current = line == null ? 0 : line.quantity;
+                int quantity = switch (change.kind()) {
+                    case ADD -> Math.addExact(current, change.quantity());
+                    case SET -> change.quantity();
+                    case REMOVE -> 0;
+                };
+
+                BigDecimal price;
+                if (line != null && line.quantity > 0) {
+                    price = line.price;
+                } else if (quantity > 0) {
+                    price = Objects.requireNonNullElse(catalogCacheService
+                            .findById(foodId)
+                            .orElseThrow(() -> new IllegalArgumentException("Food not found: " + foodId))
+                            .getPrice(), BigDecimal.ZERO);
+                } else {
+                    price = line == null ? BigDecimal.ZERO : line.price;
+                }
+                entries.add(new CartJournal.Entry(customerId, foodId, quantity, price));
+            });
+
+            // journal first, the cached cart only changes once the change is on disk
+            try {
+                journal.append(entries);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write the cart journal", e);
+            }
+
+            for (CartJournal.Entry entry : entries) {
+                Line line = cart.lines.computeIfAbsent(entry.foodId(), id -> new Line());
+                if (line.quantity == 0 && entry.quantity() > 0) line.cartItemId = null;
+                line.quantity = entry.quantity();
+                line.price = entry.price();
+                cart.dirty.add(entry.foodId());
+            }
+            cart.touchedAt = System.currentTimeMillis();
+            return totals(cart);
+        } finally {
+            stripe(customerId).unlock();
+            rolling.readLock().unlock();
+        }
+    }
+
+    // the cart as the cache has it. Lines that haven't been written yet have no cartItemId
+    public CartView view(int customerId) {
+        rolling.readLock().lock();
+        stripe(customerId).lock();
+        try {
+            CachedCart cart = cart(customerId);
+            List<CartLine> lines = new ArrayList<>();
+            boolean priceChanged = false;
+            for (Map.Entry<Integer, Line> entry : cart.lines.entrySet()) {
+                Line line = entry.getValue();
+                Food food = catalogCacheService.findById(entry.getKey()).orElse(null);
+                if (line.quantity == 0 || food == null) continue;
+
+                CartLine cartLine = CartLine.of(line.cartItemId, food, line.price, line.quantity, null);
+                priceChanged |= cartLine.priceChanged();
+                lines.add(cartLine);
+            }
+            CartTotals totals = totals(cart);
+            return new CartView(cart.cartId, lines, totals.items(), totals.quantity(), totals.total(), priceChanged);
+        } finally {
+            stripe(customerId).unlock();
+            rolling.readLock().unlock();
+        }
+    }
+
+    // writes this customer's pending changes in their own transaction and drops the cached cart, so the next
+    // database read sees everything the customer did. Waits for a periodic batch that is writing this customer's
+    // older changes, other customers are not held up
+    public void flush(int customerId) {
+        if (!enabled) return;
+        rolling.readLock().lock();
+        stripe(customerId).lock();
+        try {
+            CachedCart cart = carts.get(customerId);
+            if (cart == null) return;
+
+            List<CartJournal.Entry> entries = drain(customerId, cart);
+            if (!entries.isEmpty()) {
+                try {
+                    transaction().executeWithoutResult(status -> write(Map.of(customerId, entries)));
+                } catch (RuntimeException e) {
+                    entries.forEach(entry -> cart.dirty.add(entry.foodId()));
+                    throw e;
+                }
+                journal.flushed(customerId);
+            }
+            carts.remove(customerId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the cart journal", e);
+        } finally {
+            stripe(customerId).unlock();
+            rolling.readLock().unlock();
+        }
+    }
+
+    // the cart is gone in the database (customer deleted), forget the cached copy and what the journal has on it
+    public void discard(int customerId) {
+        if (!enabled) return;
+        rolling.readLock().lock();
+        stripe(customerId).lock();
+        try {
+            carts.remove(customerId);
+            journal.flushed(customerId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the cart journal", e);
+        } finally {
+            stripe(customerId).unlock();
+            rolling.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${foodyy.cart.write-behind.flush-interval-ms:5000}")
+    public void flushAll() {
+        if (!enabled) return;
+
+        batching.lock();
+        try {
+            flushBatch();
+        } finally {
+            batching.unlock();
+        }
+    }
+
+    // Under the write lock of rolling nobody else holds a stripe, the batch takes all of them, rolls the journal and
+    // drains the dirty carts. It then lets go of rolling and of the stripes it has nothing to write for, and keeps
+    // the stripes of the carts in the batch until their write has committed (or failed).
+    private void flushBatch() {
+        Map<Integer, List<CartJournal.Entry>> batch = new HashMap<>();
+        Set<ReentrantLock> held = new HashSet<>();
+        long segment;
+        // a cart that could not be drained still has its changes only in the journal segments before this one
+        boolean complete = true;
+        rolling.writeLock().lock();
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                held.add(stripe);
+            }
+            segment = journal.roll();
+            long idleBefore = System.currentTimeMillis() - idleMs;
+            carts.entrySet().removeIf(entry -> entry.getValue().dirty.isEmpty() && entry.getValue().touchedAt < idleBefore);
+            for (Map.Entry<Integer, CachedCart> cached : carts.entrySet()) {
+                try {
+                    List<CartJournal.Entry> entries = drain(cached.getKey(), cached.getValue());
+                    if (!entries.isEmpty()) batch.put(cached.getKey(), entries);
+                } catch (RuntimeException e) {
+                    System.out.println("Cart write-behind: could not collect the changes of customer " + cached.getKey()
+                            + ", retrying on the next run: " + e.getMessage());
+                    complete = false;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Cart journal: could not roll the journal: " + e.getMessage());
+            // nothing was drained, the finally block lets go of every stripe
+            return;
+        } finally {
+            Set<ReentrantLock> needed = new HashSet<>();
+            batch.keySet().forEach(customerId -> needed.add(stripe(customerId)));
+            held.removeIf(stripe -> {
+                if (needed.contains(stripe)) return false;
+                stripe.unlock();
+                return true;
+            });
+            rolling.writeLock().unlock();
+        }
+
+        try {
+            boolean written = false;
+            try {
+                if (!batch.isEmpty()) transaction().executeWithoutResult(status -> write(batch));
+                written = true;
+                if (complete) journal.deleteBefore(segment);
+            } catch (RuntimeException | IOException e) {
+                System.out.println("Cart write-behind flush failed, retrying on the next run: " + e.getMessage());
+            }
+
+            for (Map.Entry<Integer, List<CartJournal.Entry>> entry : batch.entrySet()) {
+                CachedCart cart = carts.get(entry.getKey());
+                if (cart == null) continue;
+                if (written) {
+                    prune(cart, entry.getValue());
+                } else {
+                    // the cached carts still hold the latest values, mark them dirty again for the next round
+                    entry.getValue().forEach(line -> cart.dirty.add(line.foodId()));
+                }
+            }
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (!enabled) return;
+        flushAll();
+        journal.close();
+    }
+
+    private CachedCart cart(int customerId) {
+        CachedCart cached = carts.get(customerId);
+        if (cached != null) return cached;
+
+        CachedCart cart = new CachedCart();
+        boolean[] found = {false};
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            found[0] = true;
+            if (rs.getObject("cart_id") != null) cart.cartId = rs.getInt("cart_id");
+            if (rs.getObject("cart_item_id") == null) return;
+
+            Line line = new Line();
+            line.cartItemId = rs.getInt("cart_item_id");
+            line.quantity = rs.getInt("quantity");
+            BigDecimal price = rs.getBigDecimal("price_at_time_of_addition");
+            line.price = price == null ? BigDecimal.ZERO : price;
+            cart.lines.put(rs.getInt("food_item_id"), line);
+        }, customerId);
+
+        if (!found[0]) {
+            throw new IllegalArgumentException("Customer not found");
+        }
+        cart.touchedAt = System.currentTimeMillis();
+        carts.put(customerId, cart);
+        return cart;
+    }
+
+    // the dirty lines as journal entries. Removed lines stay in the cache (at quantity 0) until their write has
+    // committed, a failed write marks them dirty again and the next drain still finds them
+    private static List<CartJournal.Entry> drain(int customerId, CachedCart cart) {
+        List<CartJournal.Entry> entries = new ArrayList<>();
+        for (Integer foodId : cart.dirty) {
+            Line line = cart.lines.get(foodId);
+            if (line == null) continue;
+            entries.add(new CartJournal.Entry(customerId, foodId, line.quantity, line.price));
+        }
+        cart.dirty.clear();
+        entries.sort(Comparator.comparingInt(CartJournal.Entry::foodId));
+        return entries;
+    }
+
+    // drops the lines the committed batch removed, unless they were changed again since
+    private static void prune(CachedCart cart, List<CartJournal.Entry> written) {
+        for (CartJournal.Entry entry : written) {
+            Line line = cart.lines.get(entry.foodId());
+            if (line != null && line.quantity == 0 && !cart.dirty.contains(entry.foodId())) cart.lines.remove(entry.foodId());
+        }
+    }
+
+    private void write(Map<Integer, List<CartJournal.Entry>> batch) {
+        List<Object[]> carts = new ArrayList<>();
+        List<Object[]> sets = new ArrayList<>();
+        List<Object[]> removes = new ArrayList<>();
+
+        batch.forEach((customerId, entries) -> {
+            boolean anySet = false;
+            for (CartJournal.Entry entry : entries) {
+                if (entry.quantity() > 0) {
+                    sets.add(new Object[]{entry.quantity(), entry.price(), entry.foodId(), customerId});
+                    anySet = true;
+                } else {
+                    removes.add(new Object[]{customerId, entry.foodId()});
+                }
+            }
+            if (anySet) carts.add(new Object[]{customerId});
+        });
+
+        if (!carts.isEmpty()) jdbcTemplate.batchUpdate(CREATE_CART_SQL, carts);
+        if (!removes.isEmpty()) jdbcTemplate.batchUpdate(REMOVE_SQL, removes);
+        if (!sets.isEmpty()) jdbcTemplate.batchUpdate(SET_SQL, sets);
+    }
+
+    private CartTotals totals(CachedCart cart) {
+        int items = 0;
+        int quantity = 0;
+        BigDecimal total = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Line> entry : cart.lines.entrySet()) {
+            Line line = entry.getValue();
+            Food food = catalogCacheService.findById(entry.getKey()).orElse(null);
+            if (line.quantity == 0 || food == null || food.getPrice() == null) continue;
+            items++;
+            quantity += line.quantity;
+            total = total.add(food.getPrice().multiply(BigDecimal.valueOf(line.quantity)));
+        }
+        return new CartTotals(cart.cartId, items, quantity, total);
+    }
+
+    private TransactionTemplate transaction() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction;
+    }
+
+    private ReentrantLock stripe(int customerId) {
+        return stripes[Math.floorMod(customerId, STRIPES)];
+    }
+}
@@ -0,0 +1,194 @@
+-- runs on every startup after hibernate updated the tables (spring.sql.init.mode=always), so everything here
+-- has to be safe to run again
+
+-- cart_item: one row per (cart, food). Carts from before the unique index can hold the same food twice,
+-- those rows are merged into the oldest one before the index is created.
+UPDATE cart_item keep
+SET quantity = dup.total
+FROM (SELECT MIN(cart_item_id) AS keep_id, SUM(quantity) AS total
+      FROM cart_item
+      GROUP BY cart_id, food_item_id
+      HAVING COUNT(*) > 1) dup
+WHERE keep.cart_item_id = dup.keep_id;
+
+DELETE FROM cart_item newer
+USING cart_item older
+WHERE newer.cart_id = older.cart_id
+  AND newer.food_item_id = older.food_item_id
+  AND newer.cart_item_id > older.cart_item_id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cart_item_cart_food ON cart_item (cart_id, food_item_id);
+
+-- admin order feed (OrderFeedQuery): newest first by (order_date, id), one index per filter that can lead.
+-- total_amount rides along so the minimum amount filter is checked in the index, not in the table
+CREATE INDEX IF NOT EXISTS idx_customer_order_date
+    ON customer_order (order_date DESC, id DESC) INCLUDE (total_amount);
+CREATE INDEX IF NOT EXISTS idx_customer_order_status_date
+    ON customer_order (status, order_date DESC, id DESC) INCLUDE (total_amount);
+CREATE INDEX IF NOT EXISTS idx_customer_order_customer_date
+    ON customer_order (customer_id, order_date DESC, id DESC) INCLUDE (total_amount);
+
+-- the lines of a page of orders (and of one customer's history) are looked up by order
+CREATE INDEX IF NOT EXISTS idx_customer_order_items_order ON customer_order_items (order_id);
+
+-- orders are found by id and order id through their keys, (id, order_date) and (order_id, order_date) once
+-- customer_order is partitioned by order_date (OrderPartitionService). The keys cover the indexes this made before.
+-- Idempotency keys are claimed in order_idempotency (kept for the idempotency ttl), this one is for looking them up
+DROP INDEX IF EXISTS idx_customer_order_id;
+DROP INDEX IF EXISTS idx_customer_order_order_id;
+CREATE INDEX IF NOT EXISTS idx_customer_order_idempotency_key
+    ON customer_order (idempotency_key) WHERE idempotency_key IS NOT NULL;
+
+CREATE TABLE IF NOT EXISTS order_idempotency (
+    idempotency_key VARCHAR(120) PRIMARY KEY,
+    order_id        VARCHAR(40)  NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- keys of orders placed just before the table existed
+INSERT INTO order_idempotency (idempotency_key, order_id, created_at)
+SELECT idempotency_key, order_id, order_date FROM customer_order
+WHERE idempotency_key IS NOT NULL AND order_date > now() - interval '2 days'
+ON CONFLICT (idempotency_key) DO NOTHING;
+
+-- every order id ever handed out. The keys of a partitioned customer_order have to include order_date, so this
+-- unpartitioned table is what keeps an order id from being used twice (OrderService claims it with the order). The
+-- rows stay when a month is archived, filled once from the orders that were there before it
+CREATE TABLE IF NOT EXISTS order_id_claim (
+    order_id   VARCHAR(40) PRIMARY KEY,
+    claimed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+INSERT INTO order_id_claim (order_id, claimed_at)
+SELECT order_id, order_date FROM customer_order
+WHERE order_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM order_id_claim)
+ON CONFLICT (order_id) DO NOTHING;
+
+-- order archive (OrderArchiveService): one segment file per archived month, and per customer where in which
+-- segment their orders start
+CREATE TABLE IF NOT EXISTS order_archive_segment (
+    name        VARCHAR(60) PRIMARY KEY,
+    month_start DATE        NOT NULL,
+    month_end   DATE        NOT NULL,
+    orders      BIGINT      NOT NULL,
+    items       BIGINT      NOT NULL,
+    bytes       BIGINT      NOT NULL,
+    archived_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS order_archive_customer (
+    customer_id  INT         NOT NULL,
+    segment      VARCHAR(60) NOT NULL,
+    block_offset BIGINT      NOT NULL,
+    orders       INT         NOT NULL,
+    PRIMARY KEY (customer_id, segment)
+);
+
+-- customer_order and customer_order_items take their ids from pooled sequences (50 per nextval) so their inserts
+-- can be batched. On a database where the tables started out with identity columns hibernate has just created the
+-- sequences at 1, move them past the ids that are already taken (no-op once they are)
+SELECT setval('customer_order_seq', (SELECT MAX(id) FROM customer_order))
+WHERE (SELECT MAX(id) FROM customer_order) > (SELECT last_value FROM customer_order_seq);
+
+SELECT setval('customer_order_items_seq', (SELECT MAX(id) FROM customer_order_items))
+WHERE (SELECT MAX(id) FROM customer_order_items) > (SELECT last_value FROM customer_order_items_seq);
+
+-- order outbox (OrderOutbox / OutboxWorker): side effects of order changes, one row per event and handler, written
+-- in the transaction of the change. Workers look for due PENDING rows, admins for DEAD ones, DONE rows are only
+-- kept a few days so neither index carries them
+CREATE TABLE IF NOT EXISTS order_outbox (
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type   VARCHAR(40)   NOT NULL,
+    handler      VARCHAR(60)   NOT NULL,
+    order_id     VARCHAR(40),
+    payload      TEXT          NOT NULL,
+    status       VARCHAR(10)   NOT NULL DEFAULT 'PENDING',
+    attempts     INT           NOT NULL DEFAULT 0,
+    available_at TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    created_at   TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    processed_at TIMESTAMPTZ,
+    last_error   VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS idx_order_outbox_due ON order_outbox (available_at, id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_order_outbox_dead ON order_outbox (id) WHERE status = 'DEAD';
+
+-- sales rollups for the admin dashboard (SalesRollupService): kept up to date from the order outbox, filled from the
+-- existing orders by the backfill. sales_rollup_applied remembers the outbox events already counted
+CREATE TABLE IF NOT EXISTS sales_hourly (
+    bucket   TIMESTAMP      NOT NULL,
+    food_id  INT            NOT NULL,
+    category VARCHAR(40)    NOT NULL,
+    orders   BIGINT         NOT NULL,
+    quantity BIGINT         NOT NULL,
+    revenue  NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (bucket, food_id)
+);
+
+CREATE TABLE IF NOT EXISTS sales_daily (
+    day      DATE           NOT NULL,
+    food_id  INT            NOT NULL,
+    category VARCHAR(40)    NOT NULL,
+    orders   BIGINT         NOT NULL,
+    quantity BIGINT         NOT NULL,
+    revenue  NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (day, food_id)
+);
+
+CREATE TABLE IF NOT EXISTS order_status_hourly (
+    bucket  TIMESTAMP      NOT NULL,
+    status  VARCHAR(20)    NOT NULL,
+    orders  BIGINT         NOT NULL,
+    revenue NUMERIC(14, 2) NOT NULL,
+    PRIMARY KEY (bucket, status)
+);
+
+CREATE TABLE IF NOT EXISTS sales_rollup_applied (
+    event_id   BIGINT PRIMARY KEY,
+    applied_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- dashboard counts (DashboardCounters): moved by statement level triggers so bulk inserts cost one counter update
+-- per statement. Each count is spread over 16 slot rows and a statement adds to a random one, so concurrent sign
+-- ups don't all queue on the lock of a single row; reading sums the slots. Seeded once, POST
+-- /admin/analytics/backfill recounts. dashboard_counter is the old single row table, replaced by the slots.
+-- The function body is a plain quoted string because the script runner splits on every ; outside of quotes.
+-- CREATE OR REPLACE TRIGGER needs postgres 14
+CREATE TABLE IF NOT EXISTS dashboard_counter_slot (
+    name  VARCHAR(40) NOT NULL,
+    slot  SMALLINT    NOT NULL,
+    value BIGINT      NOT NULL,
+    PRIMARY KEY (name, slot)
+);
+
+INSERT INTO dashboard_counter_slot (name, slot, value) SELECT 'foods', 0, (SELECT count(*) FROM food)
+    WHERE NOT EXISTS (SELECT 1 FROM dashboard_counter_slot WHERE name = 'foods');
+INSERT INTO dashboard_counter_slot (name, slot, value) SELECT 'customers', 0, (SELECT count(*) FROM customer_info)
+    WHERE NOT EXISTS (SELECT 1 FROM dashboard_counter_slot WHERE name = 'customers');
+
+CREATE OR REPLACE FUNCTION dashboard_counter_add() RETURNS trigger LANGUAGE plpgsql AS '
+DECLARE
+    delta BIGINT;
+BEGIN
+    IF TG_OP = ''INSERT'' THEN
+        SELECT count(*) INTO delta FROM new_rows;
+    ELSE
+        SELECT -count(*) INTO delta FROM old_rows;
+    END IF;
+    IF delta <> 0 THEN
+        INSERT INTO dashboard_counter_slot (name, slot, value) VALUES (TG_ARGV[0], floor(random() * 16), delta)
+            ON CONFLICT (name, slot) DO UPDATE SET value = dashboard_counter_slot.value + EXCLUDED.value;
+    END IF;
+    RETURN NULL;
+END';
+
+DROP TABLE IF EXISTS dashboard_counter;
+
+CREATE OR REPLACE TRIGGER food_counter_insert AFTER INSERT ON food
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION dashboard_counter_add('foods');
+CREATE OR REPLACE TRIGGER food_counter_delete AFTER DELETE ON food
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION dashboard_counter_add('foods');
+CREATE OR REPLACE TRIGGER customer_counter_insert AFTER INSERT ON customer_info
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION dashboard_counter_add('customers');
+CREATE OR REPLACE TRIGGER customer_counter_delete AFTER DELETE ON customer_info
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION dashboard_counter_add('customers');
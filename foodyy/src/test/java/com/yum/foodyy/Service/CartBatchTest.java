@@ -0,0 +1,62 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CartBatchTest {
+
+    // cart item 31 holds food 7, 32 holds food 8
+    private final Map<Integer, Integer> foodOfItem = Map.of(31, 7, 32, 8);
+
+    @Test
+    void foldsRepeatedEditsOfOneFoodIntoOneChange() {
+        Map<Integer, CartBatch.Change> changes = CartBatch.coalesce(List.of(
+                add(7, 1), add(7, 1), add(7, 2),
+                new CartOperation("set", null, 32, 3), add(8, 1)
+        ), foodOfItem);
+
+        assertEquals(Map.of(
+                7, new CartBatch.Change(CartBatch.Kind.ADD, 4),
+                8, new CartBatch.Change(CartBatch.Kind.SET, 4)
+        ), changes);
+    }
+
+    @Test
+    void addAfterRemoveSetsTheQuantity() {
+        Map<Integer, CartBatch.Change> changes = CartBatch.coalesce(List.of(
+                new CartOperation("remove", null, 31, null), add(7, 2)
+        ), foodOfItem);
+
+        assertEquals(new CartBatch.Change(CartBatch.Kind.SET, 2), changes.get(7));
+    }
+
+    @Test
+    void setToZeroRemoves() {
+        Map<Integer, CartBatch.Change> changes = CartBatch.coalesce(List.of(
+                new CartOperation("SET", 8, null, 0)
+        ), foodOfItem);
+
+        assertEquals(new CartBatch.Change(CartBatch.Kind.REMOVE, 0), changes.get(8));
+    }
+
+    @Test
+    void rejectsItemsOfAnotherCartAndBadOperations() {
+        assertThrows(IllegalArgumentException.class, () -> CartBatch.coalesce(List.of(
+                new CartOperation("remove", null, 99, null)), foodOfItem));
+        assertThrows(IllegalArgumentException.class, () -> CartBatch.coalesce(List.of(
+                new CartOperation("double", 7, null, 1)), foodOfItem));
+        assertThrows(IllegalArgumentException.class, () -> CartBatch.coalesce(List.of(add(7, 0)), foodOfItem));
+        assertThrows(IllegalArgumentException.class, () -> CartBatch.coalesce(List.of(
+                new CartOperation("add", null, null, 1)), foodOfItem));
+    }
+
+    private static CartOperation add(int foodId, int quantity) {
+        return new CartOperation("add", foodId, null, quantity);
+    }
+}
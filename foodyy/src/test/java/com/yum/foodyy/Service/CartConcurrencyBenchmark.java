@@ -0,0 +1,177 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Cart;
+import com.yum.foodyy.Entity.CartItem;
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Repo.CartItemRepo;
+import com.yum.foodyy.Repo.CartRepo;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Hammers one cart item from many threads at once, against the real Postgres from application.properties.
+// noLostUpdates checks that the upsert path ends with exactly one row holding every increment, compareThroughput
+// runs the old read-scan-save path next to it.
+// Not picked up by a normal "mvn test" because of the class name, run it with a database up:
+//     mvn test -Dtest=CartConcurrencyBenchmark
+@SpringBootTest
+@ActiveProfiles("dev")
+class CartConcurrencyBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int ADDS_PER_THREAD = 50;
+
+    @Autowired private CartService cartService;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private CartRepo cartRepo;
+    @Autowired private CartItemRepo cartItemRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private CustomerInfo customer;
+    private final List<Integer> foodIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        CustomerInfo info = new CustomerInfo();
+        info.setName("Cart Benchmark");
+        info.setEmail("cart-benchmark-" + suffix + "@example.com");
+        info.setPhone("9" + Math.abs(suffix.hashCode() % 1_000_000_000));
+        info.setPassword("Benchmark@123");
+        customer = customerRepo.save(info);
+
+        Cart cart = new Cart();
+        cart.setCustomerInfo(customer);
+        cartRepo.save(cart);
+
+        for (int i = 0; i < 2; i++) {
+            Food food = new Food();
+            food.setName("Cart Benchmark " + suffix + " " + i);
+            food.setPrice(BigDecimal.valueOf(100));
+            food.setCategory(FoodCategory.SNACK);
+            foodIds.add(foodRepo.save(food).getId());
+        }
+        catalogCacheService.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerRepo.deleteById(customer.getCustomerId());
+        foodRepo.deleteAllById(foodIds);
+        catalogCacheService.invalidate();
+    }
+
+    @Test
+    void noLostUpdates() throws Exception {
+        int foodId = foodIds.get(0);
+
+        Result result = hammer(() -> cartService.addItemToCart(customer.getCustomerId(), foodId, 1));
+
+        List<CartItem> rows = rowsFor(foodId);
+        assertEquals(0, result.failures());
+        assertEquals(1, rows.size());
+        assertEquals(THREADS * ADDS_PER_THREAD, rows.get(0).getQuantity());
+    }
+
+    @Test
+    void compareThroughput() throws Exception {
+        Result legacy = hammer(() -> legacyAdd(customer.getCustomerId(), foodIds.get(0), 1));
+        report("find + scan + save (old)", legacy, rowsFor(foodIds.get(0)));
+
+        Result upsert = hammer(() -> cartService.addItemToCart(customer.getCustomerId(), foodIds.get(1), 1));
+        report("INSERT .. ON CONFLICT    ", upsert, rowsFor(foodIds.get(1)));
+    }
+
+    // what CartService.addItemToCart used to do
+    private void legacyAdd(int customerId, int foodId, int quantity) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            CustomerInfo info = customerRepo.findById(customerId).orElseThrow();
+            Food food = foodRepo.findById(foodId).orElseThrow();
+            Cart cart = cartRepo.findByCustomerInfo(info).orElseThrow();
+
+            Optional<CartItem> existing = cart.getCartItems().stream()
+                    .filter(item -> item.getFood().getId().equals(foodId))
+                    .findFirst();
+            if (existing.isPresent()) {
+                existing.get().setQuantity(existing.get().getQuantity() + quantity);
+            } else {
+                CartItem item = new CartItem();
+                item.setCart(cart);
+                item.setFood(food);
+                item.setQuantity(quantity);
+                item.setPriceAtTimeOfAddition(food.getPrice());
+                cart.getCartItems().add(item);
+            }
+            cartRepo.save(cart);
+        });
+    }
+
+    private record Result(long nanos, int failures) {
+    }
+
+    private Result hammer(Runnable add) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                    try {
+                        add.run();
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) future.get();
+        long nanos = System.nanoTime() - begin;
+        pool.shutdown();
+        return new Result(nanos, failures.get());
+    }
+
+    private List<CartItem> rowsFor(int foodId) {
+        return cartItemRepo.findByCart_CustomerInfo_CustomerId(customer.getCustomerId()).stream()
+                .filter(item -> item.getFood().getId() == foodId)
+                .toList();
+    }
+
+    private static void report(String label, Result result, List<CartItem> rows) {
+        int attempts = THREADS * ADDS_PER_THREAD;
+        int quantity = rows.stream().mapToInt(CartItem::getQuantity).sum();
+        System.out.printf("%s  %,8.0f adds/s  failed=%d  rows=%d  quantity=%d of %d (lost %d)%n",
+                label, attempts / (result.nanos() / 1e9), result.failures(), rows.size(), quantity, attempts,
+                attempts - result.failures() - quantity);
+    }
+}
@@ -0,0 +1,81 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CartJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayKeepsTheLastStateOfEveryLine() throws Exception {
+        try (CartJournal journal = new CartJournal(dir, false)) {
+            journal.append(List.of(entry(1, 7, 1), entry(1, 8, 2)));
+            journal.roll();
+            journal.append(List.of(entry(1, 7, 3), entry(2, 7, 1)));
+        }
+
+        Map<Integer, Map<Integer, CartJournal.Entry>> carts = CartJournal.replay(dir);
+
+        assertEquals(3, carts.get(1).get(7).quantity());
+        assertEquals(2, carts.get(1).get(8).quantity());
+        assertEquals(1, carts.get(2).get(7).quantity());
+    }
+
+    @Test
+    void flushedMarkerDropsEverythingBeforeIt() throws Exception {
+        try (CartJournal journal = new CartJournal(dir, false)) {
+            journal.append(List.of(entry(1, 7, 4), entry(2, 7, 1)));
+            journal.flushed(1);
+            journal.append(List.of(entry(1, 8, 1)));
+        }
+
+        Map<Integer, Map<Integer, CartJournal.Entry>> carts = CartJournal.replay(dir);
+
+        assertEquals(Map.of(8, entry(1, 8, 1)), carts.get(1));
+        assertEquals(1, carts.get(2).size());
+    }
+
+    @Test
+    void deletingOldSegmentsLeavesOnlyNewChanges() throws Exception {
+        try (CartJournal journal = new CartJournal(dir, false)) {
+            journal.append(List.of(entry(1, 7, 1)));
+            long segment = journal.roll();
+            journal.append(List.of(entry(2, 7, 5)));
+            journal.deleteBefore(segment);
+        }
+
+        Map<Integer, Map<Integer, CartJournal.Entry>> carts = CartJournal.replay(dir);
+
+        assertEquals(List.of(2), List.copyOf(carts.keySet()));
+    }
+
+    @Test
+    void ignoresALineCutShortByACrash() throws Exception {
+        try (CartJournal journal = new CartJournal(dir, false)) {
+            journal.append(List.of(entry(1, 7, 2)));
+        }
+        try (var files = Files.list(dir)) {
+            Path segment = files.findFirst().orElseThrow();
+            Files.writeString(segment, Files.readString(segment) + "S 1 8 3 12");
+        }
+
+        Map<Integer, Map<Integer, CartJournal.Entry>> carts = CartJournal.replay(dir);
+
+        assertEquals(2, carts.get(1).get(7).quantity());
+        assertEquals(1, carts.get(1).size());
+    }
+
+    private static CartJournal.Entry entry(int customerId, int foodId, int quantity) {
+        return new CartJournal.Entry(customerId, foodId, quantity, new BigDecimal("120.00"));
+    }
+}
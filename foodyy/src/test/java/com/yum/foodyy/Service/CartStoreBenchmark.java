@@ -0,0 +1,151 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Cart;
+import com.yum.foodyy.Entity.CartItem;
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Repo.CartItemRepo;
+import com.yum.foodyy.Repo.CartRepo;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// +/- clicks per second: the JPA path (load the CartItem, set the quantity, save, one transaction per click)
+// against the write-behind store (journal append + in memory change, flushed in the background).
+// Runs against the Postgres from application.properties, with the write-behind store switched on:
+//     mvn test -Dtest=CartStoreBenchmark
+@SpringBootTest(properties = {
+        "foodyy.cart.store=write-behind",
+        "foodyy.cart.write-behind.journal-dir=target/cart-journal-benchmark"
+})
+@ActiveProfiles("dev")
+class CartStoreBenchmark {
+
+    private static final int CUSTOMERS = 16;
+    private static final int CLICKS_PER_CUSTOMER = 500;
+
+    @Autowired private WriteBehindCartStore store;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private CartRepo cartRepo;
+    @Autowired private CartItemRepo cartItemRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final List<Integer> customerIds = new ArrayList<>();
+    private final List<Integer> itemIds = new ArrayList<>();
+    private Food food;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        Food newFood = new Food();
+        newFood.setName("Cart Store Benchmark " + suffix);
+        newFood.setPrice(BigDecimal.valueOf(80));
+        newFood.setCategory(FoodCategory.SNACK);
+        food = foodRepo.save(newFood);
+        catalogCacheService.invalidate();
+
+        for (int i = 0; i < CUSTOMERS; i++) {
+            CustomerInfo info = new CustomerInfo();
+            info.setName("Cart Store Benchmark");
+            info.setEmail("cart-store-" + suffix + "-" + i + "@example.com");
+            info.setPhone("8" + Math.abs((suffix + i).hashCode() % 1_000_000_000));
+            info.setPassword("Benchmark@123");
+            CustomerInfo customer = customerRepo.save(info);
+
+            Cart cart = new Cart();
+            cart.setCustomerInfo(customer);
+            cart = cartRepo.save(cart);
+
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setFood(food);
+            item.setQuantity(1);
+            item.setPriceAtTimeOfAddition(food.getPrice());
+            itemIds.add(cartItemRepo.save(item).getCartItemId());
+            customerIds.add(customer.getCustomerId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerIds.forEach(store::discard);
+        customerRepo.deleteAllById(customerIds);
+        foodRepo.deleteById(food.getId());
+        catalogCacheService.invalidate();
+    }
+
+    @Test
+    void clicksPerSecond() throws Exception {
+        double jpa = run(c -> {
+            int itemId = itemIds.get(c);
+            for (int i = 0; i < CLICKS_PER_CUSTOMER; i++) {
+                int quantity = i % 9 + 1;
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    CartItem item = cartItemRepo.findById(itemId).orElseThrow();
+                    item.setQuantity(quantity);
+                    cartItemRepo.save(item);
+                });
+            }
+        });
+
+        double writeBehind = run(c -> {
+            int customerId = customerIds.get(c);
+            for (int i = 0; i < CLICKS_PER_CUSTOMER; i++) {
+                store.apply(customerId, List.of(new CartOperation("set", food.getId(), null, i % 9 + 1)));
+            }
+        });
+
+        long flushStart = System.nanoTime();
+        store.flushAll();
+        double flushMs = (System.nanoTime() - flushStart) / 1e6;
+
+        System.out.printf("JPA read + save        %,10.0f clicks/s%n", jpa);
+        System.out.printf("write-behind store     %,10.0f clicks/s  (%.1fx), flushing %d carts took %.1f ms%n",
+                writeBehind, writeBehind / jpa, CUSTOMERS, flushMs);
+
+        // every cart ends on the quantity of its last click
+        int last = (CLICKS_PER_CUSTOMER - 1) % 9 + 1;
+        for (Integer customerId : customerIds) {
+            List<CartItem> items = cartItemRepo.findByCart_CustomerInfo_CustomerId(customerId);
+            assertEquals(1, items.size());
+            assertEquals(last, items.get(0).getQuantity());
+        }
+    }
+
+    // one thread per customer, returns clicks per second over all of them
+    private double run(IntConsumer customer) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(CUSTOMERS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            int index = c;
+            futures.add(pool.submit(() -> customer.accept(index)));
+        }
+        for (Future<?> future : futures) future.get();
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        return CUSTOMERS * CLICKS_PER_CUSTOMER / (nanos / 1e9);
+    }
+}
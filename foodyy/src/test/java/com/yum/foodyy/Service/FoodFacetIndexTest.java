@@ -0,0 +1,98 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FoodFacetIndexTest {
+
+    private final FoodFacetIndex index = new FoodFacetIndex(List.of(
+            food(1, FoodCategory.FULL_MEAL, false, Spiceiness.HOT, 320, 650.0, 25, true),
+            food(2, FoodCategory.FULL_MEAL, true, Spiceiness.MEDIUM, 240, 480.0, 20, true),
+            food(3, FoodCategory.SNACK, true, Spiceiness.MILD, 90, 150.0, 5, true),
+            food(4, FoodCategory.DESSERT, true, Spiceiness.MILD, 120, 300.0, 5, false),
+            food(5, FoodCategory.SNACK, false, Spiceiness.EXTRA_HOT, 150, 350.0, 12, true)
+    ));
+
+    @Test
+    void noFiltersReturnsEverything() {
+        FoodFacetIndex.Result result = index.filter(Map.of());
+
+        assertEquals(List.of(1, 2, 3, 4, 5), ids(result));
+        assertEquals(2, result.facets().get(FoodFacetIndex.CATEGORY).get("FULL_MEAL"));
+        assertEquals(0, result.facets().get(FoodFacetIndex.CATEGORY).get("BEVERAGE"));
+        assertEquals(1, result.facets().get(FoodFacetIndex.PRICE).get("0-100"));
+        assertEquals(1, result.facets().get(FoodFacetIndex.CALORIES).get("600+"));
+    }
+
+    @Test
+    void valuesOfOneFacetAreOredAndFacetsAreAnded() {
+        FoodFacetIndex.Result result = index.filter(Map.of(
+                FoodFacetIndex.CATEGORY, Set.of("snack", "dessert"),
+                FoodFacetIndex.VEG, Set.of("true")));
+
+        assertEquals(List.of(3, 4), ids(result));
+    }
+
+    @Test
+    void facetCountsIgnoreTheirOwnFilter() {
+        FoodFacetIndex.Result result = index.filter(Map.of(
+                FoodFacetIndex.CATEGORY, Set.of("SNACK"),
+                FoodFacetIndex.AVAILABLE, Set.of("true")));
+
+        assertEquals(List.of(3, 5), ids(result));
+        // categories are counted among the available foods only, not among the snacks
+        Map<String, Integer> categories = result.facets().get(FoodFacetIndex.CATEGORY);
+        assertEquals(2, categories.get("FULL_MEAL"));
+        assertEquals(2, categories.get("SNACK"));
+        assertEquals(0, categories.get("DESSERT"));
+        // availability is counted among the snacks only
+        assertEquals(2, result.facets().get(FoodFacetIndex.AVAILABLE).get("true"));
+        assertEquals(0, result.facets().get(FoodFacetIndex.AVAILABLE).get("false"));
+    }
+
+    @Test
+    void filtersByBands() {
+        FoodFacetIndex.Result result = index.filter(Map.of(
+                FoodFacetIndex.PRICE, Set.of("100-200", "200-300"),
+                FoodFacetIndex.PREP_TIME, Set.of("10-20", "20-30")));
+
+        assertEquals(List.of(2, 5), ids(result));
+    }
+
+    @Test
+    void rejectsUnknownValues() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.filter(Map.of(FoodFacetIndex.CATEGORY, Set.of("PIZZA"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.filter(Map.of(FoodFacetIndex.PRICE, Set.of("50-60"))));
+    }
+
+    private static List<Integer> ids(FoodFacetIndex.Result result) {
+        return result.foods().stream().map(Food::getId).toList();
+    }
+
+    private static Food food(int id, FoodCategory category, boolean veg, Spiceiness spiciness, int price,
+                             Double calories, Integer preparationTime, boolean available) {
+        Food food = new Food();
+        food.setId(id);
+        food.setName("Dish " + id);
+        food.setCategory(category);
+        food.setVeg(veg);
+        food.setSpiciness(spiciness);
+        food.setPrice(BigDecimal.valueOf(price));
+        food.setCalories(calories);
+        food.setPreparationTime(preparationTime);
+        food.setAvailable(available);
+        return food;
+    }
+}
@@ -0,0 +1,115 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.DTO.FoodPage;
+import com.yum.foodyy.Entity.DTO.FoodSummary;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Entity.Spiceiness;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Compares the payload of GET /customer/foods (List<Food> with base64 images) against one page of
+// GET /customer/foods/page (FoodSummary with image urls).
+// Not picked up by a normal "mvn test" because of the class name, run it with:
+//     mvn test -Dtest=FoodListingBenchmark
+// Only the serialization half of the request is measured here, the BYTEA read from Postgres comes on top of it.
+class FoodListingBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void compareListingPayloads() throws IOException {
+        List<Food> foods = loadFoods();
+
+        List<FoodSummary> summaries = foods.stream().map(FoodSummary::of).toList();
+        FoodPage page = new FoodPage(summaries, null, false);
+
+//        imageData is @JsonIgnore now, the mixin puts it back to reproduce the payload the endpoint used to send
+        ObjectMapper legacyMapper = new ObjectMapper().addMixIn(Food.class, LegacyFoodJson.class);
+
+        report("GET /customer/foods      (List<Food>)", legacyMapper, foods);
+        report("GET /customer/foods/page (FoodPage)  ", objectMapper, page);
+    }
+
+    private abstract static class LegacyFoodJson {
+        @JsonIgnore(false)
+        @JsonProperty("imageData")
+        byte[] imageData;
+    }
+
+    private void report(String label, ObjectMapper objectMapper, Object body) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            objectMapper.writeValueAsBytes(body);
+        }
+
+        long[] timings = new long[ITERATIONS];
+        int size = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            size = objectMapper.writeValueAsBytes(body).length;
+            timings[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(timings);
+
+        System.out.printf("%s  size=%,10d bytes  p50=%8.3f ms  p99=%8.3f ms%n",
+                label, size, timings[ITERATIONS / 2] / 1e6, timings[(int) (ITERATIONS * 0.99)] / 1e6);
+    }
+
+    // uses the real dish photos from food-images/ when the benchmark runs from a checkout, random bytes otherwise
+    private List<Food> loadFoods() throws IOException {
+        Path imageDir = Path.of("..", "food-images");
+        List<byte[]> images = new ArrayList<>();
+
+        if (Files.isDirectory(imageDir)) {
+            try (Stream<Path> files = Files.list(imageDir)) {
+                for (Path file : files.sorted().toList()) {
+                    images.add(Files.readAllBytes(file));
+                }
+            }
+        }
+        if (images.isEmpty()) {
+            Random random = new Random(42);
+            for (int i = 0; i < 20; i++) {
+                byte[] bytes = new byte[185_000];
+                random.nextBytes(bytes);
+                images.add(bytes);
+            }
+        }
+
+        List<Food> foods = new ArrayList<>();
+        for (int i = 0; i < images.size(); i++) {
+            Food food = new Food();
+            food.setId(i + 1);
+            food.setName("Dish " + (i + 1));
+            food.setDescription("A tasty dish served hot with a side of something nice.");
+            food.setPrice(BigDecimal.valueOf(199 + i * 10L));
+            food.setVeg(i % 2 == 0);
+            food.setIngredients("flour, salt, oil, spices");
+            food.setCalories(350.0 + i);
+            food.setPreparationTime(15);
+            food.setSpiciness(Spiceiness.MEDIUM);
+            food.setCategory(FoodCategory.values()[i % FoodCategory.values().length]);
+            food.setImageName("dish-" + i + ".jpg");
+            food.setImageType("image/jpeg");
+            food.setImageData(images.get(i));
+            food.setImageKey("%064x.jpg".formatted(i));
+            foods.add(food);
+        }
+        return foods;
+    }
+}
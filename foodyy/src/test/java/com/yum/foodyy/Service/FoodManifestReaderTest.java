@@ -0,0 +1,91 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FoodManifestReaderTest {
+
+    @Test
+    void readsCsvWithQuotedFields() throws IOException {
+        String csv = """
+                Name,Price,Preparation_Time,Description
+                Butter Chicken,320,25,"Creamy, rich ""makhani"" gravy"
+                
+                Paneer Tikka,240,,"Grilled
+                on skewers"
+                Gulab Jamun,120,5,Sweet
+                """;
+
+        List<FoodManifestReader.Row> rows = readAll(csv, FoodManifestReader.Format.CSV);
+
+        assertEquals(3, rows.size());
+        assertEquals("Creamy, rich \"makhani\" gravy", rows.get(0).values().get("description"));
+        assertEquals("25", rows.get(0).values().get("preparationtime"));
+        assertEquals(2, rows.get(0).line());
+
+        assertEquals("Grilled\non skewers", rows.get(1).values().get("description"));
+        assertNull(rows.get(1).values().get("preparationtime"));
+        assertEquals(4, rows.get(1).line());
+
+        assertEquals("Gulab Jamun", rows.get(2).values().get("name"));
+        assertEquals(6, rows.get(2).line());
+    }
+
+    @Test
+    void reportsRowsWithTooManyColumns() throws IOException {
+        List<FoodManifestReader.Row> rows = readAll("name,price\nSamosa,40,extra\nVada,30\n",
+                FoodManifestReader.Format.CSV);
+
+        assertNotNull(rows.get(0).error());
+        assertNull(rows.get(1).error());
+        assertEquals("Vada", rows.get(1).values().get("name"));
+    }
+
+    @Test
+    void readsNdjsonAndReportsBrokenLines() throws IOException {
+        String ndjson = """
+                {"name": "Masala Dosa", "price": 150, "isVeg": true, "preparation-time": 15}
+                {"name": "broken"
+                
+                {"name": "Lassi", "price": 90, "calories": null}
+                """;
+
+        List<FoodManifestReader.Row> rows = readAll(ndjson, FoodManifestReader.Format.NDJSON);
+
+        assertEquals(3, rows.size());
+        assertEquals("150", rows.get(0).values().get("price"));
+        assertEquals("true", rows.get(0).values().get("isveg"));
+        assertEquals("15", rows.get(0).values().get("preparationtime"));
+        assertNotNull(rows.get(1).error());
+        assertEquals(2, rows.get(1).line());
+        assertEquals(4, rows.get(2).line());
+        assertNull(rows.get(2).values().get("calories"));
+    }
+
+    @Test
+    void picksTheFormatFromTheFileName() {
+        assertEquals(FoodManifestReader.Format.NDJSON, FoodManifestReader.formatOf("menu.ndjson"));
+        assertEquals(FoodManifestReader.Format.NDJSON, FoodManifestReader.formatOf("menu.JSONL"));
+        assertEquals(FoodManifestReader.Format.CSV, FoodManifestReader.formatOf("menu.csv"));
+        assertEquals(FoodManifestReader.Format.CSV, FoodManifestReader.formatOf(null));
+    }
+
+    private static List<FoodManifestReader.Row> readAll(String text, FoodManifestReader.Format format)
+            throws IOException {
+        List<FoodManifestReader.Row> rows = new ArrayList<>();
+        try (FoodManifestReader reader = new FoodManifestReader(new StringReader(text), format)) {
+            for (FoodManifestReader.Row row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,98 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+// Compares the trigram index against what FoodRepo.searchFood used to do: LOWER(column) LIKE '%kw%' on name,
+// description and category plus CAST(price AS string), i.e. a scan of every row for every keystroke.
+// The scan is reproduced in memory, so the numbers leave out the round trip to Postgres and favour the old query.
+// Not picked up by a normal "mvn test" because of the class name, run it with:
+//     mvn test -Dtest=FoodSearchBenchmark
+class FoodSearchBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 10_000;
+    private static final List<String> QUERIES = List.of("chick", "paneer tikka", "biriyani", "dessert", "mango", "29");
+
+    private static final String[] DISHES = {"Butter Chicken", "Chicken Biryani", "Paneer Tikka", "Gulab Jamun",
+            "Mango Lassi", "Masala Dosa", "Veg Pulao", "Dal Makhani", "Chole Bhature", "Rasmalai"};
+    private static final String[] WORDS = {"creamy", "spicy", "tomato", "gravy", "rice", "saffron", "grilled",
+            "cottage", "cheese", "milk", "sugar", "crispy", "lentils", "butter", "onion", "garlic", "fresh"};
+
+    @Test
+    void compareSearch() {
+        for (int size : new int[]{100, 1_000, 10_000}) {
+            List<Food> foods = foods(size);
+            FoodSearchIndex index = new FoodSearchIndex(foods);
+
+            System.out.printf("%,d foods%n", size);
+            report("  LIKE '%kw%' scan", query -> likeScan(foods, query));
+            report("  trigram index   ", index::search);
+        }
+    }
+
+    private void report(String label, Function<String, List<?>> search) {
+        for (int i = 0; i < WARMUP; i++) {
+            search.apply(QUERIES.get(i % QUERIES.size()));
+        }
+
+        long[] timings = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            search.apply(QUERIES.get(i % QUERIES.size()));
+            timings[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(timings);
+
+        System.out.printf("%s  p50=%8.1f us  p99=%8.1f us%n",
+                label, timings[ITERATIONS / 2] / 1e3, timings[(int) (ITERATIONS * 0.99)] / 1e3);
+    }
+
+    private static List<Food> likeScan(List<Food> foods, String keyword) {
+        String kw = keyword.toLowerCase(Locale.ROOT);
+        List<Food> result = new ArrayList<>();
+        for (Food food : foods) {
+            if (food.getName().toLowerCase(Locale.ROOT).contains(kw)
+                    || food.getDescription().toLowerCase(Locale.ROOT).contains(kw)
+                    || food.getCategory().name().toLowerCase(Locale.ROOT).contains(kw)
+                    || food.getPrice().toString().contains(keyword)) {
+                result.add(food);
+            }
+        }
+        return result;
+    }
+
+    private static List<Food> foods(int size) {
+        Random random = new Random(42);
+        List<Food> foods = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Food food = new Food();
+            food.setId(i + 1);
+            food.setName(DISHES[i % DISHES.length] + " " + (i / DISHES.length));
+            food.setDescription(sentence(random, 12));
+            food.setIngredients(sentence(random, 5));
+            food.setCategory(FoodCategory.values()[i % FoodCategory.values().length]);
+            food.setPrice(BigDecimal.valueOf(99 + random.nextInt(400)));
+            foods.add(food);
+        }
+        return foods;
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sentence.append(' ');
+            sentence.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,75 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FoodSearchIndexTest {
+
+    private final FoodSearchIndex index = new FoodSearchIndex(List.of(
+            food(1, "Butter Chicken", "Creamy tomato gravy", "chicken, butter, cream", FoodCategory.FULL_MEAL, 320),
+            food(2, "Chicken Biryani", "Fragrant basmati rice", "rice, chicken, saffron", FoodCategory.FULL_MEAL, 280),
+            food(3, "Paneer Tikka", "Grilled cottage cheese with butter naan", "paneer, yoghurt", FoodCategory.APPETIZER, 240),
+            food(4, "Gulab Jamun", "Soft milk dumplings in syrup", "milk, sugar", FoodCategory.DESSERT, 120),
+            food(5, "Mango Lassi", "Chilled yoghurt drink", "mango, yoghurt", FoodCategory.BEVERAGE, 99)
+    ));
+
+    @Test
+    void ranksNameMatchesAboveDescriptionMatches() {
+        List<String> names = names("butter");
+
+        assertEquals(List.of("Butter Chicken", "Paneer Tikka"), names);
+    }
+
+    @Test
+    void toleratesTypos() {
+        assertEquals(List.of("Chicken Biryani"), names("biriyani"));
+        assertEquals(List.of("Gulab Jamun"), names("gulaab"));
+    }
+
+    @Test
+    void matchesWordPrefixesWhileTyping() {
+        assertEquals(List.of("Paneer Tikka"), names("pane"));
+    }
+
+    @Test
+    void requiresEveryQueryWord() {
+        assertEquals(List.of("Chicken Biryani"), names("chicken rice"));
+    }
+
+    @Test
+    void searchesCategoryIngredientsAndPrice() {
+        assertEquals(List.of("Gulab Jamun"), names("dessert"));
+        assertEquals(List.of("Paneer Tikka", "Mango Lassi"), names("yoghurt").stream().sorted().toList().reversed());
+        assertEquals(List.of("Mango Lassi"), names("99"));
+    }
+
+    @Test
+    void ignoresCaseAndPunctuation() {
+        assertEquals(names("butter chicken"), names("  BUTTER-Chicken! "));
+        assertTrue(names("   ").isEmpty());
+        assertTrue(names("pizza").isEmpty());
+    }
+
+    private List<String> names(String query) {
+        return index.search(query).stream().map(hit -> hit.food().getName()).toList();
+    }
+
+    private static Food food(int id, String name, String description, String ingredients,
+                             FoodCategory category, int price) {
+        Food food = new Food();
+        food.setId(id);
+        food.setName(name);
+        food.setDescription(description);
+        food.setIngredients(ingredients);
+        food.setCategory(category);
+        food.setPrice(BigDecimal.valueOf(price));
+        return food;
+    }
+}
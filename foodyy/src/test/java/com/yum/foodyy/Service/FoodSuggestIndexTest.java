@@ -0,0 +1,84 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.FoodSuggestion;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FoodSuggestIndexTest {
+
+    private final List<Food> foods = List.of(
+            food(1, "Butter Chicken", "chicken, butter, cream", FoodCategory.FULL_MEAL),
+            food(2, "Chicken Biryani", "rice, chicken, saffron", FoodCategory.FULL_MEAL),
+            food(3, "Chilli Paneer", "paneer, chilli", FoodCategory.APPETIZER),
+            food(4, "Chocolate Shake", "milk, cocoa", FoodCategory.BEVERAGE)
+    );
+
+    @Test
+    void matchesTheStartOfAnyWordOfTheName() {
+        FoodSuggestIndex index = FoodSuggestIndex.build(foods);
+
+        List<String> dishes = texts(index.suggest("chick", 10, id -> 0), FoodSuggestIndex.FOOD);
+
+        assertEquals(List.of("Butter Chicken", "Chicken Biryani"), dishes);
+    }
+
+    @Test
+    void ranksByOrderCount() {
+        FoodSuggestIndex index = FoodSuggestIndex.build(foods);
+        Map<Integer, Long> ordered = Map.of(2, 40L, 4, 500L);
+
+        List<FoodSuggestion> suggestions = index.suggest("ch", 3, id -> ordered.getOrDefault(id, 0L));
+
+        assertEquals("Chocolate Shake", suggestions.get(0).text());
+        assertEquals("Chicken Biryani", suggestions.get(1).text());
+        assertEquals(3, suggestions.size());
+    }
+
+    @Test
+    void suggestsIngredientsAndCategoriesOnce() {
+        FoodSuggestIndex index = FoodSuggestIndex.build(foods);
+
+        List<FoodSuggestion> suggestions = index.suggest("full", 10, id -> 0);
+        assertEquals(1, suggestions.size());
+        assertEquals("FULL_MEAL", suggestions.get(0).text());
+
+        List<String> ingredients = texts(index.suggest("sa", 10, id -> 0), FoodSuggestIndex.INGREDIENT);
+        assertEquals(List.of("saffron"), ingredients);
+    }
+
+    @Test
+    void updateOnlyReplacesChangedFoods() {
+        FoodSuggestIndex index = FoodSuggestIndex.build(foods);
+
+        List<Food> changed = new ArrayList<>(foods.subList(1, foods.size()));
+        changed.set(0, food(2, "Mutton Biryani", "rice, mutton", FoodCategory.FULL_MEAL));
+        changed.add(food(5, "Chicken Tikka", "chicken, yoghurt", FoodCategory.APPETIZER));
+        FoodSuggestIndex updated = index.update(changed);
+
+        assertEquals(List.of("Chicken Tikka"), texts(updated.suggest("chicken", 10, id -> 0), FoodSuggestIndex.FOOD));
+        assertEquals(List.of("Mutton Biryani"), texts(updated.suggest("mut", 10, id -> 0), FoodSuggestIndex.FOOD));
+        assertEquals(FoodSuggestIndex.build(changed).size(), updated.size());
+        assertTrue(index.suggest("mut", 10, id -> 0).isEmpty());
+    }
+
+    private static List<String> texts(List<FoodSuggestion> suggestions, String type) {
+        return suggestions.stream().filter(s -> s.type().equals(type)).map(FoodSuggestion::text).toList();
+    }
+
+    private static Food food(int id, String name, String ingredients, FoodCategory category) {
+        Food food = new Food();
+        food.setId(id);
+        food.setName(name);
+        food.setIngredients(ingredients);
+        food.setCategory(category);
+        return food;
+    }
+}
@@ -0,0 +1,58 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuestCartCodecTest {
+
+    private static final long NOW = 1_760_000_000L;
+    private static final long DAY = 24 * 60 * 60;
+
+    private final GuestCartCodec codec = new GuestCartCodec("test-secret".getBytes(StandardCharsets.UTF_8), 30 * DAY);
+
+    @Test
+    void roundTripsACompactCookie() {
+        Map<Integer, Integer> lines = new LinkedHashMap<>();
+        for (int foodId = 1; foodId <= 10; foodId++) lines.put(foodId * 37, foodId % 3 + 1);
+
+        String cookie = codec.encode(lines, NOW);
+
+        assertEquals(Optional.of(lines), codec.decode(cookie, NOW + 60));
+        assertTrue(cookie.length() < 80, "cookie was " + cookie.length() + " characters");
+    }
+
+    @Test
+    void rejectsATamperedCookie() {
+        String cookie = codec.encode(Map.of(7, 1), NOW);
+        byte[] value = Base64.getUrlDecoder().decode(cookie);
+        value[value.length - 17] ^= 1; // the quantity
+        String tampered = Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+
+        assertEquals(Optional.empty(), codec.decode(tampered, NOW));
+    }
+
+    @Test
+    void rejectsACookieSignedWithAnotherKey() {
+        GuestCartCodec other = new GuestCartCodec("other-secret".getBytes(StandardCharsets.UTF_8), 30 * DAY);
+
+        assertEquals(Optional.empty(), codec.decode(other.encode(Map.of(7, 1), NOW), NOW));
+    }
+
+    @Test
+    void rejectsExpiredAndMalformedCookies() {
+        String cookie = codec.encode(Map.of(7, 1), NOW);
+
+        assertEquals(Optional.empty(), codec.decode(cookie, NOW + 31 * DAY));
+        assertEquals(Optional.empty(), codec.decode("not base64!", NOW));
+        assertEquals(Optional.empty(), codec.decode("", NOW));
+        assertEquals(Optional.empty(), codec.decode(cookie.substring(0, 10), NOW));
+    }
+}
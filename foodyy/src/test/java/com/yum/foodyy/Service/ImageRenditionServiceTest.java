@@ -0,0 +1,103 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.ImageSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImageRenditionServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private MediaStoreService mediaStoreService;
+    private ImageRenditionService renditionService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mediaStoreService = new MediaStoreService();
+        ReflectionTestUtils.setField(mediaStoreService, "mediaDir", dir.toString());
+        mediaStoreService.init();
+
+        renditionService = new ImageRenditionService();
+        ReflectionTestUtils.setField(renditionService, "mediaStoreService", mediaStoreService);
+        ReflectionTestUtils.setField(renditionService, "threads", 1);
+        ReflectionTestUtils.setField(renditionService, "queueSize", 10);
+        renditionService.init();
+    }
+
+    @Test
+    void generatesDownscaledRenditions() throws Exception {
+        String key = mediaStoreService.store(jpeg(2000, 1000), "image/jpeg", "big.jpg");
+
+        ImageRenditionService.Rendition pending = renditionService.resolve(key, ImageSize.CARD).orElseThrow();
+        renditionService.generate(key);
+        ImageRenditionService.Rendition card = renditionService.resolve(key, ImageSize.CARD).orElseThrow();
+
+        BufferedImage image = ImageIO.read(card.file().toFile());
+        assertEquals(ImageRenditionService.Status.READY, card.status());
+        assertEquals(480, image.getWidth());
+        assertEquals(240, image.getHeight());
+        assertTrue(card.etag().endsWith("-card\""));
+        // the original is never handed out in its place
+        assertEquals(ImageRenditionService.Status.PENDING, pending.status());
+        assertNull(pending.file());
+    }
+
+    @Test
+    void failedImagesAreNotRetriedUntilUploadedAgain() throws Exception {
+        String key = mediaStoreService.store(jpeg(2000, 1000), "image/jpeg", "big.jpg");
+        // a plain file where the renditions directory should be makes every write fail
+        Path renditions = Files.createFile(dir.resolve("renditions"));
+
+        renditionService.generate(key);
+
+        assertEquals(ImageRenditionService.Status.FAILED, renditionService.resolve(key, ImageSize.CARD).orElseThrow().status());
+
+        Files.delete(renditions);
+        renditionService.schedule(key);
+        renditionService.shutdown();
+        assertTrue(((ThreadPoolExecutor) ReflectionTestUtils.getField(renditionService, "executor"))
+                .awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(ImageRenditionService.Status.READY, renditionService.resolve(key, ImageSize.CARD).orElseThrow().status());
+    }
+
+    @Test
+    void smallImagesAreCopiedAsIs() throws Exception {
+        String key = mediaStoreService.store(jpeg(100, 80), "image/jpeg", "small.jpg");
+
+        renditionService.generate(key);
+
+        for (ImageSize size : ImageRenditionService.GENERATED) {
+            ImageRenditionService.Rendition rendition = renditionService.resolve(key, size).orElseThrow();
+            assertEquals(ImageRenditionService.Status.READY, rendition.status());
+            assertEquals(100, ImageIO.read(rendition.file().toFile()).getWidth());
+        }
+    }
+
+    @Test
+    void unknownKeyResolvesToNothing() {
+        assertFalse(renditionService.resolve("0".repeat(64) + ".jpg", ImageSize.CARD).isPresent());
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,91 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MediaDeliveryServiceTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    private final MediaDeliveryService service = new MediaDeliveryService();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void servesWholeFileWithCachingHeaders() throws Exception {
+        Path file = write("0123456789");
+        MockHttpServletResponse response = serve(file, new MockHttpServletRequest("GET", "/images/x"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertEquals(MediaDeliveryService.CACHE_IMMUTABLE, response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    void answers304WhenEtagMatches() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/x");
+        request.addHeader("If-None-Match", "\"other\", W/\"abc\"");
+
+        MockHttpServletResponse response = serve(write("0123456789"), request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servesSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/x");
+        request.addHeader("Range", "bytes=2-5");
+
+        MockHttpServletResponse response = serve(write("0123456789"), request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void ignoresRangeWhenIfRangeIsStale() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/x");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"old\"");
+
+        MockHttpServletResponse response = serve(write("0123456789"), request);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void rejectsRangePastTheEnd() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/images/x");
+        request.addHeader("Range", "bytes=50-60");
+
+        MockHttpServletResponse response = serve(write("0123456789"), request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = dir.resolve("file.jpg");
+        Files.writeString(file, content);
+        return file;
+    }
+
+    private MockHttpServletResponse serve(Path file, MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(file, ETAG, MediaDeliveryService.CACHE_IMMUTABLE, MediaType.IMAGE_JPEG, request, response);
+        return response;
+    }
+}
@@ -0,0 +1,111 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.Food;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MenuSnapshotServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MenuSnapshotService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MenuSnapshotService();
+        ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+        service.onCatalogRefreshed(event(1, "Butter Chicken"));
+    }
+
+    @Test
+    void servesGzipWhenAccepted() throws Exception {
+        MockHttpServletResponse response = get(Map.of("Accept-Encoding", "gzip, deflate, br"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        assertEquals("Butter Chicken", objectMapper.readTree(json).get(0).get("name").asText());
+    }
+
+    @Test
+    void servesPlainJsonOtherwise() throws Exception {
+        MockHttpServletResponse response = get(Map.of("Accept-Encoding", "gzip;q=0, identity"));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Butter Chicken", objectMapper.readTree(response.getContentAsByteArray()).get(0).get("name").asText());
+    }
+
+    @Test
+    void answersNotModifiedForTheCurrentEtag() throws Exception {
+        String etag = get(Map.of("Accept-Encoding", "gzip")).getHeader("ETag");
+
+        MockHttpServletResponse response = get(Map.of("Accept-Encoding", "gzip", "If-None-Match", etag));
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void newSnapshotChangesTheEtag() throws Exception {
+        String before = get(Map.of()).getHeader("ETag");
+
+        service.onCatalogRefreshed(event(2, "Paneer Tikka"));
+        MockHttpServletResponse response = get(Map.of("If-None-Match", before));
+
+        assertEquals(200, response.getStatus());
+        assertNotEquals(before, response.getHeader("ETag"));
+    }
+
+    @Test
+    void olderSnapshotDoesNotReplaceNewerOne() throws Exception {
+        service.onCatalogRefreshed(event(3, "Paneer Tikka"));
+        service.onCatalogRefreshed(event(2, "Gulab Jamun"));
+
+        assertTrue(get(Map.of()).getContentAsString().contains("Paneer Tikka"));
+    }
+
+    @Test
+    void parsesAcceptEncoding() {
+        assertTrue(MenuSnapshotService.acceptsGzip("gzip"));
+        assertTrue(MenuSnapshotService.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+        assertTrue(MenuSnapshotService.acceptsGzip("*"));
+        assertFalse(MenuSnapshotService.acceptsGzip("*, gzip;q=0"));
+        assertFalse(MenuSnapshotService.acceptsGzip("identity"));
+        assertFalse(MenuSnapshotService.acceptsGzip(null));
+    }
+
+    private MockHttpServletResponse get(Map<String, String> headers) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customer/foods");
+        headers.forEach(request::addHeader);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.serve(request, response);
+        return response;
+    }
+
+    private static CatalogRefreshedEvent event(long version, String name) {
+        Food food = new Food();
+        food.setId(1);
+        food.setName(name);
+        food.setPrice(BigDecimal.valueOf(250));
+        return new CatalogRefreshedEvent(new CatalogCacheService.Snapshot(
+                version, List.of(food), Map.of(1, food), LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,65 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.CartConcurrencyStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OptimisticRetryTest {
+
+    private final OptimisticRetry retry = new OptimisticRetry();
+
+    @Test
+    void retriesUntilTheWriteGoesThrough() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.retry(() -> {
+            if (attempts.incrementAndGet() < 3) throw conflict();
+            return "saved";
+        });
+
+        assertEquals("saved", result);
+        assertEquals(3, attempts.get());
+        CartConcurrencyStats stats = retry.stats();
+        assertEquals(1, stats.writes());
+        assertEquals(2, stats.conflicts());
+        assertEquals(2, stats.retries());
+        assertEquals(0, stats.exhausted());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(CartConflictException.class, () -> retry.retry(() -> {
+            attempts.incrementAndGet();
+            throw conflict();
+        }));
+
+        assertEquals(4, attempts.get());
+        assertEquals(1, retry.stats().exhausted());
+        assertEquals(3, retry.stats().retries());
+    }
+
+    @Test
+    void staleClientVersionIsNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(CartConflictException.class, () -> retry.retry(() -> {
+            attempts.incrementAndGet();
+            throw new CartConflictException("stale");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals(1, retry.stats().staleVersions());
+        assertEquals(0, retry.stats().conflicts());
+    }
+
+    private static ObjectOptimisticLockingFailureException conflict() {
+        return new ObjectOptimisticLockingFailureException("CartItem", 1);
+    }
+}
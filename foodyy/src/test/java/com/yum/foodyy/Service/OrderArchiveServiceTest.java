@@ -0,0 +1,92 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderArchiveServiceTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void everyCustomerIsReadBackFromTheirOwnBlock() throws IOException {
+        // 40 customers with 1-5 orders each, sorted the way the export sorts them, a few orders without a customer last
+        List<OrderArchiveService.ArchivedOrder> orders = new ArrayList<>();
+        for (int customer = 1; customer <= 40; customer++) {
+            for (int n = customer % 5; n >= 0; n--) orders.add(order(customer, n));
+        }
+        orders.add(order(null, 1));
+        orders.add(order(null, 0));
+
+        Path segment = dir.resolve("orders-2024-03.ndjson.gz");
+        OrderArchiveService.SegmentWriter writer;
+        try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(segment))) {
+            writer = new OrderArchiveService.SegmentWriter(out, mapper, 1024);
+            for (OrderArchiveService.ArchivedOrder order : orders) writer.write(order);
+            writer.close();
+        }
+
+        assertEquals(orders.size(), writer.orders());
+        assertEquals(2L * orders.size(), writer.items());
+        assertEquals(Files.size(segment), writer.bytes());
+        assertEquals(40, writer.index().size());
+        assertTrue(writer.index().stream().map(OrderArchiveService.BlockStart::offset).distinct().count() > 1,
+                "small blocks make more than one gzip member");
+
+        for (OrderArchiveService.BlockStart block : writer.index()) {
+            List<OrderArchiveService.ArchivedOrder> read = new ArrayList<>();
+            OrderArchiveService.readCustomer(segment, block.offset(), block.customerId(), mapper, read::add);
+
+            List<OrderArchiveService.ArchivedOrder> expected = orders.stream()
+                    .filter(order -> Integer.valueOf(block.customerId()).equals(order.customerId())).toList();
+            assertEquals(expected, read);
+            assertEquals(expected.size(), block.orders());
+        }
+    }
+
+    @Test
+    void archivedOrdersLookLikeTheOnesInTheTable() {
+        var response = order(3, 2).toResponse();
+
+        assertEquals("order-3-2", response.orderId());
+        assertEquals("customer 3", response.customerName());
+        assertEquals(2, response.items().size());
+        assertEquals("pizza", response.items().get(0).foodName());
+        assertEquals(new BigDecimal("12.50"), response.totalAmount());
+    }
+
+    @Test
+    void partitionAndSegmentNames() {
+        YearMonth march = YearMonth.of(2025, 3);
+
+        assertEquals("customer_order_y2025m03", OrderPartitionService.partitionName(OrderPartitionService.ORDERS, march));
+        assertEquals(march, OrderPartitionService.monthOf("customer_order_items_y2025m03"));
+        assertNull(OrderPartitionService.monthOf("customer_order_default"));
+        assertEquals("orders-2025-03.ndjson.gz", OrderArchiveService.segmentName(march));
+    }
+
+    private static OrderArchiveService.ArchivedOrder order(Integer customerId, int n) {
+        return new OrderArchiveService.ArchivedOrder(
+                "order-" + customerId + "-" + n, customerId, "customer " + customerId, "c@example.com", "street 1",
+                "DELIVERED", LocalDateTime.of(2024, 3, 1 + n, 12, 0), new BigDecimal("12.50"), null,
+                List.of(new OrderArchiveService.ArchivedItem(1, "pizza", 1, new BigDecimal("10.00")),
+                        new OrderArchiveService.ArchivedItem(2, "cola", 1, new BigDecimal("2.50"))));
+    }
+}
@@ -0,0 +1,108 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Cart;
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.OrderRequest;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Repo.CartItemRepo;
+import com.yum.foodyy.Repo.CartRepo;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// A "+1" on a cart line while that line is being ordered must not be deleted with the order.
+// Runs against a throwaway Postgres like OrderQueryCountTest.
+@SpringBootTest
+@ActiveProfiles("dev")
+@DirtiesContext
+class OrderCartLockTest {
+
+    private static final long ORDER_TAKES_MS = 1000;
+
+    @Autowired private OrderService orderService;
+    @Autowired private CartItemRepo cartItemRepo;
+    @Autowired private CartRepo cartRepo;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @Test
+    void addingToALineThatIsBeingOrderedWaitsAndStaysInTheCart() throws Exception {
+        CustomerInfo info = new CustomerInfo();
+        info.setName("Cart Lock Test");
+        info.setEmail("cart-lock@example.com");
+        info.setPhone("7000000001");
+        info.setPassword("Benchmark@123");
+        CustomerInfo customer = customerRepo.save(info);
+
+        Cart cart = new Cart();
+        cart.setCustomerInfo(customer);
+        cartRepo.save(cart);
+
+        Food food = new Food();
+        food.setName("Cart Lock Test");
+        food.setPrice(BigDecimal.TEN);
+        food.setCategory(FoodCategory.SNACK);
+        int foodId = foodRepo.save(food).getId();
+        catalogCacheService.onRemoteChange();
+
+        int customerId = customer.getCustomerId();
+        transactionTemplate.executeWithoutResult(status -> cartItemRepo.addQuantity(customerId, foodId, 2, BigDecimal.TEN));
+
+        // the order's side of addOrder: read (and lock) the cart, take a while, delete what it read
+        CountDownLatch read = new CountDownLatch(1);
+        CompletableFuture<Void> order = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            List<CartItemRepo.OrderableItem> items = cartItemRepo.findOrderableItems(customerId);
+            read.countDown();
+            try {
+                Thread.sleep(ORDER_TAKES_MS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            cartItemRepo.deleteOrdered(items.get(0).getCartId(),
+                    items.stream().map(CartItemRepo.OrderableItem::getCartItemId).toList());
+        }));
+        read.await();
+
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> cartItemRepo.addQuantity(customerId, foodId, 1, BigDecimal.TEN));
+        long waitedMs = (System.nanoTime() - start) / 1_000_000;
+        order.get();
+
+        assertTrue(waitedMs >= ORDER_TAKES_MS / 2, "the upsert waited for the order, waited " + waitedMs + " ms");
+        assertEquals(List.of(1), jdbcTemplate.queryForList("SELECT quantity FROM cart_item", Integer.class));
+
+        // and the whole of addOrder goes through with the locking read
+        orderService.addOrder(customerId, new OrderRequest("Test street"), null);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM cart_item", Integer.class));
+    }
+}
@@ -0,0 +1,129 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderStatusEvent;
+import com.yum.foodyy.Entity.DTO.OrderStreamStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderEventHubTest {
+
+    private final OrderEventHub hub = new OrderEventHub();
+
+    // an emitter that records what would have gone over the wire, optionally stuck until released
+    private static class RecordingEmitter extends SseEmitter {
+        final List<String> sent = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        volatile boolean completed;
+
+        RecordingEmitter(boolean stuck) {
+            release = new CountDownLatch(stuck ? 1 : 0);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StringBuilder text = new StringBuilder();
+            Set<DataWithMediaType> parts = builder.build();
+            for (DataWithMediaType part : parts) {
+                text.append(part.getData() instanceof String s ? s : "<" + part.getData() + ">");
+            }
+            sent.add(text.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(hub, "close");
+    }
+
+    @Test
+    void changesReachOnlyTheStreamsOfThatCustomer() throws Exception {
+        RecordingEmitter mine = new RecordingEmitter(false);
+        RecordingEmitter other = new RecordingEmitter(false);
+        hub.subscribe(7, List.of(new OrderStatusEvent("ORD-1", "PLACED")), mine);
+        hub.subscribe(8, List.of(), other);
+
+        hub.publish(7, new OrderStatusEvent("ORD-1", "COOKING"));
+
+        awaitSent(mine, 2);
+        assertTrue(mine.sent.get(0).contains("event:snapshot"));
+        assertTrue(mine.sent.get(1).contains("event:status"));
+        assertTrue(mine.sent.get(1).contains("COOKING"));
+        awaitSent(other, 1);
+        assertEquals(1, other.sent.size());
+    }
+
+    @Test
+    void aStreamThatStopsReadingIsClosedOnceItsBufferIsFull() throws Exception {
+        ReflectionTestUtils.setField(hub, "bufferSize", 4);
+        RecordingEmitter stuck = new RecordingEmitter(true);
+        RecordingEmitter reading = new RecordingEmitter(false);
+        hub.subscribe(7, List.of(), stuck);
+        hub.subscribe(7, List.of(), reading);
+        awaitSent(reading, 1);
+
+        // the stuck stream's queue fills up 4 events in, the reading one keeps up the whole time
+        for (int i = 0; i < 6; i++) {
+            hub.publish(7, new OrderStatusEvent("ORD-" + i, "COOKING"));
+            awaitSent(reading, i + 2);
+        }
+
+        assertTrue(stuck.completed);
+        OrderStreamStats stats = hub.stats();
+        assertEquals(1, stats.subscribers());
+        assertEquals(1, stats.evicted());
+        stuck.release.countDown();
+    }
+
+    @Test
+    void heartbeatsKeepIdleStreamsTalking() throws Exception {
+        RecordingEmitter idle = new RecordingEmitter(false);
+        hub.subscribe(7, List.of(), idle);
+
+        hub.heartbeat();
+
+        awaitSent(idle, 2);
+        assertTrue(idle.sent.get(1).startsWith(":ping"));
+    }
+
+    @Test
+    void refusesStreamsOverTheLimits() {
+        ReflectionTestUtils.setField(hub, "maxPerCustomer", 1);
+        ReflectionTestUtils.setField(hub, "maxSubscribers", 2);
+        hub.subscribe(7, List.of(), new RecordingEmitter(false));
+
+        assertThrows(IllegalStateException.class, () -> hub.subscribe(7, List.of(), new RecordingEmitter(false)));
+        hub.subscribe(8, List.of(), new RecordingEmitter(false));
+        assertThrows(IllegalStateException.class, () -> hub.subscribe(9, List.of(), new RecordingEmitter(false)));
+
+        assertEquals(2, hub.stats().subscribers());
+        assertEquals(2, hub.stats().rejected());
+    }
+
+    private static void awaitSent(RecordingEmitter emitter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.sent.size() < count && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(count, emitter.sent.size());
+    }
+}
@@ -0,0 +1,69 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderFilter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderFeedQueryTest {
+
+    private static final OrderFilter NO_FILTER = new OrderFilter(null, null, null, null, null);
+
+    @Test
+    void firstPageIsATopNOfTheDateIndex() {
+        OrderFeedQuery query = OrderFeedQuery.of(NO_FILTER, null, 21);
+
+        assertEquals("SELECT o.id, o.order_date FROM customer_order o WHERE o.order_date IS NOT NULL"
+                + " ORDER BY o.order_date DESC, o.id DESC LIMIT ?", query.sql());
+        assertArrayEquals(new Object[]{21}, query.args());
+    }
+
+    @Test
+    void laterPagesSeekPastTheCursorWithTheFilters() {
+        LocalDateTime last = LocalDateTime.of(2026, 3, 14, 19, 30, 5, 123_456_000);
+        OrderFilter filter = new OrderFilter(List.of("delivered"), LocalDate.of(2026, 3, 1), LocalDate.of(2026, 3, 31),
+                42, new BigDecimal("500"));
+
+        OrderFeedQuery query = OrderFeedQuery.of(filter, new OrderFeedQuery.Cursor(last, 977), 21);
+
+        assertTrue(query.sql().contains(" AND o.status = ? AND o.customer_id = ? AND o.order_date >= ?"
+                + " AND o.order_date < ? AND o.total_amount >= ? AND (o.order_date, o.id) < (?, ?)"));
+        assertArrayEquals(new Object[]{"DELIVERED", 42, LocalDateTime.of(2026, 3, 1, 0, 0),
+                LocalDateTime.of(2026, 4, 1, 0, 0), new BigDecimal("500"), last, 977L, 21}, query.args());
+    }
+
+    @Test
+    void severalStatusesAreMergedFromOneBranchEach() {
+        OrderFilter filter = new OrderFilter(List.of("PLACED", "cooking", "placed", " "), null, null, null, null);
+
+        OrderFeedQuery query = OrderFeedQuery.of(filter, null, 11);
+
+        assertTrue(query.sql().startsWith("SELECT id FROM ((SELECT"));
+        assertTrue(query.sql().endsWith(") page ORDER BY order_date DESC, id DESC LIMIT ?"));
+        assertEquals(1, query.sql().split("UNION ALL", -1).length - 1);
+        assertArrayEquals(new Object[]{"PLACED", 11, "COOKING", 11, 11}, query.args());
+    }
+
+    @Test
+    void cursorRoundTripsAndRejectsGarbage() {
+        OrderFeedQuery.Cursor cursor = new OrderFeedQuery.Cursor(LocalDateTime.of(2026, 10, 17, 8, 0, 0, 1_000), 12);
+
+        String encoded = cursor.encode();
+
+        assertFalse(encoded.contains("|"));
+        assertEquals(cursor, OrderFeedQuery.Cursor.decode(encoded));
+        assertThrows(IllegalArgumentException.class, () -> OrderFeedQuery.Cursor.decode("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> OrderFeedQuery.Cursor.decode("MjAyNg"));
+        assertThrows(IllegalArgumentException.class, () -> OrderFeedQuery.of(
+                new OrderFilter(null, LocalDate.of(2026, 2, 1), LocalDate.of(2026, 1, 1), null, null), null, 5));
+    }
+}
@@ -0,0 +1,65 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Order ids per second: the Snowflake style generator against the old "ORD-" + 8 characters of a random UUID,
+// on 1 thread and on as many threads as there are cores. Each round is measured after a warm-up of the same size.
+// No database needed, but it's a measurement and not a check, so it only runs on request:
+//     mvn test -Dtest=OrderIdGeneratorBenchmark
+class OrderIdGeneratorBenchmark {
+
+    private static final int IDS_PER_THREAD = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    private final OrderIdGenerator generator = new OrderIdGenerator();
+
+    @Test
+    void idsPerSecond() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Supplier<String> uuid = () -> "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        for (int threads : new int[]{1, cores}) {
+            double snowflake = best(generator::nextId, threads);
+            double random = best(uuid, threads);
+            System.out.printf("%2d thread(s)  OrderIdGenerator %,14.0f ids/s   UUID substring %,14.0f ids/s  (%.1fx)%n",
+                    threads, snowflake, random, snowflake / random);
+        }
+    }
+
+    // best of ROUNDS measured runs, after one unmeasured run to warm the JIT
+    private double best(Supplier<String> ids, int threads) throws Exception {
+        run(ids, threads);
+        double best = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            best = Math.max(best, run(ids, threads));
+        }
+        return best;
+    }
+
+    private double run(Supplier<String> ids, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                int sink = 0;
+                for (int i = 0; i < IDS_PER_THREAD; i++) sink += ids.get().charAt(6);
+                return sink;
+            }));
+        }
+        int sink = 0;
+        for (Future<Integer> future : futures) sink += future.get();
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        if (sink == 42) System.out.println();
+        return (double) threads * IDS_PER_THREAD / (nanos / 1e9);
+    }
+}
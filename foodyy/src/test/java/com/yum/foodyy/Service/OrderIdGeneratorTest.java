@@ -0,0 +1,143 @@
+package com.yum.foodyy.Service;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIdGeneratorTest {
+
+    private final AtomicLong clock = new AtomicLong(Instant.parse("2026-10-17T09:30:00Z").toEpochMilli());
+    private final OrderIdGenerator generator = new OrderIdGenerator() {
+        @Override
+        long currentMillis() {
+            return clock.get();
+        }
+    };
+
+    @Test
+    void idsAreUniqueAndIncreasingAcrossThreads() throws Exception {
+        OrderIdGenerator realClock = new OrderIdGenerator();
+        int threads = 16;
+        int perThread = 50_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                List<String> ids = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) ids.add(realClock.nextId());
+                return ids;
+            }));
+        }
+
+        Set<String> all = new HashSet<>();
+        for (Future<List<String>> future : futures) {
+            List<String> ids = future.get();
+            for (int i = 1; i < ids.size(); i++) {
+                // what one thread sees only goes up, as text as well as as a number
+                assertTrue(ids.get(i).compareTo(ids.get(i - 1)) > 0);
+            }
+            all.addAll(ids);
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, all.size());
+    }
+
+    @Test
+    void idsAreReadableAndCarryTimeAndNode() {
+        ReflectionTestUtils.setField(generator, "nodeId", 5);
+
+        String id = generator.nextId();
+
+        assertTrue(id.matches("ORD-[0-9A-HJKMNP-TV-Z]{13}"), id);
+        assertEquals(Instant.ofEpochMilli(clock.get()), OrderIdGenerator.createdAt(id));
+        long number = OrderIdGenerator.decode(id);
+        assertEquals(5, (number >>> OrderIdGenerator.SEQUENCE_BITS) & OrderIdGenerator.MAX_NODE_ID);
+        assertEquals(id, OrderIdGenerator.PREFIX + OrderIdGenerator.encode(number));
+    }
+
+    @Test
+    void keepsCountingWhenTheClockStepsBackOrTheSequenceRunsOut() {
+        long first = generator.nextNumber();
+
+        clock.addAndGet(-2_000);
+        long afterStepBack = generator.nextNumber();
+        assertTrue(afterStepBack > first);
+
+        long previous = afterStepBack;
+        for (int i = 0; i < 10_000; i++) {
+            long next = generator.nextNumber();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void everyNodeClaimsItsOwnNodeIdAndStopsWhenItLosesIt() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            OrderIdGenerator first = node(postgres, 0);
+            OrderIdGenerator second = node(postgres, -1);
+            first.claimNodeId();
+            second.claimNodeId();
+            assertEquals(1, ReflectionTestUtils.getField(second, "nodeId"));
+
+            // a node configured with an id that a live node holds doesn't start
+            assertThrows(IllegalStateException.class, node(postgres, 1)::claimNodeId);
+
+            // the session of the first node is killed, the lock goes with it and a new node takes the id
+            try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+                connection.createStatement().execute("SELECT pg_terminate_backend(pid) FROM pg_locks "
+                        + "WHERE locktype = 'advisory' AND objid = 0");
+            }
+            OrderIdGenerator third = node(postgres, -1);
+            third.claimNodeId();
+            assertEquals(0, ReflectionTestUtils.getField(third, "nodeId"));
+
+            // the first node notices and hands out no ids until it has its id back
+            first.checkClaim();
+            assertThrows(IllegalStateException.class, first::nextId);
+            third.release();
+            first.checkClaim();
+            first.nextId();
+
+            first.release();
+            second.release();
+        }
+    }
+
+    @Test
+    void rejectsWhatItDidNotGenerate() {
+        assertThrows(IllegalArgumentException.class, () -> OrderIdGenerator.decode("ORD-1A2B3C4D"));
+        assertThrows(IllegalArgumentException.class, () -> OrderIdGenerator.decode("ORD-0000000000OIL"));
+
+        ReflectionTestUtils.setField(generator, "nodeId", 1024);
+        assertThrows(IllegalArgumentException.class, generator::checkNodeId);
+        ReflectionTestUtils.setField(generator, "nodeId", -2);
+        assertThrows(IllegalArgumentException.class, generator::checkNodeId);
+    }
+
+    private static OrderIdGenerator node(EmbeddedPostgres postgres, int nodeId) {
+        OrderIdGenerator node = new OrderIdGenerator();
+        ReflectionTestUtils.setField(node, "nodeId", nodeId);
+        ReflectionTestUtils.setField(node, "url", postgres.getJdbcUrl("postgres", "postgres"));
+        ReflectionTestUtils.setField(node, "username", "postgres");
+        ReflectionTestUtils.setField(node, "password", "postgres");
+        return node;
+    }
+}
@@ -0,0 +1,112 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.DTO.OrderRequest;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderIdempotencyServiceTest {
+
+    private static final OrderRequest REQUEST = new OrderRequest("12 Lake Road, Pune");
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final OrderIdempotencyService service = new OrderIdempotencyService() {
+        @Override
+        long now() {
+            return clock.get();
+        }
+    };
+    private final AtomicInteger placed = new AtomicInteger();
+
+    @Test
+    void concurrentDuplicatesWaitForTheFirstAndShareItsOrder() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<OrderResponse> slowOrder = () -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return order();
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<OrderResponse>> responses = new ArrayList<>();
+        responses.add(pool.submit(() -> service.run("7:tap", REQUEST, slowOrder)));
+        running.await();
+        for (int i = 0; i < 7; i++) {
+            responses.add(pool.submit(() -> service.run("7:tap", REQUEST, slowOrder)));
+        }
+        release.countDown();
+
+        OrderResponse first = responses.get(0).get(5, TimeUnit.SECONDS);
+        for (Future<OrderResponse> response : responses) {
+            assertSame(first, response.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, placed.get());
+        pool.shutdown();
+    }
+
+    @Test
+    void laterDuplicatesReplayUntilTheKeyExpires() {
+        OrderResponse first = service.run("7:retry", REQUEST, this::order);
+
+        assertSame(first, service.run("7:retry", REQUEST, this::order));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.run("7:retry", new OrderRequest("somewhere else"), this::order));
+        assertEquals(1, placed.get());
+
+        clock.addAndGet(TimeUnit.HOURS.toMillis(25));
+        service.run("7:retry", REQUEST, this::order);
+        assertEquals(2, placed.get());
+    }
+
+    @Test
+    void aFailedOrderFreesTheKey() {
+        assertThrows(IllegalStateException.class, () -> service.run("7:empty-cart", REQUEST, () -> {
+            throw new IllegalStateException("Cart is empty");
+        }));
+
+        service.run("7:empty-cart", REQUEST, this::order);
+        assertEquals(1, placed.get());
+        assertEquals(1, service.size());
+    }
+
+    @Test
+    void keepsAtMostMaxKeys() {
+        ReflectionTestUtils.setField(service, "maxKeys", 2);
+
+        service.run("1:a", REQUEST, this::order);
+        service.run("1:b", REQUEST, this::order);
+        service.run("1:c", REQUEST, this::order);
+
+        assertEquals(2, service.size());
+        service.run("1:a", REQUEST, this::order);
+        assertEquals(4, placed.get());
+    }
+
+    private OrderResponse order() {
+        int n = placed.incrementAndGet();
+        return new OrderResponse("ORD-" + n, "Asha", "asha@example.com", REQUEST.address(), "PLACED",
+                LocalDateTime.now(), BigDecimal.TEN, List.of());
+    }
+}
@@ -0,0 +1,190 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.CustomerOrder;
+import com.yum.foodyy.Entity.CustomerOrderItems;
+import com.yum.foodyy.Entity.DTO.OrderPage;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.FoodyyApplication;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import com.yum.foodyy.Repo.OrderRepo;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Hibernate makes plain order tables, POST /admin/orders/partition turns them into partitioned ones with the keys
+// and foreign keys of the old tables. Runs against a throwaway Postgres like OrderQueryCountTest.
+@SpringBootTest(properties = "foodyy.order.archive.enabled=false")
+@ActiveProfiles("dev")
+@DirtiesContext
+class OrderPartitionMigrationTest {
+
+    private static final String CONSTRAINTS_SQL =
+            "SELECT conname || ' ' || pg_get_constraintdef(oid) FROM pg_constraint " +
+            "WHERE conrelid = to_regclass(?) ORDER BY conname";
+
+    private static EmbeddedPostgres postgres;
+    private static Path archiveDir;
+
+    @Autowired private OrderPartitionService orderPartitionService;
+    @Autowired private OrderArchiveService orderArchiveService;
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepo orderRepo;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.builder().start();
+        archiveDir = Files.createTempDirectory("order-archive");
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("foodyy.order.archive.dir", archiveDir::toString);
+    }
+
+    @Test
+    void plainTablesBecomePartitionedWithTheirKeys() throws IOException {
+        CustomerInfo info = new CustomerInfo();
+        info.setName("Partition Test");
+        info.setEmail("partition@example.com");
+        info.setPhone("7000000002");
+        info.setPassword("Benchmark@123");
+        CustomerInfo customer = customerRepo.save(info);
+
+        Food dish = new Food();
+        dish.setName("Partition Test");
+        dish.setPrice(BigDecimal.TEN);
+        dish.setCategory(FoodCategory.SNACK);
+        Food food = foodRepo.save(dish);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime longAgo = now.minusMonths(14);
+        save(customer, food, "ORD-PARTITION-NEW", now);
+        save(customer, food, "ORD-PARTITION-OLD", longAgo);
+        assertEquals("r", relkind(OrderPartitionService.ORDERS));
+
+        assertEquals("moved 2 orders and 2 order items into monthly partitions", orderPartitionService.convertToPartitioned());
+        assertEquals(OrderPartitionService.ORDERS + " is already partitioned", orderPartitionService.convertToPartitioned());
+
+        assertEquals("p", relkind(OrderPartitionService.ORDERS));
+        assertEquals("p", relkind(OrderPartitionService.ITEMS));
+        List<String> orderKeys = jdbcTemplate.queryForList(CONSTRAINTS_SQL, String.class, OrderPartitionService.ORDERS);
+        List<String> itemKeys = jdbcTemplate.queryForList(CONSTRAINTS_SQL, String.class, OrderPartitionService.ITEMS);
+        assertTrue(orderKeys.contains("customer_order_pkey PRIMARY KEY (id, order_date)"), orderKeys.toString());
+        assertTrue(orderKeys.contains("uk_customer_order_order_id UNIQUE (order_id, order_date)"), orderKeys.toString());
+        assertTrue(orderKeys.stream().anyMatch(key -> key.contains("REFERENCES customer_info(customer_id)")), orderKeys.toString());
+        assertTrue(itemKeys.contains("customer_order_items_pkey PRIMARY KEY (id, order_date)"), itemKeys.toString());
+        assertTrue(itemKeys.contains("fk_customer_order_items_order FOREIGN KEY (order_id, order_date) " +
+                "REFERENCES customer_order(id, order_date)"), itemKeys.toString());
+        assertTrue(itemKeys.stream().anyMatch(key -> key.contains("REFERENCES food(id)")), itemKeys.toString());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_indexes WHERE indexname = 'idx_customer_order_date'", Integer.class));
+
+        // an item of an order that isn't there
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO customer_order_items (id, quantity, total_price, food_id, order_id, order_date) " +
+                "VALUES (-1, 1, 10, ?, -1, now())", food.getId()));
+        assertEquals(2, orderService.getOrdersByCustomer(customer.getCustomerId()).size());
+
+        // the old month leaves the tables (the items partition before the orders one) and is read from the archive,
+        // only when its page is asked for
+        List<String> archived = orderArchiveService.archiveOldMonths();
+        String segment = OrderArchiveService.segmentName(YearMonth.from(longAgo));
+        assertEquals(segment, archived.get(0), archived.toString());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM customer_order", Integer.class));
+        assertEquals(List.of("ORD-PARTITION-NEW"), orderService.getOrdersByCustomer(customer.getCustomerId()).stream()
+                .map(OrderResponse::orderId).toList());
+        OrderPage page = orderArchiveService.readCustomerOrders(customer.getCustomerId(), null);
+        assertEquals(List.of("ORD-PARTITION-OLD"), page.items().stream().map(OrderResponse::orderId).toList());
+        assertFalse(page.hasMore());
+        assertTrue(orderArchiveService.readCustomerOrders(customer.getCustomerId(), segment).items().isEmpty());
+
+        // a segment that can't be read fails the page instead of coming back without its orders
+        Path file = archiveDir.resolve(segment);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.delete(file);
+        assertThrows(UncheckedIOException.class, () -> orderArchiveService.readCustomerOrders(customer.getCustomerId(), null));
+        Files.write(file, bytes);
+
+        // a node starting on the partitioned tables: the schema update (which stops at its first failing statement
+        // here) leaves them alone and schema-postgres.sql goes through
+        try (ConfigurableApplicationContext restarted = new SpringApplicationBuilder(FoodyyApplication.class)
+                .profiles("dev")
+                .run("--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--server.port=0",
+                        "--foodyy.order.archive.enabled=false",
+                        "--spring.jpa.properties.hibernate.hbm2ddl.halt_on_error=true")) {
+            assertEquals("p", relkind(OrderPartitionService.ORDERS));
+        }
+    }
+
+    // customer_order can't keep order ids unique once it is partitioned, order_id_claim does
+    @Test
+    void takenOrderIdsAreSkipped() {
+        jdbcTemplate.update("INSERT INTO order_id_claim (order_id) VALUES ('ORD-TAKEN')");
+        Iterator<String> ids = List.of("ORD-TAKEN", "ORD-FREE").iterator();
+        OrderIdGenerator generator = (OrderIdGenerator) ReflectionTestUtils.getField(orderService, "orderIdGenerator");
+        ReflectionTestUtils.setField(orderService, "orderIdGenerator", new OrderIdGenerator() {
+            @Override
+            public String nextId() {
+                return ids.hasNext() ? ids.next() : "ORD-TAKEN";
+            }
+        });
+        try {
+            assertEquals("ORD-FREE", ReflectionTestUtils.invokeMethod(orderService, "claimOrderId"));
+            assertThrows(IllegalStateException.class, () -> ReflectionTestUtils.invokeMethod(orderService, "claimOrderId"));
+        } finally {
+            ReflectionTestUtils.setField(orderService, "orderIdGenerator", generator);
+        }
+    }
+
+    private void save(CustomerInfo customer, Food food, String orderId, LocalDateTime orderDate) {
+        CustomerOrder order = new CustomerOrder();
+        order.setOrderId(orderId);
+        order.setCustomerInfo(customer);
+        order.setEmail(customer.getEmail());
+        order.setAddress("Test street");
+        order.setStatus("DELIVERED");
+        order.setOrderDate(orderDate);
+        order.setTotalAmount(food.getPrice());
+        order.setOrderItems(List.of(CustomerOrderItems.builder().food(food).quantity(1).totalPrice(food.getPrice())
+                .order(order).orderDate(orderDate).build()));
+        orderRepo.save(order);
+    }
+
+    private String relkind(String table) {
+        return jdbcTemplate.queryForObject("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)", String.class, table);
+    }
+}
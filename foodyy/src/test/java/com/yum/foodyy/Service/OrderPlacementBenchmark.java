@@ -0,0 +1,123 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.Cart;
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.DTO.CartOperation;
+import com.yum.foodyy.Entity.DTO.OrderRequest;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Repo.CartRepo;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import com.yum.foodyy.Repo.OrderRepo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Latency of placing an order against the number of items in the cart, with the statements each placement sends.
+// Every round fills the cart with one batch call (not measured) and then times OrderService.addOrder alone.
+// Runs against the Postgres from application.properties:
+//     mvn test -Dtest=OrderPlacementBenchmark
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("dev")
+class OrderPlacementBenchmark {
+
+    private static final int[] ITEM_COUNTS = {1, 4, 12, 24, 48};
+    private static final int WARMUP = 10;
+    private static final int ROUNDS = 40;
+
+    @Autowired private OrderService orderService;
+    @Autowired private CartService cartService;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private CartRepo cartRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private OrderRepo orderRepo;
+    @Autowired private CatalogCacheService catalogCacheService;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private CustomerInfo customer;
+    private final List<Food> foods = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        CustomerInfo info = new CustomerInfo();
+        info.setName("Order Placement Benchmark");
+        info.setEmail("order-placement-" + suffix + "@example.com");
+        info.setPhone("6" + Math.abs(suffix.hashCode() % 1_000_000_000));
+        info.setPassword("Benchmark@123");
+        customer = customerRepo.save(info);
+
+        Cart cart = new Cart();
+        cart.setCustomerInfo(customer);
+        cartRepo.save(cart);
+
+        for (int i = 0; i < ITEM_COUNTS[ITEM_COUNTS.length - 1]; i++) {
+            Food food = new Food();
+            food.setName("Order Placement Benchmark " + suffix + " " + i);
+            food.setPrice(BigDecimal.valueOf(40 + i));
+            food.setCategory(FoodCategory.SNACK);
+            foods.add(foodRepo.save(food));
+        }
+        catalogCacheService.invalidate();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepo.deleteAll(orderRepo.findByCustomerInfo_CustomerIdOrderByOrderDateDesc(customer.getCustomerId()));
+        customerRepo.delete(customer);
+        foodRepo.deleteAll(foods);
+        catalogCacheService.invalidate();
+    }
+
+    @Test
+    void latencyByItemCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < WARMUP; i++) place(12);
+
+        System.out.println("items   median ms   p95 ms   statements");
+        for (int items : ITEM_COUNTS) {
+            long[] nanos = new long[ROUNDS];
+            long statements = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                fillCart(items);
+                statistics.clear();
+                long start = System.nanoTime();
+                assertEquals(items, orderService.addOrder(customer.getCustomerId(), new OrderRequest("Benchmark lane"), null)
+                        .items().size());
+                nanos[round] = System.nanoTime() - start;
+                statements += statistics.getPrepareStatementCount();
+            }
+            Arrays.sort(nanos);
+            System.out.printf("%5d   %9.2f   %6.2f   %10.1f%n", items,
+                    nanos[ROUNDS / 2] / 1e6, nanos[(int) (ROUNDS * 0.95)] / 1e6, (double) statements / ROUNDS);
+        }
+    }
+
+    private void place(int items) {
+        fillCart(items);
+        orderService.addOrder(customer.getCustomerId(), new OrderRequest("Benchmark lane"), null);
+    }
+
+    private void fillCart(int items) {
+        List<CartOperation> operations = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            operations.add(new CartOperation("add", foods.get(i).getId(), null, 1 + i % 3));
+        }
+        cartService.applyBatch(customer.getCustomerId(), operations);
+    }
+}
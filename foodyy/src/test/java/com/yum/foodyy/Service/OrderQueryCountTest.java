@@ -0,0 +1,155 @@
+package com.yum.foodyy.Service;
+
+import com.yum.foodyy.Entity.CustomerInfo;
+import com.yum.foodyy.Entity.CustomerOrder;
+import com.yum.foodyy.Entity.CustomerOrderItems;
+import com.yum.foodyy.Entity.DTO.OrderFilter;
+import com.yum.foodyy.Entity.DTO.OrderPage;
+import com.yum.foodyy.Entity.DTO.OrderResponse;
+import com.yum.foodyy.Entity.Food;
+import com.yum.foodyy.Entity.FoodCategory;
+import com.yum.foodyy.Repo.CustomerRepo;
+import com.yum.foodyy.Repo.FoodRepo;
+import com.yum.foodyy.Repo.OrderRepo;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The order pages must cost the same number of SQL statements for 1 order or 50, counted with Hibernate statistics.
+// Runs against a throwaway Postgres started for this class (embedded-postgres), never the developer database.
+// The context is closed after the class so nothing keeps talking to it, the server itself stops with the JVM.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("dev")
+@DirtiesContext
+class OrderQueryCountTest {
+
+    private static final int ORDERS = 20;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired private OrderService orderService;
+    @Autowired private OrderRepo orderRepo;
+    @Autowired private CustomerRepo customerRepo;
+    @Autowired private FoodRepo foodRepo;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private CustomerInfo customer;
+    private final List<Food> foods = new ArrayList<>();
+    private final List<CustomerOrder> orders = new ArrayList<>();
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        CustomerInfo info = new CustomerInfo();
+        info.setName("Order Query Test");
+        info.setEmail("order-query-" + suffix + "@example.com");
+        info.setPhone("7" + Math.abs(suffix.hashCode() % 1_000_000_000));
+        info.setPassword("Benchmark@123");
+        customer = customerRepo.save(info);
+
+        for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+            Food food = new Food();
+            food.setName("Order Query Test " + suffix + " " + i);
+            food.setPrice(BigDecimal.valueOf(50 + i));
+            food.setCategory(FoodCategory.SNACK);
+            foods.add(foodRepo.save(food));
+        }
+
+        for (int o = 0; o < ORDERS; o++) {
+            CustomerOrder order = new CustomerOrder();
+            order.setOrderId("ORD-T" + suffix.toUpperCase() + o);
+            order.setCustomerInfo(customer);
+            order.setEmail(customer.getEmail());
+            order.setAddress("Test street " + o);
+            order.setStatus("PLACED");
+            order.setOrderDate(LocalDateTime.now().minusMinutes(o));
+            order.setTotalAmount(BigDecimal.valueOf(153));
+
+            List<CustomerOrderItems> items = new ArrayList<>();
+            for (Food food : foods) {
+                items.add(CustomerOrderItems.builder().food(food).quantity(1).totalPrice(food.getPrice())
+                        .order(order).orderDate(order.getOrderDate()).build());
+            }
+            order.setOrderItems(items);
+            orders.add(orderRepo.save(order));
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepo.deleteAll(orders);
+        customerRepo.delete(customer);
+        foodRepo.deleteAll(foods);
+    }
+
+    @Test
+    void customerOrderHistoryIsTwoStatements() {
+        List<OrderResponse> history = orderService.getOrdersByCustomer(customer.getCustomerId());
+
+        assertEquals(ORDERS, history.size());
+        assertEquals(ITEMS_PER_ORDER, history.get(0).items().size());
+        assertEquals("Order Query Test", history.get(0).customerName());
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    // the id query of a page goes through JdbcTemplate, hibernate only sees (and counts) the other two
+    @Test
+    void everyAdminFeedPageIsTwoHibernateStatements() {
+        OrderFilter filter = new OrderFilter(null, null, null, customer.getCustomerId(), null);
+
+        OrderPage first = orderService.orderPage(filter, null, 8);
+        assertEquals(2, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        OrderPage second = orderService.orderPage(filter, first.nextCursor(), 8);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        assertEquals(8, first.items().size());
+        assertEquals(ITEMS_PER_ORDER, second.items().get(0).items().size());
+        assertEquals(orders.get(8).getOrderId(), second.items().get(0).orderId());
+        assertTrue(second.hasMore());
+    }
+
+    @Test
+    void statusUpdateIsOneWriteAndTwoReads() {
+        OrderResponse updated = orderService.updateOrderStatus(orders.get(0).getOrderId(), "delivered");
+
+        assertEquals("DELIVERED", updated.status());
+        assertEquals(ITEMS_PER_ORDER, updated.items().size());
+        // the update (and the outbox row it writes) goes through JdbcTemplate, hibernate only counts the two reads
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
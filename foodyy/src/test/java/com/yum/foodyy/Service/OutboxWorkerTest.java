@@ -0,0 +1,133 @@
+package com.yum.foodyy.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yum.foodyy.Entity.DTO.OrderEventPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboxWorkerTest {
+
+    private static final String PAYLOAD = "{\"customerId\":7,\"previousStatus\":null,\"order\":null}";
+
+    private final OutboxWorker worker = new OutboxWorker();
+    private final List<Integer> customersSeen = new ArrayList<>();
+
+    // a handler that fails as long as failing is set
+    private class FlakyHandler implements OutboxHandler {
+        boolean failing;
+
+        @Override
+        public String name() {
+            return "flaky";
+        }
+
+        @Override
+        public boolean handles(String eventType) {
+            return true;
+        }
+
+        @Override
+        public void handle(long eventId, String eventType, OrderEventPayload payload) {
+            if (failing) throw new IllegalStateException("mail server down");
+            customersSeen.add(payload.customerId());
+        }
+    }
+
+    private final FlakyHandler handler = new FlakyHandler();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(worker, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(worker, "handlers", List.of(handler));
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+    }
+
+    @Test
+    void handledRowsAreDone() {
+        OutboxWorker.Settled settled = settle(row(1, "flaky", PAYLOAD, 1));
+
+        assertEquals(OutboxWorker.Settled.done(1), settled);
+        assertEquals(List.of(7), customersSeen);
+    }
+
+    @Test
+    void failedRowsAreRetriedUntilTheLastAttempt() {
+        handler.failing = true;
+
+        OutboxWorker.Settled retry = settle(row(1, "flaky", PAYLOAD, 2));
+        OutboxWorker.Settled dead = settle(row(2, "flaky", PAYLOAD, 3));
+
+        assertEquals(OutboxWorker.Result.RETRY, retry.result());
+        assertTrue(retry.error().contains("mail server down"));
+        assertEquals(OutboxWorker.Result.DEAD, dead.result());
+        assertEquals(2L, dead.id());
+    }
+
+    @Test
+    void rowsThatCanNeverWorkAreDeadRightAway() {
+        assertEquals(OutboxWorker.Result.DEAD, settle(row(1, "renamed", PAYLOAD, 1)).result());
+        assertEquals(OutboxWorker.Result.DEAD, settle(row(2, "flaky", "{not json", 1)).result());
+    }
+
+    @Test
+    void eachRowIsMarkedAsItFinishesAndRowsTakenByAnotherWorkerAreSkipped() {
+        // a lease of 0 renews before every row, row 2 was claimed again by someone else in the meantime
+        ReflectionTestUtils.setField(worker, "leaseSeconds", 0L);
+        List<String> statements = new ArrayList<>();
+        ReflectionTestUtils.setField(worker, "jdbcTemplate", new JdbcTemplate() {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                statements.add("renew " + batchArgs.stream().map(args -> args[1].toString()).toList());
+                return batchArgs.stream().mapToInt(args -> args[1].equals(2L) ? 0 : 1).toArray();
+            }
+
+            @Override
+            public int update(String sql, Object... args) {
+                statements.add("done " + args[0] + " after " + customersSeen.size() + " handled");
+                return 1;
+            }
+        });
+
+        worker.process(List.of(row(1, "flaky", PAYLOAD, 1), row(2, "flaky", PAYLOAD, 1), row(3, "flaky", PAYLOAD, 1)));
+
+        assertEquals(List.of(
+                "renew [1, 2, 3]", "done 1 after 1 handled",
+                "renew [2, 3]",
+                "renew [3]", "done 3 after 2 handled"), statements);
+    }
+
+    @Test
+    void backoffGrowsPerAttemptUpToTheCap() {
+        ReflectionTestUtils.setField(worker, "baseBackoffMs", 100L);
+        ReflectionTestUtils.setField(worker, "maxBackoffMs", 1000L);
+
+        long firstMax = 0;
+        long laterMax = 0;
+        for (int i = 0; i < 2000; i++) {
+            long first = worker.backoffMs(1);
+            long later = worker.backoffMs(40);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(later >= 0 && later <= 1000);
+            firstMax = Math.max(firstMax, first);
+            laterMax = Math.max(laterMax, later);
+        }
+        assertTrue(laterMax > 100);
+        assertTrue(firstMax > 0);
+    }
+
+    private OutboxWorker.Settled settle(OutboxWorker.Claimed row) {
+        return worker.settle(row, worker.handlersByName());
+    }
+
+    private static OutboxWorker.Claimed row(long id, String handler, String payload, int attempts) {
+        return new OutboxWorker.Claimed(id, OrderOutbox.ORDER_PLACED, handler, payload, attempts, 5);
+    }
+}
@@ -0,0 +1,36 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SalesRollupServiceTest {
+
+    @Test
+    void placedOrdersCountAsSales() {
+        assertEquals(1, SalesRollupService.salesSign(OrderOutbox.ORDER_PLACED, null, "PLACED"));
+        assertEquals(0, SalesRollupService.salesSign(OrderOutbox.ORDER_PLACED, null, "CANCELLED"));
+    }
+
+    @Test
+    void onlyCancellingOrUncancellingMovesTheSales() {
+        assertEquals(0, SalesRollupService.salesSign(OrderOutbox.ORDER_STATUS_CHANGED, "PLACED", "COOKING"));
+        assertEquals(-1, SalesRollupService.salesSign(OrderOutbox.ORDER_STATUS_CHANGED, "COOKING", "CANCELLED"));
+        assertEquals(1, SalesRollupService.salesSign(OrderOutbox.ORDER_STATUS_CHANGED, "CANCELLED", "PLACED"));
+    }
+
+    @Test
+    void rangesAreCheckedBeforeQuerying() {
+        LocalDate day = LocalDate.of(2025, 3, 1);
+
+        assertDoesNotThrow(() -> SalesRollupService.checkRange(day, day, 31));
+        assertDoesNotThrow(() -> SalesRollupService.checkRange(day, day.plusDays(30), 31));
+        assertThrows(IllegalArgumentException.class, () -> SalesRollupService.checkRange(day, day.plusDays(31), 31));
+        assertThrows(IllegalArgumentException.class, () -> SalesRollupService.checkRange(day, day.minusDays(1), 31));
+        assertThrows(IllegalArgumentException.class, () -> SalesRollupService.checkRange(null, day, 31));
+    }
+}
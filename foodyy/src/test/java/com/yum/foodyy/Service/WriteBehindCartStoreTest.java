@@ -0,0 +1,159 @@
+package com.yum.foodyy.Service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindCartStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final WriteBehindCartStore store = new WriteBehindCartStore();
+    private final List<String> statements = new ArrayList<>();
+    private boolean databaseDown;
+    // runs at the start of every batch, to hold a write up half way
+    private volatile Runnable beforeBatch = () -> {
+    };
+
+    // records the batches, fails them while databaseDown is set
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            beforeBatch.run();
+            if (databaseDown) throw new DataAccessResourceFailureException("connection refused");
+            batchArgs.forEach(args -> statements.add(sql.trim().split("\\s+")[0] + " " + List.of(args)));
+            return new int[batchArgs.size()];
+        }
+    };
+
+    private final PlatformTransactionManager transactionManager = new PlatformTransactionManager() {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "idleMs", 600_000L);
+        ReflectionTestUtils.setField(store, "journal", new CartJournal(dir, false));
+        ReflectionTestUtils.setField(store, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(store, "transactionManager", transactionManager);
+    }
+
+    @Test
+    void aFailedFlushIsWrittenByTheNextOne() {
+        WriteBehindCartStore.CachedCart cart = cart(7, Map.of(1, 0, 2, 3));
+
+        databaseDown = true;
+        store.flushAll();
+
+        assertEquals(Set.of(1, 2), cart.dirty);
+        assertTrue(cart.lines.containsKey(1), "the removed line is kept until its delete is written");
+
+        databaseDown = false;
+        store.flushAll();
+
+        assertTrue(cart.dirty.isEmpty());
+        assertEquals(Set.of(2), cart.lines.keySet());
+        assertTrue(statements.contains("DELETE [7, 1]"));
+        assertTrue(statements.contains("INSERT [3, 1.00, 2, 7]"));
+    }
+
+    @Test
+    void aCustomerFlushAfterAFailedBatchStillWorks() {
+        cart(7, Map.of(1, 0));
+
+        databaseDown = true;
+        store.flushAll();
+        databaseDown = false;
+        store.flush(7);
+
+        assertEquals(List.of("DELETE [7, 1]"), statements);
+    }
+
+    @Test
+    void aBatchBeingWrittenOnlyHoldsUpTheCustomersInIt() throws Exception {
+        cart(7, Map.of(1, 2));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean held = new AtomicBoolean();
+        beforeBatch = () -> {
+            if (!held.compareAndSet(false, true)) return;
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        CompletableFuture<Void> batch = CompletableFuture.runAsync(store::flushAll);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // another customer flushes while the batch is stuck in its write
+        cart(8, Map.of(3, 1));
+        CompletableFuture.runAsync(() -> store.flush(8)).get(5, TimeUnit.SECONDS);
+
+        // customer 7 waits for the batch that holds their older changes
+        CompletableFuture<Void> flush7 = CompletableFuture.runAsync(() -> store.flush(7));
+        Thread.sleep(200);
+        assertFalse(flush7.isDone());
+
+        release.countDown();
+        batch.get(5, TimeUnit.SECONDS);
+        flush7.get(5, TimeUnit.SECONDS);
+        assertTrue(statements.contains("INSERT [1, 1.00, 3, 8]"));
+        assertTrue(statements.contains("INSERT [2, 1.00, 1, 7]"));
+    }
+
+    // a cached cart where every line was changed since the last flush
+    private WriteBehindCartStore.CachedCart cart(int customerId, Map<Integer, Integer> quantities) {
+        WriteBehindCartStore.CachedCart cart = new WriteBehindCartStore.CachedCart();
+        quantities.forEach((foodId, quantity) -> {
+            WriteBehindCartStore.Line line = new WriteBehindCartStore.Line();
+            line.quantity = quantity;
+            line.price = new BigDecimal("1.00");
+            cart.lines.put(foodId, line);
+            cart.dirty.add(foodId);
+        });
+        cart.touchedAt = System.currentTimeMillis();
+        @SuppressWarnings("unchecked")
+        Map<Integer, WriteBehindCartStore.CachedCart> carts =
+                (Map<Integer, WriteBehindCartStore.CachedCart>) ReflectionTestUtils.getField(store, "carts");
+        carts.put(customerId, cart);
+        return cart;
+    }
+}